@@ -0,0 +1,134 @@
+package com.pgsa.trailers.benchmark.jmh;
+
+import com.pgsa.trailers.entity.assets.Driver;
+import com.pgsa.trailers.entity.assets.Vehicle;
+import com.pgsa.trailers.entity.ops.Customer;
+import com.pgsa.trailers.entity.ops.Load;
+import com.pgsa.trailers.entity.ops.Trip;
+import com.pgsa.trailers.entity.ops.TripMetrics;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Fully populated, detached entities shaped like a typical long-haul load: customer,
+ * vehicle, driver, supervisor and metrics on every trip.
+ */
+final class Fixtures {
+
+    private static final String[] STATUSES = {"PLANNED", "IN_PROGRESS", "COMPLETED", "FINALIZED"};
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 2, 6, 0);
+
+    private Fixtures() {
+    }
+
+    static Customer customer() {
+        Customer customer = Customer.builder()
+                .customerCode("CUST-0042")
+                .name("Highveld Beverages (Pty) Ltd")
+                .email("logistics@highveld.example")
+                .phone("+27 11 555 0142")
+                .city("Johannesburg")
+                .province("Gauteng")
+                .creditLimit(new BigDecimal("250000.00"))
+                .isActive(true)
+                .build();
+        customer.setId(42L);
+        return customer;
+    }
+
+    static Load load(int tripCount) {
+        Customer customer = customer();
+        Load load = Load.builder()
+                .loadNumber("LD-2026-000981")
+                .referenceNumber("PO-77812")
+                .description("Mixed pallets, Johannesburg to Durban")
+                .customerId(customer.getId())
+                .customer(customer)
+                .commodityType("BEVERAGES")
+                .status("IN_TRANSIT")
+                .originLocation("Johannesburg, Gauteng")
+                .destinationLocation("Durban, KwaZulu-Natal")
+                .priority("HIGH")
+                .trips(new ArrayList<>())
+                .build();
+        load.setId(981L);
+        for (int i = 0; i < tripCount; i++) {
+            Trip trip = trip(i);
+            trip.setLoad(load);
+            load.getTrips().add(trip);
+        }
+        load.setTripsCount(tripCount);
+        return load;
+    }
+
+    static Trip trip(int seq) {
+        LocalDateTime start = START.plusHours(seq * 6L);
+        Trip trip = new Trip();
+        trip.setId(10_000L + seq);
+        trip.setTripNumber("TRP-2026-" + (10_000 + seq));
+        trip.setTripType("LONG_HAUL");
+        trip.setStatus(STATUSES[seq % STATUSES.length]);
+        trip.setCustomer(customer());
+        trip.setVehicle(vehicle(seq));
+        trip.setDriver(driver(seq, "Thabo", "Nkosi"));
+        trip.setSupervisor(driver(seq + 500, "Anele", "Dlamini"));
+        trip.setOriginLocation("Johannesburg, Gauteng");
+        trip.setOriginCity("Johannesburg");
+        trip.setOriginProvince("Gauteng");
+        trip.setOriginLatitude(-26.2041);
+        trip.setOriginLongitude(28.0473);
+        trip.setDestinationLocation("Durban, KwaZulu-Natal");
+        trip.setDestinationCity("Durban");
+        trip.setDestinationProvince("KwaZulu-Natal");
+        trip.setDestinationLatitude(-29.8587);
+        trip.setDestinationLongitude(31.0218);
+        trip.setPlannedStartDate(start);
+        trip.setPlannedEndDate(start.plusHours(8));
+        trip.setCommodityType("BEVERAGES");
+        trip.setCargoDescription("22 pallets canned soft drinks");
+        trip.setCargoWeight(new BigDecimal("18450.50"));
+        trip.setCargoValue(new BigDecimal("412000.00"));
+        trip.setPalletCount(22);
+        trip.setPlannedDistanceKm(new BigDecimal("568.40"));
+        trip.setPlannedDurationHours(new BigDecimal("7.50"));
+        trip.setFromDepotKm(new BigDecimal("18.20"));
+        trip.setToDepotKm(new BigDecimal("12.70"));
+        trip.setReferenceNumber("PO-77812-" + seq);
+        trip.setCreatedAt(start.minusDays(2));
+        trip.setMetrics(metrics(trip));
+        return trip;
+    }
+
+    private static Vehicle vehicle(int seq) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(300L + seq % 12);
+        vehicle.setRegistrationNumber("HX " + (40 + seq % 12) + " PG GP");
+        vehicle.setMake("Volvo");
+        vehicle.setModel("FH 440");
+        return vehicle;
+    }
+
+    private static Driver driver(int seq, String firstName, String lastName) {
+        Driver driver = new Driver();
+        driver.setId(700L + seq % 30);
+        driver.setFirstName(firstName);
+        driver.setLastName(lastName);
+        driver.setLicenseNumber("EC1-" + (880_000 + seq));
+        return driver;
+    }
+
+    private static TripMetrics metrics(Trip trip) {
+        TripMetrics metrics = new TripMetrics();
+        metrics.setId(trip.getId());
+        metrics.setTrip(trip);
+        metrics.setTotalDistanceKm(new BigDecimal("587.43"));
+        metrics.setTotalDurationHours(new BigDecimal("7.25"));
+        metrics.setAverageSpeedKmh(new BigDecimal("81.02"));
+        metrics.setFuelUsedLiters(new BigDecimal("205.60"));
+        metrics.setCostAmount(new BigDecimal("4831.60"));
+        metrics.setRevenueAmount(new BigDecimal("14500.00"));
+        return metrics;
+    }
+}
@@ -0,0 +1,60 @@
+package com.pgsa.trailers.benchmark.jmh;
+
+import com.pgsa.trailers.service.routing.GeocodingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GeocodingService address normalisation, which runs on every geocode before the HTTP call:
+ * the chain of replaceAll calls in cleanAddress and the split in extractCityName. Each
+ * invocation takes the next address from a mix of the formats users type in.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeocodingBenchmark {
+
+    private static final MethodHandle CLEAN_ADDRESS = PrivateMethods.find(GeocodingService.class,
+            "cleanAddress", String.class, String.class);
+    private static final MethodHandle EXTRACT_CITY_NAME = PrivateMethods.find(GeocodingService.class,
+            "extractCityName", String.class, String.class);
+
+    private static final String[] ADDRESSES = {
+            "63-lr Main Road, Bryanston, Sandton, 2191",
+            "14 Voortrekker  Street, Bethlehem, Free State",
+            "Unit 7, 112 Jan Smuts Avenue,   Rosebank, Johannesburg",
+            "Durban Harbour, Maydon Wharf Road, Durban",
+            "Cnr Church Street and Paul Kruger Street, Pretoria 0002",
+            "N3 Toll Plaza, Harrismith"
+    };
+
+    private GeocodingService service;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // Neither helper touches the HTTP client or the ObjectMapper
+        service = new GeocodingService(null, null);
+    }
+
+    @Benchmark
+    public String cleanAddress() throws Throwable {
+        return (String) CLEAN_ADDRESS.invokeExact(service, nextAddress());
+    }
+
+    @Benchmark
+    public String extractCityName() throws Throwable {
+        return (String) EXTRACT_CITY_NAME.invokeExact(service, nextAddress());
+    }
+
+    private String nextAddress() {
+        String address = ADDRESSES[next];
+        next = (next + 1) % ADDRESSES.length;
+        return address;
+    }
+}
@@ -0,0 +1,177 @@
+package com.pgsa.trailers.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput for the two ID strategies StockMovement and DriverIssueItem have had:
+ * IDENTITY, where Hibernate sends one {@code INSERT ... RETURNING id} per row and cannot
+ * batch, and the pooled sequence (allocationSize 50), where one {@code nextval} covers a
+ * block of 50 ids and the rows go out as JDBC batches. Each invocation inserts and commits
+ * {@link #ROWS} rows, so the score is rows per second.
+ *
+ * <p>Needs PostgreSQL: pass {@code -Dbench.jdbc.url}, {@code -Dbench.jdbc.user} and
+ * {@code -Dbench.jdbc.password} to use an existing server, otherwise a throwaway container
+ * is started (Docker required). Only scratch tables with the entities' insert columns are
+ * touched.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGenerationBenchmark {
+
+    static final int ROWS = 1_000;
+    // Same as @SequenceGenerator(allocationSize) on the entities and hibernate.jdbc.batch_size in prod
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"StockMovement", "DriverIssueItem"})
+    public String entity;
+
+    private PostgreSQLContainer<?> container;
+    private Connection connection;
+    private String identityInsert;
+    private String pooledInsert;
+    private Timestamp now;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getProperty("bench.jdbc.url");
+        if (url == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+            connection = DriverManager.getConnection(container.getJdbcUrl(),
+                    container.getUsername(), container.getPassword());
+        } else {
+            connection = DriverManager.getConnection(url,
+                    System.getProperty("bench.jdbc.user", "postgres"), System.getProperty("bench.jdbc.password", ""));
+        }
+
+        String columns;
+        if ("StockMovement".equals(entity)) {
+            columns = "item_id BIGINT NOT NULL, quantity INT NOT NULL, movement_type VARCHAR(20) NOT NULL, " +
+                    "reference_number VARCHAR(50), reference_type VARCHAR(30), performed_by VARCHAR(100), " +
+                    "created_at TIMESTAMP NOT NULL";
+            identityInsert = "INSERT INTO bench_identity (item_id, quantity, movement_type, reference_number, " +
+                    "reference_type, performed_by, created_at) VALUES (?, ?, ?, ?, ?, ?, ?) RETURNING id";
+            pooledInsert = "INSERT INTO bench_pooled (id, item_id, quantity, movement_type, reference_number, " +
+                    "reference_type, performed_by, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        } else {
+            columns = "issue_id BIGINT NOT NULL, item_id BIGINT NOT NULL, quantity_issued INT NOT NULL, " +
+                    "condition_issued VARCHAR(20), created_at TIMESTAMP NOT NULL";
+            identityInsert = "INSERT INTO bench_identity (issue_id, item_id, quantity_issued, condition_issued, " +
+                    "created_at) VALUES (?, ?, ?, ?, ?) RETURNING id";
+            pooledInsert = "INSERT INTO bench_pooled (id, issue_id, item_id, quantity_issued, condition_issued, " +
+                    "created_at) VALUES (?, ?, ?, ?, ?, ?)";
+        }
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_identity, bench_pooled");
+            st.execute("DROP SEQUENCE IF EXISTS bench_pooled_seq");
+            st.execute("CREATE TABLE bench_identity (id BIGSERIAL PRIMARY KEY, " + columns + ")");
+            st.execute("CREATE TABLE bench_pooled (id BIGINT PRIMARY KEY, " + columns + ")");
+            st.execute("CREATE SEQUENCE bench_pooled_seq START WITH " + ALLOCATION_SIZE +
+                    " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+        connection.setAutoCommit(false);
+        now = new Timestamp(System.currentTimeMillis());
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("TRUNCATE bench_identity, bench_pooled");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_identity, bench_pooled");
+            st.execute("DROP SEQUENCE IF EXISTS bench_pooled_seq");
+        }
+        connection.commit();
+        connection.close();
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long identityPerRow() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement ps = connection.prepareStatement(identityInsert)) {
+            for (int row = 0; row < ROWS; row++) {
+                bind(ps, 1, row);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    lastId = rs.getLong(1);
+                }
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long pooledSequenceBatched() throws SQLException {
+        long next = 0;
+        long hi = 0;
+        try (PreparedStatement nextval = connection.prepareStatement("SELECT nextval('bench_pooled_seq')");
+             PreparedStatement ps = connection.prepareStatement(pooledInsert)) {
+            for (int row = 0; row < ROWS; row++) {
+                if (next == hi) {
+                    // Pooled optimizer: the sequence value is the top of the next block
+                    try (ResultSet rs = nextval.executeQuery()) {
+                        rs.next();
+                        hi = rs.getLong(1);
+                    }
+                    next = hi - ALLOCATION_SIZE;
+                }
+                ps.setLong(1, ++next);
+                bind(ps, 2, row);
+                ps.addBatch();
+                if ((row + 1) % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        connection.commit();
+        return next;
+    }
+
+    private void bind(PreparedStatement ps, int first, int row) throws SQLException {
+        int i = first;
+        if ("StockMovement".equals(entity)) {
+            ps.setLong(i++, 1 + row % 200);
+            ps.setInt(i++, 1 + row % 12);
+            ps.setString(i++, row % 3 == 0 ? "IN" : "OUT");
+            ps.setString(i++, "REF-" + row);
+            ps.setString(i++, "ISSUE");
+            ps.setString(i++, "bench");
+            ps.setTimestamp(i, now);
+        } else {
+            ps.setLong(i++, 1 + row / 8);
+            ps.setLong(i++, 1 + row % 200);
+            ps.setInt(i++, 1 + row % 4);
+            ps.setString(i++, "GOOD");
+            ps.setTimestamp(i, now);
+        }
+    }
+}
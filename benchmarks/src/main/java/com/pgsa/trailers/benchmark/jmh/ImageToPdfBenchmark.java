@@ -0,0 +1,95 @@
+package com.pgsa.trailers.benchmark.jmh;
+
+import com.pgsa.trailers.service.FileConversionService;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileConversionService.convertImageToPdf on images sized like the POD and damage photos
+ * drivers upload: a full 12 MP phone capture and a messenger-compressed copy, as JPEG and PNG.
+ * The images are generated once per trial with smooth gradients plus sensor-like noise, so
+ * they compress like photos rather than flat test patterns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageToPdfBenchmark {
+
+    private static final MethodHandle CONVERT_IMAGE_TO_PDF = PrivateMethods.find(FileConversionService.class,
+            "convertImageToPdf", byte[].class, byte[].class, String.class);
+
+    @Param({"4032x3024", "1600x1200"})
+    public String resolution;
+
+    @Param({"jpg", "png"})
+    public String extension;
+
+    private FileConversionService service;
+    private byte[] image;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        service = new FileConversionService();
+        String[] size = resolution.split("x");
+        BufferedImage photo = photo(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        image = "png".equals(extension) ? png(photo) : jpeg(photo, 0.85f);
+    }
+
+    @Benchmark
+    public byte[] convertImageToPdf() throws Throwable {
+        return (byte[]) CONVERT_IMAGE_TO_PDF.invokeExact(service, image, extension);
+    }
+
+    private static BufferedImage photo(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random noise = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = clamp(90 + 120 * x / width + noise.nextInt(25));
+                int g = clamp(110 + 80 * y / height + noise.nextInt(25));
+                int b = clamp(140 - 60 * (x + y) / (width + height) + noise.nextInt(25));
+                img.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return img;
+    }
+
+    private static byte[] jpeg(BufferedImage img, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] png(BufferedImage img) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+
+    private static int clamp(int channel) {
+        return Math.max(0, Math.min(255, channel));
+    }
+}
@@ -0,0 +1,50 @@
+package com.pgsa.trailers.benchmark.jmh;
+
+import com.pgsa.trailers.dto.LoadResponseDTO;
+import com.pgsa.trailers.dto.TripResponse;
+import com.pgsa.trailers.entity.ops.Load;
+import com.pgsa.trailers.entity.ops.Trip;
+import com.pgsa.trailers.entity.ops.TripResponseMapper;
+import com.pgsa.trailers.mapper.LoadMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping: TripResponseMapper.toResponse for one fully populated trip, and
+ * LoadMapper.toResponseDTO for a load whose trips are all in memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    @Param({"1", "25"})
+    public int tripsPerLoad;
+
+    private TripResponseMapper tripResponseMapper;
+    private LoadMapper loadMapper;
+    private Trip trip;
+    private Load load;
+
+    @Setup
+    public void setUp() {
+        tripResponseMapper = new TripResponseMapper();
+        loadMapper = new LoadMapper();
+        load = Fixtures.load(tripsPerLoad);
+        trip = load.getTrips().get(0);
+    }
+
+    @Benchmark
+    public TripResponse tripToResponse() {
+        return tripResponseMapper.toResponse(trip);
+    }
+
+    @Benchmark
+    public LoadResponseDTO loadToResponseDTO() {
+        return loadMapper.toResponseDTO(load);
+    }
+}
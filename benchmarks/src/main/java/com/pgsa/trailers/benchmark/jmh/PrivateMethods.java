@@ -0,0 +1,25 @@
+package com.pgsa.trailers.benchmark.jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Looks up the private helpers the benchmarks measure directly, so the services do not
+ * have to widen their visibility for benchmarking. Keep the returned handles in static
+ * finals: the JIT then inlines {@code invokeExact} like a plain call.
+ */
+final class PrivateMethods {
+
+    private PrivateMethods() {
+    }
+
+    static MethodHandle find(Class<?> owner, String name, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            return MethodHandles.privateLookupIn(owner, MethodHandles.lookup())
+                    .findVirtual(owner, name, MethodType.methodType(returnType, parameterTypes));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access " + owner.getSimpleName() + "." + name, e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.pgsa.trailers.benchmark.jmh;
+
+import com.pgsa.trailers.service.routing.Coordinates;
+import com.pgsa.trailers.service.routing.RoutingResult;
+import com.pgsa.trailers.service.routing.providers.FallbackRoutingProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FallbackRoutingProvider: the haversine distance and speed estimate on their own, and the
+ * whole {@code calculate} call (which also formats its log arguments) for a short city hop
+ * and a long-haul lane.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+
+    private static final MethodHandle HAVERSINE = PrivateMethods.find(FallbackRoutingProvider.class,
+            "haversineDistance", double.class, double.class, double.class, double.class, double.class);
+    private static final MethodHandle AVERAGE_SPEED = PrivateMethods.find(FallbackRoutingProvider.class,
+            "getAverageSpeed", double.class, String.class, double.class);
+
+    @Param({"CITY", "LONG_HAUL"})
+    public String lane;
+
+    @Param({"TRUCK", "VAN"})
+    public String vehicleType;
+
+    private FallbackRoutingProvider provider;
+    private Coordinates origin;
+    private Coordinates destination;
+    private Map<String, Object> context;
+    private double distanceKm;
+
+    @Setup
+    public void setUp() {
+        provider = new FallbackRoutingProvider();
+        if ("CITY".equals(lane)) {
+            // Johannesburg CBD -> Midrand
+            origin = new Coordinates(-26.2041, 28.0473);
+            destination = new Coordinates(-25.9992, 28.1263);
+            context = Map.of("originLabel", "Johannesburg", "destLabel", "Midrand");
+        } else {
+            // Johannesburg -> Durban
+            origin = new Coordinates(-26.2041, 28.0473);
+            destination = new Coordinates(-29.8587, 31.0218);
+            context = Map.of("originLabel", "Johannesburg", "destLabel", "Durban");
+        }
+        // Road distance the provider feeds into its own speed estimate
+        distanceKm = provider.calculate(origin, destination, vehicleType, context).getDistanceKm().doubleValue();
+    }
+
+    @Benchmark
+    public double haversineDistance() throws Throwable {
+        return (double) HAVERSINE.invokeExact(provider,
+                origin.getLat(), origin.getLng(), destination.getLat(), destination.getLng());
+    }
+
+    @Benchmark
+    public double averageSpeed() throws Throwable {
+        return (double) AVERAGE_SPEED.invokeExact(provider, vehicleType, distanceKm);
+    }
+
+    @Benchmark
+    public RoutingResult calculate() {
+        return provider.calculate(origin, destination, vehicleType, context);
+    }
+}
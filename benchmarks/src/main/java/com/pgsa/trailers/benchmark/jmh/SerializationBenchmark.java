@@ -0,0 +1,76 @@
+package com.pgsa.trailers.benchmark.jmh;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pgsa.trailers.config.JacksonConfig;
+import com.pgsa.trailers.dto.DriverKpiDTO;
+import com.pgsa.trailers.dto.TripResponse;
+import com.pgsa.trailers.dto.VehicleKpiDTO;
+import com.pgsa.trailers.entity.ops.TripResponseMapper;
+import com.pgsa.trailers.service.AnalyticsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the two heaviest response bodies: a page of TripResponse and the
+ * dashboard summary with its vehicle and driver KPIs. The ObjectMapper comes from the app's
+ * own JacksonConfig, with the spring.jackson.* settings from application.properties applied.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<TripResponse> tripPage;
+    private AnalyticsService.DashboardSummary dashboard;
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS,
+                        SerializationFeature.FAIL_ON_EMPTY_BEANS);
+        objectMapper = new JacksonConfig().objectMapper(builder);
+
+        TripResponseMapper mapper = new TripResponseMapper();
+        tripPage = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tripPage.add(mapper.toResponse(Fixtures.trip(i)));
+        }
+
+        List<VehicleKpiDTO> vehicles = new ArrayList<>(size);
+        List<DriverKpiDTO> drivers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            BigDecimal km = BigDecimal.valueOf(4_200 + i * 37L, 1);
+            BigDecimal liters = BigDecimal.valueOf(1_480 + i * 11L, 1);
+            BigDecimal fuelCost = liters.multiply(new BigDecimal("23.50"));
+            vehicles.add(VehicleKpiDTO.withCalculations("HX " + (10 + i) + " PG GP", km, liters, fuelCost));
+            drivers.add(DriverKpiDTO.createForAnalytics("Driver " + i, km, fuelCost, 3 + i % 9,
+                    fuelCost.multiply(new BigDecimal("2.8")), fuelCost.multiply(new BigDecimal("1.4"))));
+        }
+        dashboard = new AnalyticsService.DashboardSummary(vehicles, drivers);
+    }
+
+    @Benchmark
+    public byte[] tripResponsePage() throws Exception {
+        return objectMapper.writeValueAsBytes(tripPage);
+    }
+
+    @Benchmark
+    public byte[] dashboardSummary() throws Exception {
+        return objectMapper.writeValueAsBytes(dashboard);
+    }
+}
@@ -0,0 +1,63 @@
+package com.pgsa.trailers.benchmark.jmh;
+
+import com.pgsa.trailers.entity.ops.TripMetrics;
+import com.pgsa.trailers.service.TripMetricsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TripMetricsService fuel and cost math: the BigDecimal fuel estimate per vehicle type,
+ * fuel plus cost together, and the derived average speed. None of these touch the
+ * repositories, so the service is built without them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TripMetricsBenchmark {
+
+    private static final MethodHandle ESTIMATE_FUEL = PrivateMethods.find(TripMetricsService.class,
+            "estimateFuel", BigDecimal.class, BigDecimal.class, String.class);
+    private static final MethodHandle APPLY_FUEL_AND_COST = PrivateMethods.find(TripMetricsService.class,
+            "applyFuelAndCost", void.class, TripMetrics.class, BigDecimal.class, String.class);
+    private static final MethodHandle APPLY_DERIVED_METRICS = PrivateMethods.find(TripMetricsService.class,
+            "applyDerivedMetrics", void.class, TripMetrics.class);
+
+    @Param({"TRUCK", "van", "SEMI", "FLATBED"})
+    public String vehicleType;
+
+    private TripMetricsService service;
+    private BigDecimal distanceKm;
+    private TripMetrics metrics;
+
+    @Setup
+    public void setUp() {
+        service = new TripMetricsService(null, null, null, null);
+        distanceKm = new BigDecimal("587.43");
+        metrics = new TripMetrics();
+        metrics.setTotalDistanceKm(distanceKm);
+        metrics.setTotalDurationHours(new BigDecimal("7.25"));
+    }
+
+    @Benchmark
+    public BigDecimal estimateFuel() throws Throwable {
+        return (BigDecimal) ESTIMATE_FUEL.invokeExact(service, distanceKm, vehicleType);
+    }
+
+    @Benchmark
+    public BigDecimal applyFuelAndCost() throws Throwable {
+        APPLY_FUEL_AND_COST.invokeExact(service, metrics, distanceKm, vehicleType);
+        return metrics.getCostAmount();
+    }
+
+    @Benchmark
+    public BigDecimal applyDerivedMetrics() throws Throwable {
+        APPLY_DERIVED_METRICS.invokeExact(service, metrics);
+        return metrics.getAverageSpeedKmh();
+    }
+}
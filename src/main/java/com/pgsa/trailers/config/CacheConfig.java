@@ -1,16 +1,48 @@
 // src/main/java/com/pgsa/trailers/config/CacheConfig.java
 package com.pgsa.trailers.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * Bounded, expiring caches backed by Caffeine.
+ *
+ * Every cache records hit/miss/eviction statistics; Spring Boot binds them to
+ * Micrometer as cache.gets / cache.puts / cache.evictions (see /actuator/metrics)
+ * and lists them under /actuator/caches.
+ */
+@Slf4j
 @Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheSpecProperties.class)
 public class CacheConfig {
 
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("enums");
+    public CacheManager cacheManager(CacheSpecProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+
+        // Caches created on demand (not listed in app.cache.specs) get the default bounds
+        cacheManager.setCaffeine(builderFor(properties.getDefaultSpec()));
+
+        properties.getSpecs().forEach((name, spec) -> {
+            cacheManager.registerCustomCache(name, builderFor(spec).build());
+            log.info("Cache '{}' registered: maximumSize={}, ttl={}, enabled={}",
+                    name, spec.getMaximumSize(), spec.getTtl(), spec.isEnabled());
+        });
+
+        return cacheManager;
+    }
+
+    private Caffeine<Object, Object> builderFor(CacheSpecProperties.Spec spec) {
+        return Caffeine.newBuilder()
+                .maximumSize(spec.isEnabled() ? spec.getMaximumSize() : 0)
+                .expireAfterWrite(spec.getTtl())
+                .recordStats();
     }
 }
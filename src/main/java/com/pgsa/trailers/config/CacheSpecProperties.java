@@ -0,0 +1,48 @@
+package com.pgsa.trailers.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DurationUnit;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-cache size and expiry limits, bound from app.cache.*
+ *
+ * Example:
+ *   app.cache.default-spec.maximum-size=1000
+ *   app.cache.default-spec.ttl=600
+ *   app.cache.specs[enums].maximum-size=500
+ *   app.cache.specs[enums].ttl=3600
+ *
+ * TTL values are in seconds unless a unit is given (e.g. 10m).
+ * Caches not listed under specs fall back to the default spec.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.cache")
+public class CacheSpecProperties {
+
+    private Spec defaultSpec = new Spec();
+
+    private Map<String, Spec> specs = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Spec {
+
+        /** Maximum number of entries before least-recently-used eviction */
+        private long maximumSize = 1000;
+
+        /** Expiry after write */
+        @DurationUnit(ChronoUnit.SECONDS)
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /** When false the cache is registered with zero capacity and always misses */
+        private boolean enabled = true;
+    }
+}
@@ -0,0 +1,388 @@
+package com.pgsa.trailers.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Versioned schema bootstrap, replacing the old DatabaseInitializer runner.
+ *
+ * Each DDL unit from {@link SchemaDefinitions} is recorded in schema_bootstrap by the
+ * SHA-256 of its SQL once applied, and skipped on later starts while unchanged, so an
+ * unchanged schema costs one query. Tables, views and constraints run before the
+ * EntityManagerFactory is built, so Hibernate validates against the final schema;
+ * independent table units run in parallel. Indexes are built afterwards in the
+ * background with CREATE INDEX CONCURRENTLY, one worker per table, and startup does
+ * not wait for them. All schema work runs on a small pool of its own with auto-commit
+ * on, which CONCURRENTLY needs and which the main (prod: auto-commit off) pool lacks.
+ * The feature tables and pooled sequence migration run even with app.db.init.enabled
+ * off, and a failure in either stops startup. Progress is exposed through
+ * {@link SchemaHealthIndicator}.
+ */
+@Component("schemaBootstrap")
+public class SchemaBootstrap implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaBootstrap.class);
+
+    private static final String JOURNAL_DDL = """
+            CREATE TABLE IF NOT EXISTS schema_bootstrap (
+                checksum CHAR(64) PRIMARY KEY,
+                unit_name VARCHAR(200) NOT NULL,
+                phase VARCHAR(30) NOT NULL,
+                duration_ms BIGINT NOT NULL,
+                applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
+
+    private static final Pattern INDEX_TARGET = Pattern.compile("(?i)INDEX\\s+CONCURRENTLY\\s+IF\\s+NOT\\s+EXISTS\\s+(\\w+)\\s+ON\\s+(\\w+)");
+
+    public enum State { STARTING, SCHEMA_READY, READY, FAILED, DISABLED }
+
+    @Value("${app.db.init.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.db.init.drop:false}")
+    private boolean drop;
+
+    @Value("${app.db.init.seed:false}")
+    private boolean seed;
+
+    @Value("${app.db.bootstrap.threads:4}")
+    private int threads;
+
+    private final DataSource dataSource;
+    private DataSource bootstrapDataSource;
+    private ExecutorService indexExecutor;
+
+    private volatile State state = State.STARTING;
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+    private final AtomicInteger indexesPending = new AtomicInteger();
+    private volatile int applied;
+    private volatile int skipped;
+    private boolean requiredFailed;
+    private volatile LocalDateTime schemaReadyAt;
+    private volatile LocalDateTime indexesReadyAt;
+
+    public SchemaBootstrap(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long start = System.nanoTime();
+        List<SchemaDefinitions.Unit> units = SchemaDefinitions.load(enabled && drop, enabled && seed)
+                .stream()
+                .filter(unit -> enabled || unit.phase().isFeature())
+                .toList();
+        if (units.isEmpty()) {
+            state = State.DISABLED;
+            logger.info("Schema bootstrap is disabled");
+            return;
+        }
+
+        bootstrapDataSource = createBootstrapDataSource();
+        try {
+            execute(JOURNAL_DDL);
+            if (enabled && drop) {
+                units.stream().filter(unit -> unit.phase() == SchemaDefinitions.Phase.DROP)
+                        .forEach(unit -> run(unit, false));
+                execute("DELETE FROM schema_bootstrap");
+            }
+
+            Set<String> done = appliedChecksums();
+            List<SchemaDefinitions.Unit> pending = units.stream()
+                    .filter(unit -> unit.phase() != SchemaDefinitions.Phase.DROP)
+                    .filter(unit -> unit.phase().isRepeatable() || !done.contains(unit.checksum()))
+                    .toList();
+            skipped = units.size() - pending.size();
+
+            // Everything but indexes, phase by phase; table units in parallel
+            for (SchemaDefinitions.Phase phase : SchemaDefinitions.Phase.values()) {
+                List<SchemaDefinitions.Unit> batch = pending.stream()
+                        .filter(unit -> unit.phase() == phase && !phase.isIndexes()).toList();
+                if (phase == SchemaDefinitions.Phase.TABLES || phase == SchemaDefinitions.Phase.FEATURE_TABLES) {
+                    runParallel(batch);
+                } else {
+                    batch.forEach(unit -> run(unit, true));
+                }
+                if (phase.isRequired() && batch.stream().anyMatch(unit -> failures.containsKey(unit.name()))) {
+                    requiredFailed = true;
+                    throw new IllegalStateException("Could not apply the " + phase + " units");
+                }
+            }
+            schemaReadyAt = LocalDateTime.now();
+            state = State.SCHEMA_READY;
+            logger.info("Schema ready in {} ms: {} unit(s) applied, {} unchanged, {} failed",
+                    (System.nanoTime() - start) / 1_000_000, applied, skipped, failures.size());
+
+            buildIndexesInBackground(pending.stream().filter(unit -> unit.phase().isIndexes()).toList());
+        } catch (Exception e) {
+            state = State.FAILED;
+            failures.put("bootstrap", String.valueOf(e.getMessage()));
+            logger.error("Schema bootstrap failed: {}", e.getMessage(), e);
+            closeBootstrapDataSource();
+        }
+        if (requiredFailed) {
+            // Without them the JDBC-owned features fail on every call, and the pooled
+            // generators (allocationSize 50) would reuse ids of existing rows
+            throw new IllegalStateException("Schema bootstrap could not apply required units: " + failures);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (indexExecutor != null) {
+            indexExecutor.shutdownNow();
+        }
+        closeBootstrapDataSource();
+    }
+
+    // ============================================================
+    // EXECUTION
+    // ============================================================
+
+    private void runParallel(List<SchemaDefinitions.Unit> batch) {
+        if (batch.size() < 2) {
+            batch.forEach(unit -> run(unit, true));
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, batch.size()), daemon("schema-ddl"));
+        try {
+            CompletableFuture.allOf(batch.stream()
+                    .map(unit -> CompletableFuture.runAsync(() -> run(unit, true), executor))
+                    .toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Indexes grouped by table: CONCURRENTLY builds on one table wait for each other anyway.
+     */
+    private void buildIndexesInBackground(List<SchemaDefinitions.Unit> indexes) {
+        if (indexes.isEmpty()) {
+            markIndexesReady();
+            return;
+        }
+        Map<String, List<SchemaDefinitions.Unit>> byTable = new LinkedHashMap<>();
+        for (SchemaDefinitions.Unit unit : indexes) {
+            Matcher matcher = INDEX_TARGET.matcher(unit.sql());
+            String table = matcher.find() ? matcher.group(2).toLowerCase() : unit.name();
+            byTable.computeIfAbsent(table, t -> new ArrayList<>()).add(unit);
+        }
+        indexesPending.set(indexes.size());
+        indexExecutor = Executors.newFixedThreadPool(Math.min(threads, byTable.size()), daemon("schema-index"));
+        logger.info("Building {} index(es) on {} table(s) in the background", indexes.size(), byTable.size());
+
+        CompletableFuture.allOf(byTable.values().stream()
+                        .map(tableIndexes -> CompletableFuture.runAsync(() -> tableIndexes.forEach(unit -> {
+                            if (!run(unit, true)) {
+                                dropInvalidIndex(unit);
+                            }
+                            indexesPending.decrementAndGet();
+                        }), indexExecutor))
+                        .toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> {
+                    markIndexesReady();
+                    indexExecutor.shutdown();
+                    closeBootstrapDataSource();
+                });
+    }
+
+    private void markIndexesReady() {
+        indexesReadyAt = LocalDateTime.now();
+        if (state == State.SCHEMA_READY) {
+            state = State.READY;
+        }
+        logger.info("Schema bootstrap complete: {} unit(s) applied, {} unchanged, {} failed",
+                applied, skipped, failures.size());
+        if (indexExecutor == null) {
+            closeBootstrapDataSource();
+        }
+    }
+
+    /**
+     * Run one unit and record its checksum. Failures are logged and left unrecorded,
+     * so the unit is retried on the next start.
+     */
+    private boolean run(SchemaDefinitions.Unit unit, boolean record) {
+        long start = System.nanoTime();
+        try {
+            execute(unit.sql());
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            if (record && !unit.phase().isRepeatable()) {
+                try (Connection connection = bootstrapDataSource.getConnection();
+                     PreparedStatement insert = connection.prepareStatement("""
+                             INSERT INTO schema_bootstrap (checksum, unit_name, phase, duration_ms)
+                             VALUES (?, ?, ?, ?)
+                             ON CONFLICT (checksum) DO NOTHING
+                             """)) {
+                    connection.setAutoCommit(true);
+                    insert.setString(1, unit.checksum());
+                    insert.setString(2, unit.name());
+                    insert.setString(3, unit.phase().name());
+                    insert.setLong(4, elapsedMs);
+                    insert.executeUpdate();
+                }
+            }
+            synchronized (this) {
+                applied++;
+            }
+            logger.debug("Applied {} in {} ms", unit.name(), elapsedMs);
+            return true;
+        } catch (Exception e) {
+            failures.put(unit.name(), String.valueOf(e.getMessage()));
+            logger.warn("Could not apply {}: {}", unit.name(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * A failed CONCURRENTLY build leaves an INVALID index that IF NOT EXISTS would keep skipping.
+     */
+    private void dropInvalidIndex(SchemaDefinitions.Unit unit) {
+        Matcher matcher = INDEX_TARGET.matcher(unit.sql());
+        if (!matcher.find()) {
+            return;
+        }
+        try {
+            execute("""
+                    DO $$ BEGIN
+                        IF EXISTS (SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+                                   WHERE c.relname = '%s' AND NOT i.indisvalid) THEN
+                            EXECUTE 'DROP INDEX IF EXISTS %s';
+                        END IF;
+                    END $$;
+                    """.formatted(matcher.group(1), matcher.group(1)));
+        } catch (Exception e) {
+            logger.warn("Could not drop invalid index {}: {}", matcher.group(1), e.getMessage());
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = bootstrapDataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private Set<String> appliedChecksums() throws SQLException {
+        Set<String> checksums = new HashSet<>();
+        try (Connection connection = bootstrapDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT checksum FROM schema_bootstrap")) {
+            while (rs.next()) {
+                checksums.add(rs.getString(1).trim());
+            }
+        }
+        return checksums;
+    }
+
+    // ============================================================
+    // CONNECTIONS
+    // ============================================================
+
+    /**
+     * A separate small pool with the main pool's settings, so index builds never
+     * hold connections the application needs. Falls back to the main pool.
+     */
+    private DataSource createBootstrapDataSource() {
+        if (!(dataSource instanceof HikariDataSource main)) {
+            return dataSource;
+        }
+        HikariConfig config = new HikariConfig();
+        main.copyStateTo(config);
+        config.setPoolName("schema-bootstrap");
+        config.setMaximumPoolSize(Math.max(2, threads + 1));
+        config.setMinimumIdle(0);
+        config.setAutoCommit(true);
+        config.setLeakDetectionThreshold(0);
+        config.setMetricRegistry(null);
+        config.setHealthCheckRegistry(null);
+        return new HikariDataSource(config);
+    }
+
+    private synchronized void closeBootstrapDataSource() {
+        if (bootstrapDataSource instanceof HikariDataSource pool && pool != dataSource && !pool.isClosed()) {
+            pool.close();
+        }
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // ============================================================
+    // STATUS
+    // ============================================================
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isSchemaReady() {
+        return state == State.SCHEMA_READY || state == State.READY || state == State.DISABLED;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("applied", applied);
+        status.put("unchanged", skipped);
+        status.put("indexesPending", indexesPending.get());
+        status.put("schemaReadyAt", schemaReadyAt);
+        status.put("indexesReadyAt", indexesReadyAt);
+        if (!failures.isEmpty()) {
+            status.put("failures", Map.copyOf(failures));
+        }
+        return status;
+    }
+
+    /**
+     * Builds the EntityManagerFactory after the bootstrap, so validation sees the new tables.
+     */
+    @Component
+    static class EntityManagerFactoryDependsOnSchemaBootstrap extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryDependsOnSchemaBootstrap() {
+            super("schemaBootstrap");
+        }
+    }
+}
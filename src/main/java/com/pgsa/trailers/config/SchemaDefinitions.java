@@ -1,80 +1,136 @@
 package com.pgsa.trailers.config;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.core.annotation.Order;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.stereotype.Component;
-
-import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
- * Database Initializer matching actual production schema
+ * The schema DDL, split into units for {@link SchemaBootstrap}.
+ *
+ * Every jdbc execute block below is one unit, tagged with the phase it belongs to.
+ * Index blocks are further split into one CONCURRENTLY statement per index so they
+ * can be built without blocking writes. Core units only run with app.db.init.enabled;
+ * the feature tables and indexes (JDBC-owned tables added alongside services) and the
+ * pooled sequence migration always run, so a validating Hibernate finds them in prod.
  */
-@Component
-@Order(1)
-public class DatabaseInitializer implements CommandLineRunner {
+public class SchemaDefinitions {
 
-    private static final Logger logger = LoggerFactory.getLogger(DatabaseInitializer.class);
+    public enum Phase {
+        DROP, ENUMS, TABLES, FEATURE_TABLES, VIEWS, CONSTRAINTS, SEQUENCES, INDEXES, FEATURE_INDEXES, SEED;
 
-    @Value("${app.db.init.enabled:false}")
-    private boolean enabled;
-
-    @Value("${app.db.init.drop:false}")
-    private boolean drop;
+        public boolean isIndexes() {
+            return this == INDEXES || this == FEATURE_INDEXES;
+        }
 
-    @Value("${app.db.init.seed:false}")
-    private boolean seed;
+        public boolean isFeature() {
+            return this == FEATURE_TABLES || this == FEATURE_INDEXES || this == SEQUENCES;
+        }
 
-    private final JdbcTemplate jdbcTemplate;
+        public boolean isRepeatable() {
+            return this == SEQUENCES;
+        }
 
-    public DatabaseInitializer(DataSource dataSource) {
-        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        /**
+         * Units the app cannot run without: a failure stops startup.
+         */
+        public boolean isRequired() {
+            return this == FEATURE_TABLES || this == SEQUENCES;
+        }
     }
 
-    @Override
-    public void run(String... args) {
-        if (!enabled) {
-            logger.info("Database initializer is disabled");
-            return;
-        }
+    /**
+     * One DDL unit; the checksum of its SQL decides whether it has already been applied.
+     */
+    public record Unit(Phase phase, String name, String sql, String checksum) {
+    }
 
-        try {
-            logger.info("Starting database initialization...");
+    private static final Pattern NAMED_OBJECT = Pattern.compile(
+            "(?i)(?:CREATE\\s+(?:OR\\s+REPLACE\\s+)?(?:TABLE|VIEW|TYPE|(?:UNIQUE\\s+)?INDEX)\\s+(?:CONCURRENTLY\\s+)?(?:IF\\s+NOT\\s+EXISTS\\s+)?)(\\w+)");
+    private static final Pattern CREATE_INDEX = Pattern.compile("(?i)CREATE\\s+(UNIQUE\\s+)?INDEX\\s+IF\\s+NOT\\s+EXISTS");
 
-            if (drop) {
-                dropAll();
-            }
+    private final List<Unit> units = new ArrayList<>();
+    private Phase phase;
 
-            createEnums();
-            createTables();
-            createConstraints();
-            createIndexes();
+    /**
+     * All units in execution order. Drop and seed units are only included when asked for.
+     */
+    public static List<Unit> load(boolean includeDrop, boolean includeSeed) {
+        SchemaDefinitions definitions = new SchemaDefinitions();
+        if (includeDrop) {
+            definitions.dropAll();
+        }
+        definitions.createEnums();
+        definitions.createTables();
+        definitions.createFeatureTables();
+        definitions.createFinanceViews();
+        definitions.createConstraints();
+        definitions.migrateIdSequences();
+        definitions.createIndexes();
+        definitions.createFeatureIndexes();
+        if (includeSeed) {
+            definitions.seedData();
+        }
+        return List.copyOf(definitions.units);
+    }
 
-            if (seed) {
-                seedData();
+    private void unit(String sql) {
+        if (!phase.isIndexes()) {
+            units.add(new Unit(phase, name(sql, units.size()), sql, checksum(sql)));
+            return;
+        }
+        // CREATE INDEX CONCURRENTLY cannot share a statement (or transaction) with anything else
+        for (String statement : sql.split(";")) {
+            String ddl = statement.lines()
+                    .filter(line -> !line.isBlank() && !line.trim().startsWith("--"))
+                    .map(String::trim)
+                    .collect(Collectors.joining(" "));
+            if (!ddl.isEmpty()) {
+                String concurrent = CREATE_INDEX.matcher(ddl).replaceFirst("CREATE $1INDEX CONCURRENTLY IF NOT EXISTS");
+                units.add(new Unit(phase, name(concurrent, units.size()), concurrent, checksum(concurrent)));
             }
+        }
+    }
 
-            logger.info("Database initialization completed successfully");
+    private String name(String sql, int ordinal) {
+        Matcher matcher = NAMED_OBJECT.matcher(sql);
+        return phase.name().toLowerCase() + ":" + (matcher.find() ? matcher.group(1) : "#" + ordinal);
+    }
 
-        } catch (Exception e) {
-            logger.error("Database initialization failed: {}", e.getMessage());
-            e.printStackTrace();
+    private static String checksum(String sql) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(sql.strip().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
     /* ===================== DROP ALL ===================== */
     private void dropAll() {
-        logger.info("Dropping all existing tables and enums...");
-        jdbcTemplate.execute("""
+        phase = Phase.DROP;
+        unit("""
             DO $$ DECLARE
                 r RECORD;
             BEGIN
                 -- Drop tables in reverse dependency order
+                DROP TABLE IF EXISTS audit_event CASCADE;
+                DROP TABLE IF EXISTS timesheet_punch CASCADE;
+                DROP TABLE IF EXISTS account_ledger_checkpoint CASCADE;
+                DROP TABLE IF EXISTS account_ledger_balance CASCADE;
+                DROP TABLE IF EXISTS account_ledger_entry CASCADE;
+                DROP TABLE IF EXISTS fuel_attribution_vehicle CASCADE;
+                DROP TABLE IF EXISTS fuel_trip_attribution CASCADE;
+                DROP TABLE IF EXISTS stock_ledger_snapshot CASCADE;
+                DROP TABLE IF EXISTS stock_ledger_entry CASCADE;
+                DROP TABLE IF EXISTS stock_ledger_balance CASCADE;
                 DROP TABLE IF EXISTS finance_reconciliation_pending CASCADE;
                 DROP TABLE IF EXISTS finance_reconciliation_running_balance CASCADE;
                 DROP TABLE IF EXISTS finance_reconciliation_view CASCADE;
@@ -123,7 +179,7 @@ public class DatabaseInitializer implements CommandLineRunner {
 
     /* ===================== ENUMS ===================== */
     private void createEnums() {
-        logger.info("Creating enum types...");
+        phase = Phase.ENUMS;
 
         List<String> enums = Arrays.asList(
                 "account_type",
@@ -157,27 +213,21 @@ public class DatabaseInitializer implements CommandLineRunner {
     }
 
     private void createEnumIfNotExists(String enumName, List<String> values) {
-        try {
-            String checkSql = "SELECT EXISTS (SELECT 1 FROM pg_type WHERE typname = ?)";
-            Boolean exists = jdbcTemplate.queryForObject(checkSql, Boolean.class, enumName);
-
-            if (exists != null && !exists) {
-                String valuesList = String.join(",", values);
-                String createSql = String.format("CREATE TYPE %s AS ENUM (%s)", enumName, valuesList);
-                jdbcTemplate.execute(createSql);
-                logger.info("Created enum type: {}", enumName);
-            }
-        } catch (Exception e) {
-            logger.warn("Could not create enum type {}: {}", enumName, e.getMessage());
-        }
+        unit(String.format("""
+            DO $$ BEGIN
+                IF NOT EXISTS (SELECT 1 FROM pg_type WHERE typname = '%s') THEN
+                    CREATE TYPE %s AS ENUM (%s);
+                END IF;
+            END $$;
+        """, enumName, enumName, String.join(",", values)));
     }
 
     /* ===================== TABLE CREATION ===================== */
     private void createTables() {
-        logger.info("Creating tables...");
+        phase = Phase.TABLES;
 
         // Create app_user table with all columns from production
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS app_user (
                 id BIGSERIAL PRIMARY KEY,
                 email VARCHAR(255) NOT NULL,
@@ -216,7 +266,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create role table
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS role (
                 id BIGSERIAL PRIMARY KEY,
                 name VARCHAR(100) NOT NULL,
@@ -227,7 +277,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create permission table
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS permission (
                 id BIGSERIAL PRIMARY KEY,
                 resource VARCHAR(100) NOT NULL,
@@ -239,7 +289,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create role_permission junction table
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS role_permission (
                 role_id BIGINT NOT NULL,
                 permission_id BIGINT NOT NULL,
@@ -250,7 +300,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create user_role junction table
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS user_role (
                 user_id BIGINT NOT NULL,
                 role_id BIGINT NOT NULL,
@@ -261,7 +311,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create account table with all production columns
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS account (
                 id BIGSERIAL PRIMARY KEY,
                 name VARCHAR(255) NOT NULL,
@@ -291,7 +341,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create suppliers table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS suppliers (
                 id BIGSERIAL PRIMARY KEY,
                 name VARCHAR(255) NOT NULL,
@@ -311,7 +361,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create driver table with all production columns
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS driver (
                 id BIGSERIAL PRIMARY KEY,
                 first_name VARCHAR(100) NOT NULL,
@@ -349,7 +399,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create vehicle table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS vehicle (
                 id BIGSERIAL PRIMARY KEY,
                 registration_number VARCHAR(50) NOT NULL,
@@ -371,7 +421,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create load table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS load (
                 id BIGSERIAL PRIMARY KEY,
                 load_number VARCHAR(100) NOT NULL,
@@ -391,7 +441,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create trip table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS trip (
                 id BIGSERIAL PRIMARY KEY,
                 trip_number VARCHAR(100) NOT NULL,
@@ -412,7 +462,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create account_statement table with all production columns
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS account_statement (
                 id BIGSERIAL PRIMARY KEY,
                 account_id BIGINT,
@@ -441,7 +491,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create account_transaction table with all production columns
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS account_transaction (
                 id BIGSERIAL PRIMARY KEY,
                 account_id BIGINT NOT NULL,
@@ -467,7 +517,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create fuel_source table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS fuel_source (
                 id BIGSERIAL PRIMARY KEY,
                 name VARCHAR(255) NOT NULL,
@@ -482,7 +532,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create fuel_slip table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS fuel_slip (
                 id BIGSERIAL PRIMARY KEY,
                 slip_number VARCHAR(100) NOT NULL,
@@ -512,7 +562,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create inventory_location table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS inventory_location (
                 id BIGSERIAL PRIMARY KEY,
                 name VARCHAR(255) NOT NULL,
@@ -527,7 +577,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create inventory_item table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS inventory_item (
                 id BIGSERIAL PRIMARY KEY,
                 sku VARCHAR(100) NOT NULL,
@@ -547,7 +597,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create stock_count table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS stock_count (
                 id BIGSERIAL PRIMARY KEY,
                 count_date DATE NOT NULL,
@@ -567,7 +617,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create stock_count_line table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS stock_count_line (
                 id BIGSERIAL PRIMARY KEY,
                 stock_count_id BIGINT,
@@ -584,7 +634,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create stock_movement table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS stock_movement (
                 id BIGSERIAL PRIMARY KEY,
                 movement_date TIMESTAMP NOT NULL,
@@ -608,7 +658,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create driver_metrics table with all production columns
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS driver_metrics (
                 id BIGSERIAL PRIMARY KEY,
                 driver_id BIGINT,
@@ -636,7 +686,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create vehicle_metrics table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS vehicle_metrics (
                 id BIGSERIAL PRIMARY KEY,
                 vehicle_id BIGINT,
@@ -654,7 +704,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create trip_metrics table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS trip_metrics (
                 id BIGSERIAL PRIMARY KEY,
                 trip_id BIGINT,
@@ -668,7 +718,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create invoice table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS invoice (
                 id BIGSERIAL PRIMARY KEY,
                 invoice_number VARCHAR(100) NOT NULL,
@@ -695,7 +745,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create payment table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS payment (
                 id BIGSERIAL PRIMARY KEY,
                 payment_date TIMESTAMP NOT NULL,
@@ -717,7 +767,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create payment_allocation table (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS payment_allocation (
                 id BIGSERIAL PRIMARY KEY,
                 payment_id BIGINT,
@@ -736,7 +786,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create reconciliation table with generated column (no additional columns from production)
-        jdbcTemplate.execute("""
+        unit("""
             CREATE TABLE IF NOT EXISTS reconciliation (
                 id BIGSERIAL PRIMARY KEY,
                 reconciliation_date DATE NOT NULL,
@@ -756,16 +806,195 @@ public class DatabaseInitializer implements CommandLineRunner {
                 CHECK (system_balance IS NOT NULL)
             );
         """);
+    }
+
+    /* ===================== FEATURE TABLES ===================== */
+    private void createFeatureTables() {
+        phase = Phase.FEATURE_TABLES;
+
+        // Append-only audit log (written in batches by AuditEventService)
+        unit("""
+            CREATE TABLE IF NOT EXISTS audit_event (
+                id BIGSERIAL PRIMARY KEY,
+                entity_type VARCHAR(30) NOT NULL,
+                entity_id BIGINT NOT NULL,
+                action VARCHAR(50) NOT NULL,
+                actor VARCHAR(100),
+                occurred_at TIMESTAMP NOT NULL,
+                payload JSONB
+            );
+        """);
 
-        // Create finance reconciliation views
-        createFinanceViews();
+        // Stock ledger: running balance per item/location, entries per posting, daily snapshots
+        unit("""
+            CREATE TABLE IF NOT EXISTS stock_ledger_balance (
+                item_id BIGINT NOT NULL,
+                location_id BIGINT NOT NULL DEFAULT 0,
+                balance INT NOT NULL DEFAULT 0,
+                total_in BIGINT NOT NULL DEFAULT 0,
+                total_out BIGINT NOT NULL DEFAULT 0,
+                total_adjustment BIGINT NOT NULL DEFAULT 0,
+                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                PRIMARY KEY (item_id, location_id)
+            );
+
+            CREATE TABLE IF NOT EXISTS stock_ledger_entry (
+                id BIGSERIAL PRIMARY KEY,
+                item_id BIGINT NOT NULL,
+                location_id BIGINT NOT NULL DEFAULT 0,
+                movement_id BIGINT,
+                movement_type VARCHAR(20) NOT NULL,
+                delta INT NOT NULL,
+                balance_after INT NOT NULL,
+                effective_at TIMESTAMP NOT NULL
+            );
+
+            CREATE TABLE IF NOT EXISTS stock_ledger_snapshot (
+                id BIGSERIAL PRIMARY KEY,
+                snapshot_at TIMESTAMP NOT NULL,
+                item_id BIGINT NOT NULL,
+                location_id BIGINT NOT NULL DEFAULT 0,
+                balance INT NOT NULL,
+                total_in BIGINT NOT NULL DEFAULT 0,
+                total_out BIGINT NOT NULL DEFAULT 0,
+                total_adjustment BIGINT NOT NULL DEFAULT 0,
+                last_entry_id BIGINT NOT NULL DEFAULT 0
+            );
+        """);
+
+        // Fuel slip -> trip attribution (FuelTripAttributionService); one row per slip,
+        // plus the trip-window checksum each vehicle was last attributed against
+        unit("""
+            CREATE TABLE IF NOT EXISTS fuel_trip_attribution (
+                slip_id BIGINT PRIMARY KEY,
+                vehicle_id BIGINT NOT NULL,
+                slip_time TIMESTAMP NOT NULL,
+                explicit_trip_id BIGINT,
+                trip_id BIGINT,
+                method VARCHAR(20) NOT NULL,
+                gap_minutes BIGINT,
+                attributed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            );
+
+            CREATE TABLE IF NOT EXISTS fuel_attribution_vehicle (
+                vehicle_id BIGINT PRIMARY KEY,
+                trip_count INT NOT NULL DEFAULT 0,
+                trip_signature NUMERIC NOT NULL DEFAULT 0,
+                attributed_at TIMESTAMP NOT NULL
+            );
+        """);
+
+        // Account running-balance ledger (AccountLedgerService): one entry per slip, payment
+        // or manual transaction, all-time totals per account and period-close checkpoints
+        unit("""
+            CREATE TABLE IF NOT EXISTS account_ledger_entry (
+                id BIGSERIAL PRIMARY KEY,
+                source_type VARCHAR(30) NOT NULL,
+                source_id BIGINT NOT NULL,
+                account_id BIGINT NOT NULL,
+                entry_date TIMESTAMP NOT NULL,
+                debit NUMERIC(14,2) NOT NULL DEFAULT 0,
+                credit NUMERIC(14,2) NOT NULL DEFAULT 0,
+                posted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                UNIQUE (source_type, source_id)
+            );
+
+            CREATE TABLE IF NOT EXISTS account_ledger_balance (
+                account_id BIGINT PRIMARY KEY,
+                total_debits NUMERIC(16,2) NOT NULL DEFAULT 0,
+                total_credits NUMERIC(16,2) NOT NULL DEFAULT 0,
+                slip_total NUMERIC(16,2) NOT NULL DEFAULT 0,
+                payment_total NUMERIC(16,2) NOT NULL DEFAULT 0,
+                entry_count BIGINT NOT NULL DEFAULT 0,
+                updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            );
+
+            CREATE TABLE IF NOT EXISTS account_ledger_checkpoint (
+                id BIGSERIAL PRIMARY KEY,
+                account_id BIGINT NOT NULL,
+                period_start DATE NOT NULL,
+                period_end DATE NOT NULL,
+                as_of TIMESTAMP NOT NULL,
+                opening_balance NUMERIC(16,2) NOT NULL,
+                closing_balance NUMERIC(16,2) NOT NULL,
+                period_debits NUMERIC(16,2) NOT NULL,
+                period_credits NUMERIC(16,2) NOT NULL,
+                cum_debits NUMERIC(16,2) NOT NULL,
+                cum_credits NUMERIC(16,2) NOT NULL,
+                cum_slips NUMERIC(16,2) NOT NULL,
+                cum_payments NUMERIC(16,2) NOT NULL,
+                late_adjustment NUMERIC(16,2) NOT NULL DEFAULT 0,
+                created_by VARCHAR(100),
+                created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                UNIQUE (account_id, as_of)
+            );
+        """);
+
+        // Punch journal (TimesheetPunchService): one row per acknowledged punch, keyed by the
+        // client's request id so retries are answered instead of applied twice
+        unit("""
+            CREATE TABLE IF NOT EXISTS timesheet_punch (
+                id BIGSERIAL PRIMARY KEY,
+                request_id VARCHAR(100) NOT NULL UNIQUE,
+                driver_id BIGINT NOT NULL,
+                punch_type VARCHAR(20) NOT NULL,
+                entry_id BIGINT NOT NULL,
+                punched_at TIMESTAMP NOT NULL,
+                location VARCHAR(255),
+                latitude NUMERIC(10,7),
+                longitude NUMERIC(10,7),
+                recorded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            );
+        """);
+
+        // Trip aggregates on load (LoadAggregateService keeps them as deltas); backfilled
+        // once when the columns are first added
+        unit("""
+            DO $$
+            BEGIN
+                IF to_regclass('load') IS NOT NULL AND NOT EXISTS (
+                        SELECT 1 FROM information_schema.columns
+                        WHERE table_name = 'load' AND column_name = 'completed_trips_count') THEN
+                    ALTER TABLE load
+                        ADD COLUMN IF NOT EXISTS planned_trips_count INT DEFAULT 0,
+                        ADD COLUMN IF NOT EXISTS in_progress_trips_count INT DEFAULT 0,
+                        ADD COLUMN IF NOT EXISTS completed_trips_count INT DEFAULT 0,
+                        ADD COLUMN IF NOT EXISTS total_cargo_weight NUMERIC(12,2) DEFAULT 0,
+                        ADD COLUMN IF NOT EXISTS total_cargo_value NUMERIC(15,2) DEFAULT 0,
+                        ADD COLUMN IF NOT EXISTS earliest_trip_start TIMESTAMP,
+                        ADD COLUMN IF NOT EXISTS latest_trip_end TIMESTAMP;
+                    UPDATE load l SET
+                        planned_trips_count = a.planned,
+                        in_progress_trips_count = a.in_progress,
+                        completed_trips_count = a.completed,
+                        total_cargo_weight = a.cargo_weight,
+                        total_cargo_value = a.cargo_value,
+                        earliest_trip_start = a.earliest,
+                        latest_trip_end = a.latest
+                    FROM (
+                        SELECT load_id,
+                               COUNT(*) FILTER (WHERE status = 'PLANNED') AS planned,
+                               COUNT(*) FILTER (WHERE status = 'IN_PROGRESS') AS in_progress,
+                               COUNT(*) FILTER (WHERE status IN ('COMPLETED', 'FINALIZED')) AS completed,
+                               COALESCE(SUM(cargo_weight), 0) AS cargo_weight,
+                               COALESCE(SUM(cargo_value), 0) AS cargo_value,
+                               MIN(planned_start_date) AS earliest,
+                               MAX(planned_end_date) AS latest
+                        FROM trip
+                        WHERE load_id IS NOT NULL
+                        GROUP BY load_id
+                    ) a
+                    WHERE a.load_id = l.load_number;
+                END IF;
+            END $$;
+        """);
     }
 
     private void createFinanceViews() {
-        logger.info("Creating finance reconciliation views...");
+        phase = Phase.VIEWS;
 
         // Create finance_reconciliation_view
-        jdbcTemplate.execute("""
+        unit("""
             CREATE OR REPLACE VIEW finance_reconciliation_view AS
             SELECT 
                 a.id as account_id,
@@ -792,7 +1021,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create finance_reconciliation_running_balance view
-        jdbcTemplate.execute("""
+        unit("""
             CREATE OR REPLACE VIEW finance_reconciliation_running_balance AS
             SELECT 
                 a.id as account_id,
@@ -824,7 +1053,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Create finance_reconciliation_pending view
-        jdbcTemplate.execute("""
+        unit("""
             CREATE OR REPLACE VIEW finance_reconciliation_pending AS
             SELECT 
                 a.id as account_id,
@@ -872,10 +1101,10 @@ public class DatabaseInitializer implements CommandLineRunner {
 
     /* ===================== CONSTRAINT CREATION ===================== */
     private void createConstraints() {
-        logger.info("Creating unique and foreign key constraints...");
+        phase = Phase.CONSTRAINTS;
 
         // Unique constraints
-        jdbcTemplate.execute("""
+        unit("""
             -- app_user
             ALTER TABLE app_user ADD CONSTRAINT IF NOT EXISTS app_user_email_key UNIQUE (email);
             
@@ -930,7 +1159,7 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
 
         // Foreign key constraints with correct ON DELETE/UPDATE rules
-        jdbcTemplate.execute("""
+        unit("""
             -- user_role constraints
             ALTER TABLE user_role ADD CONSTRAINT IF NOT EXISTS user_role_user_id_fkey 
             FOREIGN KEY (user_id) REFERENCES app_user(id) ON DELETE CASCADE;
@@ -1065,9 +1294,9 @@ public class DatabaseInitializer implements CommandLineRunner {
 
     /* ===================== INDEX CREATION ===================== */
     private void createIndexes() {
-        logger.info("Creating indexes...");
+        phase = Phase.INDEXES;
 
-        jdbcTemplate.execute("""
+        unit("""
             -- User indexes
             CREATE INDEX IF NOT EXISTS idx_user_email ON app_user(email);
             CREATE INDEX IF NOT EXISTS idx_user_username ON app_user(username);
@@ -1141,11 +1370,70 @@ public class DatabaseInitializer implements CommandLineRunner {
         """);
     }
 
+    /* ===================== FEATURE INDEXES ===================== */
+    private void createFeatureIndexes() {
+        phase = Phase.FEATURE_INDEXES;
+
+        unit("""
+            -- Audit indexes
+            CREATE INDEX IF NOT EXISTS idx_audit_event_entity ON audit_event(entity_type, entity_id, occurred_at);
+            
+            -- Stock ledger indexes
+            CREATE INDEX IF NOT EXISTS idx_stock_ledger_entry_key ON stock_ledger_entry(item_id, location_id, id);
+            CREATE INDEX IF NOT EXISTS idx_stock_ledger_entry_item_time ON stock_ledger_entry(item_id, effective_at);
+            CREATE INDEX IF NOT EXISTS idx_stock_ledger_snapshot_key ON stock_ledger_snapshot(item_id, location_id, snapshot_at);
+
+            -- Fuel attribution indexes
+            CREATE INDEX IF NOT EXISTS idx_fuel_trip_attribution_trip ON fuel_trip_attribution(trip_id);
+            CREATE INDEX IF NOT EXISTS idx_fuel_slip_vehicle_date ON fuel_slip(vehicle_id, transaction_date);
+
+            -- Account ledger indexes
+            CREATE INDEX IF NOT EXISTS idx_account_ledger_entry_account_date ON account_ledger_entry(account_id, entry_date);
+
+            -- Punch journal indexes
+            CREATE INDEX IF NOT EXISTS idx_timesheet_punch_driver ON timesheet_punch(driver_id, punched_at);
+
+            -- Load consolidation: unassigned trips by planned start
+            CREATE INDEX IF NOT EXISTS idx_trip_unassigned_start ON trip(planned_start_date, customer_id) WHERE load_id IS NULL;
+        """);
+    }
+
+    /* ===================== POOLED ID SEQUENCES ===================== */
+    /**
+     * Widens the id sequences of high-volume tables to INCREMENT BY 50 so the
+     * pooled generators on StockMovement, DriverIssueItem, VehicleIssueItem and
+     * StockCountLine can hand out ids in memory and Hibernate can batch the inserts.
+     * Idempotent and re-run on every start, before the EntityManagerFactory is built, so
+     * the generators never see a sequence still at INCREMENT BY 1 (the pooled optimizer
+     * would then hand out ids below nextval that already exist). Plain SQL inserts
+     * relying on the column default keep working.
+     */
+    private void migrateIdSequences() {
+        phase = Phase.SEQUENCES;
+
+        unit("""
+                DO $$
+                DECLARE
+                    t TEXT;
+                    seq TEXT;
+                BEGIN
+                    FOREACH t IN ARRAY ARRAY['stock_movement', 'driver_issue_items', 'vehicle_issue_items', 'stock_count_lines'] LOOP
+                        IF to_regclass(t) IS NOT NULL THEN
+                            seq := pg_get_serial_sequence(t, 'id');
+                            IF seq IS NOT NULL THEN
+                                EXECUTE format('ALTER SEQUENCE %s INCREMENT BY 50', seq);
+                            END IF;
+                        END IF;
+                    END LOOP;
+                END $$;
+            """);
+    }
+
     /* ===================== SEED DATA ===================== */
     private void seedData() {
-        logger.info("Seeding data...");
+        phase = Phase.SEED;
 
-        jdbcTemplate.execute("""
+        unit("""
             -- ==================== SEED ROLES ====================
             INSERT INTO role (name, description)
             SELECT 'SUPER_ADMIN', 'Full system access'
@@ -1655,6 +1943,5 @@ public class DatabaseInitializer implements CommandLineRunner {
             WHERE a.name IN ('BP Fuel Account', 'FNB Fleet Card', 'Standard Bank');
         """);
 
-        logger.info("Data seeding completed");
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.pgsa.trailers.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * "schema" health contributor, part of the readiness group. DOWN when the bootstrap
+ * failed; by default UP once tables are in place while indexes still build in the
+ * background, or OUT_OF_SERVICE until indexes finish with
+ * app.db.bootstrap.ready-after-indexes=true.
+ */
+@Component
+@RequiredArgsConstructor
+public class SchemaHealthIndicator implements HealthIndicator {
+
+    private final SchemaBootstrap schemaBootstrap;
+
+    @Value("${app.db.bootstrap.ready-after-indexes:false}")
+    private boolean readyAfterIndexes;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = switch (schemaBootstrap.getState()) {
+            case FAILED -> Health.down();
+            case STARTING -> Health.outOfService();
+            case SCHEMA_READY -> readyAfterIndexes ? Health.outOfService() : Health.up();
+            case READY, DISABLED -> Health.up();
+        };
+        return builder.withDetails(schemaBootstrap.getStatus()).build();
+    }
+}
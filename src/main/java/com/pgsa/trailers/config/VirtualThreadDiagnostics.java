@@ -0,0 +1,113 @@
+package com.pgsa.trailers.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Reports on the virtual-thread execution mode (spring.threads.virtual.enabled).
+ *
+ * On Java 21+ Spring Boot runs Tomcat request handling and the applicationTaskExecutor
+ * (@Async, BlockingFanOut) on virtual threads. On Java 17 the property is ignored and
+ * the platform pools configured under spring.task.execution.pool are used.
+ *
+ * When virtual threads are active, a JFR stream watches jdk.VirtualThreadPinned events
+ * (a virtual thread blocking inside synchronized or native code, holding its carrier)
+ * and publishes them as the trailers.virtual_threads.pinned timer.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadDiagnostics {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.pgsa.trailers";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.execution.pinning.enabled:true}")
+    private boolean pinningEnabled;
+
+    @Value("${app.execution.pinning.threshold-ms:20}")
+    private long pinningThresholdMs;
+
+    private RecordingStream recordingStream;
+    private Timer pinnedTimer;
+
+    @PostConstruct
+    public void start() {
+        int javaVersion = Runtime.version().feature();
+
+        if (javaVersion < 21) {
+            log.warn("Virtual threads requested but running on Java {}; using platform thread pools", javaVersion);
+            return;
+        }
+
+        log.info("Virtual threads enabled for request handling and async executors (Java {})", javaVersion);
+
+        if (!pinningEnabled) {
+            return;
+        }
+
+        pinnedTimer = Timer.builder("trailers.virtual_threads.pinned")
+                .description("Virtual thread pinning events above the configured threshold")
+                .register(meterRegistry);
+
+        try {
+            recordingStream = new RecordingStream();
+            recordingStream.enable(PINNED_EVENT)
+                    .withThreshold(Duration.ofMillis(pinningThresholdMs))
+                    .withStackTrace();
+            recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+            recordingStream.startAsync();
+            log.info("Virtual thread pinning diagnostics started (threshold {} ms)", pinningThresholdMs);
+        } catch (Exception e) {
+            // JFR may be unavailable in stripped-down runtimes; diagnostics are best effort
+            log.warn("Could not start virtual thread pinning diagnostics: {}", e.getMessage());
+            recordingStream = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        Duration pinnedFor = event.getDuration();
+        pinnedTimer.record(pinnedFor);
+        log.warn("Virtual thread pinned for {} ms at {}", pinnedFor.toMillis(), pinningSite(event.getStackTrace()));
+    }
+
+    /**
+     * Prefer the first application frame, that's the code that needs changing.
+     */
+    private String pinningSite(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+
+        RecordedFrame site = stackTrace.getFrames().stream()
+                .filter(frame -> frame.getMethod().getType().getName().startsWith(APP_PACKAGE))
+                .findFirst()
+                .orElse(stackTrace.getFrames().get(0));
+
+        return site.getMethod().getType().getName() + "." + site.getMethod().getName()
+                + ":" + site.getLineNumber();
+    }
+}
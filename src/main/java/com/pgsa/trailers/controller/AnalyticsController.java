@@ -1,8 +1,12 @@
 package com.pgsa.trailers.controller;
 
+import com.pgsa.trailers.dto.TripCubeQueryDTO;
+import com.pgsa.trailers.dto.TripCubeResultDTO;
 import com.pgsa.trailers.dto.VehicleKpiDTO;
 import com.pgsa.trailers.dto.DriverKpiDTO;
 import com.pgsa.trailers.service.AnalyticsService;
+import com.pgsa.trailers.service.DashboardSnapshotService;
+import com.pgsa.trailers.service.TripCubeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -24,6 +28,8 @@ import java.util.stream.Collectors;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final DashboardSnapshotService dashboardSnapshotService;
+    private final TripCubeService tripCubeService;
 
     /**
      * Debug endpoint to inspect current authentication
@@ -83,16 +89,19 @@ public class AnalyticsController {
         if (endDate == null) endDate = LocalDate.now();
         if (startDate == null) startDate = endDate.minusDays(30);
 
-        // Get data from service
-        AnalyticsService.DashboardSummary summary = analyticsService.getDashboardSummary(startDate, endDate);
-        List<VehicleKpiDTO> vehicleKpis = analyticsService.getVehicleKpis(startDate, endDate);
-        List<DriverKpiDTO> driverKpis = analyticsService.getDriverKpis(startDate, endDate);
+        // Shared snapshot: KPI queries run once per range, concurrently, and are reused for a short TTL
+        DashboardSnapshotService.DashboardSnapshot snapshot = dashboardSnapshotService.getSnapshot(startDate, endDate);
+        AnalyticsService.DashboardSummary summary = snapshot.getSummary();
+        List<VehicleKpiDTO> vehicleKpis = snapshot.getVehicleKpis();
+        List<DriverKpiDTO> driverKpis = snapshot.getDriverKpis();
 
         // Prepare response
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
         response.put("period", Map.of("startDate", startDate, "endDate", endDate));
         response.put("timestamp", System.currentTimeMillis());
+        response.put("snapshotAt", snapshot.getComputedAt().toEpochMilli());
+        response.put("snapshotAgeMs", snapshot.getAgeMs());
 
         // Summary data
         Map<String, Object> summaryData = new HashMap<>();
@@ -262,6 +271,24 @@ public class AnalyticsController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Ad-hoc group-by/filter over completed trips, answered from the in-memory trip cube
+     */
+    @PostMapping("/cube/query")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'DISPATCHER')")
+    public ResponseEntity<TripCubeResultDTO> queryTripCube(@RequestBody TripCubeQueryDTO request) {
+        return ResponseEntity.ok(tripCubeService.query(request));
+    }
+
+    /**
+     * Trip cube size, dimension cardinalities and load time
+     */
+    @GetMapping("/cube")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'DISPATCHER')")
+    public ResponseEntity<Map<String, Object>> getTripCubeStats() {
+        return ResponseEntity.ok(tripCubeService.getStats());
+    }
+
     /**
      * Status endpoint - open to all authenticated users
      */
@@ -0,0 +1,30 @@
+package com.pgsa.trailers.controller;
+
+import com.pgsa.trailers.entity.system.AuditEvent;
+import com.pgsa.trailers.service.AuditEventService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/audit")
+@RequiredArgsConstructor
+@Slf4j
+public class AuditController {
+
+    private final AuditEventService auditEventService;
+
+    /**
+     * Audit history for one entity, oldest first.
+     * entityType: TRIP, FUEL_SLIP, VEHICLE, DRIVER, POD
+     */
+    @GetMapping("/{entityType}/{entityId}")
+    public ResponseEntity<List<AuditEvent>> getHistory(@PathVariable String entityType,
+                                                       @PathVariable Long entityId) {
+        log.debug("Fetching audit history for {} {}", entityType, entityId);
+        return ResponseEntity.ok(auditEventService.getHistory(entityType.toUpperCase(), entityId));
+    }
+}
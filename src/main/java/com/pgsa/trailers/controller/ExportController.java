@@ -0,0 +1,49 @@
+package com.pgsa.trailers.controller;
+
+import com.pgsa.trailers.service.DataExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/exports")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasAnyRole('SUPER_ADMIN', 'MANAGER')")
+public class ExportController {
+
+    private final DataExportService dataExportService;
+
+    /**
+     * Stream fuel-slips, account-transactions, drivers or vehicles as CSV or XLSX.
+     * from/to apply to the dated exports (fuel slips, account transactions).
+     */
+    @GetMapping("/{dataset}")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable String dataset,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.info("GET /api/exports/{} - format: {}, {} to {}", dataset, format, from, to);
+        DataExportService.Dataset selected = DataExportService.parseDataset(dataset);
+        DataExportService.Format selectedFormat = DataExportService.parseFormat(format);
+
+        String fileName = selected.getFileName()
+                + (from != null ? "-" + from : "") + (to != null ? "-" + to : "")
+                + "." + selectedFormat.getExtension();
+        StreamingResponseBody body = out -> dataExportService.export(selected, selectedFormat, from, to, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .header("Access-Control-Expose-Headers", "Content-Disposition")
+                .contentType(MediaType.parseMediaType(selectedFormat.getContentType()))
+                .body(body);
+    }
+}
@@ -0,0 +1,38 @@
+package com.pgsa.trailers.controller;
+
+import com.pgsa.trailers.dto.FleetBoardDTO;
+import com.pgsa.trailers.service.FleetStatusService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/fleet/board")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasAnyRole('SUPER_ADMIN', 'DISPATCHER', 'MANAGER')")
+public class FleetBoardController {
+
+    private final FleetStatusService fleetStatusService;
+
+    /**
+     * Current fleet board: active vehicles and drivers with status, current trip and last odometer.
+     */
+    @GetMapping
+    public ResponseEntity<FleetBoardDTO> getBoard() {
+        return ResponseEntity.ok(fleetStatusService.getSnapshot());
+    }
+
+    /**
+     * Live board: a "snapshot" event, then "fleet-diff" events as vehicles, drivers and trips change.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBoard() {
+        log.info("Opening fleet board stream");
+        return fleetStatusService.subscribe();
+    }
+}
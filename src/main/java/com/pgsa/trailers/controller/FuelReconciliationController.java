@@ -5,6 +5,7 @@ import com.pgsa.trailers.service.FuelReconciliationService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -47,4 +48,13 @@ public class FuelReconciliationController {
         LocalDateTime toDate = LocalDateTime.parse(to);
         return fuelService.getReconciliationByAccountName(fromDate, toDate, accountName);
     }
+
+    /**
+     * Current running balance of an account from the ledger
+     * Example: /api/fuel/reconciliation/accounts/12/balance
+     */
+    @GetMapping("/accounts/{accountId}/balance")
+    public BigDecimal getAccountBalance(@PathVariable Long accountId) {
+        return fuelService.getAccountBalance(accountId);
+    }
 }
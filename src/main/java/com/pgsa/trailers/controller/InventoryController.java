@@ -4,11 +4,13 @@ package com.pgsa.trailers.controller;
 import com.pgsa.trailers.dto.*;
 import com.pgsa.trailers.dto.InventoryVarianceDTO;
 import com.pgsa.trailers.entity.inventory.StockMovement;
-import com.pgsa.trailers.repository.InventoryItemRepository;
+import com.pgsa.trailers.service.StockCountPostingService;
 import com.pgsa.trailers.service.StockCountService;
 import com.pgsa.trailers.service.InventoryItemService;
 import com.pgsa.trailers.service.InventoryLocationService;
+import com.pgsa.trailers.service.StockAlertService;
 import com.pgsa.trailers.service.StockMovementService;
+import com.pgsa.trailers.service.StockReservationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,14 +18,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/inventory")
@@ -36,7 +41,9 @@ public class InventoryController {
     private final InventoryLocationService inventoryLocationService;
     private final StockMovementService stockMovementService;
     private final StockCountService stockCountService;
-    private final InventoryItemRepository inventoryItemRepository; // Add this
+    private final StockCountPostingService stockCountPostingService;
+    private final StockReservationService stockReservationService;
+    private final StockAlertService stockAlertService;
 
     // =============================================
     // Inventory Items
@@ -115,22 +122,30 @@ public class InventoryController {
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'DISPATCHER')")
     public ResponseEntity<List<InventoryItemResponseDTO>> getLowStockItems() {
         log.info("Fetching low stock items");
-        List<InventoryItemResponseDTO> lowStockItems = inventoryItemRepository.findLowStockItems()
-                .stream()
-                .map(inventoryItemService::mapToResponseDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(lowStockItems);
+        return ResponseEntity.ok(inventoryItemService.getLowStockItems());
     }
 
     @GetMapping("/items/out-of-stock")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'DISPATCHER')")
     public ResponseEntity<List<InventoryItemResponseDTO>> getOutOfStockItems() {
         log.info("Fetching out of stock items");
-        List<InventoryItemResponseDTO> outOfStockItems = inventoryItemRepository.findOutOfStockItems()
-                .stream()
-                .map(inventoryItemService::mapToResponseDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(outOfStockItems);
+        return ResponseEntity.ok(inventoryItemService.getOutOfStockItems());
+    }
+
+    // =============================================
+    // Stock Alerts
+    // =============================================
+
+    @GetMapping("/alerts")
+    public ResponseEntity<List<StockAlertDTO>> getActiveAlerts() {
+        log.info("Fetching active stock alerts");
+        return ResponseEntity.ok(stockAlertService.getActiveAlerts());
+    }
+
+    @GetMapping(value = "/alerts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts() {
+        log.info("Opening stock alert stream");
+        return stockAlertService.subscribe();
     }
     
     // =============================================
@@ -241,6 +256,24 @@ public class InventoryController {
         return ResponseEntity.ok(stockMovementService.rejectMovement(id, rejectedBy, reason));
     }
 
+    @PatchMapping("/movements/batch/approve")
+    public ResponseEntity<StockMovementBatchResultDTO> approveMovements(
+            @Valid @RequestBody StockMovementBatchRequestDTO request) {
+        log.info("Batch approving {} movement(s)", request.getMovementIds().size());
+        String approvedBy = request.getPerformedBy() != null ? request.getPerformedBy() : "System";
+        String notes = request.getNotes() != null ? request.getNotes() : "";
+        return ResponseEntity.ok(stockMovementService.approveMovements(request.getMovementIds(), approvedBy, notes));
+    }
+
+    @PatchMapping("/movements/batch/reject")
+    public ResponseEntity<StockMovementBatchResultDTO> rejectMovements(
+            @Valid @RequestBody StockMovementBatchRequestDTO request) {
+        log.info("Batch rejecting {} movement(s)", request.getMovementIds().size());
+        String rejectedBy = request.getPerformedBy() != null ? request.getPerformedBy() : "System";
+        String reason = request.getNotes() != null ? request.getNotes() : "No reason provided";
+        return ResponseEntity.ok(stockMovementService.rejectMovements(request.getMovementIds(), rejectedBy, reason));
+    }
+
     @GetMapping("/movements/stats")
     public ResponseEntity<Map<String, Object>> getMovementStats(
             @RequestParam(required = false) String startDate,
@@ -259,6 +292,32 @@ public class InventoryController {
         return ResponseEntity.ok(stockCountService.getShrinkageReport(id));
     }
 
+    @GetMapping("/items/{id}/expected")
+    public ResponseEntity<Map<String, Object>> getExpectedQuantity(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        log.info("Getting expected quantity for item {} on {}", id, date);
+        return ResponseEntity.ok(Map.of(
+                "itemId", id,
+                "date", date,
+                "expectedQuantity", stockCountService.getExpectedQuantity(id, date)));
+    }
+
+    @GetMapping("/counts/{id}/variance")
+    public ResponseEntity<List<InventoryVarianceDTO>> getCountVariance(@PathVariable Long id) {
+        log.info("Getting variance report for stock count: {}", id);
+        return ResponseEntity.ok(stockCountService.getCountVariance(id));
+    }
+
+    @PostMapping("/counts/{id}/post")
+    public ResponseEntity<StockCountPostingResultDTO> postStockCount(
+            @PathVariable Long id,
+            @RequestBody(required = false) Map<String, String> request) {
+        log.info("Posting stock count with ID: {}", id);
+        String postedBy = request != null ? request.getOrDefault("postedBy", "System") : "System";
+        return ResponseEntity.ok(stockCountPostingService.post(id, postedBy));
+    }
+
     // =============================================
     // Statistics
     // =============================================
@@ -268,4 +327,11 @@ public class InventoryController {
         log.info("Fetching inventory statistics");
         return ResponseEntity.ok(inventoryItemService.getStatistics());
     }
+
+    @GetMapping("/stats/contention")
+    public ResponseEntity<List<StockContentionDTO>> getStockContention(
+            @RequestParam(defaultValue = "20") int limit) {
+        log.info("Fetching stock reservation contention (top {})", limit);
+        return ResponseEntity.ok(stockReservationService.getContention(limit));
+    }
 }
@@ -1,10 +1,12 @@
 // src/main/java/com/pgsa/trailers/controller/LoadController.java
 package com.pgsa.trailers.controller;
 
+import com.pgsa.trailers.dto.LoadConsolidationPlanDTO;
 import com.pgsa.trailers.dto.LoadRequestDTO;
 import com.pgsa.trailers.dto.LoadResponseDTO;
 import com.pgsa.trailers.dto.TripSummaryDTO;
 import com.pgsa.trailers.entity.ops.Trip;
+import com.pgsa.trailers.service.LoadConsolidationService;
 import com.pgsa.trailers.service.LoadService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -13,14 +15,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -31,6 +37,7 @@ import java.util.stream.Collectors;
 public class LoadController {
 
     private final LoadService loadService;
+    private final LoadConsolidationService loadConsolidationService;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'MANAGER')")
@@ -110,6 +117,35 @@ public class LoadController {
 
 
 
+    // Whole-window consolidation: proposes loads for every unassigned trip in the dates
+    @GetMapping("/consolidation")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'MANAGER')")
+    public ResponseEntity<LoadConsolidationPlanDTO> planConsolidation(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) BigDecimal capacityKg,
+            @RequestParam(required = false) Integer maxPallets,
+            @RequestParam(required = false) Integer windowHours) {
+        log.info("Planning load consolidation {} to {}", from, to != null ? to : from);
+        return ResponseEntity.ok(loadConsolidationService.plan(
+                from, to != null ? to : from, customerId, capacityKg, maxPallets, windowHours));
+    }
+
+    @PostMapping("/consolidation")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'MANAGER')")
+    public ResponseEntity<LoadConsolidationPlanDTO> applyConsolidation(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) BigDecimal capacityKg,
+            @RequestParam(required = false) Integer maxPallets,
+            @RequestParam(required = false) Integer windowHours) {
+        log.info("Applying load consolidation {} to {}", from, to != null ? to : from);
+        return ResponseEntity.ok(loadConsolidationService.apply(
+                from, to != null ? to : from, customerId, capacityKg, maxPallets, windowHours, getCurrentUserId()));
+    }
+
     @GetMapping("/merge-candidates")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'MANAGER')")
     public ResponseEntity<List<TripSummaryDTO>> findMergeCandidates(
@@ -160,6 +196,15 @@ public class LoadController {
         return ResponseEntity.ok(loadService.addTripsToLoad(loadNumber, tripIds, getCurrentUserId()));
     }
 
+    // Repairs the stored trip aggregates from the trip table; all loads when no number is given
+    @PostMapping("/aggregates/recompute")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'MANAGER')")
+    public ResponseEntity<Map<String, Integer>> recomputeAggregates(
+            @RequestParam(required = false) String loadNumber) {
+        log.info("Recomputing load aggregates for {}", loadNumber != null ? loadNumber : "all loads");
+        return ResponseEntity.ok(Map.of("loadsUpdated", loadService.recomputeAggregates(loadNumber)));
+    }
+
     // Helper method to get current user ID
     private Long getCurrentUserId() {
         // This should be implemented based on your authentication context
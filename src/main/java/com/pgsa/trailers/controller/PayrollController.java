@@ -0,0 +1,54 @@
+package com.pgsa.trailers.controller;
+
+import com.pgsa.trailers.dto.PayrollPeriodDTO;
+import com.pgsa.trailers.service.PayrollHoursService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/payroll")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasAnyRole('SUPER_ADMIN', 'MANAGER')")
+public class PayrollController {
+
+    private final PayrollHoursService payrollHoursService;
+
+    /**
+     * Regular, overtime, break and leave hours for every driver in the period.
+     */
+    @GetMapping("/hours")
+    public ResponseEntity<PayrollPeriodDTO> getPeriodHours(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean refresh) {
+        log.info("GET /api/payroll/hours - {} to {}", from, to);
+        return ResponseEntity.ok(payrollHoursService.getPeriod(from, to, refresh));
+    }
+
+    /**
+     * Payroll export for the period as CSV, one line per driver.
+     */
+    @GetMapping("/hours/export")
+    public ResponseEntity<byte[]> exportPeriodHours(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.info("GET /api/payroll/hours/export - {} to {}", from, to);
+        byte[] csv = payrollHoursService.exportCsv(from, to).getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"payroll-hours-" + from + "-" + to + ".csv\"")
+                .header("Access-Control-Expose-Headers", "Content-Disposition")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(csv);
+    }
+}
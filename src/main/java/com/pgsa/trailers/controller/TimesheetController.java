@@ -1,9 +1,11 @@
 // src/main/java/com/pgsa/trailers/controller/TimesheetController.java
 package com.pgsa.trailers.controller;
 
+import com.pgsa.trailers.dto.PunchPipelineStatsDTO;
 import com.pgsa.trailers.dto.PunchRequestDTO;
 import com.pgsa.trailers.dto.TimesheetEntryDTO;
 import com.pgsa.trailers.entity.attendance.TimesheetEntry;
+import com.pgsa.trailers.service.TimesheetPunchService;
 import com.pgsa.trailers.service.TimesheetService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,15 +25,20 @@ import java.util.List;
 public class TimesheetController {
 
     private final TimesheetService timesheetService;
+    private final TimesheetPunchService timesheetPunchService;
 
     @PostMapping("/punch")
-public ResponseEntity<?> punch(@RequestBody PunchRequestDTO request) {
+public ResponseEntity<?> punch(@RequestBody PunchRequestDTO request,
+                               @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
     log.info("POST /api/timesheet/punch - Driver: {}, Type: {}", request.getDriverId(), request.getPunchType());
     
     // Validate driverId
     if (request.getDriverId() == null) {
         return ResponseEntity.badRequest().body("Driver ID is required");
     }
+    if (request.getRequestId() == null && idempotencyKey != null) {
+        request.setRequestId(idempotencyKey);
+    }
     
     try {
         TimesheetEntry entry = timesheetService.punch(request);
@@ -45,6 +52,11 @@ public ResponseEntity<?> punch(@RequestBody PunchRequestDTO request) {
     }
 }
 
+    @GetMapping("/punch/stats")
+    public ResponseEntity<PunchPipelineStatsDTO> getPunchStats() {
+        return ResponseEntity.ok(timesheetPunchService.getStats());
+    }
+
     @GetMapping("/driver/{driverId}")
     public ResponseEntity<List<TimesheetEntry>> getEntriesByDriver(
             @PathVariable Long driverId,
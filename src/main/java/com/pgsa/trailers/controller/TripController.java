@@ -6,6 +6,7 @@ import com.pgsa.trailers.dto.*;
 import com.pgsa.trailers.entity.ops.Trip;
 import com.pgsa.trailers.entity.ops.TripResponseMapper;
 import com.pgsa.trailers.entity.security.AppUser;
+import com.pgsa.trailers.reports.ReportService;
 import com.pgsa.trailers.repository.AppUserRepository;
 import com.pgsa.trailers.repository.TripRepository;
 import com.pgsa.trailers.service.TripService;
@@ -16,6 +17,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -26,6 +28,7 @@ import java.util.stream.Collectors;
 import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.validation.Valid;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -44,6 +47,7 @@ public class TripController {
     private final AppUserRepository appUserRepository;
     private final TripRepository tripRepository;
     private final TripResponseMapper tripResponseMapper;
+    private final ReportService reportService;
 
     // ============================================================
     // CONSTANTS FOR STATUS VALUES (from enum_master table)
@@ -366,6 +370,34 @@ public class TripController {
         return ResponseEntity.ok(canFinalize);
     }
 
+    /* ============================================================
+       COST REPORT
+       ============================================================ */
+    @GetMapping("/{id}/cost")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'DISPATCHER', 'MANAGER')")
+    public ResponseEntity<TripCostReportDTO> getTripCost(@PathVariable Long id) {
+        log.info("📨 Trip cost report for trip {}", id);
+        List<TripCostReportDTO> report = reportService.getTripCostReport(id);
+        if (report.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(report.get(0));
+    }
+
+    // Cost breakdown for every trip that started in the dates (inclusive)
+    @GetMapping("/cost")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'DISPATCHER', 'MANAGER')")
+    public ResponseEntity<List<TripCostReportDTO>> getTripCosts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : from;
+        if (end.isBefore(from)) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("📨 Trip cost report {} to {}", from, end);
+        return ResponseEntity.ok(reportService.getTripCostReport(from, end));
+    }
+
     /* ============================================================
        UPDATE STATUS - FIXED
        ============================================================ */
@@ -5,9 +5,11 @@ import com.pgsa.trailers.dto.MaintenanceRecordRequest;
 import com.pgsa.trailers.dto.MaintenanceRecordResponse;
 import com.pgsa.trailers.dto.VehicleCertificateDTO;
 import com.pgsa.trailers.dto.VehicleDTO;
+import com.pgsa.trailers.dto.VehicleFuelStateDTO;
 import com.pgsa.trailers.entity.assets.Vehicle;
 import com.pgsa.trailers.entity.vehicle.Certificate;
 import com.pgsa.trailers.entity.vehicle.MaintenanceRecord;
+import com.pgsa.trailers.service.VehicleFuelStateService;
 import com.pgsa.trailers.service.VehicleService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,7 +19,6 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +31,7 @@ import java.util.Map;
 public class VehicleController {
 
     private final VehicleService vehicleService;
+    private final VehicleFuelStateService vehicleFuelStateService;
 
     // ============================================================
     // CONSTANTS FOR STATUS VALUES (from enum_master table)
@@ -174,11 +176,7 @@ public class VehicleController {
                 ));
             }
             
-            Vehicle vehicle = vehicleService.getVehicleById(id);
-            vehicle.setCurrentFuelLevel(fuelLevel);
-            vehicle.setLastFuelUpdate(LocalDateTime.now());
-            
-            Vehicle saved = vehicleService.updateVehicle(id, VehicleDTO.fromEntity(vehicle));
+            Vehicle saved = vehicleService.updateFuelLevel(id, fuelLevel);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -194,6 +192,25 @@ public class VehicleController {
         }
     }
     
+    @GetMapping("/{id}/fuel-state")
+    public ResponseEntity<?> getFuelState(@PathVariable Long id) {
+        log.info("GET /api/vehicles/{}/fuel-state", id);
+        try {
+            return ResponseEntity.ok(vehicleFuelStateService.getState(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                "success", false,
+                "error", e.getMessage()
+            ));
+        }
+    }
+
+    @GetMapping("/fuel-state")
+    public ResponseEntity<List<VehicleFuelStateDTO>> getFuelStates() {
+        log.info("GET /api/vehicles/fuel-state");
+        return ResponseEntity.ok(vehicleFuelStateService.getStates());
+    }
+
     @GetMapping("/{id}/certificates")
     public ResponseEntity<?> getCertificates(@PathVariable Long id) {
         log.info("GET /api/vehicles/{}/certificates", id);
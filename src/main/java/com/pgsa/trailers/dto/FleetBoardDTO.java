@@ -0,0 +1,53 @@
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Full fleet board; sent on connect and whenever a stream client fell too far behind.
+ * Diffs with a seq at or below this snapshot's seq are already included.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FleetBoardDTO {
+    private Long seq;
+    private LocalDateTime generatedAt;
+    private List<VehicleStatus> vehicles;
+    private List<DriverStatus> drivers;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VehicleStatus {
+        private Long vehicleId;
+        private String registrationNumber;
+        private String status;
+        private Long assignedDriverId;
+        private Long currentTripId;
+        private String currentTripNumber;
+        private String tripStatus;
+        private BigDecimal lastOdometer;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DriverStatus {
+        private Long driverId;
+        private String name;
+        private String status;
+        private Long assignedVehicleId;
+        private Long currentTripId;
+        private String currentTripNumber;
+    }
+}
@@ -0,0 +1,23 @@
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Changes to the fleet board up to seq: rows to upsert and rows that left the board.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FleetBoardDiffDTO {
+    private Long seq;
+    private List<FleetBoardDTO.VehicleStatus> vehicles;
+    private List<FleetBoardDTO.DriverStatus> drivers;
+    private List<Long> removedVehicleIds;
+    private List<Long> removedDriverIds;
+}
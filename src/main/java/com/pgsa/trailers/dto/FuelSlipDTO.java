@@ -1,16 +1,11 @@
 package com.pgsa.trailers.dto;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pgsa.trailers.entity.ops.FuelSlip;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
 
 @Slf4j
 @Data
@@ -42,12 +37,8 @@ public class FuelSlipDTO {
     private LocalDateTime verificationDate;
     private Boolean incidentFlag;
     private LocalDateTime lastStatusUpdate;
-    private Map<String, Object> auditTrail;
     private Long accountStatementId;
 
-    // Static ObjectMapper for JSON operations
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-
     /**
      * Convert FuelSlip entity to DTO with safe lazy loading
      */
@@ -124,9 +115,6 @@ public class FuelSlipDTO {
             dto.setIncidentFlag(slip.getIncidentFlag());
             dto.setLastStatusUpdate(slip.getLastStatusUpdate());
 
-            // Convert auditTrail to Map
-            dto.setAuditTrail(convertAuditTrailToMap(slip.getAuditTrail()));
-
             // Account statement mapping
             if (slip.getAccountStatement() != null) {
                 dto.setAccountStatementId(slip.getAccountStatement().getId());
@@ -139,51 +127,4 @@ public class FuelSlipDTO {
 
         return dto;
     }
-
-    /**
-     * Convert audit trail object to Map
-     */
-    private static Map<String, Object> convertAuditTrailToMap(Object auditTrail) {
-        Map<String, Object> result = new HashMap<>();
-
-        if (auditTrail == null) {
-            return result;
-        }
-
-        try {
-            if (auditTrail instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> auditMap = (Map<String, Object>) auditTrail;
-                return auditMap;
-            } else if (auditTrail instanceof String) {
-                String strAuditTrail = (String) auditTrail;
-                if (!strAuditTrail.trim().isEmpty()) {
-                    return objectMapper.readValue(strAuditTrail, new TypeReference<Map<String, Object>>() {});
-                }
-            } else {
-                String json = objectMapper.writeValueAsString(auditTrail);
-                return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
-            }
-        } catch (Exception e) {
-            result.put("error", "Failed to parse audit trail");
-            result.put("originalType", auditTrail.getClass().getSimpleName());
-        }
-
-        return result;
-    }
-
-    /**
-     * Get audit trail as JSON string
-     */
-    public String getAuditTrailAsJson() {
-        if (this.auditTrail == null || this.auditTrail.isEmpty()) {
-            return "{}";
-        }
-
-        try {
-            return objectMapper.writeValueAsString(this.auditTrail);
-        } catch (JsonProcessingException e) {
-            return "{}";
-        }
-    }
 }
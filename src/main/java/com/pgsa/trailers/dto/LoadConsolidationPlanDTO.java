@@ -0,0 +1,60 @@
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoadConsolidationPlanDTO {
+    private LocalDate from;
+    private LocalDate to;
+    private boolean applied; // loads were created, not just proposed
+    private Long planMillis;
+
+    // Vehicle capacity the trips were packed against
+    private BigDecimal capacityKg;
+    private Integer maxPallets;
+    private Integer windowHours;
+
+    // Unassigned trips in the window and what became of them
+    private Integer candidateTrips;
+    private Integer consolidatedTrips;
+    private Integer unconsolidatedTrips;
+    private List<String> oversizeTrips; // heavier or bulkier than one vehicle
+
+    private List<ProposedLoad> loads;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProposedLoad {
+        private Long customerId;
+        private String customerName;
+        private String originCity;
+        private String destinationCity;
+        private LocalDateTime windowStart;
+        private LocalDateTime windowEnd;
+        private String commodityType;
+
+        private List<Long> tripIds;
+        private List<String> tripNumbers;
+
+        // Packed totals against one vehicle
+        private BigDecimal totalWeightKg;
+        private Integer totalPallets;
+        private BigDecimal weightUtilisationPct;
+
+        // Set once the load has been created
+        private String loadNumber;
+    }
+}
@@ -0,0 +1,61 @@
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollPeriodDTO {
+    private LocalDate from;
+    private LocalDate to;
+    private boolean closed; // closed periods are cached
+    private LocalDateTime computedAt;
+    private Long computeMillis;
+    private Long entriesScanned;
+
+    private List<DriverHours> drivers;
+
+    // Fleet totals (hours)
+    private BigDecimal regularHours;
+    private BigDecimal overtimeHours;
+    private BigDecimal breakHours;
+    private BigDecimal pendingHours;
+    private BigDecimal paidLeaveHours;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DriverHours {
+        private Long driverId;
+        private String driverName;
+        private String licenseNumber;
+
+        // Approved entries only
+        private Integer entries;
+        private Integer daysWorked;
+        private BigDecimal grossHours;
+        private BigDecimal breakHours;
+        private BigDecimal regularHours;
+        private BigDecimal overtimeHours;
+
+        // Entries not yet approved (net of breaks)
+        private BigDecimal pendingHours;
+
+        // Approved leave, working days inside the period
+        private Integer paidLeaveDays;
+        private Integer unpaidLeaveDays;
+        private BigDecimal paidLeaveHours;
+        private Map<String, Integer> leaveDaysByType;
+    }
+}
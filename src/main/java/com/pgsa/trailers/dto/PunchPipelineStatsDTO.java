@@ -0,0 +1,26 @@
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PunchPipelineStatsDTO {
+    // Request to durable commit, recent window
+    private long punches;
+    private Double p50Ms;
+    private Double p95Ms;
+    private Double p99Ms;
+    private double maxMs;
+
+    // Writer
+    private int queueDepth;
+    private long batches;
+    private double averageBatchSize;
+    private double maxBatchSize;
+    private int trackedDrivers;
+}
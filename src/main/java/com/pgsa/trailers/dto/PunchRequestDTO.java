@@ -25,4 +25,8 @@ public class PunchRequestDTO {
     
     @JsonProperty("longitude")
     private BigDecimal longitude;
+
+    // Client-generated id; a retry with the same id returns the original punch
+    @JsonProperty("request_id")
+    private String requestId;
 }
@@ -0,0 +1,26 @@
+// src/main/java/com/pgsa/trailers/dto/StockAlertDTO.java
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAlertDTO {
+    private Long itemId;
+    private String itemName;
+    private Long locationId;
+    private String previousStatus;
+    private String status;
+    private Integer quantity;
+    private Integer minLevel;
+    private BigDecimal reorderLevel;
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,20 @@
+// src/main/java/com/pgsa/trailers/dto/StockContentionDTO.java
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockContentionDTO {
+    private Long itemId;
+    private Long reservations;
+    private Long rejected;
+    private Long slowUpdates;
+    private Double averageUpdateMs;
+    private Double maxUpdateMs;
+}
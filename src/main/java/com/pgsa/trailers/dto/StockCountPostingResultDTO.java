@@ -0,0 +1,45 @@
+// src/main/java/com/pgsa/trailers/dto/StockCountPostingResultDTO.java
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockCountPostingResultDTO {
+    private Long stockCountId;
+    private String status;
+    private String postedBy;
+    private LocalDateTime postedAt;
+
+    // Line summary
+    private Integer linesPosted;
+    private Integer itemsCounted;
+    private Integer itemsAdjusted;
+    private Integer itemsMatched;
+
+    // Quantity summary
+    private Long totalSystemQuantity;
+    private Long totalCountedQuantity;
+    private Long netVariance;
+    private Long shrinkageUnits;
+    private Long overageUnits;
+
+    // Value summary (unit cost)
+    private BigDecimal shrinkageValue;
+    private BigDecimal overageValue;
+    private BigDecimal netVarianceValue;
+
+    private Long durationMs;
+
+    // Only items with a variance
+    private List<InventoryVarianceDTO> variances;
+}
@@ -0,0 +1,21 @@
+// src/main/java/com/pgsa/trailers/dto/StockMovementBatchRequestDTO.java
+package com.pgsa.trailers.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementBatchRequestDTO {
+    @NotEmpty
+    private List<Long> movementIds;
+    private String performedBy; // approver / rejecter
+    private String notes;       // approval notes or rejection reason
+}
@@ -0,0 +1,42 @@
+// src/main/java/com/pgsa/trailers/dto/StockMovementBatchResultDTO.java
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementBatchResultDTO {
+
+    public static final String OUTCOME_APPROVED = "APPROVED";
+    public static final String OUTCOME_REJECTED = "REJECTED";
+    public static final String OUTCOME_FAILED = "FAILED";
+    public static final String OUTCOME_SKIPPED = "SKIPPED";
+
+    private String action; // "APPROVE" or "REJECT"
+    private Integer requested;
+    private Integer succeeded;
+    private Integer failed;
+    private Integer skipped;
+    private List<MovementOutcome> outcomes;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MovementOutcome {
+        private Long movementId;
+        private Long itemId;
+        private String itemName;
+        private String movementType;
+        private Integer quantity;
+        private String outcome;
+        private String message;
+    }
+}
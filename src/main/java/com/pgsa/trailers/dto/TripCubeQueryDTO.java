@@ -0,0 +1,42 @@
+// src/main/java/com/pgsa/trailers/dto/TripCubeQueryDTO.java
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ad-hoc query against the in-memory trip cube.
+ *
+ * Dimension and measure names are the TripCubeService enum constants (case-insensitive).
+ * Filter values are dimension keys: ids for VEHICLE, DRIVER and CUSTOMER, the value itself otherwise.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripCubeQueryDTO {
+
+    // e.g. ["VEHICLE", "MONTH"]; empty means one grand-total row
+    private List<String> groupBy;
+
+    // e.g. {"CUSTOMER": ["12", "40"], "TRIP_TYPE": ["LONG_HAUL"]}
+    private Map<String, List<String>> filters;
+
+    // Inclusive range on the trip end date
+    private LocalDate from;
+    private LocalDate to;
+
+    // Defaults to all measures
+    private List<String> measures;
+
+    // A measure name or "TRIPS"; rows are sorted descending unless order is "asc"
+    private String sortBy;
+    private String order;
+    private Integer limit;
+}
@@ -0,0 +1,45 @@
+// src/main/java/com/pgsa/trailers/dto/TripCubeResultDTO.java
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripCubeResultDTO {
+    private List<String> groupBy;
+    private List<String> measures;
+    private List<Group> groups;
+
+    // Scan summary
+    private Integer totalGroups;
+    private Integer cubeRows;
+    private Integer matchedRows;
+    private Long queryMicros;
+    private LocalDateTime cubeLoadedAt;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Group {
+        // Dimension -> key (id or value) and dimension -> display label
+        private Map<String, String> keys;
+        private Map<String, String> labels;
+        private Long trips;
+
+        // Sums for additive measures, ratios of sums for the rest
+        private Map<String, Double> values;
+
+        // Additive measures only
+        private Map<String, Double> perTrip;
+    }
+}
@@ -0,0 +1,34 @@
+package com.pgsa.trailers.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleFuelStateDTO {
+    private Long vehicleId;
+
+    // Estimate (litres, km)
+    private BigDecimal currentLevel;
+    private BigDecimal capacity;
+    private BigDecimal percentageFull;
+    private BigDecimal estimatedRange;
+    private BigDecimal kmPerLiter;
+    private BigDecimal odometer;
+    private String status; // NORMAL, LOW, CRITICAL, EMPTY
+
+    private LocalDate lastRefillDate;
+    private BigDecimal lastRefillOdometer;
+    private LocalDateTime updatedAt;
+
+    // True while the latest estimate is still waiting for the write-behind flush
+    private Boolean pendingWrite;
+}
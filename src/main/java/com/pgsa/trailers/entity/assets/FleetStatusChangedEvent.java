@@ -0,0 +1,47 @@
+package com.pgsa.trailers.entity.assets;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Published when a vehicle's or driver's status, assignment or odometer changes.
+ * The fleet board reloads the listed rows after the publishing transaction commits.
+ */
+@Getter
+public class FleetStatusChangedEvent extends ApplicationEvent {
+
+    private final List<Long> vehicleIds;
+    private final List<Long> driverIds;
+    private final LocalDateTime eventTime;
+
+    public FleetStatusChangedEvent(Collection<Long> vehicleIds, Collection<Long> driverIds) {
+        super(vehicleIds);
+        this.vehicleIds = vehicleIds.stream().filter(Objects::nonNull).toList();
+        this.driverIds = driverIds.stream().filter(Objects::nonNull).toList();
+        this.eventTime = LocalDateTime.now();
+    }
+
+    public static FleetStatusChangedEvent vehicle(Long vehicleId) {
+        return of(vehicleId, null);
+    }
+
+    public static FleetStatusChangedEvent driver(Long driverId) {
+        return of(null, driverId);
+    }
+
+    public static FleetStatusChangedEvent of(Long vehicleId, Long driverId) {
+        return new FleetStatusChangedEvent(vehicleId != null ? List.of(vehicleId) : List.of(),
+                driverId != null ? List.of(driverId) : List.of());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FleetStatusChangedEvent{vehicleIds=%s, driverIds=%s, eventTime=%s}",
+                vehicleIds, driverIds, eventTime);
+    }
+}
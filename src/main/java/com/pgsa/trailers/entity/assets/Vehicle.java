@@ -7,6 +7,10 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.annotations.Type;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -17,6 +21,9 @@ import java.util.Map;
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vehicle")
+@NaturalIdCache(region = "vehicleNaturalId")
 @Slf4j
 @Table(
         name = "vehicle",
@@ -39,6 +46,7 @@ public class Vehicle extends BaseEntity {
     // ====== EXPLICIT LOGGER (since @Slf4j may not work) ======
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Vehicle.class);
 
+    @NaturalId(mutable = true)
     @Column(name = "registration_number", unique = true, nullable = false, length = 20)
     private String registrationNumber;
 
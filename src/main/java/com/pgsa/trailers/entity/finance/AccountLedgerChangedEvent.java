@@ -0,0 +1,41 @@
+package com.pgsa.trailers.entity.finance;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published when fuel slips, payments or account transactions are created, changed or deleted.
+ * The account ledger re-posts the listed rows after the publishing transaction commits.
+ */
+@Getter
+public class AccountLedgerChangedEvent extends ApplicationEvent {
+
+    public static final String SOURCE_FUEL_SLIP = "FUEL_SLIP";
+    public static final String SOURCE_PAYMENT = "PAYMENT";
+    public static final String SOURCE_ACCOUNT_TRANSACTION = "ACCOUNT_TRANSACTION";
+
+    private final String sourceType;
+    private final List<Long> sourceIds;
+    private final LocalDateTime eventTime;
+
+    public AccountLedgerChangedEvent(String sourceType, Collection<Long> sourceIds) {
+        super(List.copyOf(sourceIds));
+        this.sourceType = sourceType;
+        this.sourceIds = List.copyOf(sourceIds);
+        this.eventTime = LocalDateTime.now();
+    }
+
+    public AccountLedgerChangedEvent(String sourceType, Long sourceId) {
+        this(sourceType, List.of(sourceId));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AccountLedgerChangedEvent{sourceType=%s, sourceIds=%s, eventTime=%s}",
+                sourceType, sourceIds, eventTime);
+    }
+}
@@ -21,7 +21,8 @@ import java.time.LocalDateTime;
 public class DriverIssueItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "driver_issue_items_seq")
+    @SequenceGenerator(name = "driver_issue_items_seq", sequenceName = "driver_issue_items_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
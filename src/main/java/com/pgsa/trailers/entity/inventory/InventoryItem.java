@@ -7,6 +7,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -15,6 +16,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "inventory_item")
+// Only write changed columns: quantity is maintained atomically by StockReservationService
+@DynamicUpdate
 @Data
 @Builder
 @NoArgsConstructor
@@ -8,7 +8,8 @@ import java.math.BigDecimal;
 public class StockCountLine {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_count_lines_seq")
+    @SequenceGenerator(name = "stock_count_lines_seq", sequenceName = "stock_count_lines_id_seq", allocationSize = 50)
     private Long id;
 
     // ---------------- RELATIONSHIPS ----------------
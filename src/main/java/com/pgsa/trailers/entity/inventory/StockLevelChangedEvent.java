@@ -0,0 +1,30 @@
+package com.pgsa.trailers.entity.inventory;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published whenever inventory_item quantities (or stock thresholds) change.
+ * Listeners run after the publishing transaction commits.
+ */
+@Getter
+public class StockLevelChangedEvent extends ApplicationEvent {
+
+    private final List<Long> itemIds;
+    private final LocalDateTime eventTime;
+
+    public StockLevelChangedEvent(Collection<Long> itemIds) {
+        super(List.copyOf(itemIds));
+        this.itemIds = List.copyOf(itemIds);
+        this.eventTime = LocalDateTime.now();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StockLevelChangedEvent{itemIds=%s, eventTime=%s}", itemIds, eventTime);
+    }
+}
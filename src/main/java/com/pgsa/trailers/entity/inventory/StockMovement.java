@@ -18,8 +18,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class StockMovement {
 
+    // Pooled sequence (allocationSize must match the sequence INCREMENT BY) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movement_seq")
+    @SequenceGenerator(name = "stock_movement_seq", sequenceName = "stock_movement_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "item_id", nullable = false)
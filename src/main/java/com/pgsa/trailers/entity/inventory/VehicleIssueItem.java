@@ -20,7 +20,8 @@ import java.time.LocalDateTime;
 public class VehicleIssueItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vehicle_issue_items_seq")
+    @SequenceGenerator(name = "vehicle_issue_items_seq", sequenceName = "vehicle_issue_items_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -7,8 +7,6 @@ import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
 
 @Component
 @RequiredArgsConstructor
@@ -121,18 +119,6 @@ public class CreateTripMapper {
         trip.setRouteDetails(request.getRouteDetails());
         trip.setCheckpoints(request.getCheckpoints());
 
-        // ======================== AUDIT ========================
-        // FIXED: Convert to String for auditTrail
-        Map<String, Object> auditMap = new HashMap<>();
-        auditMap.put("action", "TRIP_CREATED");
-        auditMap.put("timestamp", LocalDateTime.now());
-        auditMap.put("createdBy", "system");
-        auditMap.put("tripType", request.getTripType());
-        // ✅ FIXED: status is now a String, so no need for .name()
-        auditMap.put("status", request.getStatus() != null ? request.getStatus() : "DRAFT");
-        
-        trip.setAuditTrail(auditMap);
-
         // ======================== DEFAULT VALUES ========================
         trip.setLastStatusUpdate(LocalDateTime.now());
         trip.setIsActive(true);
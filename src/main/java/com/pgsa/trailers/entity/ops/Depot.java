@@ -6,10 +6,14 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "depot")
 @Table(name = "depots", indexes = {
         @Index(name = "idx_depots_depot_code", columnList = "depot_code", unique = true),
         @Index(name = "idx_depots_city", columnList = "city"),
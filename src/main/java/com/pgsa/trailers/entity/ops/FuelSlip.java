@@ -88,6 +88,7 @@ public class FuelSlip extends BaseEntity {
     @Column(name = "last_status_update")
     private LocalDateTime lastStatusUpdate;
 
+    // Legacy column, no longer written; slip history lives in audit_event (AuditEventService)
     @Type(JsonType.class)
     @Column(name = "audit_trail", columnDefinition = "jsonb")
     private Map<String, Object> auditTrail;
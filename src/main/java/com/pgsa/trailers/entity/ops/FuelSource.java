@@ -4,10 +4,14 @@ import com.pgsa.trailers.config.BaseEntity;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "fuelSource")
 @Table(name = "fuel_source")
 public class FuelSource extends BaseEntity {
 
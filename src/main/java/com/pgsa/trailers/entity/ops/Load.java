@@ -8,6 +8,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -154,6 +155,35 @@ public class Load extends BaseEntity {
     @Column(name = "total_depot_km", precision = 10, scale = 2)
     private BigDecimal totalDepotKm = BigDecimal.ZERO;
 
+    /* ========================
+       TRIP AGGREGATES - kept as deltas by LoadAggregateService
+       ======================== */
+    @Column(name = "planned_trips_count")
+    @Builder.Default
+    private Integer plannedTripsCount = 0;
+
+    @Column(name = "in_progress_trips_count")
+    @Builder.Default
+    private Integer inProgressTripsCount = 0;
+
+    @Column(name = "completed_trips_count")
+    @Builder.Default
+    private Integer completedTripsCount = 0;
+
+    @Column(name = "total_cargo_weight", precision = 12, scale = 2)
+    @Builder.Default
+    private BigDecimal totalCargoWeight = BigDecimal.ZERO;
+
+    @Column(name = "total_cargo_value", precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal totalCargoValue = BigDecimal.ZERO;
+
+    @Column(name = "earliest_trip_start")
+    private LocalDateTime earliestTripStart;
+
+    @Column(name = "latest_trip_end")
+    private LocalDateTime latestTripEnd;
+
     @OneToMany(mappedBy = "load", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Trip> trips = new ArrayList<>();
 
@@ -165,20 +195,19 @@ public class Load extends BaseEntity {
             return;
         }
         
+        if (trips == null) {
+            trips = new ArrayList<>();
+        }
+        // Queued on an uninitialized bag, so adding never loads the other trips
         trips.add(trip);
         trip.setLoad(this);
+        trip.setLoadId(this.loadNumber);
         trip.setLoadNumber(this.loadNumber);
         trip.setLoadType(this.commodityType);
         trip.setLoadDescription(this.description);
         trip.setLoadStatus(this.status != null ? this.status : "PENDING");
         
-        if (this.tripsCount == null) {
-            this.tripsCount = 0;
-        }
-        this.tripsCount++;
-        
         log.debug("✅ Added trip {} to load {}", trip.getTripNumber(), this.loadNumber);
-        recalculateDepotTotals();
     }
 
     public void removeTrip(Trip trip) {
@@ -187,93 +216,47 @@ public class Load extends BaseEntity {
             return;
         }
         
-        trips.remove(trip);
+        if (Hibernate.isInitialized(trips)) {
+            trips.remove(trip);
+        }
         trip.setLoad(null);
+        trip.setLoadId(null);
         trip.setLoadNumber(null);
         trip.setLoadType(null);
         trip.setLoadDescription(null);
         trip.setLoadStatus(null);
         
-        if (this.tripsCount != null && this.tripsCount > 0) {
-            this.tripsCount--;
-        }
-        
         log.debug("✅ Removed trip {} from load {}", trip.getTripNumber(), this.loadNumber);
-        recalculateDepotTotals();
     }
 
     public boolean isEmpty() {
-        return trips == null || trips.isEmpty();
+        return getTripCount() == 0;
     }
 
     public int getTripCount() {
-        return trips != null ? trips.size() : 0;
+        return tripsCount != null ? tripsCount : 0;
     }
 
     public BigDecimal getTotalWeight() {
         if (weightKg != null) {
             return weightKg;
         }
-        if (trips != null && !trips.isEmpty()) {
-            return trips.stream()
-                    .map(Trip::getCargoWeight)
-                    .filter(w -> w != null)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-        }
-        return BigDecimal.ZERO;
+        return totalCargoWeight != null ? totalCargoWeight : BigDecimal.ZERO;
     }
 
     public BigDecimal getTotalValue() {
         if (actualValue != null) {
             return actualValue;
         }
-        if (trips != null && !trips.isEmpty()) {
-            return trips.stream()
-                    .map(Trip::getCargoValue)
-                    .filter(v -> v != null)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-        }
-        return BigDecimal.ZERO;
+        return totalCargoValue != null ? totalCargoValue : BigDecimal.ZERO;
     }
 
     public int getTotalTrips() {
-        return trips != null ? trips.size() : 0;
+        return getTripCount();
     }
 
-    // FIXED: Removed .name() calls on status field (String)
     public int getCompletedTrips() {
-        if (trips == null || trips.isEmpty()) {
-            return 0;
-        }
-        return (int) trips.stream()
-                .filter(t -> t.getStatus() != null && 
-                    ("COMPLETED".equals(t.getStatus()) || 
-                     "FINALIZED".equals(t.getStatus())))
-                .count();
-    }
-
-    public void recalculateDepotTotals() {
-        if (trips == null || trips.isEmpty()) {
-            totalFromDepotKm = BigDecimal.ZERO;
-            totalToDepotKm = BigDecimal.ZERO;
-            totalDepotKm = BigDecimal.ZERO;
-            return;
-        }
-        
-        totalFromDepotKm = trips.stream()
-                .map(Trip::getFromDepotKm)
-                .filter(km -> km != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        totalToDepotKm = trips.stream()
-                .map(Trip::getToDepotKm)
-                .filter(km -> km != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        totalDepotKm = trips.stream()
-                .map(Trip::getTotalDepotKm)
-                .filter(km -> km != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return completedTripsCount != null ? completedTripsCount : 0;
     }
 
     /* ========================
@@ -318,6 +301,21 @@ public class Load extends BaseEntity {
         if (totalDepotKm == null) {
             totalDepotKm = BigDecimal.ZERO;
         }
+        if (plannedTripsCount == null) {
+            plannedTripsCount = 0;
+        }
+        if (inProgressTripsCount == null) {
+            inProgressTripsCount = 0;
+        }
+        if (completedTripsCount == null) {
+            completedTripsCount = 0;
+        }
+        if (totalCargoWeight == null) {
+            totalCargoWeight = BigDecimal.ZERO;
+        }
+        if (totalCargoValue == null) {
+            totalCargoValue = BigDecimal.ZERO;
+        }
         
         log.info("✅ Load pre-persist complete: {} | Status: {} | Ref: {}", 
             this.loadNumber, this.status, this.referenceNumber);
@@ -325,7 +323,8 @@ public class Load extends BaseEntity {
 
     @PreUpdate
     protected void onUpdate() {
-        if (trips != null && !trips.isEmpty()) {
+        // Only touch trips already in memory; aggregates no longer need the collection
+        if (Hibernate.isInitialized(trips) && trips != null && !trips.isEmpty()) {
             for (Trip trip : trips) {
                 trip.setLoadNumber(this.loadNumber);
                 trip.setLoadType(this.commodityType);
@@ -337,8 +336,6 @@ public class Load extends BaseEntity {
         }
         
         lastStatusUpdate = LocalDateTime.now();
-        tripsCount = trips != null ? trips.size() : 0;
-        recalculateDepotTotals();
         
         log.info("✅ Load pre-update complete: {} | Trips: {} | Depot KM: {}", 
             this.loadNumber, this.tripsCount, this.totalDepotKm);
@@ -335,6 +335,7 @@ public class Trip {
     @Column(name = "last_status_update")
     private LocalDateTime lastStatusUpdate;
 
+    // Legacy column, no longer written; trip history lives in audit_event (AuditEventService)
     @Type(JsonType.class)
     @Column(name = "audit_trail", columnDefinition = "jsonb")
     private Map<String, Object> auditTrail = new HashMap<>();
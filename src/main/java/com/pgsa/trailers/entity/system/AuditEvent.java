@@ -0,0 +1,61 @@
+// src/main/java/com/pgsa/trailers/entity/system/AuditEvent.java
+package com.pgsa.trailers.entity.system;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * One row per audited change. Rows are only ever inserted (by AuditEventService's
+ * batch writer), never updated, so history no longer lives in the audit_trail
+ * JSONB columns of trip / fuel_slip / vehicle / driver.
+ */
+@Data
+@Entity
+@Immutable
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "audit_event",
+       indexes = {
+           @Index(name = "idx_audit_event_entity", columnList = "entity_type, entity_id, occurred_at")
+       })
+public class AuditEvent {
+
+    public static final String ENTITY_TRIP = "TRIP";
+    public static final String ENTITY_FUEL_SLIP = "FUEL_SLIP";
+    public static final String ENTITY_VEHICLE = "VEHICLE";
+    public static final String ENTITY_DRIVER = "DRIVER";
+    public static final String ENTITY_POD = "POD";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "entity_type", nullable = false, length = 30)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "action", nullable = false, length = 50)
+    private String action;
+
+    @Column(name = "actor", length = 100)
+    private String actor;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "payload", columnDefinition = "jsonb")
+    private Map<String, Object> payload;
+}
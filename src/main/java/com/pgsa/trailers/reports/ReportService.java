@@ -1,16 +1,63 @@
 package com.pgsa.trailers.reports;
 
 import com.pgsa.trailers.dto.TripCostReportDTO;
+import com.pgsa.trailers.service.FuelTripAttributionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.access.prepost.PreAuthorize;
 
-import java.util.ArrayList;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.List;
 
 @Service
+@RequiredArgsConstructor
 public class ReportService {
 
+    // Fuel comes from fuel_trip_attribution, so each slip is charged to exactly one trip
+    private static final String TRIP_COST_SQL = """
+            SELECT t.id AS trip_id,
+                   v.registration_number,
+                   COALESCE(t.actual_distance_km, t.distance_km, 0) AS distance_km,
+                   COALESCE(fuel.fuel_cost, 0) AS fuel_cost,
+                   COALESCE(t.toll_cost, 0) AS toll_cost,
+                   COALESCE(t.other_expenses, 0) AS other_expenses
+            FROM trip t
+            LEFT JOIN vehicle v ON v.id = t.vehicle_id
+            LEFT JOIN (
+                SELECT a.trip_id, SUM(f.total_amount) AS fuel_cost
+                FROM fuel_trip_attribution a
+                JOIN fuel_slip f ON f.id = a.slip_id
+                WHERE a.trip_id = ANY (?)
+                GROUP BY a.trip_id
+            ) fuel ON fuel.trip_id = t.id
+            WHERE t.id = ANY (?)
+            ORDER BY t.actual_start_date, t.id
+            """;
+
+    private static final RowMapper<TripCostReportDTO> TRIP_COST_MAPPER = (rs, rowNum) -> {
+        BigDecimal fuel = rs.getBigDecimal("fuel_cost");
+        BigDecimal toll = rs.getBigDecimal("toll_cost");
+        // other_expenses is the trip's only remaining cost column; there is no food cost column
+        BigDecimal other = rs.getBigDecimal("other_expenses");
+        return new TripCostReportDTO(
+                rs.getLong("trip_id"),
+                rs.getString("registration_number"),
+                rs.getBigDecimal("distance_km"),
+                fuel,
+                toll,
+                BigDecimal.ZERO,
+                other,
+                fuel.add(toll).add(other));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FuelTripAttributionService fuelTripAttributionService;
+
     // Example: close an account statement (implementation placeholder)
     @Transactional
     public void closeAccountStatement(Long accountStatementId) {
@@ -18,12 +65,36 @@ public class ReportService {
         // e.g., mark as closed, lock transactions, etc.
     }
 
-    // Example: generate trip cost report
+    /**
+     * Cost breakdown for one trip, with fuel attributed by trip window.
+     */
     @Transactional(readOnly = true)
     public List<TripCostReportDTO> getTripCostReport(Long tripId) {
-        // Implementation to fetch trip cost report
-        // Replace with actual repository call
-        return new ArrayList<>();
+        return tripCosts(new Long[]{tripId});
+    }
+
+    /**
+     * Cost breakdown for every active trip that started in the range (inclusive).
+     */
+    @Transactional(readOnly = true)
+    public List<TripCostReportDTO> getTripCostReport(LocalDate from, LocalDate to) {
+        List<Long> tripIds = jdbcTemplate.queryForList(
+                "SELECT id FROM trip WHERE is_active = true AND actual_start_date >= ? AND actual_start_date < ?",
+                Long.class, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        return tripCosts(tripIds.toArray(new Long[0]));
+    }
+
+    private List<TripCostReportDTO> tripCosts(Long[] tripIds) {
+        if (tripIds.length == 0) {
+            return List.of();
+        }
+        // Slips or trip windows edited since the last pass are re-attributed before reading
+        List<Long> vehicleIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT vehicle_id FROM trip WHERE id = ANY (?) AND vehicle_id IS NOT NULL",
+                Long.class, (Object) tripIds);
+        fuelTripAttributionService.refreshVehicles(vehicleIds);
+
+        return jdbcTemplate.query(TRIP_COST_SQL, TRIP_COST_MAPPER, tripIds, tripIds);
     }
 
     // Example: approve account statement (finance role only)
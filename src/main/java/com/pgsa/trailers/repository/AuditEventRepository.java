@@ -0,0 +1,17 @@
+package com.pgsa.trailers.repository;
+
+import com.pgsa.trailers.entity.system.AuditEvent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AuditEventRepository extends JpaRepository<AuditEvent, Long> {
+
+    List<AuditEvent> findByEntityTypeAndEntityIdOrderByOccurredAtAscIdAsc(String entityType, Long entityId);
+
+    Page<AuditEvent> findByEntityTypeAndEntityIdOrderByOccurredAtDesc(String entityType, Long entityId, Pageable pageable);
+}
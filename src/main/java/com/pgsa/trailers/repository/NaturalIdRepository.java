@@ -0,0 +1,33 @@
+package com.pgsa.trailers.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Natural-id lookups that go through Hibernate's natural-id cache.
+ *
+ * Derived finders such as findByRegistrationNumber always run a query; loading by
+ * @NaturalId resolves the id from the natural-id region and the entity from the
+ * second-level cache, so repeat lookups for reference data never hit the database.
+ */
+@Repository
+public class NaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public <T> Optional<T> findBySimpleNaturalId(Class<T> entityClass, Object naturalId) {
+        if (naturalId == null) {
+            return Optional.empty();
+        }
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(entityClass)
+                .loadOptional(naturalId);
+    }
+}
@@ -2,11 +2,21 @@ package com.pgsa.trailers.repository;
 
 import com.pgsa.trailers.entity.inventory.StockCount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface StockCountRepository extends JpaRepository<StockCount, Long> {
 
     boolean existsByIdAndStatus(Long id, String status);
 
+    @Query("SELECT DISTINCT sc FROM StockCount sc " +
+           "LEFT JOIN FETCH sc.lines l " +
+           "LEFT JOIN FETCH l.item " +
+           "WHERE sc.id = :id")
+    Optional<StockCount> findWithLinesById(@Param("id") Long id);
+
 }
@@ -119,6 +119,8 @@ public interface TripRepository extends JpaRepository<Trip, Long> {
     
     List<Trip> findByLoadId(String loadId);
     
+    Optional<Trip> findFirstByLoadIdOrderByIdAsc(String loadId);
+    
     List<Trip> findByDriverIdAndVehicleId(Long driverId, Long vehicleId);
     
     List<Trip> findByDriverIdAndStatus(Long driverId, String status);
@@ -171,6 +173,13 @@ public interface TripRepository extends JpaRepository<Trip, Long> {
     @Query("SELECT t FROM Trip t WHERE t.loadId IS NULL OR t.loadId = ''")
     Page<Trip> findTripsWithoutLoad(Pageable pageable);
 
+    // Served by the partial index idx_trip_unassigned_start
+    @Query("SELECT t FROM Trip t WHERE t.customerId = :customerId AND t.loadId IS NULL " +
+           "AND t.plannedStartDate >= :from AND t.plannedStartDate < :to ORDER BY t.plannedStartDate")
+    List<Trip> findUnassignedByCustomerAndPlannedStart(@Param("customerId") Long customerId,
+                                                       @Param("from") LocalDateTime from,
+                                                       @Param("to") LocalDateTime to);
+
     @Query("SELECT COUNT(t) FROM Trip t WHERE t.loadId = :loadId")
     long countByLoadId(@Param("loadId") String loadId);
     
@@ -0,0 +1,580 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.entity.finance.AccountLedgerChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running-balance ledger per finance account.
+ *
+ * Every fuel slip (debit, via its fuel source's account), payment (credit) and manual
+ * account transaction (by direction) is one ledger entry keyed by its source row. Posting
+ * an entry also moves the account's all-time totals, so the current balance is one row.
+ * Closing a period writes a checkpoint of the cumulative totals; any balance or period
+ * total is then the latest checkpoint before the date plus the entries after it, which
+ * is at most one period of rows regardless of account history.
+ *
+ * Account transactions whose source_type is FUEL_SLIP or PAYMENT mirror rows that are
+ * already posted from their own table and are skipped. Entries changed inside a closed
+ * period adjust the later checkpoints and are tracked as late adjustments.
+ */
+@Slf4j
+@Service
+public class AccountLedgerService {
+
+    /**
+     * Ledger entry sources: the SQL yields (source_id, account_id, entry_date, debit, credit).
+     */
+    private enum Source {
+        FUEL_SLIP(AccountLedgerChangedEvent.SOURCE_FUEL_SLIP, "f.id", """
+                SELECT f.id AS source_id, fsr.account_id, f.transaction_date AS entry_date,
+                       COALESCE(f.total_amount, 0) AS debit, 0 AS credit
+                FROM fuel_slip f
+                JOIN fuel_source fsr ON fsr.id = f.fuel_source_id
+                WHERE fsr.account_id IS NOT NULL AND f.transaction_date IS NOT NULL
+                """),
+        PAYMENT(AccountLedgerChangedEvent.SOURCE_PAYMENT, "p.id", """
+                SELECT p.id AS source_id, p.account_id, p.payment_date::timestamp AS entry_date,
+                       0 AS debit, p.amount AS credit
+                FROM payment p
+                WHERE p.account_id IS NOT NULL AND p.payment_date IS NOT NULL AND p.status::text <> 'FAILED'
+                """),
+        ACCOUNT_TRANSACTION(AccountLedgerChangedEvent.SOURCE_ACCOUNT_TRANSACTION, "t.id", """
+                SELECT t.id AS source_id, t.account_id, t.transaction_date AS entry_date,
+                       CASE WHEN t.direction = 'DEBIT' THEN t.amount ELSE 0 END AS debit,
+                       CASE WHEN t.direction = 'CREDIT' THEN t.amount ELSE 0 END AS credit
+                FROM account_transaction t
+                WHERE t.source_type NOT IN ('FUEL_SLIP', 'PAYMENT')
+                """);
+
+        private final String type;
+        private final String idColumn;
+        private final String sql;
+
+        Source(String type, String idColumn, String sql) {
+            this.type = type;
+            this.idColumn = idColumn;
+            this.sql = sql;
+        }
+
+        static Source of(String type) {
+            for (Source source : values()) {
+                if (source.type.equals(type)) {
+                    return source;
+                }
+            }
+            throw new IllegalArgumentException("Unknown ledger source type: " + type);
+        }
+    }
+
+    private static final String EXISTING_SQL = """
+            SELECT source_id, account_id, entry_date, debit, credit
+            FROM account_ledger_entry
+            WHERE source_type = ? AND source_id = ANY (?)
+            """;
+
+    private static final String UPSERT_ENTRY_SQL = """
+            INSERT INTO account_ledger_entry (source_type, source_id, account_id, entry_date, debit, credit, posted_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (source_type, source_id) DO UPDATE SET
+                account_id = EXCLUDED.account_id,
+                entry_date = EXCLUDED.entry_date,
+                debit = EXCLUDED.debit,
+                credit = EXCLUDED.credit,
+                posted_at = EXCLUDED.posted_at
+            """;
+
+    private static final String MOVE_BALANCE_SQL = """
+            INSERT INTO account_ledger_balance
+                (account_id, total_debits, total_credits, slip_total, payment_total, entry_count, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (account_id) DO UPDATE SET
+                total_debits = account_ledger_balance.total_debits + EXCLUDED.total_debits,
+                total_credits = account_ledger_balance.total_credits + EXCLUDED.total_credits,
+                slip_total = account_ledger_balance.slip_total + EXCLUDED.slip_total,
+                payment_total = account_ledger_balance.payment_total + EXCLUDED.payment_total,
+                entry_count = account_ledger_balance.entry_count + EXCLUDED.entry_count,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private static final String MOVE_CHECKPOINTS_SQL = """
+            UPDATE account_ledger_checkpoint SET
+                cum_debits = cum_debits + ?,
+                cum_credits = cum_credits + ?,
+                cum_slips = cum_slips + ?,
+                cum_payments = cum_payments + ?,
+                late_adjustment = late_adjustment + ?
+            WHERE account_id = ? AND as_of > ?
+            """;
+
+    // Cumulative totals strictly before a point in time: latest checkpoint at or before it, plus later entries
+    private static final String CUMULATIVE_SQL = """
+            SELECT a.id AS account_id, a.name AS account_name,
+                   COALESCE(cp.cum_debits, 0) + COALESCE(d.debits, 0) AS debits,
+                   COALESCE(cp.cum_credits, 0) + COALESCE(d.credits, 0) AS credits,
+                   COALESCE(cp.cum_slips, 0) + COALESCE(d.slips, 0) AS slips,
+                   COALESCE(cp.cum_payments, 0) + COALESCE(d.payments, 0) AS payments
+            FROM account a
+            LEFT JOIN LATERAL (
+                SELECT c.as_of, c.cum_debits, c.cum_credits, c.cum_slips, c.cum_payments
+                FROM account_ledger_checkpoint c
+                WHERE c.account_id = a.id AND c.as_of <= ?
+                ORDER BY c.as_of DESC
+                LIMIT 1
+            ) cp ON true
+            LEFT JOIN LATERAL (
+                SELECT SUM(e.debit) AS debits,
+                       SUM(e.credit) AS credits,
+                       SUM(CASE WHEN e.source_type = 'FUEL_SLIP' THEN e.debit - e.credit ELSE 0 END) AS slips,
+                       SUM(CASE WHEN e.source_type = 'PAYMENT' THEN e.credit - e.debit ELSE 0 END) AS payments
+                FROM account_ledger_entry e
+                WHERE e.account_id = a.id
+                  AND e.entry_date >= COALESCE(cp.as_of, '-infinity'::timestamp)
+                  AND e.entry_date < ?
+            ) d ON true
+            """;
+
+    private static final String LEDGER_LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('account_ledger'))";
+
+    private static final String CHECKPOINT_SQL = """
+            INSERT INTO account_ledger_checkpoint
+                (account_id, period_start, period_end, as_of, opening_balance, closing_balance,
+                 period_debits, period_credits, cum_debits, cum_credits, cum_slips, cum_payments,
+                 late_adjustment, created_by, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)
+            ON CONFLICT (account_id, as_of) DO UPDATE SET
+                period_start = EXCLUDED.period_start,
+                opening_balance = EXCLUDED.opening_balance,
+                closing_balance = EXCLUDED.closing_balance,
+                period_debits = EXCLUDED.period_debits,
+                period_credits = EXCLUDED.period_credits,
+                cum_debits = EXCLUDED.cum_debits,
+                cum_credits = EXCLUDED.cum_credits,
+                cum_slips = EXCLUDED.cum_slips,
+                cum_payments = EXCLUDED.cum_payments,
+                late_adjustment = 0,
+                created_by = EXCLUDED.created_by,
+                created_at = EXCLUDED.created_at
+            """;
+
+    private static final RowMapper<LedgerRow> LEDGER_ROW_MAPPER = (rs, rowNum) -> new LedgerRow(
+            rs.getLong("source_id"),
+            rs.getLong("account_id"),
+            rs.getTimestamp("entry_date").toLocalDateTime(),
+            rs.getBigDecimal("debit"),
+            rs.getBigDecimal("credit"));
+
+    private static final RowMapper<AccountTotals> TOTALS_MAPPER = (rs, rowNum) -> new AccountTotals(
+            rs.getLong("account_id"),
+            rs.getString("account_name"),
+            new Totals(rs.getBigDecimal("debits"), rs.getBigDecimal("credits"),
+                    rs.getBigDecimal("slips"), rs.getBigDecimal("payments")));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final int batchSize;
+
+    private volatile Boolean available;
+
+    public AccountLedgerService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.finance.ledger.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Posting after the source transaction has committed
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // ============================================================
+    // POSTING
+    // ============================================================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLedgerSourceChanged(AccountLedgerChangedEvent event) {
+        if (!isAvailable()) {
+            return;
+        }
+        try {
+            writeTransaction.executeWithoutResult(status -> sync(Source.of(event.getSourceType()), event.getSourceIds()));
+        } catch (Exception e) {
+            // The source rows are committed; the next catch-up pass posts them
+            log.error("❌ Ledger posting failed for {} {}: {}", event.getSourceType(), event.getSourceIds(), e.getMessage());
+        }
+    }
+
+    /**
+     * Post rows written outside the application (payments are imported directly) and
+     * anything a failed posting missed: every source row whose entry is missing or differs.
+     */
+    @Scheduled(fixedDelayString = "${app.finance.ledger.catch-up-interval-ms:600000}",
+               initialDelayString = "${app.finance.ledger.catch-up-initial-delay-ms:30000}")
+    public void scheduledCatchUp() {
+        try {
+            catchUp();
+        } catch (Exception e) {
+            log.error("❌ Account ledger catch-up failed: {}", e.getMessage());
+        }
+    }
+
+    public int catchUp() {
+        return catchUp(null, null, null);
+    }
+
+    /**
+     * Catch-up limited to what closing [periodStart, periodEnd] for one account reads:
+     * its entries from the latest checkpoint at or before periodStart to the end of periodEnd.
+     */
+    public int catchUp(Long accountId, LocalDate periodStart, LocalDate periodEnd) {
+        if (!isAvailable()) {
+            return 0;
+        }
+        List<Timestamp> checkpoint = jdbcTemplate.queryForList(
+                "SELECT MAX(as_of) FROM account_ledger_checkpoint WHERE account_id = ? AND as_of <= ?",
+                Timestamp.class, accountId, Timestamp.valueOf(periodStart.atStartOfDay()));
+        LocalDateTime from = checkpoint.isEmpty() || checkpoint.get(0) == null
+                ? null : checkpoint.get(0).toLocalDateTime();
+        return catchUp(accountId, from, periodEnd.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Re-post every stale source row; accountId and the [from, toExclusive) entry dates
+     * narrow the diff when given.
+     */
+    private int catchUp(Long accountId, LocalDateTime from, LocalDateTime toExclusive) {
+        if (!isAvailable()) {
+            return 0;
+        }
+        StringBuilder scope = new StringBuilder();
+        List<Object> scopeArgs = new ArrayList<>();
+        if (accountId != null) {
+            scope.append(" AND account_id = ?");
+            scopeArgs.add(accountId);
+        }
+        if (from != null) {
+            scope.append(" AND entry_date >= ?");
+            scopeArgs.add(Timestamp.valueOf(from));
+        }
+        if (toExclusive != null) {
+            scope.append(" AND entry_date < ?");
+            scopeArgs.add(Timestamp.valueOf(toExclusive));
+        }
+        // The same bounds on both sides, so an entry that moved out of scope is still re-posted
+        List<Object> args = new ArrayList<>(scopeArgs);
+        args.add(null);
+        args.addAll(scopeArgs);
+
+        int posted = 0;
+        for (Source source : Source.values()) {
+            args.set(scopeArgs.size(), source.type);
+            List<Long> stale = jdbcTemplate.queryForList(
+                    "SELECT COALESCE(s.source_id, e.source_id) " +
+                    "FROM (SELECT * FROM (" + source.sql + ") src WHERE true" + scope + ") s " +
+                    "FULL JOIN (SELECT * FROM account_ledger_entry WHERE source_type = ?" + scope + ") e " +
+                    "ON e.source_id = s.source_id " +
+                    "WHERE s.source_id IS NULL OR e.source_id IS NULL OR s.account_id <> e.account_id " +
+                    "OR s.entry_date <> e.entry_date OR s.debit <> e.debit OR s.credit <> e.credit",
+                    Long.class, args.toArray());
+            for (int i = 0; i < stale.size(); i += batchSize) {
+                List<Long> batch = stale.subList(i, Math.min(stale.size(), i + batchSize));
+                writeTransaction.executeWithoutResult(status -> sync(source, batch));
+            }
+            posted += stale.size();
+        }
+        if (posted > 0) {
+            log.info("📒 Account ledger catch-up posted {} entr(ies){}", posted,
+                    accountId != null ? " for account " + accountId : "");
+        }
+        return posted;
+    }
+
+    /**
+     * Re-post the given source rows: each entry is replaced by what its source row says now
+     * (or removed if the row is gone), and the difference moves the balances and checkpoints.
+     */
+    private void sync(Source source, Collection<Long> sourceIds) {
+        if (sourceIds.isEmpty()) {
+            return;
+        }
+        Long[] ids = sourceIds.toArray(new Long[0]);
+
+        // One poster at a time, so a source row is never counted twice by concurrent posts
+        jdbcTemplate.execute(LEDGER_LOCK_SQL);
+
+        Map<Long, LedgerRow> current = new HashMap<>();
+        jdbcTemplate.query(source.sql + " AND " + source.idColumn + " = ANY (?)", LEDGER_ROW_MAPPER, (Object) ids)
+                .forEach(row -> current.put(row.sourceId(), row));
+        Map<Long, LedgerRow> posted = new HashMap<>();
+        jdbcTemplate.query(EXISTING_SQL, LEDGER_ROW_MAPPER, source.type, ids)
+                .forEach(row -> posted.put(row.sourceId(), row));
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> upserts = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        List<Object[]> checkpointMoves = new ArrayList<>();
+        Map<Long, Totals> balanceMoves = new LinkedHashMap<>();
+        Map<Long, Integer> countMoves = new HashMap<>();
+
+        for (Long id : new LinkedHashSet<>(sourceIds)) {
+            LedgerRow before = posted.get(id);
+            LedgerRow after = current.get(id);
+            if (LedgerRow.same(before, after)) {
+                continue;
+            }
+            if (before != null) {
+                move(source, before, -1, balanceMoves, countMoves, checkpointMoves);
+            }
+            if (after != null) {
+                move(source, after, 1, balanceMoves, countMoves, checkpointMoves);
+                upserts.add(new Object[]{source.type, id, after.accountId(), Timestamp.valueOf(after.entryDate()),
+                        after.debit(), after.credit(), now});
+            } else {
+                removed.add(id);
+            }
+        }
+
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_ENTRY_SQL, upserts);
+        }
+        if (!removed.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM account_ledger_entry WHERE source_type = ? AND source_id = ANY (?)",
+                    source.type, removed.toArray(new Long[0]));
+        }
+        if (!balanceMoves.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>();
+            balanceMoves.forEach((accountId, t) -> rows.add(new Object[]{accountId, t.debits(), t.credits(),
+                    t.slips(), t.payments(), countMoves.getOrDefault(accountId, 0), now}));
+            jdbcTemplate.batchUpdate(MOVE_BALANCE_SQL, rows);
+        }
+        if (!checkpointMoves.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(MOVE_CHECKPOINTS_SQL, checkpointMoves);
+            long late = Arrays.stream(counts).filter(c -> c > 0).count();
+            if (late > 0) {
+                log.warn("⚠️ {} {} entr(ies) changed inside closed periods; checkpoints adjusted", late, source.type);
+            }
+        }
+        log.debug("📒 Posted {} {} entr(ies), removed {}", upserts.size(), source.type, removed.size());
+    }
+
+    private void move(Source source, LedgerRow row, int sign,
+                      Map<Long, Totals> balanceMoves, Map<Long, Integer> countMoves, List<Object[]> checkpointMoves) {
+        BigDecimal debit = sign > 0 ? row.debit() : row.debit().negate();
+        BigDecimal credit = sign > 0 ? row.credit() : row.credit().negate();
+        BigDecimal slips = source == Source.FUEL_SLIP ? debit.subtract(credit) : BigDecimal.ZERO;
+        BigDecimal payments = source == Source.PAYMENT ? credit.subtract(debit) : BigDecimal.ZERO;
+        Totals delta = new Totals(debit, credit, slips, payments);
+
+        balanceMoves.merge(row.accountId(), delta, Totals::plus);
+        countMoves.merge(row.accountId(), sign, Integer::sum);
+        checkpointMoves.add(new Object[]{debit, credit, slips, payments, credit.subtract(debit),
+                row.accountId(), Timestamp.valueOf(row.entryDate())});
+    }
+
+    // ============================================================
+    // READS
+    // ============================================================
+
+    /**
+     * All-time balance (credits - debits) of an account.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getCurrentBalance(Long accountId) {
+        if (!isAvailable()) {
+            return BigDecimal.ZERO;
+        }
+        List<BigDecimal> balance = jdbcTemplate.queryForList(
+                "SELECT total_credits - total_debits FROM account_ledger_balance WHERE account_id = ?",
+                BigDecimal.class, accountId);
+        return balance.isEmpty() ? BigDecimal.ZERO : balance.get(0);
+    }
+
+    /**
+     * Balance of an account from all entries dated before the given time.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceBefore(Long accountId, LocalDateTime before) {
+        AccountTotals totals = cumulative(accountId, before);
+        return totals != null ? totals.totals().balance() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Opening/closing balance and movement for [from, toExclusive).
+     */
+    @Transactional(readOnly = true)
+    public PeriodTotals getPeriodTotals(Long accountId, LocalDateTime from, LocalDateTime toExclusive) {
+        AccountTotals opening = cumulative(accountId, from);
+        AccountTotals closing = cumulative(accountId, toExclusive);
+        if (opening == null || closing == null) {
+            throw new RuntimeException("Account not found with ID: " + accountId);
+        }
+        return PeriodTotals.between(opening.totals(), closing.totals());
+    }
+
+    /**
+     * Period totals for every account of a type, optionally a single account by name (case-insensitive).
+     */
+    @Transactional(readOnly = true)
+    public List<AccountPeriodTotals> getPeriodTotals(String accountType, String accountName,
+                                                     LocalDateTime from, LocalDateTime toExclusive) {
+        if (!isAvailable()) {
+            return List.of();
+        }
+        String filter = " WHERE a.type::text = ? AND (CAST(? AS text) IS NULL OR LOWER(a.name) = LOWER(CAST(? AS text))) ORDER BY a.name";
+        List<AccountTotals> opening = jdbcTemplate.query(CUMULATIVE_SQL + filter, TOTALS_MAPPER,
+                Timestamp.valueOf(from), Timestamp.valueOf(from), accountType, accountName, accountName);
+        Map<Long, AccountTotals> closing = new HashMap<>();
+        jdbcTemplate.query(CUMULATIVE_SQL + filter, TOTALS_MAPPER,
+                        Timestamp.valueOf(toExclusive), Timestamp.valueOf(toExclusive), accountType, accountName, accountName)
+                .forEach(t -> closing.put(t.accountId(), t));
+
+        List<AccountPeriodTotals> result = new ArrayList<>(opening.size());
+        for (AccountTotals start : opening) {
+            AccountTotals end = closing.get(start.accountId());
+            if (end != null) {
+                result.add(new AccountPeriodTotals(start.accountId(), start.accountName(),
+                        PeriodTotals.between(start.totals(), end.totals())));
+            }
+        }
+        return result;
+    }
+
+    // ============================================================
+    // PERIOD CLOSE
+    // ============================================================
+
+    /**
+     * Close [periodStart, periodEnd] for an account: compute the period from the ledger and
+     * store a checkpoint at the end of periodEnd. Runs in the caller's transaction so the
+     * checkpoint commits together with the statement.
+     */
+    @Transactional
+    public PeriodTotals closePeriod(Long accountId, LocalDate periodStart, LocalDate periodEnd, String closedBy) {
+        if (!isAvailable()) {
+            throw new RuntimeException("Account ledger tables are not available");
+        }
+        LocalDateTime from = periodStart.atStartOfDay();
+        LocalDateTime asOf = periodEnd.plusDays(1).atStartOfDay();
+
+        // Same lock as sync(): no posting can land between the totals read and the checkpoint
+        jdbcTemplate.execute(LEDGER_LOCK_SQL);
+
+        AccountTotals opening = cumulative(accountId, from);
+        AccountTotals closing = cumulative(accountId, asOf);
+        if (opening == null || closing == null) {
+            throw new RuntimeException("Account not found with ID: " + accountId);
+        }
+        PeriodTotals period = PeriodTotals.between(opening.totals(), closing.totals());
+
+        Totals cum = closing.totals();
+        jdbcTemplate.update(CHECKPOINT_SQL, accountId, periodStart, periodEnd, Timestamp.valueOf(asOf),
+                period.openingBalance(), period.closingBalance(), period.debits(), period.credits(),
+                cum.debits(), cum.credits(), cum.slips(), cum.payments(),
+                closedBy, Timestamp.valueOf(LocalDateTime.now()));
+
+        log.info("📒 Account {} closed {} - {}: opening {}, debits {}, credits {}, closing {}",
+                accountId, periodStart, periodEnd, period.openingBalance(), period.debits(),
+                period.credits(), period.closingBalance());
+        return period;
+    }
+
+    private AccountTotals cumulative(Long accountId, LocalDateTime before) {
+        if (!isAvailable()) {
+            return null;
+        }
+        Timestamp at = Timestamp.valueOf(before);
+        List<AccountTotals> rows = jdbcTemplate.query(CUMULATIVE_SQL + " WHERE a.id = ?", TOTALS_MAPPER, at, at, accountId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * The ledger tables are created by SchemaBootstrap; until they exist, posting is skipped.
+     */
+    private boolean isAvailable() {
+        if (available == null) {
+            available = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT to_regclass('account_ledger_entry') IS NOT NULL", Boolean.class));
+            if (!available) {
+                log.warn("⚠️ Account ledger tables not found - ledger posting disabled until restart");
+            }
+        }
+        return available;
+    }
+
+    // ============================================================
+    // TYPES
+    // ============================================================
+
+    private record LedgerRow(long sourceId, long accountId, LocalDateTime entryDate, BigDecimal debit, BigDecimal credit) {
+
+        // Amounts compare by value; 10.0 and 10.00 are the same posting
+        static boolean same(LedgerRow a, LedgerRow b) {
+            if (a == null || b == null) {
+                return a == b;
+            }
+            return a.accountId == b.accountId
+                    && a.entryDate.equals(b.entryDate)
+                    && a.debit.compareTo(b.debit) == 0
+                    && a.credit.compareTo(b.credit) == 0;
+        }
+    }
+
+    private record AccountTotals(long accountId, String accountName, Totals totals) { }
+
+    /**
+     * Cumulative (or delta) amounts: all debits and credits, plus the fuel-slip and payment parts.
+     */
+    public record Totals(BigDecimal debits, BigDecimal credits, BigDecimal slips, BigDecimal payments) {
+
+        public BigDecimal balance() {
+            return credits.subtract(debits);
+        }
+
+        Totals plus(Totals other) {
+            return new Totals(debits.add(other.debits), credits.add(other.credits),
+                    slips.add(other.slips), payments.add(other.payments));
+        }
+
+        Totals minus(Totals other) {
+            return new Totals(debits.subtract(other.debits), credits.subtract(other.credits),
+                    slips.subtract(other.slips), payments.subtract(other.payments));
+        }
+    }
+
+    public record PeriodTotals(BigDecimal openingBalance, BigDecimal debits, BigDecimal credits,
+                               BigDecimal slipsTotal, BigDecimal paymentsTotal, BigDecimal closingBalance) {
+
+        static PeriodTotals between(Totals opening, Totals closing) {
+            Totals period = closing.minus(opening);
+            return new PeriodTotals(opening.balance(), period.debits(), period.credits(),
+                    period.slips(), period.payments(), closing.balance());
+        }
+
+        public BigDecimal variance() {
+            return paymentsTotal.subtract(slipsTotal);
+        }
+    }
+
+    public record AccountPeriodTotals(Long accountId, String accountName, PeriodTotals totals) { }
+}
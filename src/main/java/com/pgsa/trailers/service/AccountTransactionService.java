@@ -1,7 +1,9 @@
 package com.pgsa.trailers.service;
 
+import com.pgsa.trailers.entity.finance.AccountLedgerChangedEvent;
 import com.pgsa.trailers.entity.finance.AccountTransaction;
 import com.pgsa.trailers.repository.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import java.util.List;
 
@@ -9,13 +11,18 @@ import java.util.List;
 public class AccountTransactionService {
 
     private final AccountTransactionRepository transactionRepo;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AccountTransactionService(AccountTransactionRepository transactionRepo) {
+    public AccountTransactionService(AccountTransactionRepository transactionRepo,
+                                     ApplicationEventPublisher eventPublisher) {
         this.transactionRepo = transactionRepo;
+        this.eventPublisher = eventPublisher;
     }
 
     public AccountTransaction create(AccountTransaction tx) {
-        return transactionRepo.save(tx);
+        AccountTransaction saved = transactionRepo.save(tx);
+        publishLedgerChange(saved.getId());
+        return saved;
     }
 
     public List<AccountTransaction> getAll() {
@@ -37,10 +44,18 @@ public class AccountTransactionService {
 
 
     public AccountTransaction update(AccountTransaction tx) {
-        return transactionRepo.save(tx);
+        AccountTransaction saved = transactionRepo.save(tx);
+        publishLedgerChange(saved.getId());
+        return saved;
     }
 
     public void delete(Long id) {
         transactionRepo.deleteById(id);
+        publishLedgerChange(id);
+    }
+
+    private void publishLedgerChange(Long transactionId) {
+        eventPublisher.publishEvent(new AccountLedgerChangedEvent(
+                AccountLedgerChangedEvent.SOURCE_ACCOUNT_TRANSACTION, transactionId));
     }
 }
@@ -183,6 +183,9 @@ public class AnalyticsService {
 
     // ==================== DASHBOARD SUMMARY ====================
 
+    /**
+     * Runs both KPI queries sequentially; the dashboard endpoint uses DashboardSnapshotService instead.
+     */
     public DashboardSummary getDashboardSummary(LocalDate startDate, LocalDate endDate) {
         log.info("📊 Building dashboard summary from {} to {}", startDate, endDate);
         
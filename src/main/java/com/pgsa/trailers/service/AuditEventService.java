@@ -0,0 +1,327 @@
+// src/main/java/com/pgsa/trailers/service/AuditEventService.java
+package com.pgsa.trailers.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgsa.trailers.entity.system.AuditEvent;
+import com.pgsa.trailers.repository.AuditEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Append-only audit log.
+ *
+ * record() never touches the audited row: events are queued once the caller's
+ * transaction commits and a single background writer inserts them into audit_event
+ * in JDBC batches. If the queue is full, or the writer has stopped, the event is written
+ * inline instead of dropped. Events stay visible to getHistory() from the moment they are
+ * queued, including while their batch is being written.
+ */
+@Slf4j
+@Service
+public class AuditEventService {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO audit_event (entity_type, entity_id, action, actor, occurred_at, payload)
+            VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb))
+            """;
+
+    private final AuditEventRepository auditEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate writeTransaction;
+
+    @Value("${app.audit.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.audit.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${app.audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<AuditEvent> queue;
+    private ScheduledExecutorService writer;
+    private volatile boolean running;
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    // Taken off the queue but not committed yet; moves in and out under pendingLock
+    private final Set<AuditEvent> inFlight = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Object pendingLock = new Object();
+
+    public AuditEventService(AuditEventRepository auditEventRepository,
+                             JdbcTemplate jdbcTemplate,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager) {
+        this.auditEventRepository = auditEventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        // Own transaction: batches are written from the writer thread or from afterCommit callbacks
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+        log.info("Audit event writer started (batch size {}, flush every {} ms)", batchSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // From here on enqueue() writes inline instead of submitting to the writer
+        running = false;
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Drain whatever is left so a clean shutdown loses nothing
+        flushSafely();
+    }
+
+    // ============================================================
+    // RECORDING
+    // ============================================================
+
+    public void record(String entityType, Long entityId, String action, Map<String, Object> payload) {
+        record(entityType, entityId, action, currentActor(), payload);
+    }
+
+    public void record(String entityType, Long entityId, String action, String actor, Map<String, Object> payload) {
+        if (entityId == null) {
+            log.debug("Skipping audit event {} for unsaved {}", action, entityType);
+            return;
+        }
+
+        AuditEvent event = AuditEvent.builder()
+                .entityType(entityType)
+                .entityId(entityId)
+                .action(action)
+                .actor(actor != null ? actor : "System")
+                .occurredAt(LocalDateTime.now())
+                .payload(payload)
+                .build();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Only audit what actually committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    /**
+     * Build a payload map from alternating keys and values; null values are kept.
+     */
+    public static Map<String, Object> details(Object... keyValues) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            details.put(String.valueOf(keyValues[i]), keyValues[i + 1]);
+        }
+        return details;
+    }
+
+    // ============================================================
+    // QUERIES
+    // ============================================================
+
+    /**
+     * Full history for one entity, oldest first, including events not yet committed.
+     */
+    public List<AuditEvent> getHistory(String entityType, Long entityId) {
+        // Pending events first: one that commits before the query below is then found twice,
+        // never missed, and the copy already in the table is kept
+        List<AuditEvent> pending = new ArrayList<>();
+        synchronized (pendingLock) {
+            queue.forEach(pending::add);
+            pending.addAll(inFlight);
+        }
+        List<AuditEvent> history = new ArrayList<>(
+                auditEventRepository.findByEntityTypeAndEntityIdOrderByOccurredAtAscIdAsc(entityType, entityId));
+
+        Map<List<Object>, Integer> stored = new HashMap<>();
+        history.forEach(e -> stored.merge(identity(e), 1, Integer::sum));
+        for (AuditEvent event : pending) {
+            if (!event.getEntityType().equals(entityType) || !event.getEntityId().equals(entityId)) {
+                continue;
+            }
+            List<Object> key = identity(event);
+            if (stored.getOrDefault(key, 0) > 0) {
+                stored.merge(key, -1, Integer::sum);
+            } else {
+                history.add(event);
+            }
+        }
+
+        history.sort(Comparator.comparing(AuditEvent::getOccurredAt));
+        return history;
+    }
+
+    // Columns that identify a pending event once written; occurred_at is stored to the microsecond
+    private static List<Object> identity(AuditEvent event) {
+        return Arrays.asList(event.getEntityType(), event.getEntityId(), event.getAction(), event.getActor(),
+                event.getOccurredAt().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    // ============================================================
+    // WRITER
+    // ============================================================
+
+    private void enqueue(AuditEvent event) {
+        if (!running) {
+            // Writer stopped (shutdown): nothing would drain the queue any more
+            writeInline(event);
+            return;
+        }
+        if (!queue.offer(event)) {
+            log.warn("Audit queue full ({}), writing {} {} inline", queueCapacity, event.getEntityType(), event.getEntityId());
+            writeInline(event);
+            return;
+        }
+
+        if (queue.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                writer.execute(() -> {
+                    flushRequested.set(false);
+                    flushSafely();
+                });
+            } catch (RejectedExecutionException e) {
+                // stop() raced with this call; its final flush drains the queue
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void writeInline(AuditEvent event) {
+        synchronized (pendingLock) {
+            inFlight.add(event);
+        }
+        try {
+            writeBatch(List.of(event));
+        } finally {
+            synchronized (pendingLock) {
+                inFlight.remove(event);
+            }
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            List<AuditEvent> batch = new ArrayList<>(batchSize);
+            while (true) {
+                synchronized (pendingLock) {
+                    if (queue.drainTo(batch, batchSize) == 0) {
+                        break;
+                    }
+                    inFlight.addAll(batch);
+                }
+                try {
+                    writeBatch(batch);
+                } finally {
+                    synchronized (pendingLock) {
+                        batch.forEach(inFlight::remove);
+                    }
+                    batch.clear();
+                }
+            }
+        } catch (Exception e) {
+            log.error("Audit flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void writeBatch(List<AuditEvent> batch) {
+        try {
+            writeTransaction.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, event) -> {
+                        ps.setString(1, event.getEntityType());
+                        ps.setLong(2, event.getEntityId());
+                        ps.setString(3, event.getAction());
+                        ps.setString(4, event.getActor());
+                        ps.setTimestamp(5, Timestamp.valueOf(event.getOccurredAt()));
+                        ps.setString(6, toJson(event.getPayload()));
+                    }));
+            log.debug("Wrote {} audit events", batch.size());
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                AuditEvent event = batch.get(0);
+                log.error("Failed to write audit event {} {} {}: {}",
+                        event.getEntityType(), event.getEntityId(), event.getAction(), e.getMessage());
+                return;
+            }
+            // Isolate the bad row(s) so one failure doesn't lose the whole batch
+            log.warn("Audit batch of {} failed, retrying row by row: {}", batch.size(), e.getMessage());
+            for (AuditEvent event : batch) {
+                writeBatch(List.of(event));
+            }
+        }
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (Exception e) {
+            log.warn("Could not serialize audit payload: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String currentActor() {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.isAuthenticated()) {
+                return authentication.getName();
+            }
+        } catch (Exception e) {
+            log.debug("Could not resolve audit actor: {}", e.getMessage());
+        }
+        return "System";
+    }
+}
@@ -5,6 +5,7 @@ import com.pgsa.trailers.dto.CustomerRequestDTO;
 import com.pgsa.trailers.dto.CustomerResponseDTO;
 import com.pgsa.trailers.entity.ops.Customer;
 import com.pgsa.trailers.repository.CustomerRepository;
+import com.pgsa.trailers.repository.NaturalIdRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -25,6 +26,7 @@ import java.util.stream.Collectors;  // Add this import
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
+    private final NaturalIdRepository naturalIdRepository;
 
     public CustomerResponseDTO createCustomer(CustomerRequestDTO request) {
         // Check if customer code already exists
@@ -105,7 +107,7 @@ public class CustomerService {
 
     @Transactional(readOnly = true)
     public CustomerResponseDTO getCustomerByCode(String customerCode) {
-        Customer customer = customerRepository.findByCustomerCode(customerCode)
+        Customer customer = naturalIdRepository.findBySimpleNaturalId(Customer.class, customerCode)
                 .orElseThrow(() -> new RuntimeException("Customer not found with code: " + customerCode));
         return mapToResponseDTO(customer);
     }
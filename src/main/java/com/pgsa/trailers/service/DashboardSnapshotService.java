@@ -0,0 +1,170 @@
+package com.pgsa.trailers.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pgsa.trailers.dto.DriverKpiDTO;
+import com.pgsa.trailers.dto.VehicleKpiDTO;
+import com.pgsa.trailers.service.util.BlockingFanOut;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dashboard data for a date range, computed once and shared.
+ *
+ * The vehicle and driver KPI queries are independent, so they run concurrently and the
+ * summary is derived from their results instead of re-running them. Requests for a range
+ * that is already being computed wait for that computation (single-flight), and finished
+ * snapshots are served for a short TTL together with the time they were taken.
+ */
+@Slf4j
+@Service
+public class DashboardSnapshotService {
+
+    private final AnalyticsService analyticsService;
+    private final BlockingFanOut fanOut;
+
+    private final Cache<RangeKey, DashboardSnapshot> snapshots;
+    private final ConcurrentMap<RangeKey, CompletableFuture<DashboardSnapshot>> inFlight = new ConcurrentHashMap<>();
+
+    private final Timer computeTimer;
+    private final Counter cacheHits;
+    private final Counter coalesced;
+    private final Counter computed;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong computeCount = new AtomicLong();
+
+    public DashboardSnapshotService(AnalyticsService analyticsService,
+                                    BlockingFanOut fanOut,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.analytics.dashboard.ttl-seconds:30}") long ttlSeconds,
+                                    @Value("${app.analytics.dashboard.max-entries:32}") long maxEntries) {
+        this.analyticsService = analyticsService;
+        this.fanOut = fanOut;
+        this.snapshots = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxEntries)
+                .build();
+
+        this.computeTimer = Timer.builder("trailers.dashboard.compute")
+                .description("Time to compute a dashboard snapshot")
+                .register(meterRegistry);
+        this.cacheHits = meterRegistry.counter("trailers.dashboard.requests", "source", "cache");
+        this.coalesced = meterRegistry.counter("trailers.dashboard.requests", "source", "coalesced");
+        this.computed = meterRegistry.counter("trailers.dashboard.requests", "source", "computed");
+        // Requests served per computation; 1.0 means nothing was shared
+        meterRegistry.gauge("trailers.dashboard.coalescing_ratio", this,
+                s -> s.computeCount.get() == 0 ? 0.0 : (double) s.requestCount.get() / s.computeCount.get());
+    }
+
+    public DashboardSnapshot getSnapshot(LocalDate startDate, LocalDate endDate) {
+        RangeKey key = new RangeKey(startDate, endDate);
+        requestCount.incrementAndGet();
+
+        DashboardSnapshot cached = snapshots.getIfPresent(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+
+        CompletableFuture<DashboardSnapshot> mine = new CompletableFuture<>();
+        CompletableFuture<DashboardSnapshot> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            log.debug("📊 Joining in-flight dashboard computation for {} - {}", startDate, endDate);
+            return await(running);
+        }
+
+        try {
+            DashboardSnapshot snapshot = compute(key);
+            snapshots.put(key, snapshot);
+            mine.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private DashboardSnapshot compute(RangeKey key) {
+        computed.increment();
+        computeCount.incrementAndGet();
+        long start = System.nanoTime();
+
+        List<List<?>> results = fanOut.invokeAll(List.<Callable<List<?>>>of(
+                () -> analyticsService.getVehicleKpis(key.startDate(), key.endDate()),
+                () -> analyticsService.getDriverKpis(key.startDate(), key.endDate())));
+
+        @SuppressWarnings("unchecked")
+        List<VehicleKpiDTO> vehicleKpis = (List<VehicleKpiDTO>) results.get(0);
+        @SuppressWarnings("unchecked")
+        List<DriverKpiDTO> driverKpis = (List<DriverKpiDTO>) results.get(1);
+
+        long elapsedNanos = System.nanoTime() - start;
+        computeTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("📊 Dashboard snapshot for {} - {} computed in {} ms ({} vehicles, {} drivers)",
+                key.startDate(), key.endDate(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                vehicleKpis.size(), driverKpis.size());
+
+        return new DashboardSnapshot(
+                new AnalyticsService.DashboardSummary(vehicleKpis, driverKpis),
+                Instant.now(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    private DashboardSnapshot await(CompletableFuture<DashboardSnapshot> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private record RangeKey(LocalDate startDate, LocalDate endDate) { }
+
+    @Getter
+    public static class DashboardSnapshot {
+        private final AnalyticsService.DashboardSummary summary;
+        private final Instant computedAt;
+        private final long computeMs;
+
+        DashboardSnapshot(AnalyticsService.DashboardSummary summary, Instant computedAt, long computeMs) {
+            this.summary = summary;
+            this.computedAt = computedAt;
+            this.computeMs = computeMs;
+        }
+
+        public List<VehicleKpiDTO> getVehicleKpis() {
+            return summary.getVehicleKpis();
+        }
+
+        public List<DriverKpiDTO> getDriverKpis() {
+            return summary.getDriverKpis();
+        }
+
+        public long getAgeMs() {
+            return Duration.between(computedAt, Instant.now()).toMillis();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.pgsa.trailers.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams finance and fleet tables to CSV or XLSX.
+ *
+ * Rows come off a forward-only JDBC cursor (fetch size inside a read-only transaction)
+ * and are written straight to the response, so memory stays flat however many years
+ * are exported. XLSX uses POI's SXSSF, which keeps only a window of rows in memory and
+ * spills the rest to a compressed temp file.
+ */
+@Slf4j
+@Service
+public class DataExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public enum Dataset {
+        FUEL_SLIPS("fuel-slips", """
+                SELECT f.id, f.slip_number, f.transaction_date, v.registration_number AS vehicle,
+                       TRIM(CONCAT(d.first_name, ' ', d.last_name)) AS driver, s.name AS fuel_source,
+                       f.fuel_type, f.quantity, f.unit_price, f.total_amount, f.odometer_reading,
+                       f.station_name, f.location, f.receipt_number, f.payment_method, f.trip_id, f.load_id,
+                       f.finalized, f.notes
+                FROM fuel_slip f
+                LEFT JOIN vehicle v ON v.id = f.vehicle_id
+                LEFT JOIN driver d ON d.id = f.driver_id
+                LEFT JOIN fuel_source s ON s.id = f.fuel_source_id
+                WHERE f.transaction_date >= ? AND f.transaction_date < ?
+                ORDER BY f.transaction_date, f.id
+                """, true),
+        ACCOUNT_TRANSACTIONS("account-transactions", """
+                SELECT t.id, t.transaction_date, a.name AS account, a.account_number, t.source_type, t.source_id,
+                       t.direction, t.amount, t.description, t.reconciled, t.created_by, t.created_at
+                FROM account_transaction t
+                LEFT JOIN account a ON a.id = t.account_id
+                WHERE t.transaction_date >= ? AND t.transaction_date < ?
+                ORDER BY t.transaction_date, t.id
+                """, true),
+        DRIVERS("drivers", """
+                SELECT d.id, d.first_name, d.last_name, d.license_number, d.license_type, d.license_expiry,
+                       d.phone_number, d.email, d.status, d.current_status, d.employment_type, d.hire_date,
+                       d.total_trips, d.total_km_travelled, d.is_active
+                FROM driver d
+                ORDER BY d.id
+                """, false),
+        VEHICLES("vehicles", """
+                SELECT v.id, v.registration_number, v.fleet_number, v.vin, v.make, v.model, v.year, v.vehicle_type,
+                       v.fuel_type, v.status, v.current_odometer, v.current_fuel_level, v.fuel_capacity,
+                       v.last_service_date, v.next_service_due, v.insurance_expiry, v.roadworthy_expiry, v.is_active
+                FROM vehicle v
+                ORDER BY v.id
+                """, false);
+
+        private final String fileName;
+        private final String sql;
+        private final boolean dated;
+
+        Dataset(String fileName, String sql, boolean dated) {
+            this.fileName = fileName;
+            this.sql = sql;
+            this.dated = dated;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    // One short of Excel's 1,048,576 row limit, leaving room for the header
+    private static final int MAX_SHEET_ROWS = 1_048_575;
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final Timer exportTimer;
+    private final Counter exportedRows;
+
+    @Value("${app.export.xlsx-window-rows:200}")
+    private int xlsxWindowRows;
+
+    public DataExportService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.exportTimer = Timer.builder("trailers.export")
+                .description("Time to stream an export")
+                .register(meterRegistry);
+        this.exportedRows = Counter.builder("trailers.export.rows")
+                .description("Rows written to exports")
+                .register(meterRegistry);
+    }
+
+    public static Dataset parseDataset(String name) {
+        try {
+            return Dataset.valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown export: " + name);
+        }
+    }
+
+    public static Format parseFormat(String name) {
+        try {
+            return Format.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unsupported export format: " + name);
+        }
+    }
+
+    /**
+     * Write the dataset to {@code out}. Dated datasets are limited to [from, to];
+     * either bound may be null.
+     */
+    public void export(Dataset dataset, Format format, LocalDate from, LocalDate to, OutputStream out) {
+        long start = System.nanoTime();
+        Object[] args = dataset.dated
+                ? new Object[]{Date.valueOf(from != null ? from : LocalDate.of(1900, 1, 1)),
+                               Date.valueOf(to != null ? to.plusDays(1) : LocalDate.of(9999, 1, 1))}
+                : new Object[0];
+
+        long rows;
+        try (RowSink sink = format == Format.CSV ? new CsvSink(out) : new XlsxSink(out, dataset.fileName, xlsxWindowRows)) {
+            readTransaction.executeWithoutResult(status -> streamingJdbcTemplate.query(dataset.sql, rs -> {
+                sink.write(rs);
+            }, args));
+            rows = sink.rows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        exportTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        exportedRows.increment(rows);
+        log.info("📤 Exported {} {} row(s) as {} in {} ms",
+                rows, dataset.fileName, format, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    // ============================================================
+    // SINKS
+    // ============================================================
+
+    private interface RowSink extends AutoCloseable {
+        void write(ResultSet rs) throws SQLException;
+
+        long rows();
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static List<String> columns(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        List<String> columns = new ArrayList<>(meta.getColumnCount());
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            columns.add(meta.getColumnLabel(i));
+        }
+        return columns;
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final Writer writer;
+        private int columnCount = -1;
+        private long rows;
+
+        private CsvSink(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            try {
+                if (columnCount < 0) {
+                    List<String> columns = columns(rs);
+                    columnCount = columns.size();
+                    writer.write(String.join(",", columns));
+                    writer.write('\n');
+                }
+                for (int i = 1; i <= columnCount; i++) {
+                    if (i > 1) {
+                        writer.write(',');
+                    }
+                    Object value = rs.getObject(i);
+                    if (value != null) {
+                        writer.write(escape(value instanceof Timestamp ts ? ts.toLocalDateTime().toString() : value.toString()));
+                    }
+                }
+                writer.write('\n');
+                rows++;
+            } catch (IOException e) {
+                // Client went away: stop reading the cursor
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public long rows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            return value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0
+                    ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+        }
+    }
+
+    private static final class XlsxSink implements RowSink {
+        private final OutputStream out;
+        private final String sheetName;
+        private final SXSSFWorkbook workbook;
+        private final CellStyle dateStyle;
+        private final CellStyle dateTimeStyle;
+        private List<String> columns;
+        private Sheet sheet;
+        private int sheetRow;
+        private long rows;
+
+        private XlsxSink(OutputStream out, String sheetName, int windowRows) {
+            this.out = out;
+            this.sheetName = sheetName;
+            this.workbook = new SXSSFWorkbook(windowRows);
+            this.workbook.setCompressTempFiles(true);
+            short dateFormat = workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd");
+            short dateTimeFormat = workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss");
+            this.dateStyle = workbook.createCellStyle();
+            this.dateStyle.setDataFormat(dateFormat);
+            this.dateTimeStyle = workbook.createCellStyle();
+            this.dateTimeStyle.setDataFormat(dateTimeFormat);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            if (columns == null) {
+                columns = columns(rs);
+            }
+            if (sheet == null || sheetRow > MAX_SHEET_ROWS) {
+                newSheet();
+            }
+            Row row = sheet.createRow(sheetRow++);
+            for (int i = 0; i < columns.size(); i++) {
+                Object value = rs.getObject(i + 1);
+                if (value == null) {
+                    continue;
+                }
+                Cell cell = row.createCell(i);
+                if (value instanceof Number number) {
+                    cell.setCellValue(number.doubleValue());
+                } else if (value instanceof Boolean bool) {
+                    cell.setCellValue(bool);
+                } else if (value instanceof Timestamp ts) {
+                    cell.setCellValue(ts.toLocalDateTime());
+                    cell.setCellStyle(dateTimeStyle);
+                } else if (value instanceof Date date) {
+                    cell.setCellValue(date.toLocalDate());
+                    cell.setCellStyle(dateStyle);
+                } else {
+                    cell.setCellValue(value.toString());
+                }
+            }
+            rows++;
+        }
+
+        private void newSheet() {
+            sheet = workbook.createSheet(workbook.getNumberOfSheets() == 0 ? sheetName : sheetName + "-" + (workbook.getNumberOfSheets() + 1));
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < columns.size(); i++) {
+                header.createCell(i).setCellValue(columns.get(i));
+            }
+            sheetRow = 1;
+        }
+
+        @Override
+        public long rows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (sheet == null) {
+                    workbook.createSheet(sheetName);
+                }
+                workbook.write(out);
+            } finally {
+                workbook.dispose();
+                workbook.close();
+            }
+        }
+    }
+}
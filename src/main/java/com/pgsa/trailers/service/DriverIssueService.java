@@ -3,6 +3,8 @@ package com.pgsa.trailers.service.inventory;
 import com.pgsa.trailers.dto.*;
 import com.pgsa.trailers.entity.inventory.*;
 import com.pgsa.trailers.repository.*;
+import com.pgsa.trailers.service.StockLedgerService;
+import com.pgsa.trailers.service.StockReservationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -11,7 +13,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +30,8 @@ public class DriverIssueService {
     private final DriverIssueItemRepository driverIssueItemRepository;
     private final InventoryItemRepository inventoryItemRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final StockReservationService stockReservationService;
+    private final StockLedgerService stockLedgerService;
 
     private static final String ISSUE_NUMBER_PREFIX = "DI-";
 
@@ -35,16 +41,12 @@ public class DriverIssueService {
     public DriverIssueResponseDTO issueItemsToDriver(DriverIssueRequestDTO request, Long userId) {
         log.info("👤 Issuing items to driver: {}", request.getDriverId());
 
-        // Validate items
+        // Deduct all lines atomically (all-or-nothing) before anything is written
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (DriverIssueItemRequestDTO itemReq : request.getItems()) {
-            InventoryItem item = inventoryItemRepository.findById(itemReq.getItemId())
-                    .orElseThrow(() -> new RuntimeException("Item not found: " + itemReq.getItemId()));
-
-            if (item.getQuantity() < itemReq.getQuantity().intValue()) {
-                throw new RuntimeException("Insufficient stock for item: " + item.getName() +
-                        ". Available: " + item.getQuantity() + ", Requested: " + itemReq.getQuantity());
-            }
+            quantities.merge(itemReq.getItemId(), itemReq.getQuantity().intValue(), Integer::sum);
         }
+        stockReservationService.reserve(quantities);
 
         // Create Driver Issue
         DriverIssue issue = DriverIssue.builder()
@@ -60,26 +62,18 @@ public class DriverIssueService {
         driverIssueRepository.save(issue);
 
         // Process items
+        List<DriverIssueItem> issueItems = new ArrayList<>();
+        List<StockMovement> movements = new ArrayList<>();
         for (DriverIssueItemRequestDTO itemReq : request.getItems()) {
             // Create issue item
-            DriverIssueItem issueItem = DriverIssueItem.builder()
+            issueItems.add(DriverIssueItem.builder()
                     .issue(issue)
                     .itemId(itemReq.getItemId())
                     .quantityIssued(itemReq.getQuantity())
                     .quantityReturned(BigDecimal.ZERO)
                     .conditionIssued(itemReq.getCondition())
                     .notes(itemReq.getNotes())
-                    .build();
-
-            driverIssueItemRepository.save(issueItem);
-
-            // Update inventory (deduct from main stock)
-            InventoryItem item = inventoryItemRepository.findById(itemReq.getItemId())
-                    .orElseThrow(() -> new RuntimeException("Item not found: " + itemReq.getItemId()));
-            
-            int newQuantity = item.getQuantity() - itemReq.getQuantity().intValue();
-            item.setQuantity(newQuantity);
-            inventoryItemRepository.save(item);
+                    .build());
 
             // Create stock movement
             StockMovement movement = StockMovement.builder()
@@ -98,9 +92,14 @@ public class DriverIssueService {
         // ✅ Set driverId separately
         movement.setDriverId(request.getDriverId());
         
-        stockMovementRepository.save(movement);
+        movements.add(movement);
         }
 
+        // Pooled ids: both lists go out as JDBC batches
+        driverIssueItemRepository.saveAll(issueItems);
+        stockMovementRepository.saveAll(movements);
+        stockLedgerService.post(movements);
+
         log.info("✅ Items issued to driver successfully. Issue Number: {}", issue.getIssueNumber());
         return mapToResponseDTO(issue);
     }
@@ -116,6 +115,8 @@ public class DriverIssueService {
         DriverIssue issue = driverIssueRepository.findById(issueId)
                 .orElseThrow(() -> new RuntimeException("Driver issue not found: " + issueId));
 
+        Map<Long, Integer> returnedQuantities = new LinkedHashMap<>();
+        List<StockMovement> returnMovements = new ArrayList<>();
         for (ReturnItemRequestDTO returnReq : returns) {
             DriverIssueItem issueItem = driverIssueItemRepository
                     .findByIssueIdAndItemId(issueId, returnReq.getItemId())
@@ -128,13 +129,8 @@ public class DriverIssueService {
             issueItem.setUpdatedAt(LocalDateTime.now());
             driverIssueItemRepository.save(issueItem);
 
-            // Return to inventory
-            InventoryItem item = inventoryItemRepository.findById(returnReq.getItemId())
-                    .orElseThrow(() -> new RuntimeException("Item not found: " + returnReq.getItemId()));
-            
-            int newQuantity = item.getQuantity() + returnReq.getQuantity().intValue();
-            item.setQuantity(newQuantity);
-            inventoryItemRepository.save(item);
+            // Return to inventory (applied below in one batch)
+            returnedQuantities.merge(returnReq.getItemId(), returnReq.getQuantity().intValue(), Integer::sum);
 
             // Create stock movement
             StockMovement movement = StockMovement.builder()
@@ -154,8 +150,12 @@ public class DriverIssueService {
         movement.setDriverId(issue.getDriverId());
         
         stockMovementRepository.save(movement);
+        returnMovements.add(movement);
         }
 
+        stockReservationService.release(returnedQuantities);
+        stockLedgerService.post(returnMovements);
+
         // Update issue status
         updateIssueStatus(issue);
 
@@ -184,14 +184,7 @@ public class DriverIssueService {
             throw new RuntimeException("Item already returned, cannot swap");
         }
         
-        // 4. Validate new item has sufficient stock
-        InventoryItem newItem = inventoryItemRepository.findById(swapRequest.getNewItemId())
-                .orElseThrow(() -> new RuntimeException("New item not found: " + swapRequest.getNewItemId()));
-        
-        if (newItem.getQuantity() < swapRequest.getNewQuantity()) {
-            throw new RuntimeException("Insufficient stock for new item: " + newItem.getName() +
-                    ". Available: " + newItem.getQuantity() + ", Requested: " + swapRequest.getNewQuantity());
-        }
+        // 4. New item stock is reserved atomically by issueItemsToDriver (step 10)
         
         // 5. Process the old item return
         BigDecimal returnQuantity = swapRequest.getReturnQuantity() != null ? 
@@ -216,9 +209,7 @@ public class DriverIssueService {
         inventoryItemRepository.save(inventoryItem);
         
         // 7. Return old item to inventory with hold status
-        int currentQuantity = inventoryItem.getQuantity() != null ? inventoryItem.getQuantity() : 0;
-        inventoryItem.setQuantity(currentQuantity + returnQuantity.intValue());
-        inventoryItemRepository.save(inventoryItem);
+        stockReservationService.release(swapRequest.getOldItemId(), returnQuantity.intValue());
         
         // 8. Create stock movement for return
         StockMovement returnMovement = StockMovement.builder()
@@ -234,6 +225,7 @@ public class DriverIssueService {
                 .approvalStatus("APPROVED")
                 .build();
         stockMovementRepository.save(returnMovement);
+        stockLedgerService.post(List.of(returnMovement));
         
         // 9. Create new issue for the replacement item
         DriverIssueRequestDTO newIssueRequest = new DriverIssueRequestDTO();
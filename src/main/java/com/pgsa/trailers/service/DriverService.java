@@ -4,12 +4,15 @@ import com.pgsa.trailers.dto.DriverDTO;
 import com.pgsa.trailers.dto.DriverRequest;
 import com.pgsa.trailers.dto.UserRequest;
 import com.pgsa.trailers.entity.assets.Driver;
+import com.pgsa.trailers.entity.assets.FleetStatusChangedEvent;
 import com.pgsa.trailers.entity.security.AppUser;
+import com.pgsa.trailers.entity.system.AuditEvent;
 import com.pgsa.trailers.repository.DriverRepository;
 import com.pgsa.trailers.repository.AppUserRepository;
 import com.pgsa.trailers.service.security.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -39,6 +42,8 @@ public class DriverService {
     private final DriverRepository driverRepository;
     private final AppUserRepository appUserRepository;
     private final UserService userService;
+    private final AuditEventService auditEventService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ====== CREATE ======
     
@@ -74,6 +79,7 @@ public class DriverService {
         }
         
         Driver saved = driverRepository.save(driver);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.driver(saved.getId()));
         log.info("✅ Successfully created driver with ID: {}", saved.getId());
         return convertToDTO(saved);
     }
@@ -188,6 +194,9 @@ public class DriverService {
         
         Driver saved = driverRepository.save(driver);
         log.info("✅ Successfully updated driver ID: {}, Name: {}", saved.getId(), saved.getFullName());
+        auditEventService.record(AuditEvent.ENTITY_DRIVER, saved.getId(), "UPDATED",
+                AuditEventService.details("status", saved.getStatus()));
+        eventPublisher.publishEvent(FleetStatusChangedEvent.driver(saved.getId()));
         return convertToDTO(saved);
     }
 
@@ -199,6 +208,7 @@ public class DriverService {
         Driver driver = driverRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Driver not found with ID: " + id));
         driverRepository.delete(driver);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.driver(id));
         log.info("✅ Successfully deleted driver ID: {}", id);
     }
 
@@ -211,6 +221,7 @@ public class DriverService {
         driver.setStatus(STATUS_INACTIVE);
         driver.setUpdatedAt(LocalDateTime.now());
         driverRepository.save(driver);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.driver(id));
         log.info("✅ Successfully soft deleted driver ID: {}", id);
     }
 
@@ -223,6 +234,7 @@ public class DriverService {
         driver.setStatus(STATUS_ACTIVE);
         driver.setUpdatedAt(LocalDateTime.now());
         driverRepository.save(driver);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.driver(id));
         log.info("✅ Successfully restored driver ID: {}", id);
     }
 
@@ -236,6 +248,7 @@ public class DriverService {
         driver.setAssignedVehicleId(vehicleId);
         driver.setUpdatedAt(LocalDateTime.now());
         driverRepository.save(driver);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.driver(driverId));
         log.info("✅ Vehicle {} assigned to driver {}", vehicleId, driverId);
     }
 
@@ -247,6 +260,7 @@ public class DriverService {
         driver.setAssignedVehicleId(null);
         driver.setUpdatedAt(LocalDateTime.now());
         driverRepository.save(driver);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.driver(driverId));
         log.info("✅ Vehicle unassigned from driver {}", driverId);
     }
 
@@ -260,6 +274,7 @@ public class DriverService {
         driver.setStatus(statusUpper);
         driver.setUpdatedAt(LocalDateTime.now());
         driverRepository.save(driver);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.driver(driverId));
         log.info("✅ Driver {} status updated to {}", driverId, statusUpper);
     }
 
@@ -0,0 +1,575 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.dto.FleetBoardDTO;
+import com.pgsa.trailers.dto.FleetBoardDiffDTO;
+import com.pgsa.trailers.entity.assets.FleetStatusChangedEvent;
+import com.pgsa.trailers.entity.ops.auto.TripCompletedEvent;
+import com.pgsa.trailers.entity.ops.auto.TripPlannedEvent;
+import com.pgsa.trailers.entity.ops.auto.TripStartedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * In-memory fleet board: every active vehicle and driver with its status, assignment,
+ * current trip and last odometer.
+ *
+ * Trip lifecycle events and FleetStatusChangedEvent only queue the trip, vehicle and
+ * driver ids involved; a single refresher thread coalesces them and reloads those rows, so
+ * request threads never wait on the board. A periodic resync reloads everything and
+ * catches changes made elsewhere; rows refreshed while it was reading keep their newer
+ * state. No lock is held during a database read. Each change bumps seq and is pushed as a
+ * diff to SSE subscribers; diffs are queued under the board lock, so subscribers receive
+ * them in seq order.
+ *
+ * Every subscriber has a bounded queue drained by a shared pusher pool, so a slow client
+ * only delays itself. Queued diffs are merged into one event per send. A client whose
+ * queue overflows is sent a fresh snapshot instead of the diffs it missed.
+ */
+@Slf4j
+@Service
+public class FleetStatusService {
+
+    private static final String ACTIVE_TRIP_STATUSES = "('PLANNED', 'ASSIGNED', 'IN_PROGRESS', 'ACTIVE')";
+
+    // Running trips win over planned ones, then the newest
+    private static final String VEHICLE_SQL = """
+            SELECT v.id, v.registration_number, v.status, v.assigned_driver_id,
+                   GREATEST(v.current_odometer, odo.last_end_odometer) AS last_odometer,
+                   t.id AS trip_id, t.trip_number, t.status AS trip_status
+            FROM vehicle v
+            LEFT JOIN LATERAL (
+                SELECT id, trip_number, status FROM trip
+                WHERE vehicle_id = v.id AND status IN %s
+                ORDER BY (status IN ('IN_PROGRESS', 'ACTIVE')) DESC, id DESC
+                LIMIT 1
+            ) t ON true
+            LEFT JOIN LATERAL (
+                SELECT MAX(actual_end_odometer) AS last_end_odometer FROM trip WHERE vehicle_id = v.id
+            ) odo ON true
+            WHERE v.is_active = true
+            """.formatted(ACTIVE_TRIP_STATUSES);
+
+    private static final String DRIVER_SQL = """
+            SELECT d.id, d.first_name, d.last_name, d.status, d.assigned_vehicle_id,
+                   t.id AS trip_id, t.trip_number
+            FROM driver d
+            LEFT JOIN LATERAL (
+                SELECT id, trip_number FROM trip
+                WHERE driver_id = d.id AND status IN %s
+                ORDER BY (status IN ('IN_PROGRESS', 'ACTIVE')) DESC, id DESC
+                LIMIT 1
+            ) t ON true
+            WHERE d.is_active = true
+            """.formatted(ACTIVE_TRIP_STATUSES);
+
+    private static final RowMapper<FleetBoardDTO.VehicleStatus> VEHICLE_MAPPER = (rs, rowNum) ->
+            FleetBoardDTO.VehicleStatus.builder()
+                    .vehicleId(rs.getLong("id"))
+                    .registrationNumber(rs.getString("registration_number"))
+                    .status(rs.getString("status"))
+                    .assignedDriverId(rs.getObject("assigned_driver_id", Long.class))
+                    .currentTripId(rs.getObject("trip_id", Long.class))
+                    .currentTripNumber(rs.getString("trip_number"))
+                    .tripStatus(rs.getString("trip_status"))
+                    .lastOdometer(rs.getBigDecimal("last_odometer"))
+                    .build();
+
+    private static final RowMapper<FleetBoardDTO.DriverStatus> DRIVER_MAPPER = (rs, rowNum) ->
+            FleetBoardDTO.DriverStatus.builder()
+                    .driverId(rs.getLong("id"))
+                    .name((rs.getString("first_name") + " " + rs.getString("last_name")).trim())
+                    .status(rs.getString("status"))
+                    .assignedVehicleId(rs.getObject("assigned_vehicle_id", Long.class))
+                    .currentTripId(rs.getObject("trip_id", Long.class))
+                    .currentTripNumber(rs.getString("trip_number"))
+                    .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter resnapshots;
+
+    // Guarded by "this": board contents and seq change together
+    private final Map<Long, FleetBoardDTO.VehicleStatus> vehicles = new HashMap<>();
+    private final Map<Long, FleetBoardDTO.DriverStatus> drivers = new HashMap<>();
+    private long seq;
+
+    // Ids refreshed while a resync is reading; null when no resync is running. Guarded by "this"
+    private Set<Long> vehiclesRefreshedDuringResync;
+    private Set<Long> driversRefreshedDuringResync;
+    private final Object resyncLock = new Object();
+
+    // Ids waiting for the refresher; one pass reloads all of them
+    private final Set<Long> pendingTrips = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingVehicles = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingDrivers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean(false);
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "fleet-board-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService pusher;
+
+    @Value("${app.fleet.board.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${app.fleet.board.client-queue-capacity:256}")
+    private int clientQueueCapacity;
+
+    public FleetStatusService(JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.fleet.board.push-threads:2}") int pushThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pusher = Executors.newFixedThreadPool(Math.max(1, pushThreads), r -> {
+            Thread t = new Thread(r, "fleet-board-push");
+            t.setDaemon(true);
+            return t;
+        });
+        this.resnapshots = Counter.builder("trailers.fleet.board.resnapshots")
+                .description("Snapshots sent to stream clients whose queue overflowed")
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("trailers.fleet.board.subscribers", List.of(), subscribers);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            resync();
+            log.info("🚚 Fleet board loaded: {} vehicle(s), {} driver(s)", vehicles.size(), drivers.size());
+        } catch (Exception e) {
+            log.error("❌ Fleet board load failed, retrying on the next resync: {}", e.getMessage());
+        }
+    }
+
+    // ============================================================
+    // BOARD MAINTENANCE
+    // ============================================================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFleetStatusChanged(FleetStatusChangedEvent event) {
+        pendingVehicles.addAll(event.getVehicleIds());
+        pendingDrivers.addAll(event.getDriverIds());
+        scheduleRefresh();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTripPlanned(TripPlannedEvent event) {
+        queueTrip(event.getTripId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTripStarted(TripStartedEvent event) {
+        queueTrip(event.getTripId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTripCompleted(TripCompletedEvent event) {
+        queueTrip(event.getTripId());
+    }
+
+    /**
+     * Reload the whole board and push whatever changed (status edits made outside the services).
+     */
+    @Scheduled(fixedDelayString = "${app.fleet.board.resync-interval-ms:60000}",
+               initialDelayString = "${app.fleet.board.resync-interval-ms:60000}")
+    public void scheduledResync() {
+        try {
+            resync();
+        } catch (Exception e) {
+            log.error("❌ Fleet board resync failed: {}", e.getMessage());
+        }
+        // Keeps idle connections open through proxies
+        subscribers.forEach(subscriber -> {
+            subscriber.ping = true;
+            schedule(subscriber);
+        });
+    }
+
+    public void resync() {
+        synchronized (resyncLock) {
+            synchronized (this) {
+                vehiclesRefreshedDuringResync = new HashSet<>();
+                driversRefreshedDuringResync = new HashSet<>();
+            }
+            try {
+                List<FleetBoardDTO.VehicleStatus> loadedVehicles = jdbcTemplate.query(VEHICLE_SQL, VEHICLE_MAPPER);
+                List<FleetBoardDTO.DriverStatus> loadedDrivers = jdbcTemplate.query(DRIVER_SQL, DRIVER_MAPPER);
+                synchronized (this) {
+                    // Rows refreshed after the read started are newer than what it returned
+                    Set<Long> vehicleScope = new LinkedHashSet<>(vehicles.keySet());
+                    vehicleScope.removeAll(vehiclesRefreshedDuringResync);
+                    loadedVehicles.removeIf(v -> vehiclesRefreshedDuringResync.contains(v.getVehicleId()));
+                    Set<Long> driverScope = new LinkedHashSet<>(drivers.keySet());
+                    driverScope.removeAll(driversRefreshedDuringResync);
+                    loadedDrivers.removeIf(d -> driversRefreshedDuringResync.contains(d.getDriverId()));
+                    broadcast(apply(vehicles, vehicleScope, loadedVehicles, drivers, driverScope, loadedDrivers));
+                }
+            } finally {
+                synchronized (this) {
+                    vehiclesRefreshedDuringResync = null;
+                    driversRefreshedDuringResync = null;
+                }
+            }
+        }
+    }
+
+    private void queueTrip(Long tripId) {
+        pendingTrips.add(tripId);
+        scheduleRefresh();
+    }
+
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            try {
+                refresher.execute(this::drainPending);
+            } catch (RuntimeException e) {
+                // Shutting down
+                refreshScheduled.set(false);
+            }
+        }
+    }
+
+    private void drainPending() {
+        try {
+            while (!pendingTrips.isEmpty() || !pendingVehicles.isEmpty() || !pendingDrivers.isEmpty()) {
+                Set<Long> vehicleIds = new LinkedHashSet<>();
+                Set<Long> driverIds = new LinkedHashSet<>();
+                Set<Long> tripIds = take(pendingTrips);
+                try {
+                    addTripAssignments(tripIds, vehicleIds, driverIds);
+                } catch (Exception e) {
+                    log.error("❌ Fleet board refresh failed for trips {}: {}", tripIds, e.getMessage());
+                }
+                vehicleIds.addAll(take(pendingVehicles));
+                driverIds.addAll(take(pendingDrivers));
+                try {
+                    refresh(vehicleIds, driverIds);
+                } catch (Exception e) {
+                    log.error("❌ Fleet board refresh failed for vehicles {} / drivers {}: {}",
+                            vehicleIds, driverIds, e.getMessage());
+                }
+            }
+        } finally {
+            refreshScheduled.set(false);
+        }
+        // Ids added between the last pass and clearing the flag
+        if (!pendingTrips.isEmpty() || !pendingVehicles.isEmpty() || !pendingDrivers.isEmpty()) {
+            scheduleRefresh();
+        }
+    }
+
+    private static Set<Long> take(Set<Long> pending) {
+        Set<Long> taken = new LinkedHashSet<>(pending);
+        pending.removeAll(taken);
+        return taken;
+    }
+
+    private void addTripAssignments(Set<Long> tripIds, Set<Long> vehicleIds, Set<Long> driverIds) {
+        if (tripIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query("SELECT vehicle_id, driver_id FROM trip WHERE id = ANY (?)", (RowCallbackHandler) rs -> {
+            vehicleIds.add(rs.getLong("vehicle_id"));
+            Long driverId = rs.getObject("driver_id", Long.class);
+            if (driverId != null) {
+                driverIds.add(driverId);
+            }
+        }, (Object) tripIds.toArray(new Long[0]));
+    }
+
+    /**
+     * Only runs on the refresher thread, so a later reload is never applied before an earlier one.
+     */
+    private void refresh(Collection<Long> vehicleIds, Collection<Long> driverIds) {
+        if (vehicleIds.isEmpty() && driverIds.isEmpty()) {
+            return;
+        }
+        Long[] vehicleArray = vehicleIds.toArray(new Long[0]);
+        Long[] driverArray = driverIds.toArray(new Long[0]);
+        List<FleetBoardDTO.VehicleStatus> loadedVehicles = vehicleArray.length == 0 ? List.of()
+                : jdbcTemplate.query(VEHICLE_SQL + " AND v.id = ANY (?)", VEHICLE_MAPPER, (Object) vehicleArray);
+        List<FleetBoardDTO.DriverStatus> loadedDrivers = driverArray.length == 0 ? List.of()
+                : jdbcTemplate.query(DRIVER_SQL + " AND d.id = ANY (?)", DRIVER_MAPPER, (Object) driverArray);
+        synchronized (this) {
+            // Rows that were asked for but not returned are gone (deleted or deactivated)
+            broadcast(apply(vehicles, new LinkedHashSet<>(vehicleIds), loadedVehicles,
+                    drivers, new LinkedHashSet<>(driverIds), loadedDrivers));
+            if (vehiclesRefreshedDuringResync != null) {
+                vehiclesRefreshedDuringResync.addAll(vehicleIds);
+                driversRefreshedDuringResync.addAll(driverIds);
+            }
+        }
+    }
+
+    /**
+     * Replace the rows in scope with the loaded ones; returns the diff, or null if nothing changed.
+     */
+    private FleetBoardDiffDTO apply(Map<Long, FleetBoardDTO.VehicleStatus> vehicleBoard, Set<Long> vehicleScope,
+                                    List<FleetBoardDTO.VehicleStatus> loadedVehicles,
+                                    Map<Long, FleetBoardDTO.DriverStatus> driverBoard, Set<Long> driverScope,
+                                    List<FleetBoardDTO.DriverStatus> loadedDrivers) {
+        List<FleetBoardDTO.VehicleStatus> changedVehicles = new ArrayList<>();
+        List<Long> removedVehicles = new ArrayList<>();
+        replace(vehicleBoard, vehicleScope, loadedVehicles, FleetBoardDTO.VehicleStatus::getVehicleId,
+                changedVehicles, removedVehicles);
+        List<FleetBoardDTO.DriverStatus> changedDrivers = new ArrayList<>();
+        List<Long> removedDrivers = new ArrayList<>();
+        replace(driverBoard, driverScope, loadedDrivers, FleetBoardDTO.DriverStatus::getDriverId,
+                changedDrivers, removedDrivers);
+
+        if (changedVehicles.isEmpty() && removedVehicles.isEmpty() && changedDrivers.isEmpty() && removedDrivers.isEmpty()) {
+            return null;
+        }
+        return FleetBoardDiffDTO.builder()
+                .seq(++seq)
+                .vehicles(changedVehicles)
+                .drivers(changedDrivers)
+                .removedVehicleIds(removedVehicles)
+                .removedDriverIds(removedDrivers)
+                .build();
+    }
+
+    private static <T> void replace(Map<Long, T> board, Set<Long> scope, List<T> loaded, Function<T, Long> id,
+                                    List<T> changed, List<Long> removed) {
+        Set<Long> missing = new LinkedHashSet<>(scope);
+        for (T row : loaded) {
+            Long key = id.apply(row);
+            missing.remove(key);
+            if (!Objects.equals(board.put(key, row), row)) {
+                changed.add(row);
+            }
+        }
+        for (Long key : missing) {
+            if (board.remove(key) != null) {
+                removed.add(key);
+            }
+        }
+    }
+
+    // ============================================================
+    // READS & SSE SUBSCRIPTIONS
+    // ============================================================
+
+    public synchronized FleetBoardDTO getSnapshot() {
+        List<FleetBoardDTO.VehicleStatus> vehicleList = new ArrayList<>(vehicles.values());
+        vehicleList.sort(Comparator.comparing(FleetBoardDTO.VehicleStatus::getRegistrationNumber,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        List<FleetBoardDTO.DriverStatus> driverList = new ArrayList<>(drivers.values());
+        driverList.sort(Comparator.comparing(FleetBoardDTO.DriverStatus::getName,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return FleetBoardDTO.builder()
+                .seq(seq)
+                .generatedAt(LocalDateTime.now())
+                .vehicles(vehicleList)
+                .drivers(driverList)
+                .build();
+    }
+
+    /**
+     * Subscribe to board changes. The first event is a "snapshot"; "fleet-diff" events follow.
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(Math.max(1, clientQueueCapacity)));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        // Holding the subscriber keeps its first diff behind the snapshot; registering under the
+        // board lock means every diff after the snapshot reaches the queue
+        synchronized (subscriber) {
+            FleetBoardDTO snapshot;
+            synchronized (this) {
+                snapshot = getSnapshot();
+                subscribers.add(subscriber);
+            }
+            try {
+                emitter.send(SseEmitter.event().name("snapshot").id(String.valueOf(snapshot.getSeq())).data(snapshot));
+                subscriber.lastSeq = snapshot.getSeq();
+            } catch (IOException | IllegalStateException e) {
+                drop(subscriber, e);
+            }
+        }
+        log.info("📡 Fleet board subscriber connected ({} active)", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * Queue a diff for every subscriber. Called with the board lock held, so queues fill in seq order.
+     */
+    private void broadcast(FleetBoardDiffDTO diff) {
+        if (diff == null) {
+            return;
+        }
+        log.debug("🚚 Fleet board seq {}: {} vehicle(s), {} driver(s) changed", diff.getSeq(),
+                diff.getVehicles().size() + diff.getRemovedVehicleIds().size(),
+                diff.getDrivers().size() + diff.getRemovedDriverIds().size());
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.queue.offer(diff)) {
+                // Too far behind: a snapshot replaces everything it has not received yet
+                subscriber.queue.clear();
+                subscriber.resnapshot = true;
+            }
+            schedule(subscriber);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                pusher.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            synchronized (subscriber) {
+                if (subscriber.resnapshot) {
+                    subscriber.resnapshot = false;
+                    subscriber.queue.clear();
+                    FleetBoardDTO snapshot = getSnapshot();
+                    subscriber.emitter.send(SseEmitter.event().name("snapshot")
+                            .id(String.valueOf(snapshot.getSeq())).data(snapshot));
+                    subscriber.lastSeq = snapshot.getSeq();
+                    subscriber.ping = false;
+                    resnapshots.increment();
+                }
+                List<FleetBoardDiffDTO> pending = new ArrayList<>();
+                subscriber.queue.drainTo(pending);
+                FleetBoardDiffDTO merged = merge(pending, subscriber.lastSeq);
+                if (merged != null) {
+                    subscriber.emitter.send(SseEmitter.event().name("fleet-diff")
+                            .id(String.valueOf(merged.getSeq())).data(merged));
+                    subscriber.lastSeq = merged.getSeq();
+                    subscriber.ping = false;
+                }
+                if (subscriber.ping) {
+                    subscriber.ping = false;
+                    subscriber.emitter.send(SseEmitter.event().comment("keepalive"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            drop(subscriber, e);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        if (!subscriber.queue.isEmpty() || subscriber.resnapshot) {
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Fold queued diffs into one in seq order, so each row keeps its highest-seq version;
+     * diffs already covered by a snapshot are skipped.
+     */
+    private static FleetBoardDiffDTO merge(List<FleetBoardDiffDTO> diffs, long afterSeq) {
+        Map<Long, FleetBoardDTO.VehicleStatus> vehicleRows = new LinkedHashMap<>();
+        Map<Long, FleetBoardDTO.DriverStatus> driverRows = new LinkedHashMap<>();
+        Set<Long> removedVehicles = new LinkedHashSet<>();
+        Set<Long> removedDrivers = new LinkedHashSet<>();
+        long lastSeq = -1;
+        diffs.sort(Comparator.comparingLong(FleetBoardDiffDTO::getSeq));
+        for (FleetBoardDiffDTO diff : diffs) {
+            if (diff.getSeq() <= afterSeq) {
+                continue;
+            }
+            lastSeq = diff.getSeq();
+            diff.getVehicles().forEach(v -> {
+                vehicleRows.put(v.getVehicleId(), v);
+                removedVehicles.remove(v.getVehicleId());
+            });
+            diff.getRemovedVehicleIds().forEach(id -> {
+                vehicleRows.remove(id);
+                removedVehicles.add(id);
+            });
+            diff.getDrivers().forEach(d -> {
+                driverRows.put(d.getDriverId(), d);
+                removedDrivers.remove(d.getDriverId());
+            });
+            diff.getRemovedDriverIds().forEach(id -> {
+                driverRows.remove(id);
+                removedDrivers.add(id);
+            });
+        }
+        if (lastSeq < 0) {
+            return null;
+        }
+        return FleetBoardDiffDTO.builder()
+                .seq(lastSeq)
+                .vehicles(new ArrayList<>(vehicleRows.values()))
+                .drivers(new ArrayList<>(driverRows.values()))
+                .removedVehicleIds(new ArrayList<>(removedVehicles))
+                .removedDriverIds(new ArrayList<>(removedDrivers))
+                .build();
+    }
+
+    private void drop(Subscriber subscriber, Exception e) {
+        subscribers.remove(subscriber);
+        subscriber.queue.clear();
+        try {
+            subscriber.emitter.completeWithError(e);
+        } catch (Exception ignored) {
+            // Already closed
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        refresher.shutdownNow();
+        pusher.shutdownNow();
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<FleetBoardDiffDTO> queue;
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile boolean resnapshot;
+        private volatile boolean ping;
+        private long lastSeq;
+
+        private Subscriber(SseEmitter emitter, BlockingQueue<FleetBoardDiffDTO> queue) {
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
@@ -1,17 +1,17 @@
 package com.pgsa.trailers.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pgsa.trailers.dto.FuelSlipDTO;
 import com.pgsa.trailers.entity.ResourceNotFoundException;
 import com.pgsa.trailers.entity.BusinessException;
 import com.pgsa.trailers.entity.finance.*;
 import com.pgsa.trailers.entity.ops.FuelSlip;
+import com.pgsa.trailers.entity.system.AuditEvent;
 import com.pgsa.trailers.repository.AccountStatementRepository;
 import com.pgsa.trailers.repository.FuelSlipRepository;
 import com.pgsa.trailers.repository.ReconciliationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,14 +32,15 @@ public class FuelMonthCloseService {
     private final AccountStatementRepository accountStatementRepository;
     private final ReconciliationRepository reconciliationRepository;
 
+    // Ledger
+    private final AccountLedgerService accountLedgerService;
+
     // Utilities
-    private final ObjectMapper objectMapper;
+    private final AuditEventService auditEventService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ========== CONSTANTS ==========
     private static final String SYSTEM_USER = "SYSTEM";
-    private static final String AUDIT_TRAIL_ENTRIES_KEY = "entries";
-    private static final String AUDIT_TRAIL_CREATED_AT_KEY = "createdAt";
-    private static final String AUDIT_TRAIL_CREATED_BY_KEY = "createdBy";
 
     // ========== FUEL SLIP OPERATIONS ==========
 
@@ -52,10 +53,11 @@ public class FuelMonthCloseService {
                 extractVehicleRegistration(fuelSlip));
 
         validateFuelSlip(fuelSlip);
-        ensureValidAuditTrail(fuelSlip);
 
         FuelSlip savedSlip = fuelSlipRepository.save(fuelSlip);
         log.info("Created fuel slip with ID: {}", savedSlip.getId());
+        addAuditEntry(savedSlip, "Created", SYSTEM_USER);
+        publishLedgerChange(savedSlip.getId());
 
         return FuelSlipDTO.fromEntity(savedSlip);
     }
@@ -172,6 +174,7 @@ public class FuelMonthCloseService {
         addAuditEntry(slip, "Updated", SYSTEM_USER);
 
         FuelSlip saved = fuelSlipRepository.save(slip);
+        publishLedgerChange(id);
         log.info("Successfully updated fuel slip ID: {}", id);
 
         return FuelSlipDTO.fromEntity(saved);
@@ -206,21 +209,22 @@ public class FuelMonthCloseService {
         validateNotFinalized(slip, "delete");
 
         fuelSlipRepository.delete(slip);
+        publishLedgerChange(id);
         log.info("Successfully deleted fuel slip ID: {}", id);
     }
 
     // ========== MONTH CLOSE OPERATIONS ==========
 
     /**
-     * Close fuel month for an account
+     * Close fuel month for an account.
+     * Opening balance, slips and payments are taken from the account ledger, and the close
+     * is stored as a ledger checkpoint that the next period opens from.
      */
     @Transactional
     public AccountStatement closeFuelMonth(
             Account account,
             LocalDate periodStart,
             LocalDate periodEnd,
-            BigDecimal openingBalance,
-            BigDecimal paymentsTotal,
             String performedBy
     ) {
         validateMonthCloseParameters(account, periodStart, periodEnd);
@@ -231,25 +235,28 @@ public class FuelMonthCloseService {
         // Check for duplicate statements
         checkForDuplicateStatement(account.getId(), periodStart, periodEnd);
 
-        // Get and process unfinalized slips
-        List<FuelSlip> slips = getUnfinalizedFuelSlipsForPeriod(account.getId(), from, to);
-        BigDecimal slipsTotal = calculateSlipsTotal(slips);
+        // Post anything the ledger has not seen yet for this account and period (e.g. imported payments)
+        accountLedgerService.catchUp(account.getId(), periodStart, periodEnd);
 
-        // Finalize slips
+        // Finalize the period's open slips
+        List<FuelSlip> slips = getUnfinalizedFuelSlipsForPeriod(account.getId(), from, to);
         finalizeFuelSlips(slips);
 
+        // Period totals from the ledger; the checkpoint commits with the statement
+        AccountLedgerService.PeriodTotals totals =
+                accountLedgerService.closePeriod(account.getId(), periodStart, periodEnd, performedBy);
+
         // Create account statement
         AccountStatement statement = createAccountStatement(
-                account, periodStart, periodEnd, openingBalance,
-                paymentsTotal, slipsTotal, performedBy
+                account, periodStart, periodEnd, totals, performedBy
         );
 
         // Create reconciliation snapshot
-        createReconciliation(account, from, to, slipsTotal, paymentsTotal, performedBy);
+        createReconciliation(account, from, to, totals.slipsTotal(), totals.paymentsTotal(), performedBy);
 
-        log.info("Month close completed for account {}: {} slips, total {}, variance {}",
-                account.getName(), slips.size(), slipsTotal,
-                paymentsTotal.subtract(slipsTotal));
+        log.info("Month close completed for account {}: {} slips finalized, slips {}, payments {}, variance {}",
+                account.getName(), slips.size(), totals.slipsTotal(), totals.paymentsTotal(),
+                totals.variance());
 
         return statement;
     }
@@ -314,15 +321,6 @@ public class FuelMonthCloseService {
         return fuelSlipRepository.findFuelSlipsForAccountWithinDateRangeNotFinalized(accountId, from, to);
     }
 
-    /**
-     * Calculate total amount for fuel slips
-     */
-    private BigDecimal calculateSlipsTotal(List<FuelSlip> slips) {
-        return slips.stream()
-                .map(FuelSlip::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
     /**
      * Finalize a list of fuel slips
      */
@@ -338,27 +336,23 @@ public class FuelMonthCloseService {
     /**
      * Create account statement
      */
-    public AccountStatement createAccountStatement(
+    private AccountStatement createAccountStatement(
             Account account,
             LocalDate periodStart,
             LocalDate periodEnd,
-            BigDecimal openingBalance,
-            BigDecimal paymentsTotal,
-            BigDecimal slipsTotal,
+            AccountLedgerService.PeriodTotals totals,
             String performedBy
     ) {
-        BigDecimal closingBalance = openingBalance.add(paymentsTotal).subtract(slipsTotal);
-
         // Use manual builder since entity might not have @Builder annotation
         AccountStatement statement = new AccountStatement();
         statement.setAccount(account);
         statement.setPeriodStart(periodStart);
         statement.setPeriodEnd(periodEnd);
         statement.setStatementDate(LocalDateTime.now());
-        statement.setOpeningBalance(openingBalance);
-        statement.setClosingBalance(closingBalance);
-        statement.setTotalDebits(slipsTotal);
-        statement.setTotalCredits(paymentsTotal);
+        statement.setOpeningBalance(totals.openingBalance());
+        statement.setClosingBalance(totals.closingBalance());
+        statement.setTotalDebits(totals.debits());
+        statement.setTotalCredits(totals.credits());
         statement.setCreatedBy(performedBy);
 
         return accountStatementRepository.save(statement);
@@ -442,88 +436,20 @@ public class FuelMonthCloseService {
         return slip.getDriver() != null ? slip.getDriver().getFullName() : "N/A";
     }
 
-    // ========== AUDIT TRAIL METHODS ==========
+    // ========== AUDIT ==========
 
     /**
-     * Ensure valid audit trail structure
+     * Re-post the slip to the account ledger once this transaction commits
      */
-    private void ensureValidAuditTrail(FuelSlip fuelSlip) {
-        Object currentAuditTrail = fuelSlip.getAuditTrail();
-
-        if (currentAuditTrail == null || (currentAuditTrail instanceof Map && ((Map<?, ?>) currentAuditTrail).isEmpty())) {
-            fuelSlip.setAuditTrail(createInitialAuditTrail());
-        } else if (currentAuditTrail instanceof String) {
-            fuelSlip.setAuditTrail(convertStringToAuditTrail((String) currentAuditTrail));
-        }
-        // If it's already a Map, do nothing
+    private void publishLedgerChange(Long slipId) {
+        eventPublisher.publishEvent(new AccountLedgerChangedEvent(AccountLedgerChangedEvent.SOURCE_FUEL_SLIP, slipId));
     }
 
     /**
-     * Create initial audit trail structure
+     * Record an audit event for a fuel slip (appended to audit_event after commit)
      */
-    private Map<String, Object> createInitialAuditTrail() {
-        Map<String, Object> auditTrail = new HashMap<>();
-        auditTrail.put(AUDIT_TRAIL_ENTRIES_KEY, new ArrayList<Map<String, Object>>());
-        auditTrail.put(AUDIT_TRAIL_CREATED_AT_KEY, LocalDateTime.now().toString());
-        auditTrail.put(AUDIT_TRAIL_CREATED_BY_KEY, SYSTEM_USER);
-        return auditTrail;
-    }
-
-    /**
-     * Convert string to audit trail map
-     */
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> convertStringToAuditTrail(String auditTrailString) {
-        try {
-            // Try to parse as Map
-            return objectMapper.readValue(auditTrailString, new TypeReference<Map<String, Object>>() {});
-        } catch (Exception e) {
-            // If parsing fails, create new audit trail with legacy content as note
-            Map<String, Object> newAuditTrail = createInitialAuditTrail();
-            newAuditTrail.put("legacyContent", auditTrailString);
-            return newAuditTrail;
-        }
-    }
-
-    /**
-     * Add audit entry to fuel slip
-     */
-    @SuppressWarnings("unchecked")
     private void addAuditEntry(FuelSlip slip, String action, String performedBy) {
-        try {
-            Map<String, Object> auditTrail = slip.getAuditTrail();
-            if (auditTrail == null) {
-                auditTrail = createInitialAuditTrail();
-                slip.setAuditTrail(auditTrail);
-            }
-
-            List<Map<String, Object>> entries = (List<Map<String, Object>>) auditTrail.getOrDefault(
-                    AUDIT_TRAIL_ENTRIES_KEY, new ArrayList<>()
-            );
-
-            Map<String, Object> newEntry = createAuditEntry(action, performedBy);
-            entries.add(newEntry);
-
-            auditTrail.put(AUDIT_TRAIL_ENTRIES_KEY, entries);
-            auditTrail.put("lastUpdated", LocalDateTime.now().toString());
-
-        } catch (Exception e) {
-            log.warn("Could not add audit entry for slip {}: {}", slip.getId(), e.getMessage());
-            // Fallback: add simple audit trail
-            slip.setAuditTrail(createInitialAuditTrail());
-        }
-    }
-
-    /**
-     * Create an audit entry
-     */
-    private Map<String, Object> createAuditEntry(String action, String performedBy) {
-        Map<String, Object> entry = new HashMap<>();
-        entry.put("timestamp", LocalDateTime.now().toString());
-        entry.put("action", action);
-        entry.put("performedBy", performedBy);
-        entry.put("details", String.format("%s performed by %s", action, performedBy));
-        return entry;
+        auditEventService.record(AuditEvent.ENTITY_FUEL_SLIP, slip.getId(), action, performedBy,
+                AuditEventService.details("slipNumber", slip.getSlipNumber()));
     }
 }
-
@@ -1,7 +1,6 @@
 package com.pgsa.trailers.service;
 
 import com.pgsa.trailers.dto.FuelReconciliationDTO;
-import com.pgsa.trailers.repository.FuelReconciliationRepository;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -12,26 +11,19 @@ import java.util.stream.Collectors;
 @Service
 public class FuelReconciliationService {
 
-    private final FuelReconciliationRepository repository;
+    private static final String FUEL_ACCOUNT_TYPE = "FUEL";
 
-    public FuelReconciliationService(FuelReconciliationRepository repository) {
-        this.repository = repository;
+    private final AccountLedgerService accountLedgerService;
+
+    public FuelReconciliationService(AccountLedgerService accountLedgerService) {
+        this.accountLedgerService = accountLedgerService;
     }
 
     public List<FuelReconciliationDTO> reconcileFuel(
             LocalDateTime from,
             LocalDateTime to
     ) {
-        List<Object[]> results = repository.reconcileFuelRaw(from, to);
-
-        return results.stream()
-                .map(row -> new FuelReconciliationDTO(
-                        (String) row[0], // accountName
-                        row[1] != null ? BigDecimal.valueOf(((Number) row[1]).doubleValue()) : BigDecimal.ZERO,
-                        row[2] != null ? BigDecimal.valueOf(((Number) row[2]).doubleValue()) : BigDecimal.ZERO,
-                        row[3] != null ? BigDecimal.valueOf(((Number) row[3]).doubleValue()) : BigDecimal.ZERO
-                ))
-                .collect(Collectors.toList());
+        return reconcile(from, to, null);
     }
 
     public FuelReconciliationDTO getReconciliationByAccountName(
@@ -43,9 +35,29 @@ public class FuelReconciliationService {
             return null;
         }
 
-        return reconcileFuel(from, to).stream()
-                .filter(dto -> accountName.equalsIgnoreCase(dto.accountName()))
+        return reconcile(from, to, accountName).stream()
                 .findFirst()
                 .orElse(null);
     }
-}
\ No newline at end of file
+
+    /**
+     * Current ledger balance for an account (payments and credits less slips and debits)
+     */
+    public BigDecimal getAccountBalance(Long accountId) {
+        return accountLedgerService.getCurrentBalance(accountId);
+    }
+
+    private List<FuelReconciliationDTO> reconcile(LocalDateTime from, LocalDateTime to, String accountName) {
+        // 'to' is inclusive; timestamps are stored to the microsecond
+        LocalDateTime toExclusive = to.plusNanos(1_000);
+
+        return accountLedgerService.getPeriodTotals(FUEL_ACCOUNT_TYPE, accountName, from, toExclusive).stream()
+                .map(account -> new FuelReconciliationDTO(
+                        account.accountName(),
+                        account.totals().slipsTotal(),
+                        account.totals().paymentsTotal(),
+                        account.totals().variance()
+                ))
+                .collect(Collectors.toList());
+    }
+}
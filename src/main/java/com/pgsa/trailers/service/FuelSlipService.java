@@ -4,24 +4,25 @@ import com.pgsa.trailers.dto.FuelSlipDTO;
 import com.pgsa.trailers.dto.FuelSlipRequest;
 import com.pgsa.trailers.entity.assets.Driver;
 import com.pgsa.trailers.entity.assets.Vehicle;
+import com.pgsa.trailers.entity.finance.AccountLedgerChangedEvent;
 import com.pgsa.trailers.entity.finance.AccountStatement;
 import com.pgsa.trailers.entity.ops.FuelSource;
 import com.pgsa.trailers.entity.ops.FuelSlip;
+import com.pgsa.trailers.entity.system.AuditEvent;
 import com.pgsa.trailers.repository.FuelSlipRepository;
 import com.pgsa.trailers.repository.DriverRepository;
 import com.pgsa.trailers.repository.VehicleRepository;
 import com.pgsa.trailers.repository.FuelSourceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -40,6 +41,8 @@ public class FuelSlipService {
     private final VehicleRepository vehicleRepository;
     private final DriverRepository driverRepository;
     private final FuelSourceRepository fuelSourceRepository;
+    private final AuditEventService auditEventService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public FuelSlipDTO createFuelSlip(FuelSlipRequest request) {
@@ -128,15 +131,6 @@ public class FuelSlipService {
         fuelSlip.setVerifiedBy(null);
         fuelSlip.setVerificationDate(null);
 
-        // ========== SET AUDIT TRAIL ==========
-        Map<String, Object> auditTrail = new HashMap<>();
-        auditTrail.put("createdAt", LocalDateTime.now().toString());
-        auditTrail.put("createdBy", "fuel_slip_service");
-        auditTrail.put("action", "CREATED");
-        auditTrail.put("slipNumber", fuelSlip.getSlipNumber());
-        auditTrail.put("initialStatus", fuelSlip.isFinalized() ? "FINALIZED" : "DRAFT");
-        fuelSlip.setAuditTrail(auditTrail);
-
         // ========== SET ACCOUNT STATEMENT ==========
         fuelSlip.setAccountStatement(null);
 
@@ -148,6 +142,13 @@ public class FuelSlipService {
         FuelSlip savedFuelSlip = fuelSlipRepository.save(fuelSlip);
         log.info("Fuel slip created successfully: {}", savedFuelSlip.getSlipNumber());
 
+        auditEventService.record(AuditEvent.ENTITY_FUEL_SLIP, savedFuelSlip.getId(), "CREATED",
+                AuditEventService.details(
+                        "slipNumber", savedFuelSlip.getSlipNumber(),
+                        "initialStatus", savedFuelSlip.isFinalized() ? "FINALIZED" : "DRAFT"));
+        eventPublisher.publishEvent(new AccountLedgerChangedEvent(
+                AccountLedgerChangedEvent.SOURCE_FUEL_SLIP, savedFuelSlip.getId()));
+
         return FuelSlipDTO.fromEntity(savedFuelSlip);
     }
 
@@ -395,15 +396,12 @@ public class FuelSlipService {
             existing.setPaymentMethod(request.getPaymentMethod());
         }
 
-        Map<String, Object> auditTrail = existing.getAuditTrail() != null ? existing.getAuditTrail() : new HashMap<>();
-        auditTrail.put("lastUpdated", LocalDateTime.now().toString());
-        auditTrail.put("updateAction", "UPDATED");
-        existing.setAuditTrail(auditTrail);
-
         existing.setUpdatedAt(LocalDateTime.now());
         existing.setLastStatusUpdate(LocalDateTime.now());
 
         FuelSlip updated = fuelSlipRepository.save(existing);
+        auditEventService.record(AuditEvent.ENTITY_FUEL_SLIP, updated.getId(), "UPDATED", null);
+        eventPublisher.publishEvent(new AccountLedgerChangedEvent(AccountLedgerChangedEvent.SOURCE_FUEL_SLIP, id));
         return FuelSlipDTO.fromEntity(updated);
     }
 
@@ -417,6 +415,7 @@ public class FuelSlipService {
         }
 
         fuelSlipRepository.deleteById(id);
+        eventPublisher.publishEvent(new AccountLedgerChangedEvent(AccountLedgerChangedEvent.SOURCE_FUEL_SLIP, id));
     }
 
     @Transactional
@@ -431,13 +430,9 @@ public class FuelSlipService {
         existing.setFinalized(true);
         existing.setLastStatusUpdate(LocalDateTime.now());
 
-        Map<String, Object> auditTrail = existing.getAuditTrail() != null ? existing.getAuditTrail() : new HashMap<>();
-        auditTrail.put("finalizedAt", LocalDateTime.now().toString());
-        auditTrail.put("finalizedBy", "system");
-        existing.setAuditTrail(auditTrail);
-
         existing.setUpdatedAt(LocalDateTime.now());
         fuelSlipRepository.save(existing);
+        auditEventService.record(AuditEvent.ENTITY_FUEL_SLIP, id, "FINALIZED", null);
     }
 
     @Transactional
@@ -449,12 +444,9 @@ public class FuelSlipService {
         existing.setVerificationDate(LocalDateTime.now());
         existing.setLastStatusUpdate(LocalDateTime.now());
 
-        Map<String, Object> auditTrail = existing.getAuditTrail() != null ? existing.getAuditTrail() : new HashMap<>();
-        auditTrail.put("verifiedAt", LocalDateTime.now().toString());
-        auditTrail.put("verifiedBy", verifiedBy);
-        existing.setAuditTrail(auditTrail);
-
         existing.setUpdatedAt(LocalDateTime.now());
         fuelSlipRepository.save(existing);
+        auditEventService.record(AuditEvent.ENTITY_FUEL_SLIP, id, "VERIFIED", verifiedBy,
+                AuditEventService.details("verifiedBy", verifiedBy));
     }
 }
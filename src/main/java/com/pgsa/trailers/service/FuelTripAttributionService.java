@@ -0,0 +1,386 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.entity.ops.auto.TripCompletedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assigns every fuel slip to the trip it was bought for.
+ *
+ * A slip belongs to the trip of the same vehicle whose [actual start, actual end] window
+ * contains its transaction time; an explicit trip_id on the slip wins. Slips bought
+ * between trips follow the configured gap policy. Per vehicle, trips and slips are both
+ * read in time order and matched in one sweep, and the result is stored in
+ * fuel_trip_attribution so cost reports are a join on trip_id.
+ *
+ * Only vehicles whose slips or trip windows changed since their last attribution are
+ * recomputed: slips are compared with the values they were attributed with, and each
+ * vehicle's trip windows are compared by count and checksum.
+ */
+@Slf4j
+@Service
+public class FuelTripAttributionService {
+
+    public static final String METHOD_EXPLICIT = "EXPLICIT";
+    public static final String METHOD_CONTAINED = "CONTAINED";
+    public static final String METHOD_PRECEDING = "PRECEDING";
+    public static final String METHOD_FOLLOWING = "FOLLOWING";
+    public static final String METHOD_UNATTRIBUTED = "UNATTRIBUTED";
+
+    /**
+     * Where a slip bought between two trips goes: the trip that ended before it, the trip
+     * that started after it, whichever is closer, or nowhere. Gaps longer than the
+     * configured maximum are never attributed.
+     */
+    public enum GapPolicy { PRECEDING, FOLLOWING, NEAREST, NONE }
+
+    // Trips that define attribution windows
+    private static final String WINDOW_FILTER =
+            "t.vehicle_id IS NOT NULL AND t.is_active = true AND t.actual_start_date IS NOT NULL AND t.status <> 'CANCELLED'";
+
+    private static final String SIGNATURE_SQL =
+            "SELECT t.vehicle_id, COUNT(*) AS trip_count, " +
+            "COALESCE(SUM(hashtextextended(t.id || '|' || t.actual_start_date || '|' || COALESCE(t.actual_end_date::text, ''), 0)::numeric), 0) AS trip_signature " +
+            "FROM trip t WHERE " + WINDOW_FILTER;
+
+    private static final String DIRTY_SLIP_VEHICLES_SQL = """
+            SELECT DISTINCT f.vehicle_id
+            FROM fuel_slip f
+            LEFT JOIN fuel_trip_attribution a ON a.slip_id = f.id
+            WHERE f.vehicle_id IS NOT NULL
+              AND (?::bigint[] IS NULL OR f.vehicle_id = ANY (?::bigint[]))
+              AND (a.slip_id IS NULL
+                   OR a.vehicle_id <> f.vehicle_id
+                   OR a.slip_time <> f.transaction_date
+                   OR a.explicit_trip_id IS DISTINCT FROM f.trip_id)
+            """;
+
+    private static final String DIRTY_TRIP_VEHICLES_SQL =
+            "WITH sig AS (" + SIGNATURE_SQL + " AND (?::bigint[] IS NULL OR t.vehicle_id = ANY (?::bigint[])) GROUP BY t.vehicle_id) " +
+            """
+            SELECT COALESCE(s.vehicle_id, v.vehicle_id)
+            FROM sig s
+            FULL JOIN (SELECT * FROM fuel_attribution_vehicle
+                       WHERE ?::bigint[] IS NULL OR vehicle_id = ANY (?::bigint[])) v ON v.vehicle_id = s.vehicle_id
+            WHERE (s.vehicle_id IS NULL AND v.trip_count > 0)
+               OR v.vehicle_id IS NULL
+               OR s.trip_count <> v.trip_count
+               OR s.trip_signature <> v.trip_signature
+            """;
+
+    private static final String TRIPS_SQL =
+            "SELECT t.id, t.vehicle_id, t.actual_start_date, t.actual_end_date FROM trip t " +
+            "WHERE " + WINDOW_FILTER + " AND t.vehicle_id = ANY (?) " +
+            "ORDER BY t.vehicle_id, t.actual_start_date, t.id";
+
+    private static final String SLIPS_SQL = """
+            SELECT f.id, f.vehicle_id, f.transaction_date, f.trip_id
+            FROM fuel_slip f
+            WHERE f.vehicle_id = ANY (?)
+            ORDER BY f.vehicle_id, f.transaction_date, f.id
+            """;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO fuel_trip_attribution
+                (slip_id, vehicle_id, slip_time, explicit_trip_id, trip_id, method, gap_minutes, attributed_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (slip_id) DO UPDATE SET
+                vehicle_id = EXCLUDED.vehicle_id,
+                slip_time = EXCLUDED.slip_time,
+                explicit_trip_id = EXCLUDED.explicit_trip_id,
+                trip_id = EXCLUDED.trip_id,
+                method = EXCLUDED.method,
+                gap_minutes = EXCLUDED.gap_minutes,
+                attributed_at = EXCLUDED.attributed_at
+            WHERE (fuel_trip_attribution.vehicle_id, fuel_trip_attribution.slip_time, fuel_trip_attribution.explicit_trip_id,
+                   fuel_trip_attribution.trip_id, fuel_trip_attribution.method, fuel_trip_attribution.gap_minutes)
+                  IS DISTINCT FROM
+                  (EXCLUDED.vehicle_id, EXCLUDED.slip_time, EXCLUDED.explicit_trip_id,
+                   EXCLUDED.trip_id, EXCLUDED.method, EXCLUDED.gap_minutes)
+            """;
+
+    private static final int[] UPSERT_TYPES = {
+            Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.TIMESTAMP};
+
+    private static final String SAVE_SIGNATURES_SQL =
+            "WITH sig AS (" + SIGNATURE_SQL + " AND t.vehicle_id = ANY (?) GROUP BY t.vehicle_id) " +
+            """
+            INSERT INTO fuel_attribution_vehicle (vehicle_id, trip_count, trip_signature, attributed_at)
+            SELECT ids.vehicle_id, COALESCE(s.trip_count, 0), COALESCE(s.trip_signature, 0), ?
+            FROM unnest(?::bigint[]) AS ids(vehicle_id)
+            LEFT JOIN sig s ON s.vehicle_id = ids.vehicle_id
+            ON CONFLICT (vehicle_id) DO UPDATE SET
+                trip_count = EXCLUDED.trip_count,
+                trip_signature = EXCLUDED.trip_signature,
+                attributed_at = EXCLUDED.attributed_at
+            """;
+
+    // Slips that were deleted or lost their vehicle
+    private static final String DELETE_ORPHANS_SQL = """
+            DELETE FROM fuel_trip_attribution a
+            WHERE NOT EXISTS (SELECT 1 FROM fuel_slip f WHERE f.id = a.slip_id AND f.vehicle_id IS NOT NULL)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final Timer passTimer;
+
+    private final GapPolicy gapPolicy;
+    private final long maxGapMinutes;
+    private final int vehicleBatchSize;
+
+    private volatile Boolean available;
+
+    public FuelTripAttributionService(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.fuel.attribution.gap-policy:NEAREST}") GapPolicy gapPolicy,
+                                      @Value("${app.fuel.attribution.max-gap-hours:24}") long maxGapHours,
+                                      @Value("${app.fuel.attribution.vehicle-batch-size:200}") int vehicleBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        // Trips, slips and the stored trip checksum must come from one snapshot, or a trip
+        // edited mid-batch would be recorded as attributed without being seen
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writeTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        this.gapPolicy = gapPolicy;
+        this.maxGapMinutes = TimeUnit.HOURS.toMinutes(maxGapHours);
+        this.vehicleBatchSize = Math.max(1, vehicleBatchSize);
+        this.passTimer = Timer.builder("trailers.fuel.attribution.pass")
+                .description("Time to bring fuel-to-trip attribution up to date")
+                .register(meterRegistry);
+    }
+
+    // ============================================================
+    // INCREMENTAL PASSES
+    // ============================================================
+
+    @Scheduled(fixedDelayString = "${app.fuel.attribution.interval-ms:300000}",
+               initialDelayString = "${app.fuel.attribution.initial-delay-ms:60000}")
+    public void scheduledCatchUp() {
+        try {
+            catchUp();
+        } catch (Exception e) {
+            log.error("❌ Fuel attribution pass failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-attribute every vehicle whose slips or trip windows changed.
+     *
+     * @return number of attribution rows written
+     */
+    public int catchUp() {
+        if (!isAvailable()) {
+            return 0;
+        }
+        writeTransaction.executeWithoutResult(status -> {
+            int removed = jdbcTemplate.update(DELETE_ORPHANS_SQL);
+            if (removed > 0) {
+                log.info("🧹 Removed {} fuel attribution row(s) for deleted slips", removed);
+            }
+        });
+        return attribute(dirtyVehicles(null));
+    }
+
+    /**
+     * Bring the given vehicles up to date; used before reading their trip costs.
+     */
+    public int refreshVehicles(Collection<Long> vehicleIds) {
+        if (vehicleIds.isEmpty() || !isAvailable()) {
+            return 0;
+        }
+        return attribute(dirtyVehicles(vehicleIds.toArray(new Long[0])));
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTripCompleted(TripCompletedEvent event) {
+        try {
+            List<Long> vehicleIds = jdbcTemplate.queryForList(
+                    "SELECT vehicle_id FROM trip WHERE id = ? AND vehicle_id IS NOT NULL", Long.class, event.getTripId());
+            refreshVehicles(vehicleIds);
+        } catch (Exception e) {
+            log.error("❌ Fuel attribution failed for trip {}: {}", event.getTripId(), e.getMessage());
+        }
+    }
+
+    private Set<Long> dirtyVehicles(Long[] restrictTo) {
+        Set<Long> dirty = new LinkedHashSet<>();
+        readTransaction.executeWithoutResult(status -> {
+            dirty.addAll(jdbcTemplate.queryForList(DIRTY_SLIP_VEHICLES_SQL, Long.class, restrictTo, restrictTo));
+            dirty.addAll(jdbcTemplate.queryForList(DIRTY_TRIP_VEHICLES_SQL, Long.class,
+                    restrictTo, restrictTo, restrictTo, restrictTo));
+        });
+        return dirty;
+    }
+
+    private synchronized int attribute(Set<Long> vehicleIds) {
+        if (vehicleIds.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        List<Long> ids = new ArrayList<>(vehicleIds);
+        int written = 0;
+        for (int from = 0; from < ids.size(); from += vehicleBatchSize) {
+            Long[] batch = ids.subList(from, Math.min(ids.size(), from + vehicleBatchSize)).toArray(new Long[0]);
+            Integer batchWritten = writeTransaction.execute(status -> attributeBatch(batch));
+            written += batchWritten != null ? batchWritten : 0;
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        passTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("⛽ Fuel attribution: {} vehicle(s) recomputed, {} slip attribution(s) changed in {} ms",
+                ids.size(), written, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        return written;
+    }
+
+    private int attributeBatch(Long[] vehicleIds) {
+        Map<Long, List<TripWindow>> trips = new LinkedHashMap<>();
+        jdbcTemplate.query(TRIPS_SQL, rs -> {
+            Timestamp end = rs.getTimestamp("actual_end_date");
+            TripWindow window = new TripWindow(rs.getLong("id"),
+                    rs.getTimestamp("actual_start_date").toLocalDateTime(),
+                    end != null ? end.toLocalDateTime() : null);
+            trips.computeIfAbsent(rs.getLong("vehicle_id"), k -> new ArrayList<>()).add(window);
+        }, (Object) vehicleIds);
+
+        Map<Long, List<Slip>> slips = new LinkedHashMap<>();
+        jdbcTemplate.query(SLIPS_SQL, rs -> {
+            long explicitTripId = rs.getLong("trip_id");
+            boolean hasExplicitTrip = !rs.wasNull();
+            Slip slip = new Slip(rs.getLong("id"),
+                    rs.getTimestamp("transaction_date").toLocalDateTime(),
+                    hasExplicitTrip ? explicitTripId : null);
+            slips.computeIfAbsent(rs.getLong("vehicle_id"), k -> new ArrayList<>()).add(slip);
+        }, (Object) vehicleIds);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<Long, List<Slip>> entry : slips.entrySet()) {
+            Long vehicleId = entry.getKey();
+            sweep(trips.getOrDefault(vehicleId, List.of()), entry.getValue(), (slip, tripId, method, gapMinutes) ->
+                    rows.add(new Object[]{slip.id(), vehicleId, Timestamp.valueOf(slip.time()), slip.explicitTripId(),
+                            tripId, method, gapMinutes, now}));
+        }
+
+        int written = 0;
+        if (!rows.isEmpty()) {
+            written = (int) Arrays.stream(jdbcTemplate.batchUpdate(UPSERT_SQL, rows, UPSERT_TYPES))
+                    .filter(count -> count > 0)
+                    .count();
+        }
+        jdbcTemplate.update(SAVE_SIGNATURES_SQL, vehicleIds, now, vehicleIds);
+        return written;
+    }
+
+    /**
+     * One pass over a vehicle's trips (by start) and slips (by time). Trips that have started
+     * are active until their end passes; the last one to end is remembered for the gap policy.
+     */
+    private void sweep(List<TripWindow> trips, List<Slip> slips, AttributionSink sink) {
+        List<TripWindow> active = new ArrayList<>();
+        TripWindow previous = null;
+        int next = 0;
+
+        for (Slip slip : slips) {
+            LocalDateTime time = slip.time();
+            while (next < trips.size() && !trips.get(next).start().isAfter(time)) {
+                active.add(trips.get(next++));
+            }
+            for (Iterator<TripWindow> it = active.iterator(); it.hasNext(); ) {
+                TripWindow window = it.next();
+                if (window.end() != null && window.end().isBefore(time)) {
+                    it.remove();
+                    if (previous == null || window.end().isAfter(previous.end())) {
+                        previous = window;
+                    }
+                }
+            }
+
+            if (slip.explicitTripId() != null) {
+                sink.accept(slip, slip.explicitTripId(), METHOD_EXPLICIT, null);
+            } else if (!active.isEmpty()) {
+                // Overlapping windows: the most recently started trip is the one being driven
+                sink.accept(slip, active.get(active.size() - 1).id(), METHOD_CONTAINED, null);
+            } else {
+                attributeGap(slip, previous, next < trips.size() ? trips.get(next) : null, sink);
+            }
+        }
+    }
+
+    private void attributeGap(Slip slip, TripWindow previous, TripWindow following, AttributionSink sink) {
+        Long sinceEnd = previous != null ? Duration.between(previous.end(), slip.time()).toMinutes() : null;
+        Long untilStart = following != null ? Duration.between(slip.time(), following.start()).toMinutes() : null;
+
+        boolean usePrevious = sinceEnd != null && sinceEnd <= maxGapMinutes
+                && (gapPolicy == GapPolicy.PRECEDING || gapPolicy == GapPolicy.NEAREST);
+        boolean useFollowing = untilStart != null && untilStart <= maxGapMinutes
+                && (gapPolicy == GapPolicy.FOLLOWING || gapPolicy == GapPolicy.NEAREST);
+        if (usePrevious && useFollowing) {
+            usePrevious = sinceEnd <= untilStart;
+            useFollowing = !usePrevious;
+        }
+
+        if (usePrevious) {
+            sink.accept(slip, previous.id(), METHOD_PRECEDING, sinceEnd);
+        } else if (useFollowing) {
+            sink.accept(slip, following.id(), METHOD_FOLLOWING, untilStart);
+        } else {
+            sink.accept(slip, null, METHOD_UNATTRIBUTED, null);
+        }
+    }
+
+    /**
+     * The attribution tables are created by SchemaBootstrap; until they exist, passes are skipped.
+     */
+    private boolean isAvailable() {
+        if (available == null) {
+            available = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT to_regclass('fuel_trip_attribution') IS NOT NULL", Boolean.class));
+            if (!available) {
+                log.warn("⚠️ Fuel attribution tables not found - attribution disabled until restart");
+            }
+        }
+        return available;
+    }
+
+    private record TripWindow(long id, LocalDateTime start, LocalDateTime end) { }
+
+    private record Slip(long id, LocalDateTime time, Long explicitTripId) { }
+
+    @FunctionalInterface
+    private interface AttributionSink {
+        void accept(Slip slip, Long tripId, String method, Long gapMinutes);
+    }
+}
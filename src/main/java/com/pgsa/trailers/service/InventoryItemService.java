@@ -6,10 +6,12 @@ import com.pgsa.trailers.dto.InventoryItemResponseDTO;
 import com.pgsa.trailers.dto.InventoryStatisticsDTO;
 import com.pgsa.trailers.entity.inventory.InventoryItem;
 import com.pgsa.trailers.entity.inventory.InventoryLocation;
+import com.pgsa.trailers.entity.inventory.StockLevelChangedEvent;
 import com.pgsa.trailers.repository.InventoryItemRepository;
 import com.pgsa.trailers.repository.InventoryLocationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -32,6 +34,9 @@ public class InventoryItemService {
 
     private final InventoryItemRepository inventoryItemRepository;
     private final InventoryLocationRepository inventoryLocationRepository;
+    private final StockReservationService stockReservationService;
+    private final StockAlertService stockAlertService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     public Page<InventoryItemResponseDTO> getAllItems(Pageable pageable) {
@@ -105,7 +110,10 @@ public class InventoryItemService {
 
     @Transactional(readOnly = true)
     public List<InventoryItemResponseDTO> getLowStockItems() {
-        return inventoryItemRepository.findLowStockItems()
+        List<InventoryItem> items = stockAlertService.isLoaded()
+                ? inventoryItemRepository.findAllById(stockAlertService.getLowStockItemIds())
+                : inventoryItemRepository.findLowStockItems();
+        return items
                 .stream()
                 .map(this::mapToResponseDTO)
                 .collect(Collectors.toList());
@@ -113,39 +121,33 @@ public class InventoryItemService {
 
     @Transactional(readOnly = true)
     public List<InventoryItemResponseDTO> getOutOfStockItems() {
-        return inventoryItemRepository.findOutOfStockItems()
+        List<InventoryItem> items = stockAlertService.isLoaded()
+                ? inventoryItemRepository.findAllById(stockAlertService.getOutOfStockItemIds())
+                : inventoryItemRepository.findOutOfStockItems();
+        return items
                 .stream()
                 .map(this::mapToResponseDTO)
                 .collect(Collectors.toList());
     }
 
     public InventoryItemResponseDTO updateQuantity(Long id, Integer quantity, String operation) {
-        InventoryItem item = inventoryItemRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Inventory item not found with ID: " + id));
-
-        int currentQuantity = item.getQuantity() != null ? item.getQuantity() : 0;
         int newQuantity;
 
+        // Applied atomically in the database; no read-modify-save race with concurrent issues
         if ("SET".equalsIgnoreCase(operation)) {
-            newQuantity = quantity;
+            newQuantity = stockReservationService.set(id, quantity);
         } else if ("ADD".equalsIgnoreCase(operation)) {
-            newQuantity = currentQuantity + quantity;
+            newQuantity = stockReservationService.release(id, quantity);
         } else if ("SUBTRACT".equalsIgnoreCase(operation)) {
-            if (currentQuantity < quantity) {
-                throw new RuntimeException("Insufficient stock. Available: " + currentQuantity + ", Requested: " + quantity);
-            }
-            newQuantity = currentQuantity - quantity;
+            newQuantity = stockReservationService.reserve(id, quantity);
         } else {
             throw new RuntimeException("Invalid operation. Use SET, ADD, or SUBTRACT");
         }
 
-        if (newQuantity < 0) {
-            throw new RuntimeException("Quantity cannot be negative");
-        }
-
-        item.setQuantity(newQuantity);
-        InventoryItem updated = inventoryItemRepository.save(item);
-        log.info("Updated quantity for item ID: {} from {} to {}", id, currentQuantity, newQuantity);
+        // First load in this transaction, so it already reflects the update above
+        InventoryItem updated = inventoryItemRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Inventory item not found with ID: " + id));
+        log.info("Updated quantity for item ID: {} ({} {}) to {}", id, operation, quantity, newQuantity);
         return mapToResponseDTO(updated);
     }
 
@@ -185,6 +187,7 @@ public class InventoryItemService {
                 .build();
 
         InventoryItem saved = inventoryItemRepository.save(item);
+        eventPublisher.publishEvent(new StockLevelChangedEvent(List.of(saved.getId())));
         log.info("Created inventory item with ID: {}", saved.getId());
         return mapToResponseDTO(saved);
     }
@@ -224,6 +227,7 @@ public class InventoryItemService {
         item.setUpdatedBy(getCurrentUser());
 
         InventoryItem updated = inventoryItemRepository.save(item);
+        eventPublisher.publishEvent(new StockLevelChangedEvent(List.of(id)));
         log.info("Updated inventory item with ID: {}", updated.getId());
         return mapToResponseDTO(updated);
     }
@@ -233,11 +237,18 @@ public class InventoryItemService {
             throw new RuntimeException("Inventory item not found with ID: " + id);
         }
         inventoryItemRepository.deleteById(id);
+        eventPublisher.publishEvent(new StockLevelChangedEvent(List.of(id)));
         log.info("Deleted inventory item with ID: {}", id);
     }
 
     @Transactional(readOnly = true)
     public InventoryStatisticsDTO getStatistics() {
+        // Maintained incrementally by the alert index; the queries below only run before it has loaded
+        InventoryStatisticsDTO cached = stockAlertService.getStatistics();
+        if (cached != null) {
+            return cached;
+        }
+
         Long totalItems = inventoryItemRepository.countTotalItems();
         Long activeItems = inventoryItemRepository.countActiveItems();
         Long lowStockItems = inventoryItemRepository.countLowStockItems();
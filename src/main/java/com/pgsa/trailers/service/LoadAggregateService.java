@@ -0,0 +1,263 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.entity.ops.Load;
+import com.pgsa.trailers.entity.ops.Trip;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Keeps the trip aggregates stored on {@link Load} (counts per status, cargo weight and
+ * value, depot km, earliest start and latest end) up to date as deltas.
+ *
+ * Every change is described as the trip's contribution before and after the event: a trip
+ * joining a load has no "before", a trip leaving has no "after", and a status or cargo edit
+ * has both. Applying one event costs the same no matter how many trips the load holds; the
+ * trips collection is never initialized. The only query is a MIN/MAX lookup when the trip
+ * leaving (or moving) held the load's earliest start or latest end date.
+ *
+ * {@link #recompute(String)} and {@link #recomputeAll()} rebuild the columns from the trip
+ * table in SQL, for repair after bulk edits made outside these events.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoadAggregateService {
+
+    private static final String STATUS_PLANNED = "PLANNED";
+    private static final String STATUS_IN_PROGRESS = "IN_PROGRESS";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    private static final String STATUS_FINALIZED = "FINALIZED";
+
+    private static final String BOUNDS_SQL = """
+            SELECT MIN(planned_start_date) AS earliest, MAX(planned_end_date) AS latest
+            FROM trip
+            WHERE load_id = ? AND id <> ?
+            """;
+
+    // %1$s narrows the trip scan and %2$s the loads touched; both empty for a full repair
+    private static final String RECOMPUTE_SQL = """
+            UPDATE load l SET
+                trips_count = COALESCE(a.trips, 0),
+                planned_trips_count = COALESCE(a.planned, 0),
+                in_progress_trips_count = COALESCE(a.in_progress, 0),
+                completed_trips_count = COALESCE(a.completed, 0),
+                total_cargo_weight = COALESCE(a.cargo_weight, 0),
+                total_cargo_value = COALESCE(a.cargo_value, 0),
+                total_from_depot_km = COALESCE(a.from_km, 0),
+                total_to_depot_km = COALESCE(a.to_km, 0),
+                total_depot_km = COALESCE(a.from_km, 0) + COALESCE(a.to_km, 0),
+                earliest_trip_start = a.earliest,
+                latest_trip_end = a.latest
+            FROM load src
+            LEFT JOIN (
+                SELECT load_id,
+                       COUNT(*) AS trips,
+                       COUNT(*) FILTER (WHERE status = 'PLANNED') AS planned,
+                       COUNT(*) FILTER (WHERE status = 'IN_PROGRESS') AS in_progress,
+                       COUNT(*) FILTER (WHERE status IN ('COMPLETED', 'FINALIZED')) AS completed,
+                       SUM(cargo_weight) AS cargo_weight,
+                       SUM(cargo_value) AS cargo_value,
+                       SUM(from_depot_km) AS from_km,
+                       SUM(to_depot_km) AS to_km,
+                       MIN(planned_start_date) AS earliest,
+                       MAX(planned_end_date) AS latest
+                FROM trip
+                WHERE load_id IS NOT NULL %1$s
+                GROUP BY load_id
+            ) a ON a.load_id = src.load_number
+            WHERE l.id = src.id %2$s
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * What one trip adds to its load's aggregates. Capture it before mutating a trip so
+     * the old contribution can be taken back out.
+     */
+    public record TripContribution(Long tripId, String status, BigDecimal cargoWeight, BigDecimal cargoValue,
+                                   BigDecimal fromDepotKm, BigDecimal toDepotKm,
+                                   LocalDateTime plannedStart, LocalDateTime plannedEnd) {
+
+        public static TripContribution of(Trip trip) {
+            return new TripContribution(trip.getId(), trip.getStatus(), trip.getCargoWeight(), trip.getCargoValue(),
+                    trip.getFromDepotKm(), trip.getToDepotKm(), trip.getPlannedStartDate(), trip.getPlannedEndDate());
+        }
+    }
+
+    public void tripAdded(Load load, Trip trip) {
+        apply(null, null, load, trip);
+    }
+
+    public void tripRemoved(Load load, TripContribution before) {
+        apply(load, before, null, null);
+    }
+
+    public void tripChanged(Load load, TripContribution before, Trip trip) {
+        apply(load, before, load, trip);
+    }
+
+    /**
+     * Applies one trip event: its old contribution leaves {@code from} and its current
+     * state joins {@code to}. Either side may be null; when both are the same load this
+     * is an in-place change and the trip count is untouched.
+     */
+    public void apply(Load from, TripContribution before, Load to, Trip trip) {
+        TripContribution after = trip != null ? TripContribution.of(trip) : null;
+        if (from != null && to != null && sameLoad(from, to)) {
+            subtract(from, before, after);
+            add(from, after);
+            return;
+        }
+        if (from != null && before != null) {
+            from.setTripsCount(Math.max(0, count(from.getTripsCount()) - 1));
+            subtract(from, before, null);
+        }
+        if (to != null && after != null) {
+            to.setTripsCount(count(to.getTripsCount()) + 1);
+            add(to, after);
+        }
+    }
+
+    /**
+     * The load status implied by its trips, or null when the load has none: every trip
+     * completed means COMPLETED, any trip underway means IN_TRANSIT, otherwise PENDING.
+     */
+    public String deriveStatus(Load load) {
+        int trips = count(load.getTripsCount());
+        if (trips == 0) {
+            return null;
+        }
+        if (count(load.getCompletedTripsCount()) == trips) {
+            return LoadService.STATUS_COMPLETED;
+        }
+        return count(load.getInProgressTripsCount()) > 0 ? LoadService.STATUS_IN_TRANSIT : LoadService.STATUS_PENDING;
+    }
+
+    /**
+     * Copies the trip aggregates onto the load's own weight, value, dates and status, as a
+     * load built from trips reports them: loading and unloading dates become the earliest
+     * start and latest end across its trips. Never walks the trips; a load with none keeps
+     * its own values.
+     */
+    public void applyTripTotals(Load load) {
+        String derivedStatus = deriveStatus(load);
+        if (derivedStatus == null) {
+            return;
+        }
+
+        load.setWeightKg(load.getTotalCargoWeight());
+        load.setActualValue(load.getTotalCargoValue());
+        if (load.getEarliestTripStart() != null) {
+            load.setLoadingDate(load.getEarliestTripStart());
+        }
+        if (load.getLatestTripEnd() != null) {
+            load.setUnloadingDate(load.getLatestTripEnd());
+        }
+        load.setStatus(derivedStatus);
+    }
+
+    @Transactional
+    public int recompute(String loadNumber) {
+        int updated = jdbcTemplate.update(String.format(RECOMPUTE_SQL, "AND load_id = ?", "AND src.load_number = ?"),
+                loadNumber, loadNumber);
+        log.info("🔁 Recomputed trip aggregates for load {}", loadNumber);
+        return updated;
+    }
+
+    @Transactional
+    public int recomputeAll() {
+        int updated = jdbcTemplate.update(String.format(RECOMPUTE_SQL, "", ""));
+        log.info("🔁 Recomputed trip aggregates for {} loads", updated);
+        return updated;
+    }
+
+    private void add(Load load, TripContribution c) {
+        if (c == null) {
+            return;
+        }
+        bucket(load, c.status(), 1);
+        load.setTotalCargoWeight(plus(load.getTotalCargoWeight(), c.cargoWeight()));
+        load.setTotalCargoValue(plus(load.getTotalCargoValue(), c.cargoValue()));
+        load.setTotalFromDepotKm(plus(load.getTotalFromDepotKm(), c.fromDepotKm()));
+        load.setTotalToDepotKm(plus(load.getTotalToDepotKm(), c.toDepotKm()));
+        load.setTotalDepotKm(plus(plus(load.getTotalDepotKm(), c.fromDepotKm()), c.toDepotKm()));
+        if (c.plannedStart() != null
+                && (load.getEarliestTripStart() == null || c.plannedStart().isBefore(load.getEarliestTripStart()))) {
+            load.setEarliestTripStart(c.plannedStart());
+        }
+        if (c.plannedEnd() != null
+                && (load.getLatestTripEnd() == null || c.plannedEnd().isAfter(load.getLatestTripEnd()))) {
+            load.setLatestTripEnd(c.plannedEnd());
+        }
+    }
+
+    /**
+     * Takes a contribution back out. Sums and counts simply go down; a date bound is only
+     * re-read from the other trips when the leaving contribution was the one defining it
+     * and the trip's new state (if it stays on this load) does not define it anymore.
+     */
+    private void subtract(Load load, TripContribution c, TripContribution stays) {
+        if (c == null) {
+            return;
+        }
+        bucket(load, c.status(), -1);
+        load.setTotalCargoWeight(minus(load.getTotalCargoWeight(), c.cargoWeight()));
+        load.setTotalCargoValue(minus(load.getTotalCargoValue(), c.cargoValue()));
+        load.setTotalFromDepotKm(minus(load.getTotalFromDepotKm(), c.fromDepotKm()));
+        load.setTotalToDepotKm(minus(load.getTotalToDepotKm(), c.toDepotKm()));
+        load.setTotalDepotKm(minus(minus(load.getTotalDepotKm(), c.fromDepotKm()), c.toDepotKm()));
+
+        boolean startLeaves = c.plannedStart() != null && c.plannedStart().equals(load.getEarliestTripStart())
+                && (stays == null || !c.plannedStart().equals(stays.plannedStart()));
+        boolean endLeaves = c.plannedEnd() != null && c.plannedEnd().equals(load.getLatestTripEnd())
+                && (stays == null || !c.plannedEnd().equals(stays.plannedEnd()));
+        if ((startLeaves || endLeaves) && load.getLoadNumber() != null) {
+            // The excluded trip's new dates (if any) are merged back in by add()
+            jdbcTemplate.query(BOUNDS_SQL, rs -> {
+                LocalDateTime earliest = rs.getObject("earliest", LocalDateTime.class);
+                LocalDateTime latest = rs.getObject("latest", LocalDateTime.class);
+                if (startLeaves) {
+                    load.setEarliestTripStart(earliest);
+                }
+                if (endLeaves) {
+                    load.setLatestTripEnd(latest);
+                }
+            }, load.getLoadNumber(), c.tripId() != null ? c.tripId() : -1L);
+        }
+    }
+
+    private static void bucket(Load load, String status, int delta) {
+        if (STATUS_PLANNED.equals(status)) {
+            load.setPlannedTripsCount(Math.max(0, count(load.getPlannedTripsCount()) + delta));
+        } else if (STATUS_IN_PROGRESS.equals(status)) {
+            load.setInProgressTripsCount(Math.max(0, count(load.getInProgressTripsCount()) + delta));
+        } else if (STATUS_COMPLETED.equals(status) || STATUS_FINALIZED.equals(status)) {
+            load.setCompletedTripsCount(Math.max(0, count(load.getCompletedTripsCount()) + delta));
+        }
+    }
+
+    private static boolean sameLoad(Load a, Load b) {
+        return a == b || (a.getId() != null && Objects.equals(a.getId(), b.getId()));
+    }
+
+    private static int count(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static BigDecimal plus(BigDecimal total, BigDecimal amount) {
+        BigDecimal base = total != null ? total : BigDecimal.ZERO;
+        return amount != null ? base.add(amount) : base;
+    }
+
+    private static BigDecimal minus(BigDecimal total, BigDecimal amount) {
+        BigDecimal base = total != null ? total : BigDecimal.ZERO;
+        return amount != null ? base.subtract(amount) : base;
+    }
+}
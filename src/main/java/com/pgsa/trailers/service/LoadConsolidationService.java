@@ -0,0 +1,337 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.dto.LoadConsolidationPlanDTO;
+import com.pgsa.trailers.entity.ops.Customer;
+import com.pgsa.trailers.entity.ops.Load;
+import com.pgsa.trailers.entity.ops.Trip;
+import com.pgsa.trailers.repository.CustomerRepository;
+import com.pgsa.trailers.repository.TripRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Consolidates a date window of unassigned trips into loads.
+ *
+ * All trips without a load whose planned start falls in the window are read in one query
+ * (served by the partial index idx_trip_unassigned_start). They are grouped by customer
+ * and lane (origin city to destination city), split into time windows along their planned
+ * starts, and each group is bin-packed first-fit-decreasing by cargo weight and pallet count
+ * against one vehicle's capacity. Every bin holding at least min-trips trips becomes a
+ * proposed load; with apply the loads are created in the same transaction, with the
+ * candidate rows locked so two planners cannot claim the same trip.
+ *
+ * Vehicles carry no payload figures, so capacity comes from configuration and can be
+ * overridden per call. Pallets stand in for volume, which trips do not record.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoadConsolidationService {
+
+    private static final String CANDIDATE_SQL = """
+            SELECT id, trip_number, customer_id,
+                   COALESCE(NULLIF(TRIM(origin_city), ''), origin_location) AS origin,
+                   COALESCE(NULLIF(TRIM(destination_city), ''), destination_location) AS destination,
+                   planned_start_date, planned_end_date, cargo_weight, pallet_count, commodity_type
+            FROM trip
+            WHERE load_id IS NULL
+              AND planned_start_date >= ? AND planned_start_date < ?
+              AND customer_id IS NOT NULL
+              AND status NOT IN ('COMPLETED', 'FINALIZED', 'CLOSED', 'CANCELLED')
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TripRepository tripRepository;
+    private final CustomerRepository customerRepository;
+    private final LoadService loadService;
+
+    @Value("${app.load.consolidation.capacity-kg:34000}")
+    private BigDecimal defaultCapacityKg;
+
+    @Value("${app.load.consolidation.max-pallets:30}")
+    private int defaultMaxPallets;
+
+    @Value("${app.load.consolidation.window-hours:24}")
+    private int defaultWindowHours;
+
+    @Value("${app.load.consolidation.min-trips:2}")
+    private int minTrips;
+
+    @Value("${app.load.consolidation.max-days:31}")
+    private int maxDays;
+
+    private record Candidate(long id, String tripNumber, long customerId, String origin, String destination,
+                             LocalDateTime start, LocalDateTime end, BigDecimal weight, int pallets,
+                             String commodityType) {
+    }
+
+    private record Lane(long customerId, String origin, String destination) {
+    }
+
+    private static final class Bin {
+        private final List<Candidate> trips = new ArrayList<>();
+        private BigDecimal weight = BigDecimal.ZERO;
+        private int pallets;
+
+        boolean fits(Candidate trip, BigDecimal capacityKg, int maxPallets) {
+            return weight.add(trip.weight()).compareTo(capacityKg) <= 0 && pallets + trip.pallets() <= maxPallets;
+        }
+
+        void add(Candidate trip) {
+            trips.add(trip);
+            weight = weight.add(trip.weight());
+            pallets += trip.pallets();
+        }
+    }
+
+    /**
+     * Proposes loads for the window without changing anything.
+     */
+    @Transactional(readOnly = true)
+    public LoadConsolidationPlanDTO plan(LocalDate from, LocalDate to, Long customerId,
+                                        BigDecimal capacityKg, Integer maxPallets, Integer windowHours) {
+        return consolidate(from, to, customerId, capacityKg, maxPallets, windowHours, false, null);
+    }
+
+    /**
+     * Plans the window and creates every proposed load in one transaction.
+     */
+    @Transactional
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'MANAGER')")
+    public LoadConsolidationPlanDTO apply(LocalDate from, LocalDate to, Long customerId,
+                                         BigDecimal capacityKg, Integer maxPallets, Integer windowHours,
+                                         Long userId) {
+        return consolidate(from, to, customerId, capacityKg, maxPallets, windowHours, true, userId);
+    }
+
+    private LoadConsolidationPlanDTO consolidate(LocalDate from, LocalDate to, Long customerId,
+                                                 BigDecimal capacityKg, Integer maxPallets, Integer windowHours,
+                                                 boolean create, Long userId) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new RuntimeException("A valid from/to date window is required");
+        }
+        if (from.plusDays(maxDays).isBefore(to)) {
+            throw new RuntimeException("Consolidation window cannot exceed " + maxDays + " days");
+        }
+        BigDecimal capacity = capacityKg != null && capacityKg.signum() > 0 ? capacityKg : defaultCapacityKg;
+        int pallets = maxPallets != null && maxPallets > 0 ? maxPallets : defaultMaxPallets;
+        int hours = windowHours != null && windowHours > 0 ? windowHours : defaultWindowHours;
+        long started = System.nanoTime();
+
+        List<Candidate> candidates = loadCandidates(from, to, customerId, create);
+
+        Map<Lane, List<Candidate>> lanes = candidates.stream()
+                .collect(Collectors.groupingBy(
+                        c -> new Lane(c.customerId(), laneKey(c.origin()), laneKey(c.destination())),
+                        LinkedHashMap::new, Collectors.toList()));
+
+        List<String> oversize = new ArrayList<>();
+        List<List<Candidate>> groups = new ArrayList<>();
+        for (List<Candidate> laneTrips : lanes.values()) {
+            for (List<Candidate> window : splitWindows(laneTrips, hours)) {
+                for (Bin bin : pack(window, capacity, pallets, oversize)) {
+                    if (bin.trips.size() >= minTrips) {
+                        groups.add(bin.trips);
+                    }
+                }
+            }
+        }
+
+        Map<Long, String> customerNames = customerRepository.findAllById(groups.stream()
+                        .map(g -> g.get(0).customerId())
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Customer::getId, Customer::getName, (a, b) -> a));
+
+        List<LoadConsolidationPlanDTO.ProposedLoad> proposals = new ArrayList<>(groups.size());
+        for (List<Candidate> group : groups) {
+            proposals.add(toProposal(group, customerNames.get(group.get(0).customerId()), capacity));
+        }
+
+        if (create && !proposals.isEmpty()) {
+            createLoads(groups, proposals, userId);
+        }
+
+        int consolidated = groups.stream().mapToInt(List::size).sum();
+        long millis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        log.info("📦 Consolidation {} to {}: {} candidate trips -> {} loads ({} trips){} in {} ms",
+                from, to, candidates.size(), proposals.size(), consolidated, create ? " created" : "", millis);
+
+        return LoadConsolidationPlanDTO.builder()
+                .from(from)
+                .to(to)
+                .applied(create)
+                .planMillis(millis)
+                .capacityKg(capacity)
+                .maxPallets(pallets)
+                .windowHours(hours)
+                .candidateTrips(candidates.size())
+                .consolidatedTrips(consolidated)
+                .unconsolidatedTrips(candidates.size() - consolidated)
+                .oversizeTrips(oversize)
+                .loads(proposals)
+                .build();
+    }
+
+    private List<Candidate> loadCandidates(LocalDate from, LocalDate to, Long customerId, boolean lock) {
+        StringBuilder sql = new StringBuilder(CANDIDATE_SQL);
+        List<Object> args = new ArrayList<>(List.of(from.atStartOfDay(), to.plusDays(1).atStartOfDay()));
+        if (customerId != null) {
+            sql.append(" AND customer_id = ?");
+            args.add(customerId);
+        }
+        sql.append(" ORDER BY customer_id, planned_start_date, id");
+        if (lock) {
+            // Rows claimed by a concurrent apply are skipped rather than waited on
+            sql.append(" FOR UPDATE SKIP LOCKED");
+        }
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            BigDecimal weight = rs.getBigDecimal("cargo_weight");
+            return new Candidate(
+                    rs.getLong("id"),
+                    rs.getString("trip_number"),
+                    rs.getLong("customer_id"),
+                    rs.getString("origin"),
+                    rs.getString("destination"),
+                    rs.getObject("planned_start_date", LocalDateTime.class),
+                    rs.getObject("planned_end_date", LocalDateTime.class),
+                    weight != null ? weight : BigDecimal.ZERO,
+                    rs.getInt("pallet_count"),
+                    rs.getString("commodity_type"));
+        }, args.toArray());
+    }
+
+    /**
+     * Splits a lane's trips (already in start order) into windows of the given length,
+     * each anchored at the first trip that did not fit the previous one.
+     */
+    private static List<List<Candidate>> splitWindows(List<Candidate> trips, int hours) {
+        List<List<Candidate>> windows = new ArrayList<>();
+        List<Candidate> current = new ArrayList<>();
+        LocalDateTime windowEnd = null;
+        for (Candidate trip : trips) {
+            if (windowEnd == null || !trip.start().isBefore(windowEnd)) {
+                if (!current.isEmpty()) {
+                    windows.add(current);
+                }
+                current = new ArrayList<>();
+                windowEnd = trip.start().plusHours(hours);
+            }
+            current.add(trip);
+        }
+        if (!current.isEmpty()) {
+            windows.add(current);
+        }
+        return windows;
+    }
+
+    /**
+     * First-fit decreasing on weight, pallets as the second dimension. A trip larger than
+     * a whole vehicle is reported as oversize and left out.
+     */
+    private static List<Bin> pack(List<Candidate> trips, BigDecimal capacityKg, int maxPallets, List<String> oversize) {
+        List<Candidate> sorted = new ArrayList<>(trips);
+        sorted.sort(Comparator.comparing(Candidate::weight).thenComparingInt(Candidate::pallets).reversed());
+
+        List<Bin> bins = new ArrayList<>();
+        for (Candidate trip : sorted) {
+            if (trip.weight().compareTo(capacityKg) > 0 || trip.pallets() > maxPallets) {
+                oversize.add(trip.tripNumber());
+                continue;
+            }
+            Bin target = null;
+            for (Bin bin : bins) {
+                if (bin.fits(trip, capacityKg, maxPallets)) {
+                    target = bin;
+                    break;
+                }
+            }
+            if (target == null) {
+                target = new Bin();
+                bins.add(target);
+            }
+            target.add(trip);
+        }
+        for (Bin bin : bins) {
+            bin.trips.sort(Comparator.comparing(Candidate::start).thenComparingLong(Candidate::id));
+        }
+        return bins;
+    }
+
+    private LoadConsolidationPlanDTO.ProposedLoad toProposal(List<Candidate> group, String customerName,
+                                                            BigDecimal capacityKg) {
+        Candidate first = group.get(0);
+        BigDecimal weight = group.stream().map(Candidate::weight).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return LoadConsolidationPlanDTO.ProposedLoad.builder()
+                .customerId(first.customerId())
+                .customerName(customerName)
+                .originCity(first.origin())
+                .destinationCity(first.destination())
+                .windowStart(first.start())
+                .windowEnd(group.stream()
+                        .map(c -> c.end() != null ? c.end() : c.start())
+                        .max(Comparator.naturalOrder())
+                        .orElse(first.start()))
+                .commodityType(group.stream()
+                        .map(Candidate::commodityType)
+                        .filter(Objects::nonNull)
+                        .findFirst()
+                        .orElse(null))
+                .tripIds(group.stream().map(Candidate::id).collect(Collectors.toList()))
+                .tripNumbers(group.stream().map(Candidate::tripNumber).collect(Collectors.toList()))
+                .totalWeightKg(weight)
+                .totalPallets(group.stream().mapToInt(Candidate::pallets).sum())
+                .weightUtilisationPct(weight.multiply(BigDecimal.valueOf(100))
+                        .divide(capacityKg, 1, RoundingMode.HALF_UP))
+                .build();
+    }
+
+    private void createLoads(List<List<Candidate>> groups, List<LoadConsolidationPlanDTO.ProposedLoad> proposals,
+                             Long userId) {
+        Set<Long> tripIds = groups.stream()
+                .flatMap(List::stream)
+                .map(Candidate::id)
+                .collect(Collectors.toSet());
+        Map<Long, Trip> trips = tripRepository.findAllById(tripIds).stream()
+                .collect(Collectors.toMap(Trip::getId, Function.identity()));
+
+        for (int i = 0; i < groups.size(); i++) {
+            LoadConsolidationPlanDTO.ProposedLoad proposal = proposals.get(i);
+            List<Trip> loadTrips = groups.get(i).stream()
+                    .map(c -> trips.get(c.id()))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            String description = "Consolidated load for "
+                    + (proposal.getCustomerName() != null ? proposal.getCustomerName() : "customer " + proposal.getCustomerId())
+                    + " - " + proposal.getOriginCity() + " to " + proposal.getDestinationCity()
+                    + " - " + proposal.getWindowStart().toLocalDate();
+            Load load = loadService.createLoadForTrips(proposal.getCustomerId(), loadTrips, description, userId);
+            proposal.setLoadNumber(load.getLoadNumber());
+        }
+    }
+
+    private static String laneKey(String city) {
+        return city != null ? city.trim().toUpperCase(Locale.ROOT) : "";
+    }
+}
@@ -12,17 +12,24 @@ import com.pgsa.trailers.repository.TripRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -52,6 +59,23 @@ public class LoadService {
     private final CustomerRepository customerRepository;
     private final SequenceService sequenceService;
     private final JdbcTemplate jdbcTemplate;
+    private final LoadAggregateService loadAggregateService;
+
+    // Trip rows for a page of loads, joined to vehicle/driver so no lazy proxies are touched
+    private static final String TRIP_SUMMARY_SQL = """
+            SELECT t.load_id, t.id, t.trip_number, t.reference_number, t.status,
+                   t.origin_location, t.destination_location, t.origin_city, t.destination_city,
+                   t.origin_zip_code, t.destination_zip_code, t.planned_start_date, t.planned_end_date,
+                   t.commodity_type, t.cargo_weight, t.pallet_count, t.container_number,
+                   t.from_depot_km, t.to_depot_km, t.customer_id,
+                   v.registration_number,
+                   NULLIF(TRIM(CONCAT(d.first_name, ' ', d.last_name)), '') AS driver_name
+            FROM trip t
+            LEFT JOIN vehicle v ON v.id = t.vehicle_id
+            LEFT JOIN driver d ON d.id = t.driver_id
+            WHERE t.load_id IN (%s)
+            ORDER BY t.load_id, t.id
+            """;
 
     // =============================================
     // GENERATE REFERENCE NUMBER
@@ -183,8 +207,7 @@ public class LoadService {
         log.info("Fetching all loads with pagination: page={}, size={}", 
             pageable.getPageNumber(), pageable.getPageSize());
         
-        return loadRepository.findAll(pageable)
-                .map(this::mapToResponseDTO);
+        return hydratePage(loadRepository.findAll(pageable));
     }
 
     @Transactional(readOnly = true)
@@ -193,24 +216,17 @@ public class LoadService {
         if (search == null || search.trim().isEmpty()) {
             return getAllLoads(pageable);
         }
-        return loadRepository.searchLoads(search.trim(), pageable)
-                .map(this::mapToResponseDTO);
+        return hydratePage(loadRepository.searchLoads(search.trim(), pageable));
     }
 
     @Transactional(readOnly = true)
     public List<LoadResponseDTO> getLoadsByCustomer(Long customerId) {
-        return loadRepository.findByCustomerId(customerId)
-                .stream()
-                .map(this::mapToResponseDTO)
-                .collect(Collectors.toList());
+        return mapToResponseDTOs(loadRepository.findByCustomerId(customerId));
     }
 
     @Transactional(readOnly = true)
     public List<LoadResponseDTO> getLoadsByStatus(String status) {
-        return loadRepository.findByStatus(status)
-                .stream()
-                .map(this::mapToResponseDTO)
-                .collect(Collectors.toList());
+        return mapToResponseDTOs(loadRepository.findByStatus(status));
     }
 
     // =============================================
@@ -308,13 +324,29 @@ public class LoadService {
         }
 
         for (Trip trip : trips) {
+            Load previous = trip.getLoad();
+            LoadAggregateService.TripContribution before = LoadAggregateService.TripContribution.of(trip);
+            if (previous != null && previous != load) {
+                previous.removeTrip(trip);
+            }
             load.addTrip(trip);
+            loadAggregateService.apply(previous, before, load, trip);
+            if (load.getOriginLocation() == null) {
+                load.setOriginLocation(trip.getOriginLocation());
+            }
+            if (load.getDestinationLocation() == null) {
+                load.setDestinationLocation(trip.getDestinationLocation());
+            }
+            if (previous != null && previous != load) {
+                loadAggregateService.applyTripTotals(previous);
+                loadRepository.save(previous);
+            }
             trip.setUpdatedAt(LocalDateTime.now());
             trip.setUpdatedBy(userId);
             tripRepository.save(trip);
         }
 
-        updateLoadFromTrips(load);
+        loadAggregateService.applyTripTotals(load);
 
         Load updated = loadRepository.save(load);
         log.info("Added {} trips to load {}", trips.size(), loadNumber);
@@ -322,6 +354,47 @@ public class LoadService {
         return mapToResponseDTO(updated);
     }
 
+    /**
+     * Creates a load holding the given unassigned trips, as proposed by the consolidation
+     * planner. Trips are attached one aggregate delta at a time and the load takes its
+     * weight, value, dates and status from them.
+     */
+    @Transactional
+    public Load createLoadForTrips(Long customerId, List<Trip> trips, String description, Long userId) {
+        if (trips == null || trips.isEmpty()) {
+            throw new RuntimeException("Cannot create a load without trips");
+        }
+        Trip first = trips.get(0);
+
+        Load load = Load.builder()
+                .loadNumber(sequenceService.generateFormattedSequence("load", "LOAD"))
+                .referenceNumber(generateReferenceNumber())
+                .description(description)
+                .customerId(customerId)
+                .status(STATUS_PENDING)
+                .commodityType(first.getCommodityType())
+                .originLocation(first.getOriginLocation())
+                .destinationLocation(first.getDestinationLocation())
+                .priority("NORMAL")
+                .trips(new ArrayList<>())
+                .build();
+        load.setCreatedBy(String.valueOf(userId));
+        load.setLastStatusUpdate(LocalDateTime.now());
+        Load saved = loadRepository.save(load);
+
+        for (Trip trip : trips) {
+            saved.addTrip(trip);
+            loadAggregateService.tripAdded(saved, trip);
+            trip.setUpdatedAt(LocalDateTime.now());
+            trip.setUpdatedBy(userId);
+        }
+        tripRepository.saveAll(trips);
+        loadAggregateService.applyTripTotals(saved);
+
+        log.info("Created load {} with {} consolidated trips", saved.getLoadNumber(), trips.size());
+        return loadRepository.save(saved);
+    }
+
     // =============================================
     // DELETE
     // =============================================
@@ -330,7 +403,7 @@ public class LoadService {
         Load load = loadRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Load not found with ID: " + id));
         
-        if (load.getTrips() != null && !load.getTrips().isEmpty()) {
+        if (tripRepository.countByLoadId(load.getLoadNumber()) > 0) {
             throw new RuntimeException("Cannot delete load with trips. Remove all trips first.");
         }
         
@@ -368,18 +441,8 @@ public class LoadService {
         }
         
         LocalDate date = plannedDate.toLocalDate();
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.atTime(23, 59, 59);
-
-        List<Trip> allTrips = tripRepository.findByCustomerId(customerId, Pageable.unpaged())
-                .getContent();
-        
-        return allTrips.stream()
-                .filter(t -> t.getLoadId() == null || t.getLoadId().isEmpty())
-                .filter(t -> t.getPlannedStartDate() != null)
-                .filter(t -> !t.getPlannedStartDate().isBefore(startOfDay) && 
-                           !t.getPlannedStartDate().isAfter(endOfDay))
-                .collect(Collectors.toList());
+        return tripRepository.findUnassignedByCustomerAndPlannedStart(
+                customerId, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
     }
 
     @Transactional(readOnly = true)
@@ -443,57 +506,16 @@ public class LoadService {
     // PRIVATE HELPERS
     // =============================================
 
-    private void updateLoadFromTrips(Load load) {
-        if (load.getTrips() == null || load.getTrips().isEmpty()) {
-            return;
+    @Transactional
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'MANAGER')")
+    public int recomputeAggregates(String loadNumber) {
+        if (loadNumber == null || loadNumber.isBlank()) {
+            return loadAggregateService.recomputeAll();
         }
-
-        BigDecimal totalWeight = load.getTrips().stream()
-                .map(Trip::getCargoWeight)
-                .filter(w -> w != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        load.setWeightKg(totalWeight);
-
-        BigDecimal totalValue = load.getTrips().stream()
-                .map(Trip::getCargoValue)
-                .filter(v -> v != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        load.setActualValue(totalValue);
-
-        load.getTrips().stream()
-                .filter(t -> t.getPlannedStartDate() != null)
-                .findFirst()
-                .ifPresent(t -> load.setLoadingDate(t.getPlannedStartDate()));
-
-        load.getTrips().stream()
-                .filter(t -> t.getPlannedEndDate() != null)
-                .reduce((first, second) -> second)
-                .ifPresent(t -> load.setUnloadingDate(t.getPlannedEndDate()));
-
-        load.getTrips().stream()
-                .filter(t -> t.getOriginLocation() != null)
-                .findFirst()
-                .ifPresent(t -> load.setOriginLocation(t.getOriginLocation()));
-        
-        load.getTrips().stream()
-                .filter(t -> t.getDestinationLocation() != null)
-                .findFirst()
-                .ifPresent(t -> load.setDestinationLocation(t.getDestinationLocation()));
-
-        boolean allCompleted = load.getTrips().stream()
-                .allMatch(t -> TRIP_STATUS_COMPLETED.equals(t.getStatus()) || TRIP_STATUS_FINALIZED.equals(t.getStatus()));
-        
-        if (allCompleted) {
-            load.setStatus(STATUS_COMPLETED);
-        } else {
-            boolean anyStarted = load.getTrips().stream()
-                    .anyMatch(t -> TRIP_STATUS_IN_PROGRESS.equals(t.getStatus()));
-            if (anyStarted) {
-                load.setStatus(STATUS_IN_TRANSIT);
-            } else {
-                load.setStatus(STATUS_PENDING);
-            }
+        if (!loadRepository.existsByLoadNumber(loadNumber)) {
+            throw new RuntimeException("Load not found with number: " + loadNumber);
         }
+        return loadAggregateService.recompute(loadNumber);
     }
 
     private TripSummaryDTO createTripSummaryDTO(Trip trip) {
@@ -537,22 +559,93 @@ public class LoadService {
                 .build();
     }
 
+    /**
+     * Single-load responses go through the same batch path so every endpoint
+     * reports identical counts. Pending trip changes are flushed first because
+     * the hydration queries read through JDBC.
+     */
     private LoadResponseDTO mapToResponseDTO(Load load) {
-        String customerName = null;
-        if (load.getCustomerId() != null) {
-            Customer customer = customerRepository.findById(load.getCustomerId()).orElse(null);
-            if (customer != null) {
-                customerName = customer.getName();
-            }
+        loadRepository.flush();
+        return mapToResponseDTOs(List.of(load)).get(0);
+    }
+
+    private Page<LoadResponseDTO> hydratePage(Page<Load> page) {
+        return new PageImpl<>(mapToResponseDTOs(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    /**
+     * Builds responses for a whole page of loads with one customer lookup and
+     * one trip summary query, instead of walking each load's lazy trip collection.
+     * Counts and totals come from the load's own aggregate columns.
+     */
+    private List<LoadResponseDTO> mapToResponseDTOs(List<Load> loads) {
+        if (loads.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        List<TripSummaryDTO> tripSummaries = new ArrayList<>();
-        if (load.getTrips() != null && !load.getTrips().isEmpty()) {
-            for (Trip trip : load.getTrips()) {
-                tripSummaries.add(createTripSummaryDTO(trip));
-            }
+        Set<Long> customerIds = loads.stream()
+                .map(Load::getCustomerId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, String> customerNames = customerIds.isEmpty() ? Map.of()
+                : customerRepository.findAllById(customerIds).stream()
+                        .collect(Collectors.toMap(Customer::getId, Customer::getName, (a, b) -> a));
+
+        List<String> loadNumbers = loads.stream()
+                .map(Load::getLoadNumber)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<String, List<TripSummaryDTO>> tripsByLoad = new HashMap<>();
+
+        if (!loadNumbers.isEmpty()) {
+            String placeholders = String.join(",", Collections.nCopies(loadNumbers.size(), "?"));
+            Object[] args = loadNumbers.toArray();
+
+            jdbcTemplate.query(String.format(TRIP_SUMMARY_SQL, placeholders), rs -> {
+                tripsByLoad.computeIfAbsent(rs.getString("load_id"), k -> new ArrayList<>())
+                        .add(mapTripSummary(rs));
+            }, args);
         }
 
+        List<LoadResponseDTO> result = new ArrayList<>(loads.size());
+        for (Load load : loads) {
+            String key = load.getLoadNumber();
+            result.add(buildResponseDTO(load,
+                    load.getCustomerId() != null ? customerNames.get(load.getCustomerId()) : null,
+                    key != null ? tripsByLoad.getOrDefault(key, new ArrayList<>()) : new ArrayList<>()));
+        }
+        return result;
+    }
+
+    private TripSummaryDTO mapTripSummary(ResultSet rs) throws SQLException {
+        return TripSummaryDTO.builder()
+                .id(rs.getLong("id"))
+                .tripNumber(rs.getString("trip_number"))
+                .referenceNumber(rs.getString("reference_number"))
+                .status(rs.getString("status"))
+                .originLocation(rs.getString("origin_location"))
+                .destinationLocation(rs.getString("destination_location"))
+                .originCity(rs.getString("origin_city"))
+                .destinationCity(rs.getString("destination_city"))
+                .originZipCode(rs.getString("origin_zip_code"))
+                .destinationZipCode(rs.getString("destination_zip_code"))
+                .vehicleRegistration(rs.getString("registration_number"))
+                .driverName(rs.getString("driver_name"))
+                .plannedStartDate(rs.getObject("planned_start_date", LocalDateTime.class))
+                .plannedEndDate(rs.getObject("planned_end_date", LocalDateTime.class))
+                .commodityType(rs.getString("commodity_type"))
+                .cargoWeight(rs.getBigDecimal("cargo_weight"))
+                .palletCount(rs.getObject("pallet_count", Integer.class))
+                .containerNumber(rs.getString("container_number"))
+                .fromDepotKm(rs.getBigDecimal("from_depot_km"))
+                .toDepotKm(rs.getBigDecimal("to_depot_km"))
+                .customerId(rs.getObject("customer_id", Long.class))
+                .build();
+    }
+
+    private LoadResponseDTO buildResponseDTO(Load load, String customerName,
+                                             List<TripSummaryDTO> tripSummaries) {
         return LoadResponseDTO.builder()
                 .id(load.getId())
                 .loadNumber(load.getLoadNumber())
@@ -573,7 +666,7 @@ public class LoadService {
                 .estimatedValue(load.getEstimatedValue())
                 .actualValue(load.getActualValue())
                 .priority(load.getPriority())
-                .tripsCount(load.getTrips() != null ? load.getTrips().size() : 0)
+                .tripsCount(load.getTripCount())
                 .trips(tripSummaries)
                 .createdAt(load.getCreatedAt())
                 .updatedAt(load.getUpdatedAt())
@@ -587,14 +680,8 @@ public class LoadService {
                 .totalHoursActive(load.getTotalHoursActive())
                 .incidentsLogged(load.getIncidentsLogged())
                 .completedTrips(load.getCompletedTrips())
-                .pendingTrips(load.getTrips() != null ? 
-                    (int) load.getTrips().stream()
-                        .filter(t -> t.getStatus() != null && TRIP_STATUS_PLANNED.equals(t.getStatus()))
-                        .count() : 0)
-                .inProgressTrips(load.getTrips() != null ? 
-                    (int) load.getTrips().stream()
-                        .filter(t -> t.getStatus() != null && TRIP_STATUS_IN_PROGRESS.equals(t.getStatus()))
-                        .count() : 0)
+                .pendingTrips(load.getPlannedTripsCount() != null ? load.getPlannedTripsCount() : 0)
+                .inProgressTrips(load.getInProgressTripsCount() != null ? load.getInProgressTripsCount() : 0)
                 .insurancePolicyNumber(load.getInsurancePolicyNumber())
                 .insuranceExpiry(load.getInsuranceExpiry())
                 .customsClearanceStatus(load.getCustomsClearanceStatus())
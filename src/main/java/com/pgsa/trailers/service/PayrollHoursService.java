@@ -0,0 +1,366 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.dto.PayrollPeriodDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Payroll hours for every driver over a period, computed in one pass.
+ *
+ * Timesheet entries for the period are streamed once with a fetch size into compact
+ * per-driver arrays; regular, overtime and break hours are then worked out per driver on
+ * the common fork-join pool. Approved leave is read in a single query and counted in
+ * working days. Periods that ended more than close-after-days ago are treated as closed
+ * and their results are cached.
+ *
+ * Rules: an entry's worked time is clock-in to clock-out (else start to end time, else
+ * total_hours) less its break, where a shift longer than meal-break-after-hours is
+ * charged at least meal-break-minutes. Time beyond daily-regular-hours in a day, then
+ * beyond weekly-regular-hours in a Monday-to-Sunday week, is overtime. Weeks straddling
+ * the period edges only count the days inside the period.
+ */
+@Slf4j
+@Service
+public class PayrollHoursService {
+
+    private static final String ENTRY_SQL = """
+            SELECT e.driver_id, e.entry_date, e.clock_in_time, e.clock_out_time, e.start_time, e.end_time,
+                   COALESCE(e.break_duration, 0) AS break_duration, e.total_hours, e.status
+            FROM timesheet_entries e
+            WHERE e.entry_date BETWEEN ? AND ?
+              AND COALESCE(e.status, 'ACTIVE') <> 'REJECTED'
+            """;
+
+    private static final String LEAVE_SQL = """
+            SELECT l.driver_id, l.start_date, l.end_date, t.code, COALESCE(t.is_paid, true) AS is_paid
+            FROM leave_requests l
+            JOIN leave_types t ON t.id = l.leave_type_id
+            WHERE l.status = 'APPROVED' AND l.start_date <= ? AND l.end_date >= ?
+            """;
+
+    private static final String DRIVER_SQL =
+            "SELECT id, TRIM(CONCAT(first_name, ' ', last_name)) AS name, license_number FROM driver";
+
+    private static final BigDecimal SIXTY = BigDecimal.valueOf(60);
+
+    static final String CLOSED_PERIODS_CACHE = "payrollPeriods";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final Timer computeTimer;
+    // Sized under app.cache.specs[payrollPeriods]
+    private final Cache closedPeriods;
+
+    @Value("${app.payroll.daily-regular-hours:9}")
+    private int dailyRegularHours;
+
+    @Value("${app.payroll.weekly-regular-hours:45}")
+    private int weeklyRegularHours;
+
+    @Value("${app.payroll.meal-break-after-hours:5}")
+    private int mealBreakAfterHours;
+
+    @Value("${app.payroll.meal-break-minutes:60}")
+    private int mealBreakMinutes;
+
+    @Value("${app.payroll.leave-day-hours:9}")
+    private int leaveDayHours;
+
+    @Value("${app.payroll.close-after-days:7}")
+    private int closeAfterDays;
+
+    public PayrollHoursService(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               CacheManager cacheManager,
+                               @Value("${app.payroll.fetch-size:2000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.closedPeriods = cacheManager.getCache(CLOSED_PERIODS_CACHE);
+        // Fetch size only streams inside a transaction
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.computeTimer = Timer.builder("trailers.payroll.compute")
+                .description("Time to compute payroll hours for a period")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Hours for every driver with timesheet entries or approved leave in the period.
+     * Closed periods come from the cache unless {@code refresh} is set.
+     */
+    public PayrollPeriodDTO getPeriod(LocalDate from, LocalDate to, boolean refresh) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new RuntimeException("Invalid payroll period: " + from + " to " + to);
+        }
+        if (!isClosed(to)) {
+            return compute(from, to, false);
+        }
+        String key = from + "/" + to;
+        if (refresh) {
+            closedPeriods.evict(key);
+        }
+        return closedPeriods.get(key, () -> compute(from, to, true));
+    }
+
+    public boolean isClosed(LocalDate periodEnd) {
+        return periodEnd.plusDays(closeAfterDays).isBefore(LocalDate.now());
+    }
+
+    /**
+     * Payroll export: one CSV line per driver.
+     */
+    public String exportCsv(LocalDate from, LocalDate to) {
+        PayrollPeriodDTO period = getPeriod(from, to, false);
+        StringBuilder csv = new StringBuilder(256 + period.getDrivers().size() * 160);
+        csv.append("driver_id,driver_name,license_number,period_from,period_to,days_worked,gross_hours,break_hours,")
+                .append("regular_hours,overtime_hours,pending_hours,paid_leave_days,unpaid_leave_days,paid_leave_hours\n");
+        for (PayrollPeriodDTO.DriverHours d : period.getDrivers()) {
+            csv.append(d.getDriverId()).append(',')
+                    .append(csvField(d.getDriverName())).append(',')
+                    .append(csvField(d.getLicenseNumber())).append(',')
+                    .append(from).append(',').append(to).append(',')
+                    .append(d.getDaysWorked()).append(',')
+                    .append(d.getGrossHours()).append(',')
+                    .append(d.getBreakHours()).append(',')
+                    .append(d.getRegularHours()).append(',')
+                    .append(d.getOvertimeHours()).append(',')
+                    .append(d.getPendingHours()).append(',')
+                    .append(d.getPaidLeaveDays()).append(',')
+                    .append(d.getUnpaidLeaveDays()).append(',')
+                    .append(d.getPaidLeaveHours()).append('\n');
+        }
+        return csv.toString();
+    }
+
+    // ============================================================
+    // COMPUTATION
+    // ============================================================
+
+    private PayrollPeriodDTO compute(LocalDate from, LocalDate to, boolean closed) {
+        long start = System.nanoTime();
+        Map<Long, DriverRows> rows = new HashMap<>();
+        long[] scanned = new long[1];
+
+        readTransaction.executeWithoutResult(status -> {
+            streamingJdbcTemplate.query(ENTRY_SQL, rs -> {
+                rows.computeIfAbsent(rs.getLong("driver_id"), DriverRows::new).add(rs);
+                scanned[0]++;
+            }, Date.valueOf(from), Date.valueOf(to));
+
+            jdbcTemplate.query(LEAVE_SQL, rs -> {
+                rows.computeIfAbsent(rs.getLong("driver_id"), DriverRows::new)
+                        .addLeave(rs.getDate("start_date").toLocalDate(), rs.getDate("end_date").toLocalDate(),
+                                rs.getString("code"), rs.getBoolean("is_paid"), from, to);
+            }, Date.valueOf(to), Date.valueOf(from));
+        });
+
+        Map<Long, String[]> names = new HashMap<>();
+        jdbcTemplate.query(DRIVER_SQL, rs -> {
+            if (rows.containsKey(rs.getLong("id"))) {
+                names.put(rs.getLong("id"), new String[]{rs.getString("name"), rs.getString("license_number")});
+            }
+        });
+
+        List<PayrollPeriodDTO.DriverHours> drivers = rows.values().parallelStream()
+                .map(driver -> driver.compute(names.getOrDefault(driver.driverId, new String[2])))
+                .sorted(Comparator.comparing(PayrollPeriodDTO.DriverHours::getDriverName,
+                        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+                .toList();
+
+        long elapsedNanos = System.nanoTime() - start;
+        computeTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("💰 Payroll hours {} to {}: {} driver(s) from {} entr(ies) in {} ms",
+                from, to, drivers.size(), scanned[0], TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+
+        return PayrollPeriodDTO.builder()
+                .from(from)
+                .to(to)
+                .closed(closed)
+                .computedAt(LocalDateTime.now())
+                .computeMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .entriesScanned(scanned[0])
+                .drivers(drivers)
+                .regularHours(sum(drivers, PayrollPeriodDTO.DriverHours::getRegularHours))
+                .overtimeHours(sum(drivers, PayrollPeriodDTO.DriverHours::getOvertimeHours))
+                .breakHours(sum(drivers, PayrollPeriodDTO.DriverHours::getBreakHours))
+                .pendingHours(sum(drivers, PayrollPeriodDTO.DriverHours::getPendingHours))
+                .paidLeaveHours(sum(drivers, PayrollPeriodDTO.DriverHours::getPaidLeaveHours))
+                .build();
+    }
+
+    /**
+     * One driver's entries for the period as parallel int arrays (day, minutes).
+     */
+    private final class DriverRows {
+        private final long driverId;
+        private int size;
+        private int[] days = new int[32];
+        private int[] grossMinutes = new int[32];
+        private int[] breakMinutes = new int[32];
+        private boolean[] approved = new boolean[32];
+
+        private int paidLeaveDays;
+        private int unpaidLeaveDays;
+        private final Map<String, Integer> leaveDaysByType = new TreeMap<>();
+
+        private DriverRows(long driverId) {
+            this.driverId = driverId;
+        }
+
+        private void add(ResultSet rs) throws SQLException {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                grossMinutes = Arrays.copyOf(grossMinutes, size * 2);
+                breakMinutes = Arrays.copyOf(breakMinutes, size * 2);
+                approved = Arrays.copyOf(approved, size * 2);
+            }
+            int gross = grossMinutes(rs);
+            int recordedBreak = rs.getInt("break_duration");
+            days[size] = (int) rs.getDate("entry_date").toLocalDate().toEpochDay();
+            grossMinutes[size] = gross;
+            breakMinutes[size] = gross > mealBreakAfterHours * 60 ? Math.max(recordedBreak, mealBreakMinutes) : recordedBreak;
+            approved[size] = "APPROVED".equals(rs.getString("status"));
+            size++;
+        }
+
+        private void addLeave(LocalDate start, LocalDate end, String code, boolean paid, LocalDate from, LocalDate to) {
+            int workingDays = 0;
+            for (LocalDate day = start.isBefore(from) ? from : start; !day.isAfter(end) && !day.isAfter(to); day = day.plusDays(1)) {
+                if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                    workingDays++;
+                }
+            }
+            if (paid) {
+                paidLeaveDays += workingDays;
+            } else {
+                unpaidLeaveDays += workingDays;
+            }
+            leaveDaysByType.merge(code, workingDays, Integer::sum);
+        }
+
+        private PayrollPeriodDTO.DriverHours compute(String[] name) {
+            int gross = 0;
+            int breaks = 0;
+            int pending = 0;
+            int entries = 0;
+            // epoch day -> net approved minutes, in day order
+            TreeMap<Integer, Integer> daily = new TreeMap<>();
+            for (int i = 0; i < size; i++) {
+                int net = Math.max(0, grossMinutes[i] - breakMinutes[i]);
+                if (!approved[i]) {
+                    pending += net;
+                    continue;
+                }
+                entries++;
+                gross += grossMinutes[i];
+                breaks += Math.min(breakMinutes[i], grossMinutes[i]);
+                daily.merge(days[i], net, Integer::sum);
+            }
+
+            int dailyLimit = dailyRegularHours * 60;
+            int weeklyLimit = weeklyRegularHours * 60;
+            int regular = 0;
+            int overtime = 0;
+            long week = Long.MIN_VALUE;
+            int weekRegular = 0;
+            for (Map.Entry<Integer, Integer> day : daily.entrySet()) {
+                // Epoch day 0 was a Thursday; shift so weeks start on Monday
+                long dayWeek = Math.floorDiv(day.getKey() + 3L, 7);
+                if (dayWeek != week) {
+                    week = dayWeek;
+                    weekRegular = 0;
+                }
+                int dayRegular = Math.min(day.getValue(), dailyLimit);
+                int weekExcess = Math.max(0, Math.min(dayRegular, weekRegular + dayRegular - weeklyLimit));
+                dayRegular -= weekExcess;
+                weekRegular += dayRegular;
+                regular += dayRegular;
+                overtime += day.getValue() - dayRegular;
+            }
+
+            return PayrollPeriodDTO.DriverHours.builder()
+                    .driverId(driverId)
+                    .driverName(name[0])
+                    .licenseNumber(name[1])
+                    .entries(entries)
+                    .daysWorked(daily.size())
+                    .grossHours(hours(gross))
+                    .breakHours(hours(breaks))
+                    .regularHours(hours(regular))
+                    .overtimeHours(hours(overtime))
+                    .pendingHours(hours(pending))
+                    .paidLeaveDays(paidLeaveDays)
+                    .unpaidLeaveDays(unpaidLeaveDays)
+                    .paidLeaveHours(BigDecimal.valueOf((long) paidLeaveDays * leaveDayHours).setScale(2, RoundingMode.HALF_UP))
+                    .leaveDaysByType(leaveDaysByType)
+                    .build();
+        }
+    }
+
+    private static int grossMinutes(ResultSet rs) throws SQLException {
+        Timestamp clockIn = rs.getTimestamp("clock_in_time");
+        Timestamp clockOut = rs.getTimestamp("clock_out_time");
+        if (clockIn != null && clockOut != null) {
+            return (int) Math.max(0, ChronoUnit.MINUTES.between(clockIn.toLocalDateTime(), clockOut.toLocalDateTime()));
+        }
+        Time startTime = rs.getTime("start_time");
+        Time endTime = rs.getTime("end_time");
+        if (startTime != null && endTime != null) {
+            long minutes = Duration.between(startTime.toLocalTime(), endTime.toLocalTime()).toMinutes();
+            return (int) (minutes < 0 ? minutes + 24 * 60 : minutes); // overnight shift
+        }
+        BigDecimal totalHours = rs.getBigDecimal("total_hours");
+        return totalHours != null ? totalHours.multiply(SIXTY).intValue() : 0; // still clocked in: nothing yet
+    }
+
+    private static BigDecimal hours(int minutes) {
+        return BigDecimal.valueOf(minutes).divide(SIXTY, 2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal sum(List<PayrollPeriodDTO.DriverHours> drivers,
+                                  Function<PayrollPeriodDTO.DriverHours, BigDecimal> field) {
+        return drivers.stream().map(field).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.contains(",") || value.contains("\"") || value.contains("\n")
+                ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+}
@@ -6,6 +6,7 @@ import com.pgsa.trailers.dto.PodStatistics;
 import com.pgsa.trailers.dto.DebriefRequestDTO;
 import com.pgsa.trailers.dto.StatusHistoryDTO;
 import com.pgsa.trailers.entity.ops.Pod;
+import com.pgsa.trailers.entity.system.AuditEvent;
 import com.pgsa.trailers.repository.PodRepository;
 import com.pgsa.trailers.repository.TripRepository;
 import lombok.RequiredArgsConstructor;
@@ -41,6 +42,7 @@ public class PodService {
     private final SupabaseStorageService storageService;
     private final FileConversionService conversionService;
     private final SequenceService sequenceService; 
+    private final AuditEventService auditEventService;
     
     private final String uploadDir = "uploads/pods/";
 
@@ -180,6 +182,7 @@ public class PodService {
             log.info("Saving POD entity: {}", pod);
             Pod savedPod = podRepository.save(pod);
             log.info("✅ POD saved with ID: {}", savedPod.getId());
+            recordStatus(savedPod, "CREATED", "POD created", currentUser);
             
             // ✅ STEP 5: Handle file upload
             if (file == null || file.isEmpty()) {
@@ -289,6 +292,7 @@ public class PodService {
                 .build();
         
         Pod savedPod = podRepository.save(pod);
+        recordStatus(savedPod, "CREATED", "POD appended to trip", currentUser);
         
         // Upload file
         if (file != null && !file.isEmpty()) {
@@ -382,6 +386,7 @@ public class PodService {
             .build();
 
         Pod savedPod = podRepository.save(pod);
+        recordStatus(savedPod, "CREATED", "POD scanned", currentUser);
 
         // Upload and convert file
         if (file != null && !file.isEmpty()) {
@@ -584,6 +589,7 @@ public class PodService {
         pod.setUpdatedAt(LocalDateTime.now());
 
         Pod updatedPod = podRepository.save(pod);
+        recordStatus(updatedPod, "DEBRIEFED", pod.getDebriefNotes(), currentUser);
         log.info("POD {} debriefed with status: {} by: {}", id, pod.getStatus(), currentUser);
         return mapToResponse(updatedPod);
     }
@@ -596,6 +602,19 @@ public class PodService {
         Pod pod = podRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("POD not found with ID: " + id));
 
+        List<AuditEvent> events = auditEventService.getHistory(AuditEvent.ENTITY_POD, id);
+        if (!events.isEmpty()) {
+            return events.stream()
+                    .map(event -> StatusHistoryDTO.builder()
+                            .status(payloadValue(event, "status", event.getAction()))
+                            .notes(payloadValue(event, "notes", event.getAction()))
+                            .updatedBy(event.getActor() != null ? event.getActor() : "System")
+                            .timestamp(event.getOccurredAt())
+                            .build())
+                    .collect(Collectors.toList());
+        }
+
+        // PODs created before the audit store existed: derive history from entity columns
         List<StatusHistoryDTO> history = new ArrayList<>();
         
         history.add(StatusHistoryDTO.builder()
@@ -863,6 +882,7 @@ public class PodService {
         pod.setUpdatedBy(currentUser);
         pod.setUpdatedAt(LocalDateTime.now());
         Pod updated = podRepository.save(pod);
+        recordStatus(updated, "STATUS_CHANGED", "Status updated to: " + status, currentUser);
         log.info("POD {} status updated to: {} by: {}", id, status, currentUser);
         return mapToResponse(updated);
     }
@@ -881,6 +901,7 @@ public class PodService {
         pod.setUpdatedBy(currentUser);
         pod.setUpdatedAt(LocalDateTime.now());
         Pod updated = podRepository.save(pod);
+        recordStatus(updated, "VERIFIED", "POD verified", pod.getVerifiedBy());
         log.info("POD {} verified by: {}", id, verifiedBy != null ? verifiedBy : currentUser);
         return mapToResponse(updated);
     }
@@ -900,6 +921,7 @@ public class PodService {
         pod.setUpdatedBy(currentUser);
         pod.setUpdatedAt(LocalDateTime.now());
         Pod updated = podRepository.save(pod);
+        recordStatus(updated, "REJECTED", "POD rejected: " + pod.getRejectionReason(), pod.getRejectedBy());
         log.info("POD {} rejected by: {}, reason: {}", id, rejectedBy != null ? rejectedBy : currentUser, reason);
         return mapToResponse(updated);
     }
@@ -944,6 +966,16 @@ public class PodService {
                 .build();
     }
 
+    private void recordStatus(Pod pod, String action, String notes, String actor) {
+        auditEventService.record(AuditEvent.ENTITY_POD, pod.getId(), action, actor,
+                AuditEventService.details("status", pod.getStatus(), "notes", notes));
+    }
+
+    private String payloadValue(AuditEvent event, String key, String fallback) {
+        Object value = event.getPayload() != null ? event.getPayload().get(key) : null;
+        return value != null ? value.toString() : fallback;
+    }
+
     /**
      * Get trip number safely using the repository method
      */
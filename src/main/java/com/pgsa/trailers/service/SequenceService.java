@@ -12,6 +12,9 @@ import java.time.LocalDateTime;
 import java.time.Year;
 import java.util.List;
 import java.util.Optional; 
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -26,40 +29,30 @@ public class SequenceService {
         try {
             String currentYear = String.valueOf(Year.now().getValue());
             log.info("🔧 Initializing sequences for year: {}", currentYear);
-            
-            // Check if trip sequence exists for current year
-            if (!sequenceRepository.findByTableNameAndYear("trip", currentYear).isPresent()) {
-                log.info("📝 Creating initial sequence for trip in year {}", currentYear);
-                Sequence sequence = Sequence.builder()
-                        .tableName("trip")
-                        .year(currentYear)
-                        .nextNumber(1L)
-                        .createdAt(LocalDateTime.now())
-                        .updatedAt(LocalDateTime.now())
-                        .build();
-                sequenceRepository.save(sequence);
-                log.info("✅ Initial sequence created for trip in year {}", currentYear);
-            } else {
-                log.info("✅ Sequence already exists for trip in year {}", currentYear);
-            }
-            
-            // Do the same for other sequences
-            String[] otherTables = {"load", "pod", "customer", "invoice"};
-            for (String tableName : otherTables) {
-                if (!sequenceRepository.findByTableNameAndYear(tableName, currentYear).isPresent()) {
-                    log.info("📝 Creating sequence for {} in year {}", tableName, currentYear);
-                    Sequence sequence = Sequence.builder()
+
+            // One lookup for the year, then insert whichever tables are missing
+            Set<String> existing = sequenceRepository.findByYear(currentYear).stream()
+                    .map(Sequence::getTableName)
+                    .collect(Collectors.toSet());
+            List<Sequence> missing = Stream.of("trip", "load", "pod", "customer", "invoice")
+                    .filter(tableName -> !existing.contains(tableName))
+                    .map(tableName -> Sequence.builder()
                             .tableName(tableName)
                             .year(currentYear)
                             .nextNumber(1L)
                             .createdAt(LocalDateTime.now())
                             .updatedAt(LocalDateTime.now())
-                            .build();
-                    sequenceRepository.save(sequence);
-                    log.info("✅ Sequence created for {} in year {}", tableName, currentYear);
-                }
+                            .build())
+                    .toList();
+
+            if (missing.isEmpty()) {
+                log.info("✅ Sequences already exist for year {}", currentYear);
+            } else {
+                sequenceRepository.saveAll(missing);
+                log.info("✅ Sequences created for {} in year {}",
+                        missing.stream().map(Sequence::getTableName).toList(), currentYear);
             }
-            
+
         } catch (Exception e) {
             log.error("❌ Failed to initialize sequences: {}", e.getMessage(), e);
         }
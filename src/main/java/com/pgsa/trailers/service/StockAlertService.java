@@ -0,0 +1,559 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.dto.InventoryStatisticsDTO;
+import com.pgsa.trailers.dto.StockAlertDTO;
+import com.pgsa.trailers.entity.inventory.StockLevelChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory stock threshold index.
+ *
+ * Holds quantity, minLevel and reorderLevel for every item and keeps the inventory
+ * statistics as running aggregates. Committed quantity changes only queue the touched item
+ * ids; a single refresher thread coalesces them and re-reads those rows, so dashboards read
+ * counts and low/out-of-stock ids from memory and committing threads never wait on the
+ * index. Items crossing a threshold are pushed to SSE subscribers.
+ *
+ * A periodic full resync picks up changes made outside the application. It builds a new
+ * index without holding the lock and swaps it in; items refreshed while it was reading keep
+ * their newer state.
+ *
+ * Every subscriber has a bounded queue drained by a shared pusher pool, so a slow client
+ * only delays itself. A client whose queue overflows is sent a fresh snapshot instead of
+ * the alerts it missed.
+ */
+@Slf4j
+@Service
+public class StockAlertService {
+
+    public static final String STATUS_IN_STOCK = "IN_STOCK";
+    public static final String STATUS_REORDER = "REORDER";
+    public static final String STATUS_LOW_STOCK = "LOW_STOCK";
+    public static final String STATUS_OUT_OF_STOCK = "OUT_OF_STOCK";
+
+    private static final String SELECT_SQL =
+            "SELECT id, name, category, location_id, quantity, min_level, reorder_level, unit_cost, is_active, is_held " +
+            "FROM inventory_item";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+
+    // Replaced by resync, otherwise only changed under "this"
+    private volatile Index index = new Index();
+    // Ids refreshed while a resync is reading; null when no resync is running. Guarded by "this"
+    private Set<Long> refreshedDuringResync;
+    private final Object resyncLock = new Object();
+
+    // Item ids waiting for the refresher; one pass re-reads all of them
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean(false);
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "stock-alert-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService pusher;
+
+    private volatile InventoryStatisticsDTO statistics;
+    private volatile boolean loaded;
+
+    @Value("${app.inventory.alerts.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${app.inventory.alerts.client-queue-capacity:256}")
+    private int clientQueueCapacity;
+
+    public StockAlertService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.inventory.alerts.push-threads:2}") int pushThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Own read transaction: refreshes run after the publishing transaction has committed
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.pusher = Executors.newFixedThreadPool(Math.max(1, pushThreads), r -> {
+            Thread t = new Thread(r, "stock-alert-push");
+            t.setDaemon(true);
+            return t;
+        });
+
+        meterRegistry.gauge("trailers.inventory.low_stock", List.of(), this, s -> s.index.lowStock.size());
+        meterRegistry.gauge("trailers.inventory.out_of_stock", List.of(), this, s -> s.index.outOfStock.size());
+        meterRegistry.gaugeCollectionSize("trailers.inventory.alert_subscribers", List.of(), subscribers);
+        meterRegistry.gaugeCollectionSize("trailers.inventory.alert_refresh_pending", List.of(), pending);
+    }
+
+    // ============================================================
+    // INDEX MAINTENANCE
+    // ============================================================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        resync();
+    }
+
+    /**
+     * Full reload; items changed or removed outside the application are reconciled.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.alerts.resync-interval-ms:900000}",
+               initialDelayString = "${app.inventory.alerts.resync-interval-ms:900000}")
+    public void resync() {
+        List<StockAlertDTO> alerts = new ArrayList<>();
+        boolean firstLoad = !loaded;
+        Index current;
+        synchronized (resyncLock) {
+            try {
+                synchronized (this) {
+                    refreshedDuringResync = new HashSet<>();
+                }
+                // The full read runs without the index lock; refreshes keep going meanwhile
+                List<ItemState> rows = readTransaction.execute(status -> jdbcTemplate.query(SELECT_SQL, ROW_MAPPER));
+                Index reloaded = new Index();
+                for (ItemState row : rows) {
+                    reloaded.apply(row.id(), row, null);
+                }
+                synchronized (this) {
+                    // Rows refreshed after the read started are newer than what it returned
+                    for (Long id : refreshedDuringResync) {
+                        reloaded.apply(id, index.items.get(id), null);
+                    }
+                    refreshedDuringResync = null;
+                    if (!firstLoad) {
+                        reloaded.items.values().forEach(item -> {
+                            ItemState previous = index.items.get(item.id());
+                            String before = previous != null ? previous.status() : STATUS_IN_STOCK;
+                            if (!before.equals(item.status())) {
+                                alerts.add(item.toAlert(before));
+                            }
+                        });
+                    }
+                    index = reloaded;
+                    publishStatistics();
+                    // The first load only builds the index; later resyncs report crossings they find
+                    broadcast(alerts);
+                    loaded = true;
+                }
+            } catch (Exception e) {
+                synchronized (this) {
+                    refreshedDuringResync = null;
+                }
+                log.error("❌ Stock alert index resync failed: {}", e.getMessage());
+                return;
+            }
+            current = index;
+        }
+        log.info("📊 Stock alert index loaded: {} item(s), {} low, {} out of stock",
+                current.items.size(), current.lowStock.size(), current.outOfStock.size());
+        logAlerts(alerts);
+    }
+
+    /**
+     * Queue the changed items once their transaction has committed; the refresher re-reads them.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockLevelChanged(StockLevelChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        pending.addAll(event.getItemIds());
+        scheduleRefresh();
+    }
+
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            try {
+                refresher.execute(this::drainPending);
+            } catch (RuntimeException e) {
+                // Shutting down; the ids are dropped with the index
+                refreshScheduled.set(false);
+            }
+        }
+    }
+
+    private void drainPending() {
+        try {
+            while (!pending.isEmpty()) {
+                Set<Long> ids = new HashSet<>(pending);
+                pending.removeAll(ids);
+                refresh(ids);
+            }
+        } finally {
+            refreshScheduled.set(false);
+        }
+        // Ids added between the last pass and clearing the flag
+        if (!pending.isEmpty()) {
+            scheduleRefresh();
+        }
+    }
+
+    /**
+     * Only runs on the refresher thread, so a later refresh always reads state at least as new
+     * as an earlier one.
+     */
+    private void refresh(Collection<Long> itemIds) {
+        List<StockAlertDTO> alerts = new ArrayList<>();
+        try {
+            Long[] ids = itemIds.toArray(new Long[0]);
+            List<ItemState> rows = readTransaction.execute(status ->
+                    jdbcTemplate.query(SELECT_SQL + " WHERE id = ANY (?)", ROW_MAPPER, (Object) ids));
+            Map<Long, ItemState> byId = new HashMap<>();
+            rows.forEach(row -> byId.put(row.id(), row));
+            synchronized (this) {
+                for (Long id : ids) {
+                    index.apply(id, byId.get(id), alerts);
+                }
+                if (refreshedDuringResync != null) {
+                    refreshedDuringResync.addAll(itemIds);
+                }
+                publishStatistics();
+                broadcast(alerts);
+            }
+        } catch (Exception e) {
+            // The next resync repairs the index
+            log.warn("⚠️ Stock alert refresh failed for items {}: {}", itemIds, e.getMessage());
+            return;
+        }
+        logAlerts(alerts);
+    }
+
+    private void publishStatistics() {
+        Index current = index;
+        statistics = current.totals.toDTO(current.lowStock.size(), current.outOfStock.size());
+    }
+
+    // ============================================================
+    // QUERIES
+    // ============================================================
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public InventoryStatisticsDTO getStatistics() {
+        return statistics;
+    }
+
+    public List<Long> getLowStockItemIds() {
+        return new ArrayList<>(index.lowStock);
+    }
+
+    public List<Long> getOutOfStockItemIds() {
+        return new ArrayList<>(index.outOfStock);
+    }
+
+    /**
+     * Items currently below a threshold (LOW_STOCK, OUT_OF_STOCK, REORDER).
+     */
+    public List<StockAlertDTO> getActiveAlerts() {
+        return index.items.values().stream()
+                .filter(item -> !STATUS_IN_STOCK.equals(item.status()))
+                .map(item -> item.toAlert(null))
+                .toList();
+    }
+
+    // ============================================================
+    // SSE SUBSCRIPTIONS
+    // ============================================================
+
+    /**
+     * Subscribe to threshold crossings. The current alerts are sent first as a "snapshot" event.
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(Math.max(1, clientQueueCapacity)));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        // Holding the subscriber keeps its first alert behind the snapshot; registering under the
+        // index lock means every crossing after the snapshot reaches the queue
+        synchronized (subscriber) {
+            List<StockAlertDTO> snapshot;
+            synchronized (this) {
+                snapshot = getActiveAlerts();
+                subscribers.add(subscriber);
+            }
+            try {
+                emitter.send(SseEmitter.event().name("snapshot").data(snapshot));
+            } catch (IOException | IllegalStateException e) {
+                drop(subscriber, e);
+            }
+        }
+        log.info("📡 Stock alert subscriber connected ({} active)", subscribers.size());
+        return emitter;
+    }
+
+    private void logAlerts(List<StockAlertDTO> alerts) {
+        alerts.forEach(alert -> log.warn("⚠️ Stock alert: {} {} -> {} (qty {})",
+                alert.getItemName(), alert.getPreviousStatus(), alert.getStatus(), alert.getQuantity()));
+    }
+
+    /**
+     * Queue alerts for every subscriber. Called with the index lock held, so queues fill in order.
+     */
+    private void broadcast(List<StockAlertDTO> alerts) {
+        if (alerts.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            for (StockAlertDTO alert : alerts) {
+                if (!subscriber.queue.offer(alert)) {
+                    // Too far behind: a snapshot replaces everything it has not received yet
+                    subscriber.queue.clear();
+                    subscriber.resnapshot = true;
+                    break;
+                }
+            }
+            schedule(subscriber);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                pusher.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            synchronized (subscriber) {
+                if (subscriber.resnapshot) {
+                    subscriber.resnapshot = false;
+                    List<StockAlertDTO> snapshot;
+                    synchronized (this) {
+                        subscriber.queue.clear();
+                        snapshot = getActiveAlerts();
+                    }
+                    subscriber.emitter.send(SseEmitter.event().name("snapshot").data(snapshot));
+                }
+                List<StockAlertDTO> queued = new ArrayList<>();
+                subscriber.queue.drainTo(queued);
+                for (StockAlertDTO alert : queued) {
+                    subscriber.emitter.send(SseEmitter.event().name("stock-alert").data(alert));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            drop(subscriber, e);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        if (!subscriber.queue.isEmpty() || subscriber.resnapshot) {
+            schedule(subscriber);
+        }
+    }
+
+    private void drop(Subscriber subscriber, Exception e) {
+        subscribers.remove(subscriber);
+        subscriber.queue.clear();
+        try {
+            subscriber.emitter.completeWithError(e);
+        } catch (Exception ignored) {
+            // Already closed
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        refresher.shutdownNow();
+        pusher.shutdownNow();
+    }
+
+    // ============================================================
+    // INTERNALS
+    // ============================================================
+
+    private static final RowMapper<ItemState> ROW_MAPPER = (rs, rowNum) -> new ItemState(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("category"),
+            rs.getObject("location_id", Long.class),
+            rs.getObject("quantity", Integer.class),
+            rs.getObject("min_level", Integer.class),
+            rs.getBigDecimal("reorder_level"),
+            rs.getBigDecimal("unit_cost"),
+            rs.getObject("is_active", Boolean.class),
+            rs.getObject("is_held", Boolean.class));
+
+    private record ItemState(Long id, String name, String category, Long locationId, Integer quantity,
+                             Integer minLevel, BigDecimal reorderLevel, BigDecimal unitCost,
+                             Boolean active, Boolean held) {
+
+        /** Same rules as the low/out-of-stock repository queries: active, not held. */
+        String status() {
+            if (!Boolean.TRUE.equals(active) || !Boolean.FALSE.equals(held)) {
+                return STATUS_IN_STOCK;
+            }
+            if (quantity == null || quantity <= 0) {
+                return STATUS_OUT_OF_STOCK;
+            }
+            if (minLevel != null && quantity <= minLevel) {
+                return STATUS_LOW_STOCK;
+            }
+            if (reorderLevel != null && BigDecimal.valueOf(quantity).compareTo(reorderLevel) <= 0) {
+                return STATUS_REORDER;
+            }
+            return STATUS_IN_STOCK;
+        }
+
+        StockAlertDTO toAlert(String previousStatus) {
+            return StockAlertDTO.builder()
+                    .itemId(id)
+                    .itemName(name)
+                    .locationId(locationId)
+                    .previousStatus(previousStatus)
+                    .status(status())
+                    .quantity(quantity)
+                    .minLevel(minLevel)
+                    .reorderLevel(reorderLevel)
+                    .occurredAt(LocalDateTime.now())
+                    .build();
+        }
+    }
+
+    /**
+     * Items, threshold sets and running totals that change together. The live index is only
+     * changed under the service lock; resync fills a fresh one on its own before swapping it in.
+     */
+    private static final class Index {
+        final Map<Long, ItemState> items = new ConcurrentHashMap<>();
+        final Set<Long> lowStock = ConcurrentHashMap.newKeySet();
+        final Set<Long> outOfStock = ConcurrentHashMap.newKeySet();
+        final Totals totals = new Totals();
+
+        /**
+         * Replace one item (null removes it); crossings are added to alerts when it is not null.
+         */
+        void apply(Long id, ItemState current, List<StockAlertDTO> alerts) {
+            ItemState previous = current != null ? items.put(id, current) : items.remove(id);
+            if (previous != null) {
+                totals.add(previous, -1);
+            }
+            if (current != null) {
+                totals.add(current, 1);
+            }
+
+            String before = previous != null ? previous.status() : STATUS_IN_STOCK;
+            String after = current != null ? current.status() : STATUS_IN_STOCK;
+
+            lowStock.remove(id);
+            outOfStock.remove(id);
+            if (STATUS_LOW_STOCK.equals(after)) {
+                lowStock.add(id);
+            } else if (STATUS_OUT_OF_STOCK.equals(after)) {
+                outOfStock.add(id);
+            }
+
+            if (alerts != null && current != null && !before.equals(after)) {
+                alerts.add(current.toAlert(before));
+            }
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<StockAlertDTO> queue;
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile boolean resnapshot;
+
+        private Subscriber(SseEmitter emitter, BlockingQueue<StockAlertDTO> queue) {
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+
+    /**
+     * Running aggregates behind getStatistics(); part of an Index.
+     */
+    private static class Totals {
+        long total;
+        long active;
+        long held;
+        final Map<String, Long> categories = new HashMap<>();
+        final Map<Long, Long> locations = new HashMap<>();
+        BigDecimal reorderSum = BigDecimal.ZERO;
+        long reorderCount;
+        BigDecimal value = BigDecimal.ZERO;
+
+        void add(ItemState item, int sign) {
+            total += sign;
+            if (Boolean.TRUE.equals(item.active())) {
+                active += sign;
+            }
+            if (Boolean.TRUE.equals(item.held())) {
+                held += sign;
+            }
+            categories.merge(item.category(), (long) sign, Long::sum);
+            categories.remove(item.category(), 0L);
+            if (item.locationId() != null) {
+                locations.merge(item.locationId(), (long) sign, Long::sum);
+                locations.remove(item.locationId(), 0L);
+            }
+            if (item.reorderLevel() != null) {
+                reorderSum = sign > 0 ? reorderSum.add(item.reorderLevel()) : reorderSum.subtract(item.reorderLevel());
+                reorderCount += sign;
+            }
+            if (item.quantity() != null && item.unitCost() != null) {
+                BigDecimal itemValue = item.unitCost().multiply(BigDecimal.valueOf(item.quantity()));
+                value = sign > 0 ? value.add(itemValue) : value.subtract(itemValue);
+            }
+        }
+
+        InventoryStatisticsDTO toDTO(long lowStockItems, long outOfStockItems) {
+            return InventoryStatisticsDTO.builder()
+                    .totalItems(total)
+                    .activeItems(active)
+                    .lowStockItems(lowStockItems)
+                    .outOfStockItems(outOfStockItems)
+                    .heldItems(held)
+                    .categoryCounts(new HashMap<>(categories))
+                    .locationCounts(new HashMap<>(locations))
+                    .averageReorderLevel(reorderCount > 0
+                            ? reorderSum.divide(BigDecimal.valueOf(reorderCount), 2, RoundingMode.HALF_UP)
+                            : BigDecimal.ZERO)
+                    .totalValue(value)
+                    .build();
+        }
+    }
+}
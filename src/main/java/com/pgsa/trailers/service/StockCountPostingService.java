@@ -0,0 +1,225 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.dto.InventoryVarianceDTO;
+import com.pgsa.trailers.dto.StockCountPostingResultDTO;
+import com.pgsa.trailers.entity.inventory.InventoryItem;
+import com.pgsa.trailers.entity.inventory.StockCount;
+import com.pgsa.trailers.entity.inventory.StockCountLine;
+import com.pgsa.trailers.entity.inventory.StockMovement;
+import com.pgsa.trailers.repository.StockCountRepository;
+import com.pgsa.trailers.repository.StockMovementRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts a whole stock count session in one transaction.
+ *
+ * The count row is locked first so the same count cannot be posted twice, then the count
+ * and its lines are loaded with one fetch join, system quantities for all counted items
+ * are read and row-locked with one statement, and every variance becomes an approved
+ * ADJUSTMENT movement. Movements, quantity updates and ledger entries go out as JDBC
+ * batches, so the statement count does not grow with the number of lines.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class StockCountPostingService {
+
+    private final StockCountRepository stockCountRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final StockReservationService stockReservationService;
+    private final StockLedgerService stockLedgerService;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Post a stock count: set every counted item to its counted quantity and return the variance summary.
+     */
+    public StockCountPostingResultDTO post(Long stockCountId, String postedBy) {
+        long start = System.nanoTime();
+        log.info("========================================");
+        log.info("📋 POSTING STOCK COUNT {}", stockCountId);
+        log.info("========================================");
+
+        // Serialises concurrent posts of the same count; the loser sees POSTED below
+        List<Long> locked = jdbcTemplate.queryForList(
+                "SELECT id FROM stock_count WHERE id = ? FOR UPDATE", Long.class, stockCountId);
+        if (locked.isEmpty()) {
+            throw new RuntimeException("Stock count not found with ID: " + stockCountId);
+        }
+
+        StockCount count = stockCountRepository.findWithLinesById(stockCountId)
+                .orElseThrow(() -> new RuntimeException("Stock count not found with ID: " + stockCountId));
+
+        if (!count.canBePosted()) {
+            throw new RuntimeException("Stock count cannot be posted. Current status: " + count.getStatus());
+        }
+        if (count.getLines().isEmpty()) {
+            throw new RuntimeException("Stock count has no lines: " + stockCountId);
+        }
+
+        // One line per item; a second line for the same item would post two conflicting adjustments
+        Map<Long, StockCountLine> linesByItem = new LinkedHashMap<>();
+        for (StockCountLine line : count.getLines()) {
+            Long itemId = line.getItem().getId();
+            if (linesByItem.putIfAbsent(itemId, line) != null) {
+                throw new RuntimeException("Item " + line.getItem().getName() + " is counted on more than one line");
+            }
+        }
+
+        Map<Long, Integer> systemQuantities = lockQuantities(linesByItem.keySet().toArray(new Long[0]));
+
+        LocalDateTime now = LocalDateTime.now();
+        String by = postedBy != null && !postedBy.isBlank() ? postedBy : "System";
+        String reference = "CNT-" + stockCountId;
+
+        Map<Long, Integer> adjustments = new LinkedHashMap<>();
+        List<StockMovement> movements = new ArrayList<>();
+        List<InventoryVarianceDTO> variances = new ArrayList<>();
+        long totalSystem = 0;
+        long totalCounted = 0;
+        long shrinkage = 0;
+        long overage = 0;
+        BigDecimal shrinkageValue = BigDecimal.ZERO;
+        BigDecimal overageValue = BigDecimal.ZERO;
+
+        for (Map.Entry<Long, StockCountLine> entry : linesByItem.entrySet()) {
+            Long itemId = entry.getKey();
+            StockCountLine line = entry.getValue();
+            InventoryItem item = line.getItem();
+
+            Integer system = systemQuantities.get(itemId);
+            if (system == null) {
+                throw new RuntimeException("Inventory item not found with ID: " + itemId);
+            }
+            int counted = line.getCountedQty().setScale(0, RoundingMode.HALF_UP).intValueExact();
+            if (counted < 0) {
+                throw new RuntimeException("Counted quantity cannot be negative for item: " + item.getName());
+            }
+
+            // Record the quantity the variance was posted against
+            line.setSystemQty(BigDecimal.valueOf(system));
+
+            int variance = counted - system;
+            totalSystem += system;
+            totalCounted += counted;
+            if (variance == 0) {
+                continue;
+            }
+
+            BigDecimal unitCost = item.getUnitCost() != null ? item.getUnitCost() : BigDecimal.ZERO;
+            BigDecimal value = unitCost.multiply(BigDecimal.valueOf(Math.abs(variance)));
+            if (variance < 0) {
+                shrinkage += -variance;
+                shrinkageValue = shrinkageValue.add(value);
+            } else {
+                overage += variance;
+                overageValue = overageValue.add(value);
+            }
+
+            adjustments.put(itemId, counted);
+            movements.add(StockMovement.builder()
+                    .itemId(itemId)
+                    .quantity(counted)
+                    .movementType(StockCountService.MOVEMENT_TYPE_ADJUSTMENT)
+                    .reason("Stock count variance")
+                    .notes("Count " + stockCountId + ": system " + system + ", counted " + counted)
+                    .referenceNumber(reference)
+                    .referenceType("STOCK_COUNT")
+                    .performedBy(by)
+                    .createdAt(now)
+                    .requiresApproval(false)
+                    .approvalStatus("APPROVED")
+                    .approvedBy(by)
+                    .approvedAt(now)
+                    .approvalNotes("Posted from stock count " + stockCountId)
+                    .build());
+
+            variances.add(InventoryVarianceDTO.builder()
+                    .itemId(itemId)
+                    .itemName(item.getName())
+                    .expectedQuantity(BigDecimal.valueOf(system))
+                    .actualQuantity(BigDecimal.valueOf(counted))
+                    .variance(BigDecimal.valueOf(variance))
+                    .variancePercentage(system > 0
+                            ? BigDecimal.valueOf(variance * 100L).divide(BigDecimal.valueOf(system), 2, RoundingMode.HALF_UP)
+                            : BigDecimal.ZERO)
+                    .reason(variance < 0 ? "Shrinkage" : "Overage")
+                    .build());
+        }
+
+        insertMovements(movements);
+        stockReservationService.set(adjustments);
+        stockLedgerService.post(movements);
+
+        count.setStatus(StockCount.STATUS_POSTED);
+        stockCountRepository.save(count);
+
+        long elapsedNanos = System.nanoTime() - start;
+        meterRegistry.timer("trailers.stock.count.posting").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+
+        log.info("✅ Stock count {} posted: {} line(s), {} adjusted, shrinkage {} unit(s), overage {} unit(s) in {} ms",
+                stockCountId, linesByItem.size(), movements.size(), shrinkage, overage, durationMs);
+
+        return StockCountPostingResultDTO.builder()
+                .stockCountId(stockCountId)
+                .status(count.getStatus())
+                .postedBy(by)
+                .postedAt(now)
+                .linesPosted(count.getLines().size())
+                .itemsCounted(linesByItem.size())
+                .itemsAdjusted(movements.size())
+                .itemsMatched(linesByItem.size() - movements.size())
+                .totalSystemQuantity(totalSystem)
+                .totalCountedQuantity(totalCounted)
+                .netVariance(totalCounted - totalSystem)
+                .shrinkageUnits(shrinkage)
+                .overageUnits(overage)
+                .shrinkageValue(shrinkageValue)
+                .overageValue(overageValue)
+                .netVarianceValue(overageValue.subtract(shrinkageValue))
+                .durationMs(durationMs)
+                .variances(variances)
+                .build();
+    }
+
+    /**
+     * Current quantities, locked in id order until the count is posted.
+     */
+    private Map<Long, Integer> lockQuantities(Long[] itemIds) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, COALESCE(quantity, 0) AS quantity FROM inventory_item WHERE id = ANY (?) ORDER BY id FOR UPDATE",
+                rs -> { quantities.put(rs.getLong("id"), rs.getInt("quantity")); },
+                (Object) itemIds);
+        return quantities;
+    }
+
+    /**
+     * Movements go through the pooled generator, so ids come from memory and the
+     * inserts are JDBC-batched (hibernate.jdbc.batch_size); flushed so the ledger sees them.
+     */
+    private void insertMovements(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        stockMovementRepository.saveAll(movements);
+        stockMovementRepository.flush();
+    }
+}
@@ -3,10 +3,10 @@ package com.pgsa.trailers.service;
 
 import com.pgsa.trailers.dto.InventoryVarianceDTO;
 import com.pgsa.trailers.entity.inventory.InventoryItem;
-import com.pgsa.trailers.entity.inventory.InventoryLocation;
+import com.pgsa.trailers.entity.inventory.StockCount;
 import com.pgsa.trailers.entity.inventory.StockMovement;
 import com.pgsa.trailers.repository.InventoryItemRepository;
-import com.pgsa.trailers.repository.InventoryLocationRepository;
+import com.pgsa.trailers.repository.StockCountRepository;
 import com.pgsa.trailers.repository.StockMovementRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,8 +14,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.Optional;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -33,63 +37,53 @@ public class StockCountService {
     public static final String MOVEMENT_TYPE_TRANSFER = "TRANSFER";
 
     private final InventoryItemRepository inventoryItemRepository;
-    private final InventoryLocationRepository inventoryLocationRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final StockCountRepository stockCountRepository;
+    private final StockReservationService stockReservationService;
+    private final StockLedgerService stockLedgerService;
 
     /**
-     * Record a stock movement - FIXED: Use String for movement type
+     * Record an approved stock movement: quantity change plus ledger posting
      */
     public void recordStockMovement(StockMovement movement) {
         // Validate the item exists
         InventoryItem item = inventoryItemRepository.findById(movement.getItemId())
                 .orElseThrow(() -> new RuntimeException("Inventory item not found"));
 
-        // Validate location
-        InventoryLocation location = null;
-        if (item.getLocationId() != null) {
-            location = inventoryLocationRepository.findById(item.getLocationId())
-                    .orElse(null);
-        }
-
         // Get movement type as String
         String movementTypeStr = movement.getMovementType();
         if (movementTypeStr == null || movementTypeStr.trim().isEmpty()) {
             throw new RuntimeException("Movement type is required");
         }
 
-        // Set reference type and ID if needed
-        // movement.setReferenceType("STOCK_COUNT");
-        // movement.setReferenceId(1L);
-
         // Save the movement
         stockMovementRepository.save(movement);
-        
-        // Update the item quantity based on movement type
-        int currentQuantity = item.getQuantity() != null ? item.getQuantity() : 0;
+
         int quantity = movement.getQuantity();
-        
+
         // Use String constants for comparison
-        if (MOVEMENT_TYPE_IN.equals(movementTypeStr)) {
-            item.setQuantity(currentQuantity + quantity);
+        if (MOVEMENT_TYPE_IN.equals(movementTypeStr) || MOVEMENT_TYPE_RETURN.equals(movementTypeStr)) {
+            stockReservationService.release(item.getId(), quantity);
             log.info("✅ Added {} units to item {}", quantity, movement.getItemId());
         } else if (MOVEMENT_TYPE_OUT.equals(movementTypeStr)) {
-            int newQuantity = Math.max(0, currentQuantity - quantity);
-            item.setQuantity(newQuantity);
+            stockReservationService.reserve(item.getId(), quantity);
             log.info("✅ Removed {} units from item {}", quantity, movement.getItemId());
         } else if (MOVEMENT_TYPE_ADJUSTMENT.equals(movementTypeStr)) {
-            item.setQuantity(quantity);
+            stockReservationService.set(item.getId(), quantity);
             log.info("✅ Adjusted item {} to {} units", movement.getItemId(), quantity);
         } else {
             log.warn("⚠️ Unknown movement type: {}, skipping quantity update", movementTypeStr);
         }
-        
-        inventoryItemRepository.save(item);
+
+        stockLedgerService.post(List.of(movement));
         log.info("Stock movement recorded for item: {}", movement.getItemId());
     }
 
     /**
-     * Get shrinkage report
+     * Get shrinkage report: quantity explained by IN/OUT movements vs quantity on hand.
+     * The difference is what counts and adjustments had to correct.
      */
+    @Transactional(readOnly = true)
     public InventoryVarianceDTO getShrinkageReport(Long itemId) {
         InventoryItem item = inventoryItemRepository.findById(itemId)
                 .orElseThrow(() -> new RuntimeException("Item not found"));
@@ -113,77 +107,77 @@ public class StockCountService {
     }
 
     /**
-     * Calculate expected quantity based on initial stock and movements
-     * FIXED: Changed from getInitialQuantity() to getQuantity()
+     * Expected quantity on a date (end of day), from the nearest ledger snapshot
+     */
+    @Transactional(readOnly = true)
+    public int getExpectedQuantity(Long itemId, LocalDate date) {
+        return stockLedgerService.getExpectedQuantity(itemId, null, date.atTime(LocalTime.MAX));
+    }
+
+    /**
+     * Counted vs expected for every line of a stock count, expected as of the count date
+     */
+    @Transactional(readOnly = true)
+    public List<InventoryVarianceDTO> getCountVariance(Long stockCountId) {
+        StockCount count = stockCountRepository.findById(stockCountId)
+                .orElseThrow(() -> new RuntimeException("Stock count not found with ID: " + stockCountId));
+
+        List<Long> itemIds = count.getLines().stream()
+                .map(line -> line.getItem().getId())
+                .collect(Collectors.toList());
+        Map<Long, Integer> expected = stockLedgerService.getExpectedQuantities(
+                itemIds, count.getCountDate().atTime(LocalTime.MAX));
+
+        return count.getLines().stream()
+                .map(line -> {
+                    BigDecimal expectedQty = BigDecimal.valueOf(expected.getOrDefault(line.getItem().getId(), 0));
+                    BigDecimal variance = line.getCountedQty().subtract(expectedQty);
+                    BigDecimal percentage = expectedQty.signum() > 0
+                            ? variance.multiply(BigDecimal.valueOf(100)).divide(expectedQty, 2, RoundingMode.HALF_UP)
+                            : BigDecimal.ZERO;
+                    return InventoryVarianceDTO.builder()
+                            .itemId(line.getItem().getId())
+                            .itemName(line.getItem().getName())
+                            .expectedQuantity(expectedQty)
+                            .actualQuantity(line.getCountedQty())
+                            .variance(variance)
+                            .variancePercentage(percentage)
+                            .reason(variance.signum() < 0 ? "Shrinkage" : variance.signum() > 0 ? "Overage" : "Matched")
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Expected quantity from movements alone: ledger balance minus adjustments
      */
     private int calculateExpectedQuantity(InventoryItem item) {
-        // Get initial quantity - use getQuantity() as starting point
-        Integer initialQuantity = item.getQuantity() != null ? item.getQuantity() : 0;
-        
-        try {
-            // Query stock movements to calculate expected quantity
-            // Note: This assumes your StockMovement entity has itemId and quantity fields
-            // Adjust based on your actual entity structure
-            Integer totalIn = 0;
-            Integer totalOut = 0;
-            
-            // If you have a method to get movements by item ID
-            // List<StockMovement> movements = stockMovementRepository.findByItemId(item.getId());
-            // for (StockMovement m : movements) {
-            //     String type = m.getMovementType();
-            //     if (MOVEMENT_TYPE_IN.equals(type)) {
-            //         totalIn += m.getQuantity();
-            //     } else if (MOVEMENT_TYPE_OUT.equals(type)) {
-            //         totalOut += m.getQuantity();
-            //     }
-            // }
-            
-            return initialQuantity + totalIn - totalOut;
-        } catch (Exception e) {
-            log.warn("Could not calculate expected quantity from movements: {}", e.getMessage());
-            return initialQuantity;
-        }
+        Map<String, Long> totals = stockLedgerService.getTotals(item.getId());
+        return stockLedgerService.getBalance(item.getId()) - totals.get("adjustment").intValue();
     }
 
     /**
      * Get total IN movements for an item
      */
+    @Transactional(readOnly = true)
     public int getTotalInMovements(Long itemId) {
-        try {
-            // This assumes you have a method in repository
-            // return stockMovementRepository.sumQuantityByItemIdAndMovementType(itemId, MOVEMENT_TYPE_IN);
-            return 0; // Placeholder
-        } catch (Exception e) {
-            log.warn("Error getting total IN movements: {}", e.getMessage());
-            return 0;
-        }
+        return stockLedgerService.getTotals(itemId).get("in").intValue();
     }
 
     /**
      * Get total OUT movements for an item
      */
+    @Transactional(readOnly = true)
     public int getTotalOutMovements(Long itemId) {
-        try {
-            // This assumes you have a method in repository
-            // return stockMovementRepository.sumQuantityByItemIdAndMovementType(itemId, MOVEMENT_TYPE_OUT);
-            return 0; // Placeholder
-        } catch (Exception e) {
-            log.warn("Error getting total OUT movements: {}", e.getMessage());
-            return 0;
-        }
+        return stockLedgerService.getTotals(itemId).get("out").intValue();
     }
 
     /**
-     * Get total adjustment movements for an item
+     * Get total adjustment movements for an item (net change made by adjustments)
      */
+    @Transactional(readOnly = true)
     public int getTotalAdjustmentMovements(Long itemId) {
-        try {
-            // return stockMovementRepository.sumQuantityByItemIdAndMovementType(itemId, MOVEMENT_TYPE_ADJUSTMENT);
-            return 0; // Placeholder
-        } catch (Exception e) {
-            log.warn("Error getting total adjustment movements: {}", e.getMessage());
-            return 0;
-        }
+        return stockLedgerService.getTotals(itemId).get("adjustment").intValue();
     }
 
     /**
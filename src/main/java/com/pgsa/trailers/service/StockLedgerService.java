@@ -0,0 +1,365 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.entity.inventory.StockMovement;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Running-balance stock ledger per item and location.
+ *
+ * Every approved StockMovement is posted once: the balance row for its
+ * (item, location) is updated and an entry with the signed delta is appended.
+ * A daily snapshot copies the balances, so "expected quantity on date X" is the
+ * nearest snapshot before X plus the entries posted since, never a full-history scan.
+ *
+ * Location is the item's location_id (0 when unassigned). ADJUSTMENT movements set
+ * the balance; their entry stores the difference so deltas always add up.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class StockLedgerService {
+
+    public static final long NO_LOCATION = 0L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.inventory.ledger.bootstrap:true}")
+    private boolean bootstrap;
+
+    @Value("${app.inventory.ledger.snapshot-retention-days:400}")
+    private int snapshotRetentionDays;
+
+    private volatile Boolean available;
+
+    // ============================================================
+    // POSTING
+    // ============================================================
+
+    /**
+     * Post approved movements (in the order given). Call after the quantity change,
+     * inside the same transaction. Four statements regardless of the number of movements.
+     */
+    public void post(Collection<StockMovement> movements) {
+        List<StockMovement> approved = movements.stream()
+                .filter(m -> m.getApprovalStatus() == null || "APPROVED".equals(m.getApprovalStatus()))
+                .collect(Collectors.toList());
+        if (approved.isEmpty() || !isAvailable()) {
+            return;
+        }
+
+        // Movement ids must exist before they are referenced
+        entityManager.flush();
+
+        Map<Long, Long> locations = resolveLocations(approved);
+        Map<LedgerKey, Integer> balances = lockBalances(approved, locations);
+
+        List<Object[]> entries = new ArrayList<>(approved.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<LedgerKey, int[]> totals = new LinkedHashMap<>();
+
+        for (StockMovement movement : approved) {
+            LedgerKey key = new LedgerKey(movement.getItemId(), locations.get(movement.getItemId()));
+            int before = balances.get(key);
+            int after = applyMovement(before, movement);
+            int delta = after - before;
+            balances.put(key, after);
+
+            // totals: [in, out, adjustment]
+            int[] t = totals.computeIfAbsent(key, k -> new int[3]);
+            switch (movement.getMovementType()) {
+                case StockCountService.MOVEMENT_TYPE_IN, StockCountService.MOVEMENT_TYPE_RETURN -> t[0] += delta;
+                case StockCountService.MOVEMENT_TYPE_OUT -> t[1] -= delta;
+                case StockCountService.MOVEMENT_TYPE_ADJUSTMENT -> t[2] += delta;
+                default -> { }
+            }
+
+            entries.add(new Object[]{key.itemId(), key.locationId(), movement.getId(),
+                    movement.getMovementType(), delta, after, now});
+        }
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO stock_ledger_entry
+                    (item_id, location_id, movement_id, movement_type, delta, balance_after, effective_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, entries);
+
+        List<Object[]> updates = totals.entrySet().stream()
+                .map(e -> new Object[]{balances.get(e.getKey()), e.getValue()[0], e.getValue()[1],
+                        e.getValue()[2], now, e.getKey().itemId(), e.getKey().locationId()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("""
+                UPDATE stock_ledger_balance
+                SET balance = ?, total_in = total_in + ?, total_out = total_out + ?,
+                    total_adjustment = total_adjustment + ?, updated_at = ?
+                WHERE item_id = ? AND location_id = ?
+                """, updates);
+
+        log.debug("📒 Posted {} movement(s) to stock ledger", approved.size());
+    }
+
+    private int applyMovement(int balance, StockMovement movement) {
+        int quantity = movement.getQuantity() != null ? movement.getQuantity() : 0;
+        return switch (movement.getMovementType()) {
+            case StockCountService.MOVEMENT_TYPE_IN, StockCountService.MOVEMENT_TYPE_RETURN -> balance + quantity;
+            case StockCountService.MOVEMENT_TYPE_OUT -> balance - quantity;
+            case StockCountService.MOVEMENT_TYPE_ADJUSTMENT -> quantity;
+            default -> {
+                log.warn("⚠️ Movement type {} does not change the ledger balance", movement.getMovementType());
+                yield balance;
+            }
+        };
+    }
+
+    private Map<Long, Long> resolveLocations(List<StockMovement> movements) {
+        List<Long> itemIds = movements.stream().map(StockMovement::getItemId).distinct().collect(Collectors.toList());
+        Map<Long, Long> locations = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, COALESCE(location_id, 0) AS location_id FROM inventory_item WHERE id = ANY (?)",
+                rs -> { locations.put(rs.getLong("id"), rs.getLong("location_id")); },
+                (Object) itemIds.toArray(new Long[0]));
+        itemIds.forEach(id -> locations.putIfAbsent(id, NO_LOCATION));
+        return locations;
+    }
+
+    /**
+     * Open missing balance rows, then lock all touched rows in key order.
+     */
+    private Map<LedgerKey, Integer> lockBalances(List<StockMovement> movements, Map<Long, Long> locations) {
+        Map<LedgerKey, Integer> netChange = new LinkedHashMap<>();
+        for (StockMovement m : movements) {
+            LedgerKey key = new LedgerKey(m.getItemId(), locations.get(m.getItemId()));
+            int signed = switch (m.getMovementType()) {
+                case StockCountService.MOVEMENT_TYPE_IN, StockCountService.MOVEMENT_TYPE_RETURN -> m.getQuantity();
+                case StockCountService.MOVEMENT_TYPE_OUT -> -m.getQuantity();
+                default -> 0;
+            };
+            netChange.merge(key, signed, Integer::sum);
+        }
+
+        // First movement for an item: open at its quantity before this batch
+        List<Object[]> opens = netChange.entrySet().stream()
+                .map(e -> new Object[]{e.getKey().itemId(), e.getKey().locationId(), e.getValue(), e.getKey().itemId()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("""
+                WITH opened AS (
+                    INSERT INTO stock_ledger_balance (item_id, location_id, balance, updated_at)
+                    SELECT ?, ?, COALESCE(i.quantity, 0) - ?, CURRENT_TIMESTAMP FROM inventory_item i WHERE i.id = ?
+                    ON CONFLICT (item_id, location_id) DO NOTHING
+                    RETURNING item_id, location_id, balance
+                )
+                INSERT INTO stock_ledger_entry (item_id, location_id, movement_type, delta, balance_after, effective_at)
+                SELECT item_id, location_id, 'OPENING', balance, balance, CURRENT_TIMESTAMP FROM opened
+                """, opens);
+
+        Long[] itemIds = netChange.keySet().stream().map(LedgerKey::itemId).distinct().toArray(Long[]::new);
+        Map<LedgerKey, Integer> balances = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT item_id, location_id, balance FROM stock_ledger_balance
+                WHERE item_id = ANY (?)
+                ORDER BY item_id, location_id
+                FOR UPDATE
+                """,
+                rs -> {
+                    balances.put(new LedgerKey(rs.getLong("item_id"), rs.getLong("location_id")), rs.getInt("balance"));
+                },
+                (Object) itemIds);
+        netChange.keySet().forEach(key -> balances.putIfAbsent(key, 0));
+        return balances;
+    }
+
+    // ============================================================
+    // QUERIES
+    // ============================================================
+
+    /**
+     * Current ledger balance across all locations - single indexed lookup.
+     */
+    @Transactional(readOnly = true)
+    public int getBalance(Long itemId) {
+        if (!isAvailable()) {
+            return 0;
+        }
+        Integer balance = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(balance), 0) FROM stock_ledger_balance WHERE item_id = ?",
+                Integer.class, itemId);
+        return balance != null ? balance : 0;
+    }
+
+    /**
+     * Cumulative IN / OUT / ADJUSTMENT totals for an item: keys "in", "out", "adjustment".
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> getTotals(Long itemId) {
+        if (!isAvailable()) {
+            return Map.of("in", 0L, "out", 0L, "adjustment", 0L);
+        }
+        return jdbcTemplate.queryForObject("""
+                SELECT COALESCE(SUM(total_in), 0) AS total_in,
+                       COALESCE(SUM(total_out), 0) AS total_out,
+                       COALESCE(SUM(total_adjustment), 0) AS total_adjustment
+                FROM stock_ledger_balance WHERE item_id = ?
+                """,
+                (rs, rowNum) -> Map.of(
+                        "in", rs.getLong("total_in"),
+                        "out", rs.getLong("total_out"),
+                        "adjustment", rs.getLong("total_adjustment")),
+                itemId);
+    }
+
+    /**
+     * Expected quantity at a point in time: nearest snapshot at or before {@code at}
+     * plus the entries posted after it. locationId null = all locations.
+     */
+    @Transactional(readOnly = true)
+    public int getExpectedQuantity(Long itemId, Long locationId, LocalDateTime at) {
+        if (!isAvailable()) {
+            return 0;
+        }
+        Timestamp ts = Timestamp.valueOf(at);
+        Integer expected = jdbcTemplate.queryForObject("""
+                WITH snap AS (
+                    SELECT DISTINCT ON (location_id) location_id, balance, last_entry_id
+                    FROM stock_ledger_snapshot
+                    WHERE item_id = ? AND snapshot_at <= ? AND (?::bigint IS NULL OR location_id = ?)
+                    ORDER BY location_id, snapshot_at DESC
+                )
+                SELECT COALESCE(SUM(q), 0) FROM (
+                    SELECT balance AS q FROM snap
+                    UNION ALL
+                    SELECT e.delta FROM stock_ledger_entry e
+                    LEFT JOIN snap s ON s.location_id = e.location_id
+                    WHERE e.item_id = ? AND e.effective_at <= ?
+                      AND (?::bigint IS NULL OR e.location_id = ?)
+                      AND e.id > COALESCE(s.last_entry_id, 0)
+                ) x
+                """, Integer.class, itemId, ts, locationId, locationId, itemId, ts, locationId, locationId);
+        return expected != null ? expected : 0;
+    }
+
+    /**
+     * Same as {@link #getExpectedQuantity} for many items in one statement (count sheets).
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> getExpectedQuantities(Collection<Long> itemIds, LocalDateTime at) {
+        Map<Long, Integer> expected = new HashMap<>();
+        if (itemIds.isEmpty() || !isAvailable()) {
+            return expected;
+        }
+        Long[] ids = itemIds.stream().distinct().toArray(Long[]::new);
+        Timestamp ts = Timestamp.valueOf(at);
+        jdbcTemplate.query("""
+                WITH snap AS (
+                    SELECT DISTINCT ON (item_id, location_id) item_id, location_id, balance, last_entry_id
+                    FROM stock_ledger_snapshot
+                    WHERE item_id = ANY (?) AND snapshot_at <= ?
+                    ORDER BY item_id, location_id, snapshot_at DESC
+                )
+                SELECT item_id, COALESCE(SUM(q), 0) AS expected FROM (
+                    SELECT item_id, balance AS q FROM snap
+                    UNION ALL
+                    SELECT e.item_id, e.delta FROM stock_ledger_entry e
+                    LEFT JOIN snap s ON s.item_id = e.item_id AND s.location_id = e.location_id
+                    WHERE e.item_id = ANY (?) AND e.effective_at <= ?
+                      AND e.id > COALESCE(s.last_entry_id, 0)
+                ) x
+                GROUP BY item_id
+                """,
+                rs -> { expected.put(rs.getLong("item_id"), rs.getInt("expected")); },
+                ids, ts, ids, ts);
+        for (Long id : ids) {
+            expected.putIfAbsent(id, 0);
+        }
+        return expected;
+    }
+
+    // ============================================================
+    // SNAPSHOTS & BOOTSTRAP
+    // ============================================================
+
+    /**
+     * Copy every balance into a snapshot. last_entry_id is read in the same statement,
+     * so it matches exactly what the copied balance includes.
+     */
+    @Scheduled(cron = "${app.inventory.ledger.snapshot-cron:0 5 0 * * *}")
+    public void takeSnapshot() {
+        if (!isAvailable()) {
+            return;
+        }
+        int rows = jdbcTemplate.update("""
+                INSERT INTO stock_ledger_snapshot
+                    (snapshot_at, item_id, location_id, balance, total_in, total_out, total_adjustment, last_entry_id)
+                SELECT CURRENT_TIMESTAMP, b.item_id, b.location_id, b.balance, b.total_in, b.total_out, b.total_adjustment,
+                       COALESCE((SELECT MAX(e.id) FROM stock_ledger_entry e
+                                 WHERE e.item_id = b.item_id AND e.location_id = b.location_id), 0)
+                FROM stock_ledger_balance b
+                """);
+        int pruned = jdbcTemplate.update(
+                "DELETE FROM stock_ledger_snapshot WHERE snapshot_at < CURRENT_TIMESTAMP - make_interval(days => ?)",
+                snapshotRetentionDays);
+        log.info("📒 Stock ledger snapshot taken: {} balance(s), {} old snapshot row(s) pruned", rows, pruned);
+    }
+
+    /**
+     * Open a balance for every item that has none yet, at its current quantity. Idempotent.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void openMissingBalances() {
+        if (!bootstrap || !isAvailable()) {
+            return;
+        }
+        int opened = jdbcTemplate.update("""
+                WITH opened AS (
+                    INSERT INTO stock_ledger_balance (item_id, location_id, balance, updated_at)
+                    SELECT id, COALESCE(location_id, 0), COALESCE(quantity, 0), CURRENT_TIMESTAMP FROM inventory_item
+                    ON CONFLICT (item_id, location_id) DO NOTHING
+                    RETURNING item_id, location_id, balance
+                )
+                INSERT INTO stock_ledger_entry (item_id, location_id, movement_type, delta, balance_after, effective_at)
+                SELECT item_id, location_id, 'OPENING', balance, balance, CURRENT_TIMESTAMP FROM opened
+                """);
+        if (opened > 0) {
+            log.info("📒 Opened stock ledger balances for {} item(s)", opened);
+        }
+    }
+
+    /**
+     * The ledger tables are created by SchemaBootstrap; until they exist, posting is skipped
+     * rather than failing stock issues.
+     */
+    private boolean isAvailable() {
+        if (available == null) {
+            available = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT to_regclass('stock_ledger_entry') IS NOT NULL", Boolean.class));
+            if (!available) {
+                log.warn("⚠️ Stock ledger tables not found - ledger posting disabled until restart");
+            }
+        }
+        return available;
+    }
+
+    private record LedgerKey(Long itemId, Long locationId) { }
+}
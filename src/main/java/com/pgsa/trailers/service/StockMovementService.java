@@ -1,5 +1,7 @@
 package com.pgsa.trailers.service;
 
+import com.pgsa.trailers.dto.StockMovementBatchResultDTO;
+import com.pgsa.trailers.dto.StockMovementBatchResultDTO.MovementOutcome;
 import com.pgsa.trailers.dto.StockMovementRequestDTO;
 import com.pgsa.trailers.dto.StockMovementResponseDTO;
 import com.pgsa.trailers.entity.inventory.InventoryItem;
@@ -7,18 +9,27 @@ import com.pgsa.trailers.entity.inventory.StockMovement;
 import com.pgsa.trailers.entity.InsufficientStockException;
 import com.pgsa.trailers.repository.InventoryItemRepository;
 import com.pgsa.trailers.repository.StockMovementRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,6 +43,12 @@ public class StockMovementService {
 
     private final StockMovementRepository stockMovementRepository;
     private final InventoryItemRepository inventoryItemRepository;
+    private final StockReservationService stockReservationService;
+    private final StockLedgerService stockLedgerService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     /**
      * Record a new stock movement with validation
@@ -147,6 +164,7 @@ public class StockMovementService {
             log.info("Movement approved immediately, updating inventory...");
             try {
                 updateInventoryQuantity(movement);
+                stockLedgerService.post(List.of(saved));
                 log.info("✅ Inventory updated successfully for item: {}", item.getName());
             } catch (Exception e) {
                 log.error("❌ Failed to update inventory: {}", e.getMessage());
@@ -250,31 +268,16 @@ public class StockMovementService {
             throw new RuntimeException("Movement is not in pending status. Current status: " + movement.getApprovalStatus());
         }
         
-        // For OUT movements, check stock again before approving
-        if ("OUT".equals(movement.getMovementType())) {
-            InventoryItem item = inventoryItemRepository.findById(movement.getItemId())
-                    .orElseThrow(() -> new RuntimeException("Item not found"));
-            
-            int currentQuantity = item.getQuantity() != null ? item.getQuantity() : 0;
-            if (currentQuantity < movement.getQuantity()) {
-                throw new InsufficientStockException(
-                    "Cannot approve: Insufficient stock for " + item.getName() + 
-                    ". Available: " + currentQuantity + 
-                    ", Requested: " + movement.getQuantity() +
-                    ". Stock may have been consumed while waiting for approval."
-                );
-            }
-        }
-        
         movement.setApprovalStatus("APPROVED");
         movement.setApprovedBy(approvedBy);
         movement.setApprovedAt(LocalDateTime.now());
         movement.setApprovalNotes(notes);
         
-        // Update inventory quantity when approved
+        // Update inventory quantity when approved (OUT fails atomically if stock was consumed while pending)
         updateInventoryQuantity(movement);
         
         StockMovement updated = stockMovementRepository.save(movement);
+        stockLedgerService.post(List.of(updated));
         log.info("✅ Movement {} approved by: {} - Inventory updated", id, approvedBy);
         return mapToResponseDTO(updated);
     }
@@ -303,6 +306,236 @@ public class StockMovementService {
         return mapToResponseDTO(updated);
     }
 
+    /**
+     * Approve many pending movements at once.
+     *
+     * Movements are claimed with one UPDATE (so two approvers cannot both apply the same one),
+     * grouped by item and replayed in id order on the item's locked quantity; each item's final
+     * quantity is then written in one batched update. If an OUT would take an item below zero
+     * at its point in the sequence, or the item no longer exists, all of that item's movements
+     * stay PENDING and are reported as FAILED; other items are still approved.
+     */
+    @Transactional
+    public StockMovementBatchResultDTO approveMovements(List<Long> movementIds, String approvedBy, String notes) {
+        log.info("Batch approving {} movement(s) by {}", movementIds.size(), approvedBy);
+
+        Map<Long, MovementOutcome> outcomes = new LinkedHashMap<>();
+        Map<Long, StockMovement> pending = loadPending(movementIds, outcomes);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> claimed = pending.isEmpty() ? List.of() : jdbcTemplate.queryForList("""
+                UPDATE stock_movement
+                SET approval_status = 'APPROVED', approved_by = ?, approved_at = ?, approval_notes = ?
+                WHERE id = ANY (?) AND approval_status = 'PENDING'
+                RETURNING id
+                """, Long.class, approvedBy, Timestamp.valueOf(now), notes, pending.keySet().toArray(new Long[0]));
+        markUnclaimed(pending, claimed, outcomes);
+
+        // Group by item, in movement id order so an ADJUSTMENT resets what came before it
+        Map<Long, List<StockMovement>> byItem = new TreeMap<>();
+        claimed.stream().sorted().forEach(id -> {
+            StockMovement m = pending.get(id);
+            byItem.computeIfAbsent(m.getItemId(), k -> new ArrayList<>()).add(m);
+        });
+
+        // Lock the items (id order, like StockReservationService) and replay each item's
+        // movements on its current quantity, so every OUT is checked against the running balance
+        Map<Long, Object[]> items = loadItems(byItem.keySet(), true);
+        Map<Long, Integer> balances = new HashMap<>();
+        Map<Long, String> failedItems = new HashMap<>();
+        byItem.forEach((itemId, movements) -> {
+            Object[] item = items.get(itemId);
+            if (item == null) {
+                failedItems.put(itemId, "Inventory item not found with ID: " + itemId);
+                return;
+            }
+            int balance = (Integer) item[1];
+            for (StockMovement m : movements) {
+                switch (m.getMovementType()) {
+                    case "IN" -> balance += m.getQuantity();
+                    case "OUT" -> {
+                        if (balance < m.getQuantity()) {
+                            failedItems.put(itemId, "Insufficient stock for item: " + item[0]
+                                    + ". Available: " + balance + ", required: " + m.getQuantity()
+                                    + " (movement " + m.getId() + ")");
+                            return;
+                        }
+                        balance -= m.getQuantity();
+                    }
+                    case "ADJUSTMENT" -> balance = m.getQuantity();
+                    default -> { }
+                }
+            }
+            balances.put(itemId, balance);
+        });
+
+        stockReservationService.set(balances);
+
+        List<StockMovement> approved = new ArrayList<>();
+        List<Long> reverted = new ArrayList<>();
+        byItem.forEach((itemId, movements) -> {
+            for (StockMovement m : movements) {
+                if (failedItems.containsKey(itemId)) {
+                    reverted.add(m.getId());
+                    outcomes.put(m.getId(), outcome(m, StockMovementBatchResultDTO.OUTCOME_FAILED,
+                            failedItems.get(itemId)));
+                } else {
+                    m.setApprovalStatus("APPROVED");
+                    m.setApprovedBy(approvedBy);
+                    m.setApprovedAt(now);
+                    m.setApprovalNotes(notes);
+                    approved.add(m);
+                    outcomes.put(m.getId(), outcome(m, StockMovementBatchResultDTO.OUTCOME_APPROVED, null));
+                }
+            }
+        });
+
+        // Items without enough stock: give their movements back to the queue
+        if (!reverted.isEmpty()) {
+            jdbcTemplate.update("""
+                    UPDATE stock_movement
+                    SET approval_status = 'PENDING', approved_by = NULL, approved_at = NULL, approval_notes = NULL
+                    WHERE id = ANY (?)
+                    """, (Object) reverted.toArray(new Long[0]));
+        }
+
+        stockLedgerService.post(approved);
+
+        StockMovementBatchResultDTO result = toBatchResult("APPROVE", movementIds.size(), outcomes, items);
+        log.info("✅ Batch approval by {}: {} approved, {} failed, {} skipped",
+                approvedBy, result.getSucceeded(), result.getFailed(), result.getSkipped());
+        return result;
+    }
+
+    /**
+     * Reject many pending movements with one UPDATE. Stock is not touched.
+     */
+    @Transactional
+    public StockMovementBatchResultDTO rejectMovements(List<Long> movementIds, String rejectedBy, String reason) {
+        log.info("Batch rejecting {} movement(s) by {}", movementIds.size(), rejectedBy);
+
+        Map<Long, MovementOutcome> outcomes = new LinkedHashMap<>();
+        Map<Long, StockMovement> pending = loadPending(movementIds, outcomes);
+
+        List<Long> claimed = pending.isEmpty() ? List.of() : jdbcTemplate.queryForList("""
+                UPDATE stock_movement
+                SET approval_status = 'REJECTED', rejected_by = ?, rejected_at = ?, rejection_reason = ?
+                WHERE id = ANY (?) AND approval_status = 'PENDING'
+                RETURNING id
+                """, Long.class, rejectedBy, Timestamp.valueOf(LocalDateTime.now()), reason,
+                pending.keySet().toArray(new Long[0]));
+        markUnclaimed(pending, claimed, outcomes);
+        claimed.forEach(id -> outcomes.put(id,
+                outcome(pending.get(id), StockMovementBatchResultDTO.OUTCOME_REJECTED, reason)));
+
+        Set<Long> itemIds = new HashSet<>();
+        pending.values().forEach(m -> itemIds.add(m.getItemId()));
+        StockMovementBatchResultDTO result = toBatchResult("REJECT", movementIds.size(), outcomes, loadItems(itemIds));
+        log.info("❌ Batch rejection by {}: {} rejected, {} skipped", rejectedBy, result.getSucceeded(), result.getSkipped());
+        return result;
+    }
+
+    /**
+     * One query for all requested movements. Missing or non-pending ones are recorded as SKIPPED.
+     * The rest are detached: their status is changed with JDBC, not by dirty checking.
+     */
+    private Map<Long, StockMovement> loadPending(List<Long> movementIds, Map<Long, MovementOutcome> outcomes) {
+        Map<Long, StockMovement> found = new HashMap<>();
+        stockMovementRepository.findAllById(movementIds).forEach(m -> {
+            entityManager.detach(m);
+            found.put(m.getId(), m);
+        });
+
+        Map<Long, StockMovement> pending = new LinkedHashMap<>();
+        for (Long id : movementIds) {
+            if (id == null || outcomes.containsKey(id)) {
+                continue;
+            }
+            StockMovement m = found.get(id);
+            if (m == null) {
+                outcomes.put(id, MovementOutcome.builder()
+                        .movementId(id)
+                        .outcome(StockMovementBatchResultDTO.OUTCOME_SKIPPED)
+                        .message("Stock movement not found with ID: " + id)
+                        .build());
+            } else if (!"PENDING".equals(m.getApprovalStatus())) {
+                outcomes.put(id, outcome(m, StockMovementBatchResultDTO.OUTCOME_SKIPPED,
+                        "Movement is not in pending status. Current status: " + m.getApprovalStatus()));
+            } else {
+                // Placeholder keeps the caller's order; replaced once the outcome is known
+                outcomes.put(id, null);
+                pending.put(id, m);
+            }
+        }
+        return pending;
+    }
+
+    private void markUnclaimed(Map<Long, StockMovement> pending, List<Long> claimed, Map<Long, MovementOutcome> outcomes) {
+        Set<Long> claimedIds = new HashSet<>(claimed);
+        pending.forEach((id, m) -> {
+            if (!claimedIds.contains(id)) {
+                outcomes.put(id, outcome(m, StockMovementBatchResultDTO.OUTCOME_SKIPPED,
+                        "Movement was processed by another user"));
+            }
+        });
+    }
+
+    /**
+     * Item name and current quantity for every item in the batch: [name, quantity].
+     */
+    private Map<Long, Object[]> loadItems(Set<Long> itemIds) {
+        return loadItems(itemIds, false);
+    }
+
+    private Map<Long, Object[]> loadItems(Set<Long> itemIds, boolean lock) {
+        Map<Long, Object[]> items = new HashMap<>();
+        if (itemIds.isEmpty()) {
+            return items;
+        }
+        jdbcTemplate.query("SELECT id, name, COALESCE(quantity, 0) AS quantity FROM inventory_item WHERE id = ANY (?)"
+                        + (lock ? " ORDER BY id FOR UPDATE" : ""),
+                rs -> { items.put(rs.getLong("id"), new Object[]{rs.getString("name"), rs.getInt("quantity")}); },
+                (Object) itemIds.toArray(new Long[0]));
+        return items;
+    }
+
+    private MovementOutcome outcome(StockMovement m, String outcome, String message) {
+        return MovementOutcome.builder()
+                .movementId(m.getId())
+                .itemId(m.getItemId())
+                .movementType(m.getMovementType())
+                .quantity(m.getQuantity())
+                .outcome(outcome)
+                .message(message)
+                .build();
+    }
+
+    private StockMovementBatchResultDTO toBatchResult(String action, int requested,
+                                                      Map<Long, MovementOutcome> outcomes, Map<Long, Object[]> items) {
+        List<MovementOutcome> list = new ArrayList<>(outcomes.values());
+        int succeeded = 0;
+        int failed = 0;
+        int skipped = 0;
+        for (MovementOutcome o : list) {
+            if (o.getItemId() != null && items.containsKey(o.getItemId())) {
+                o.setItemName((String) items.get(o.getItemId())[0]);
+            }
+            switch (o.getOutcome()) {
+                case StockMovementBatchResultDTO.OUTCOME_FAILED -> failed++;
+                case StockMovementBatchResultDTO.OUTCOME_SKIPPED -> skipped++;
+                default -> succeeded++;
+            }
+        }
+        return StockMovementBatchResultDTO.builder()
+                .action(action)
+                .requested(requested)
+                .succeeded(succeeded)
+                .failed(failed)
+                .skipped(skipped)
+                .outcomes(list)
+                .build();
+    }
+
     /**
      * Get movement statistics
      */
@@ -353,50 +586,39 @@ public class StockMovementService {
      * Update inventory quantity based on movement
      */
     private void updateInventoryQuantity(StockMovement movement) {
-        InventoryItem item = inventoryItemRepository.findById(movement.getItemId())
-                .orElseThrow(() -> new RuntimeException("Item not found with ID: " + movement.getItemId()));
-        
-        int currentQuantity = item.getQuantity() != null ? item.getQuantity() : 0;
+        Long itemId = movement.getItemId();
         int newQuantity;
         
         switch (movement.getMovementType()) {
             case "IN":
-                newQuantity = currentQuantity + movement.getQuantity();
-                log.info("Adding {} units to item {}. Current: {}, New: {}", 
-                        movement.getQuantity(), item.getName(), currentQuantity, newQuantity);
+                newQuantity = stockReservationService.release(itemId, movement.getQuantity());
+                log.info("Added {} units to item {}. New: {}", movement.getQuantity(), itemId, newQuantity);
                 break;
             case "OUT":
-                if (currentQuantity < movement.getQuantity()) {
-                    throw new InsufficientStockException(
-                        "Insufficient stock for " + item.getName() + 
-                        ". Available: " + currentQuantity + 
-                        ", Requested: " + movement.getQuantity()
-                    );
-                }
-                newQuantity = currentQuantity - movement.getQuantity();
-                log.info("Removing {} units from item {}. Current: {}, New: {}", 
-                        movement.getQuantity(), item.getName(), currentQuantity, newQuantity);
+                // Conditional decrement: throws InsufficientStockException instead of going negative
+                newQuantity = stockReservationService.reserve(itemId, movement.getQuantity());
+                log.info("Removed {} units from item {}. New: {}", movement.getQuantity(), itemId, newQuantity);
                 
                 // Check if stock is now below minimum
-                if (item.getMinLevel() != null && newQuantity <= item.getMinLevel()) {
-                    log.warn("⚠️ Stock for item {} is now at {} (Min: {})", 
-                            item.getName(), newQuantity, item.getMinLevel());
+                Integer minLevel = inventoryItemRepository.findById(itemId)
+                        .map(InventoryItem::getMinLevel)
+                        .orElse(null);
+                if (minLevel != null && newQuantity <= minLevel) {
+                    log.warn("⚠️ Stock for item {} is now at {} (Min: {})", itemId, newQuantity, minLevel);
                 }
                 if (newQuantity <= 0) {
-                    log.warn("🔥 Item {} is now OUT OF STOCK!", item.getName());
+                    log.warn("🔥 Item {} is now OUT OF STOCK!", itemId);
                 }
                 break;
             case "ADJUSTMENT":
-                newQuantity = movement.getQuantity();
-                log.info("Adjusting item {} quantity to: {}", item.getName(), newQuantity);
+                newQuantity = stockReservationService.set(itemId, movement.getQuantity());
+                log.info("Adjusted item {} quantity to: {}", itemId, newQuantity);
                 break;
             default:
                 throw new RuntimeException("Invalid movement type: " + movement.getMovementType());
         }
         
-        item.setQuantity(newQuantity);
-        inventoryItemRepository.save(item);
-        log.info("✅ Updated quantity for item {} to: {}", item.getId(), newQuantity);
+        log.info("✅ Updated quantity for item {} to: {}", itemId, newQuantity);
     }
 
     /**
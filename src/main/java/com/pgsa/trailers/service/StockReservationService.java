@@ -0,0 +1,319 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.dto.StockContentionDTO;
+import com.pgsa.trailers.entity.InsufficientStockException;
+import com.pgsa.trailers.entity.inventory.StockLevelChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Atomic stock quantity changes for inventory_item.
+ *
+ * Quantities are changed in the database with conditional UPDATEs
+ * (quantity = quantity - ? WHERE quantity >= ?) instead of read-modify-save,
+ * so concurrent issues never lose updates and only hold the row lock for the
+ * statement. Multi-line requests go out as one JDBC batch in item-id order
+ * (consistent lock order, no deadlocks between overlapping requests); if any
+ * line cannot be satisfied the caller's transaction is rolled back, so a
+ * request is applied all-or-nothing.
+ */
+@Slf4j
+@Service
+@Transactional
+public class StockReservationService {
+
+    private static final String DECREMENT_SQL =
+            "UPDATE inventory_item SET quantity = quantity - ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ? AND quantity >= ?";
+
+    private static final String INCREMENT_SQL =
+            "UPDATE inventory_item SET quantity = COALESCE(quantity, 0) + ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, ItemContention> contention = new ConcurrentHashMap<>();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.inventory.reservation.slow-threshold-ms:50}")
+    private long slowThresholdMs;
+
+    public StockReservationService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // ============================================================
+    // BATCH OPERATIONS
+    // ============================================================
+
+    /**
+     * Take stock for every line or none of them. Duplicate item ids are merged.
+     *
+     * @throws InsufficientStockException if an item is missing or short; the transaction is rolled back
+     */
+    public void reserve(Map<Long, Integer> quantities) {
+        Map<Long, Integer> lines = normalize(quantities);
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        int[] counts = execute("reserve", lines, DECREMENT_SQL, (id, qty) -> new Object[]{qty, id, qty});
+
+        List<Long> failed = new ArrayList<>();
+        int i = 0;
+        for (Long itemId : lines.keySet()) {
+            if (counts[i++] == 0) {
+                failed.add(itemId);
+            }
+        }
+
+        if (!failed.isEmpty()) {
+            failed.forEach(id -> contention(id).rejected.incrementAndGet());
+            meterRegistry.counter("trailers.stock.reservation.rejected").increment(failed.size());
+            throw shortage(failed, lines);
+        }
+
+        log.info("📦 Reserved stock for {} item(s)", lines.size());
+    }
+
+    /**
+     * Put stock back (returns, approved IN movements). Unconditional, but still atomic.
+     */
+    public void release(Map<Long, Integer> quantities) {
+        Map<Long, Integer> lines = normalize(quantities);
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        int[] counts = execute("release", lines, INCREMENT_SQL, (id, qty) -> new Object[]{qty, id});
+
+        int i = 0;
+        for (Long itemId : lines.keySet()) {
+            if (counts[i++] == 0) {
+                throw new RuntimeException("Item not found: " + itemId);
+            }
+        }
+
+        log.info("📦 Released stock for {} item(s)", lines.size());
+    }
+
+    /**
+     * Absolute set for many items in one batch (stock count posting).
+     */
+    public void set(Map<Long, Integer> quantities) {
+        Map<Long, Integer> lines = new TreeMap<>();
+        quantities.forEach((itemId, qty) -> {
+            if (itemId == null) {
+                throw new RuntimeException("Item ID is required");
+            }
+            if (qty == null || qty < 0) {
+                throw new RuntimeException("Quantity cannot be negative for item: " + itemId);
+            }
+            lines.put(itemId, qty);
+        });
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        int[] counts = execute("set", lines,
+                "UPDATE inventory_item SET quantity = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+                (id, qty) -> new Object[]{qty, id});
+
+        int i = 0;
+        for (Long itemId : lines.keySet()) {
+            if (counts[i++] == 0) {
+                throw new RuntimeException("Item not found: " + itemId);
+            }
+        }
+
+        log.info("📦 Set stock for {} item(s)", lines.size());
+    }
+
+    // ============================================================
+    // SINGLE-ITEM OPERATIONS (return the new quantity)
+    // ============================================================
+
+    public int reserve(Long itemId, int quantity) {
+        reserve(Map.of(itemId, quantity));
+        return currentQuantity(itemId);
+    }
+
+    public int release(Long itemId, int quantity) {
+        release(Map.of(itemId, quantity));
+        return currentQuantity(itemId);
+    }
+
+    /**
+     * Absolute set (stock count adjustments, manual SET).
+     */
+    public int set(Long itemId, int quantity) {
+        if (quantity < 0) {
+            throw new RuntimeException("Quantity cannot be negative");
+        }
+        entityManager.flush();
+        int updated = jdbcTemplate.update(
+                "UPDATE inventory_item SET quantity = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+                quantity, itemId);
+        if (updated == 0) {
+            throw new RuntimeException("Item not found: " + itemId);
+        }
+        eventPublisher.publishEvent(new StockLevelChangedEvent(List.of(itemId)));
+        return quantity;
+    }
+
+    // ============================================================
+    // CONTENTION METRICS
+    // ============================================================
+
+    /**
+     * Per-item contention, busiest items first.
+     */
+    @Transactional(readOnly = true)
+    public List<StockContentionDTO> getContention(int limit) {
+        return contention.entrySet().stream()
+                .map(e -> e.getValue().toDTO(e.getKey()))
+                .sorted(Comparator.comparing(StockContentionDTO::getSlowUpdates)
+                        .thenComparing(StockContentionDTO::getRejected)
+                        .thenComparing(StockContentionDTO::getReservations)
+                        .reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // ============================================================
+    // INTERNALS
+    // ============================================================
+
+    private int[] execute(String operation, Map<Long, Integer> lines, String sql, LineBinder binder) {
+        // Push pending entity changes first so JDBC and Hibernate see the same rows
+        entityManager.flush();
+
+        List<Object[]> args = new ArrayList<>(lines.size());
+        lines.forEach((id, qty) -> args.add(binder.bind(id, qty)));
+
+        long start = System.nanoTime();
+        int[] counts = jdbcTemplate.batchUpdate(sql, args);
+        long elapsedNanos = System.nanoTime() - start;
+
+        Timer.builder("trailers.stock.reservation")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        // Row-lock waits show up as statement latency on the items in the batch
+        boolean slow = TimeUnit.NANOSECONDS.toMillis(elapsedNanos) >= slowThresholdMs;
+        for (Long itemId : lines.keySet()) {
+            contention(itemId).record(elapsedNanos, slow);
+        }
+        if (slow) {
+            log.warn("⚠️ Slow stock {} of {} item(s): {} ms", operation, lines.size(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        }
+
+        // Delivered after commit; a rolled-back reservation never reaches the alert index
+        eventPublisher.publishEvent(new StockLevelChangedEvent(lines.keySet()));
+        return counts;
+    }
+
+    private Map<Long, Integer> normalize(Map<Long, Integer> quantities) {
+        // TreeMap: merged lines in ascending id order = consistent lock order
+        Map<Long, Integer> lines = new TreeMap<>();
+        quantities.forEach((itemId, qty) -> {
+            if (itemId == null) {
+                throw new RuntimeException("Item ID is required");
+            }
+            if (qty == null || qty <= 0) {
+                throw new RuntimeException("Quantity must be positive for item: " + itemId);
+            }
+            lines.merge(itemId, qty, Integer::sum);
+        });
+        return lines;
+    }
+
+    private InsufficientStockException shortage(List<Long> failed, Map<Long, Integer> lines) {
+        Long itemId = failed.get(0);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT name, quantity FROM inventory_item WHERE id = ?", itemId);
+        if (rows.isEmpty()) {
+            return new InsufficientStockException("Item not found: " + itemId);
+        }
+
+        String name = (String) rows.get(0).get("name");
+        Number available = (Number) rows.get(0).get("quantity");
+        int availableQty = available != null ? available.intValue() : 0;
+        int requested = lines.get(itemId);
+        String more = failed.size() > 1 ? " (and " + (failed.size() - 1) + " more item(s))" : "";
+        return new InsufficientStockException(
+                "Insufficient stock for item: " + name + ". Available: " + availableQty +
+                        ", Requested: " + requested + more,
+                itemId, name, availableQty, requested);
+    }
+
+    private int currentQuantity(Long itemId) {
+        Integer quantity = jdbcTemplate.queryForObject(
+                "SELECT quantity FROM inventory_item WHERE id = ?", Integer.class, itemId);
+        return quantity != null ? quantity : 0;
+    }
+
+    private ItemContention contention(Long itemId) {
+        return contention.computeIfAbsent(itemId, id -> new ItemContention());
+    }
+
+    @FunctionalInterface
+    private interface LineBinder {
+        Object[] bind(Long itemId, Integer quantity);
+    }
+
+    private static class ItemContention {
+        final AtomicLong reservations = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong slowUpdates = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean slow) {
+            reservations.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            if (slow) {
+                slowUpdates.incrementAndGet();
+            }
+        }
+
+        StockContentionDTO toDTO(Long itemId) {
+            long count = reservations.get();
+            return StockContentionDTO.builder()
+                    .itemId(itemId)
+                    .reservations(count)
+                    .rejected(rejected.get())
+                    .slowUpdates(slowUpdates.get())
+                    .averageUpdateMs(count > 0 ? totalNanos.get() / (double) count / 1_000_000 : 0.0)
+                    .maxUpdateMs(maxNanos.get() / 1_000_000.0)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,690 @@
+package com.pgsa.trailers.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pgsa.trailers.dto.PunchPipelineStatsDTO;
+import com.pgsa.trailers.dto.PunchRequestDTO;
+import com.pgsa.trailers.entity.assets.Driver;
+import com.pgsa.trailers.entity.attendance.TimesheetEntry;
+import com.pgsa.trailers.repository.TimesheetEntryRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Punch clock pipeline.
+ *
+ * Each driver's punch state (off duty / clocked in / on break, plus the open timesheet
+ * entry) is held in memory, so a punch is validated without loading the Driver or
+ * TimesheetEntry entities. Accepted punches go onto a queue; a single writer thread
+ * drains it and writes each batch in one transaction with grouped JDBC statements.
+ * The caller is answered only after its batch has committed, so an acknowledged punch
+ * is durable, and concurrent punches share one commit.
+ *
+ * Retries are idempotent. A client request_id (or Idempotency-Key header) returns
+ * the original result, in memory or from timesheet_punch after a restart. Without a
+ * key, repeating the driver's last punch within the retry window returns that punch
+ * instead of failing. Entry updates are conditional on the stored punch_status; on a
+ * mismatch the driver's state is reloaded and the punch is rejected.
+ */
+@Slf4j
+@Service
+public class TimesheetPunchService {
+
+    public static final String CLOCK_IN = "CLOCK_IN";
+    public static final String BREAK_START = "BREAK_START";
+    public static final String BREAK_END = "BREAK_END";
+    public static final String CLOCK_OUT = "CLOCK_OUT";
+
+    private static final Set<String> PUNCH_TYPES = Set.of(CLOCK_IN, BREAK_START, BREAK_END, CLOCK_OUT);
+    private static final String PUNCH_CLOCKED_IN = "CLOCKED_IN";
+    private static final String PUNCH_ON_BREAK = "ON_BREAK";
+    private static final String PUNCH_CLOCKED_OUT = "CLOCKED_OUT";
+    private static final String DEFAULT_ACTIVITY = "DRIVING";
+    private static final int ID_BLOCK_SIZE = 50;
+
+    // Each driver with their open entry, if any
+    private static final String STATE_SQL = """
+            SELECT d.id AS driver_id, e.id AS entry_id, e.entry_date, e.start_time, e.clock_in_time,
+                   e.break_start_time, e.break_duration, e.punch_status, e.activity_type,
+                   e.punch_location, e.punch_latitude, e.punch_longitude
+            FROM driver d
+            LEFT JOIN LATERAL (
+                SELECT * FROM timesheet_entries t
+                WHERE t.driver_id = d.id AND t.punch_status IN ('CLOCKED_IN', 'ON_BREAK')
+                ORDER BY t.clock_in_time DESC
+                LIMIT 1
+            ) e ON true
+            """;
+
+    private static final String INSERT_ENTRY_SQL = """
+            INSERT INTO timesheet_entries
+                (id, driver_id, entry_date, start_time, clock_in_time, break_duration, activity_type, status,
+                 punch_status, punch_location, punch_latitude, punch_longitude, is_active, version, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, 0, ?, 'ACTIVE', 'CLOCKED_IN', ?, ?, ?, true, 0, ?, ?)
+            """;
+
+    private static final String BREAK_START_SQL = """
+            UPDATE timesheet_entries SET break_start_time = ?, punch_status = 'ON_BREAK',
+                version = COALESCE(version, 0) + 1, updated_at = ?
+            WHERE id = ? AND punch_status = 'CLOCKED_IN'
+            """;
+
+    private static final String BREAK_END_SQL = """
+            UPDATE timesheet_entries SET break_end_time = ?, break_duration = ?, punch_status = 'CLOCKED_IN',
+                version = COALESCE(version, 0) + 1, updated_at = ?
+            WHERE id = ? AND punch_status = 'ON_BREAK'
+            """;
+
+    private static final String CLOCK_OUT_SQL = """
+            UPDATE timesheet_entries SET end_time = ?, clock_out_time = ?, break_end_time = COALESCE(?, break_end_time),
+                break_duration = ?, total_hours = ?, punch_status = 'CLOCKED_OUT', is_active = false,
+                version = COALESCE(version, 0) + 1, updated_at = ?
+            WHERE id = ? AND punch_status IN ('CLOCKED_IN', 'ON_BREAK')
+            """;
+
+    // Only the punch columns; the rest of the driver row is left alone
+    private static final String DRIVER_SQL = """
+            UPDATE driver SET current_status = ?, last_clock_in = COALESCE(?, last_clock_in),
+                last_clock_out = COALESCE(?, last_clock_out), version = COALESCE(version, 0) + 1, updated_at = ?
+            WHERE id = ?
+            """;
+
+    private static final String PUNCH_LOG_SQL = """
+            INSERT INTO timesheet_punch (request_id, driver_id, punch_type, entry_id, punched_at, location, latitude, longitude)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (request_id) DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TimesheetEntryRepository timesheetEntryRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate writeTransaction;
+    private final Timer punchTimer;
+    private final DistributionSummary batchSizes;
+
+    private final Map<Long, PunchState> states = new ConcurrentHashMap<>();
+    private final Deque<Long> entryIds = new ArrayDeque<>();
+    private BlockingQueue<Punch> queue;
+    private Cache<String, CompletableFuture<TimesheetEntry>> requests;
+    private Thread writer;
+    private volatile boolean running;
+
+    @Value("${app.timesheet.punch.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.timesheet.punch.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.timesheet.punch.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Value("${app.timesheet.punch.retry-window-seconds:120}")
+    private long retryWindowSeconds;
+
+    @Value("${app.timesheet.punch.request-ttl-minutes:1440}")
+    private long requestTtlMinutes;
+
+    public TimesheetPunchService(JdbcTemplate jdbcTemplate,
+                                 TimesheetEntryRepository timesheetEntryRepository,
+                                 EntityManagerFactory entityManagerFactory,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.timesheetEntryRepository = timesheetEntryRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        // Batches are written from the writer thread, never inside a request transaction
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.punchTimer = Timer.builder("trailers.timesheet.punch")
+                .description("Punch latency from request to durable commit")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("trailers.timesheet.punch.batch")
+                .description("Punches written per transaction")
+                .register(meterRegistry);
+        meterRegistry.gauge("trailers.timesheet.punch.drivers", states, Map::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        requests = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(requestTtlMinutes))
+                .maximumSize(100_000)
+                .build();
+        running = true;
+        writer = new Thread(this::writeLoop, "punch-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Punch writer started (batch size {}, queue {})", batchSize, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever is still queued was never acknowledged; write it so the client's retry finds it
+        List<Punch> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+    }
+
+    /**
+     * Load every driver's punch state up front so the shift-change burst hits memory only.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            jdbcTemplate.query(STATE_SQL + " WHERE d.is_active = true", STATE_MAPPER)
+                    .forEach(state -> states.putIfAbsent(state.driverId, state));
+            log.info("⏰ Punch state loaded for {} driver(s)", states.size());
+        } catch (Exception e) {
+            log.error("❌ Punch state warm-up failed, drivers will load on first punch: {}", e.getMessage());
+        }
+    }
+
+    // ============================================================
+    // PUNCH
+    // ============================================================
+
+    public TimesheetEntry punch(PunchRequestDTO request) {
+        long started = System.nanoTime();
+        try {
+            String type = request.getPunchType() != null ? request.getPunchType().trim().toUpperCase() : "";
+            if (!PUNCH_TYPES.contains(type)) {
+                throw new RuntimeException("Invalid punch type: " + request.getPunchType());
+            }
+            String key = request.getRequestId() != null && !request.getRequestId().isBlank()
+                    ? request.getRequestId().trim() : null;
+            if (key == null) {
+                return await(accept(type, request, UUID.randomUUID().toString()));
+            }
+
+            // Concurrent retries of one request wait for the same outcome
+            CompletableFuture<TimesheetEntry> outcome = new CompletableFuture<>();
+            CompletableFuture<TimesheetEntry> existing = requests.asMap().putIfAbsent(key, outcome);
+            if (existing != null) {
+                return await(existing);
+            }
+            try {
+                TimesheetEntry entry = await(accept(type, request, key));
+                outcome.complete(entry);
+                return entry;
+            } catch (RuntimeException e) {
+                // Not recorded: let the retry try again
+                requests.invalidate(key);
+                outcome.completeExceptionally(e);
+                throw e;
+            }
+        } finally {
+            punchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Validate against the driver's state machine, move it, and queue the write.
+     */
+    private CompletableFuture<TimesheetEntry> accept(String type, PunchRequestDTO request, String requestId) {
+        Long driverId = request.getDriverId();
+        while (true) {
+            PunchState state = state(driverId);
+            synchronized (state) {
+                if (states.get(driverId) != state) {
+                    continue; // evicted while we waited; reload
+                }
+                LocalDateTime now = LocalDateTime.now();
+                String rejection = rejection(state, type);
+                if (rejection != null) {
+                    TimesheetEntry previous = previousResult(state, type, requestId, now);
+                    if (previous != null) {
+                        log.info("🔁 Repeated {} for driver {} answered with the recorded punch", type, driverId);
+                        return CompletableFuture.completedFuture(previous);
+                    }
+                    log.warn("⚠️ {} rejected for driver {}: {}", type, driverId, rejection);
+                    throw new RuntimeException(rejection);
+                }
+
+                Punch punch = state.apply(type, request, now, this::nextEntryId);
+                punch.requestId = requestId;
+                if (!queue.offer(punch)) {
+                    states.remove(driverId, state);
+                    throw new RuntimeException("Punch queue is full, please retry");
+                }
+                return punch.future;
+            }
+        }
+    }
+
+    private String rejection(PunchState state, String type) {
+        return switch (type) {
+            case CLOCK_IN -> state.status.equals(Driver.STATUS_OFF_DUTY) ? null : "Driver is already clocked in";
+            case BREAK_START -> state.status.equals(Driver.STATUS_CLOCKED_IN) ? null
+                    : state.status.equals(Driver.STATUS_ON_BREAK) ? "Driver is already on break" : "No active clock-in found";
+            case BREAK_END -> state.status.equals(Driver.STATUS_ON_BREAK) ? null : "No active break found";
+            default -> state.status.equals(Driver.STATUS_OFF_DUTY) ? "No active clock-in found" : null;
+        };
+    }
+
+    /**
+     * The result of an earlier identical punch, if this one is a retry of it.
+     */
+    private TimesheetEntry previousResult(PunchState state, String type, String requestId, LocalDateTime now) {
+        if (type.equals(state.lastPunchType) && state.lastResult != null && state.lastPunchAt != null
+                && state.lastPunchAt.isAfter(now.minusSeconds(retryWindowSeconds))) {
+            return state.lastResult;
+        }
+        // Keyed retry of a punch acknowledged before a restart
+        List<Long> recorded = jdbcTemplate.queryForList(
+                "SELECT entry_id FROM timesheet_punch WHERE request_id = ?", Long.class, requestId);
+        return recorded.isEmpty() ? null : timesheetEntryRepository.findById(recorded.get(0)).orElse(null);
+    }
+
+    private TimesheetEntry await(CompletableFuture<TimesheetEntry> future) {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Punch not confirmed yet, please retry");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime
+                    : new RuntimeException("Failed to record punch", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while recording punch");
+        }
+    }
+
+    // ============================================================
+    // READS
+    // ============================================================
+
+    public String getStatus(Long driverId) {
+        PunchState state = state(driverId);
+        synchronized (state) {
+            return state.status;
+        }
+    }
+
+    public boolean isClockedIn(Long driverId) {
+        return !Driver.STATUS_OFF_DUTY.equals(getStatus(driverId));
+    }
+
+    public PunchPipelineStatsDTO getStats() {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (ValueAtPercentile value : punchTimer.takeSnapshot().percentileValues()) {
+            percentiles.put(String.valueOf(value.percentile()), value.value(TimeUnit.MILLISECONDS));
+        }
+        return PunchPipelineStatsDTO.builder()
+                .punches(punchTimer.count())
+                .p50Ms(percentiles.get("0.5"))
+                .p95Ms(percentiles.get("0.95"))
+                .p99Ms(percentiles.get("0.99"))
+                .maxMs(punchTimer.max(TimeUnit.MILLISECONDS))
+                .queueDepth(queue.size())
+                .batches(batchSizes.count())
+                .averageBatchSize(batchSizes.mean())
+                .maxBatchSize(batchSizes.max())
+                .trackedDrivers(states.size())
+                .build();
+    }
+
+    // ============================================================
+    // BATCHING WRITER
+    // ============================================================
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Punch first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Everything that queued up while the previous batch was committing goes in this one
+                List<Punch> batch = new ArrayList<>();
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("❌ Punch writer error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void write(List<Punch> batch) {
+        // A driver's punches must hit the database in order: the k-th punch of each driver goes in round k
+        List<List<Punch>> rounds = new ArrayList<>();
+        Map<Long, Integer> seen = new HashMap<>();
+        for (Punch punch : batch) {
+            int round = seen.merge(punch.driverId, 1, Integer::sum) - 1;
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(punch);
+        }
+
+        List<Punch> conflicts = new ArrayList<>();
+        try {
+            writeTransaction.executeWithoutResult(status -> rounds.forEach(round -> writeRound(round, conflicts)));
+        } catch (Exception e) {
+            log.error("❌ Punch batch of {} failed: {}", batch.size(), e.getMessage());
+            batch.forEach(punch -> fail(punch, new RuntimeException("Failed to record punch, please retry")));
+            return;
+        }
+        batchSizes.record(batch.size());
+        for (Punch punch : batch) {
+            if (conflicts.contains(punch)) {
+                fail(punch, new RuntimeException("Timesheet changed elsewhere, please retry"));
+            } else {
+                // Driver rows were updated behind Hibernate's second-level cache
+                entityManagerFactory.getCache().evict(Driver.class, punch.driverId);
+                punch.future.complete(punch.result);
+            }
+        }
+        log.debug("💾 Wrote {} punch(es) in {} round(s)", batch.size(), rounds.size());
+    }
+
+    private void writeRound(List<Punch> round, List<Punch> conflicts) {
+        List<Punch> inserts = new ArrayList<>();
+        Map<String, List<Punch>> updates = new LinkedHashMap<>();
+        for (Punch punch : round) {
+            if (conflicts.stream().anyMatch(c -> c.driverId == punch.driverId)) {
+                // An earlier punch of this driver already failed
+                conflicts.add(punch);
+            } else if (punch.type.equals(CLOCK_IN)) {
+                inserts.add(punch);
+            } else {
+                updates.computeIfAbsent(punch.type, t -> new ArrayList<>()).add(punch);
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, inserts.stream().map(p -> new Object[]{
+                    p.entryId, p.driverId, Date.valueOf(p.result.getEntryDate()), Time.valueOf(p.result.getStartTime()),
+                    Timestamp.valueOf(p.at), p.result.getActivityType(), p.location, p.latitude, p.longitude,
+                    Timestamp.valueOf(p.at), Timestamp.valueOf(p.at)}).toList());
+        }
+        updates.forEach((type, punches) -> {
+            List<Object[]> args = punches.stream().map(this::updateArgs).toList();
+            int[] counts = jdbcTemplate.batchUpdate(updateSql(type), args);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    conflicts.add(punches.get(i));
+                }
+            }
+        });
+
+        List<Punch> written = round.stream().filter(p -> !conflicts.contains(p)).toList();
+        if (written.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(DRIVER_SQL, written.stream().map(p -> new Object[]{
+                p.driverStatus,
+                p.type.equals(CLOCK_IN) ? Timestamp.valueOf(p.at) : null,
+                p.type.equals(CLOCK_OUT) ? Timestamp.valueOf(p.at) : null,
+                Timestamp.valueOf(p.at), p.driverId}).toList());
+        jdbcTemplate.batchUpdate(PUNCH_LOG_SQL, written.stream().map(p -> new Object[]{
+                p.requestId, p.driverId, p.type, p.entryId, Timestamp.valueOf(p.at),
+                p.location, p.latitude, p.longitude}).toList());
+    }
+
+    private String updateSql(String type) {
+        return switch (type) {
+            case BREAK_START -> BREAK_START_SQL;
+            case BREAK_END -> BREAK_END_SQL;
+            default -> CLOCK_OUT_SQL;
+        };
+    }
+
+    private Object[] updateArgs(Punch p) {
+        Timestamp at = Timestamp.valueOf(p.at);
+        return switch (p.type) {
+            case BREAK_START -> new Object[]{at, at, p.entryId};
+            case BREAK_END -> new Object[]{at, p.result.getBreakDuration(), at, p.entryId};
+            default -> new Object[]{Time.valueOf(p.result.getEndTime()), at,
+                    p.result.getBreakEndTime() != null ? Timestamp.valueOf(p.result.getBreakEndTime()) : null,
+                    p.result.getBreakDuration(), p.result.getTotalHours(), at, p.entryId};
+        };
+    }
+
+    private void fail(Punch punch, RuntimeException error) {
+        // The in-memory state ran ahead of the database; reload it on the next punch
+        states.remove(punch.driverId);
+        punch.future.completeExceptionally(error);
+    }
+
+    // ============================================================
+    // STATE
+    // ============================================================
+
+    private PunchState state(Long driverId) {
+        if (driverId == null) {
+            throw new RuntimeException("Driver ID is required");
+        }
+        PunchState state = states.get(driverId);
+        if (state != null) {
+            return state;
+        }
+        List<PunchState> loaded = jdbcTemplate.query(STATE_SQL + " WHERE d.id = ?", STATE_MAPPER, driverId);
+        if (loaded.isEmpty()) {
+            log.error("❌ Driver not found with ID: {}", driverId);
+            throw new RuntimeException("Driver not found");
+        }
+        PunchState existing = states.putIfAbsent(driverId, loaded.get(0));
+        return existing != null ? existing : loaded.get(0);
+    }
+
+    private long nextEntryId() {
+        synchronized (entryIds) {
+            if (entryIds.isEmpty()) {
+                entryIds.addAll(jdbcTemplate.queryForList(
+                        "SELECT nextval(pg_get_serial_sequence('timesheet_entries', 'id')) FROM generate_series(1, ?)",
+                        Long.class, ID_BLOCK_SIZE));
+            }
+            return entryIds.poll();
+        }
+    }
+
+    private static final RowMapper<PunchState> STATE_MAPPER = (rs, rowNum) -> {
+        PunchState state = new PunchState(rs.getLong("driver_id"));
+        long entryId = rs.getLong("entry_id");
+        if (!rs.wasNull()) {
+            state.status = PUNCH_ON_BREAK.equals(rs.getString("punch_status")) ? Driver.STATUS_ON_BREAK : Driver.STATUS_CLOCKED_IN;
+            state.entryId = entryId;
+            Date entryDate = rs.getDate("entry_date");
+            Time startTime = rs.getTime("start_time");
+            Timestamp clockIn = rs.getTimestamp("clock_in_time");
+            Timestamp breakStart = rs.getTimestamp("break_start_time");
+            state.clockInTime = clockIn != null ? clockIn.toLocalDateTime() : LocalDateTime.now();
+            state.entryDate = entryDate != null ? entryDate.toLocalDate() : state.clockInTime.toLocalDate();
+            state.startTime = startTime != null ? startTime.toLocalTime() : state.clockInTime.toLocalTime();
+            state.breakStartTime = breakStart != null ? breakStart.toLocalDateTime() : null;
+            state.breakMinutes = rs.getInt("break_duration");
+            state.activityType = rs.getString("activity_type");
+            state.location = rs.getString("punch_location");
+            state.latitude = rs.getBigDecimal("punch_latitude");
+            state.longitude = rs.getBigDecimal("punch_longitude");
+        }
+        return state;
+    };
+
+    /**
+     * One driver's punch clock. Guarded by its own monitor.
+     */
+    private static final class PunchState {
+        private final long driverId;
+        private String status = Driver.STATUS_OFF_DUTY;
+
+        // Open entry
+        private Long entryId;
+        private LocalDate entryDate;
+        private LocalTime startTime;
+        private LocalDateTime clockInTime;
+        private LocalDateTime breakStartTime;
+        private int breakMinutes;
+        private String activityType;
+        private String location;
+        private BigDecimal latitude;
+        private BigDecimal longitude;
+
+        // Last accepted punch, for retries without a key
+        private String lastPunchType;
+        private LocalDateTime lastPunchAt;
+        private TimesheetEntry lastResult;
+
+        private PunchState(long driverId) {
+            this.driverId = driverId;
+        }
+
+        /**
+         * Move to the state after a valid punch and describe the write.
+         */
+        private Punch apply(String type, PunchRequestDTO request, LocalDateTime now, LongSupplier ids) {
+            Punch punch = new Punch(driverId, type, now, request);
+            LocalDateTime breakEnd = null;
+            switch (type) {
+                case CLOCK_IN -> {
+                    entryId = ids.getAsLong();
+                    entryDate = now.toLocalDate();
+                    startTime = now.toLocalTime();
+                    clockInTime = now;
+                    breakStartTime = null;
+                    breakMinutes = 0;
+                    activityType = DEFAULT_ACTIVITY;
+                    location = request.getLocation();
+                    latitude = request.getLatitude();
+                    longitude = request.getLongitude();
+                    status = Driver.STATUS_CLOCKED_IN;
+                }
+                case BREAK_START -> {
+                    breakStartTime = now;
+                    status = Driver.STATUS_ON_BREAK;
+                }
+                case BREAK_END -> {
+                    breakMinutes += (int) ChronoUnit.MINUTES.between(breakStartTime != null ? breakStartTime : now, now);
+                    breakEnd = now;
+                    status = Driver.STATUS_CLOCKED_IN;
+                }
+                default -> {
+                    if (Driver.STATUS_ON_BREAK.equals(status)) {
+                        // Clocking out ends the break
+                        breakMinutes += (int) ChronoUnit.MINUTES.between(breakStartTime != null ? breakStartTime : now, now);
+                        breakEnd = now;
+                    }
+                    status = Driver.STATUS_OFF_DUTY;
+                }
+            }
+
+            punch.entryId = entryId;
+            punch.driverStatus = status;
+            punch.result = TimesheetEntry.builder()
+                    .id(entryId)
+                    .entryDate(entryDate)
+                    .startTime(startTime)
+                    .endTime(type.equals(CLOCK_OUT) ? now.toLocalTime() : null)
+                    .clockInTime(clockInTime)
+                    .clockOutTime(type.equals(CLOCK_OUT) ? now : null)
+                    .breakStartTime(breakStartTime)
+                    .breakEndTime(breakEnd)
+                    .breakDuration(breakMinutes)
+                    .totalHours(type.equals(CLOCK_OUT) ? hoursBetween(clockInTime, now) : null)
+                    .activityType(activityType != null ? activityType : DEFAULT_ACTIVITY)
+                    .status("ACTIVE")
+                    .punchStatus(type.equals(CLOCK_OUT) ? PUNCH_CLOCKED_OUT
+                            : status.equals(Driver.STATUS_ON_BREAK) ? PUNCH_ON_BREAK : PUNCH_CLOCKED_IN)
+                    .punchLocation(location)
+                    .punchLatitude(latitude)
+                    .punchLongitude(longitude)
+                    .isActive(!type.equals(CLOCK_OUT))
+                    .build();
+
+            lastPunchType = type;
+            lastPunchAt = now;
+            lastResult = punch.result;
+            if (type.equals(CLOCK_OUT)) {
+                entryId = null;
+                breakStartTime = null;
+            }
+            return punch;
+        }
+
+        private static BigDecimal hoursBetween(LocalDateTime from, LocalDateTime to) {
+            long minutes = ChronoUnit.MINUTES.between(from != null ? from : to, to);
+            return BigDecimal.valueOf(minutes).divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+        }
+    }
+
+    private static final class Punch {
+        private final long driverId;
+        private final String type;
+        private final LocalDateTime at;
+        private final String location;
+        private final BigDecimal latitude;
+        private final BigDecimal longitude;
+        private final CompletableFuture<TimesheetEntry> future = new CompletableFuture<>();
+        private String requestId;
+        private Long entryId;
+        private String driverStatus;
+        private TimesheetEntry result;
+
+        private Punch(long driverId, String type, LocalDateTime at, PunchRequestDTO request) {
+            this.driverId = driverId;
+            this.type = type;
+            this.at = at;
+            this.location = request.getLocation();
+            this.latitude = request.getLatitude();
+            this.longitude = request.getLongitude();
+        }
+    }
+}
@@ -0,0 +1,675 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.dto.TripCubeQueryDTO;
+import com.pgsa.trailers.dto.TripCubeResultDTO;
+import com.pgsa.trailers.entity.ops.auto.TripCompletedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory columnar cube of completed trips for ad-hoc analytics.
+ *
+ * Each completed, closed or finalized trip is one row. Measures live in primitive
+ * double columns and every dimension is dictionary-encoded into an int column, so a
+ * group-by is a scan over a few arrays split across the common fork-join pool. The cube
+ * is loaded at startup, updated per trip on TripCompletedEvent, and rebuilt periodically
+ * to pick up edits and later status changes (CLOSED, FINALIZED) made without an event.
+ */
+@Slf4j
+@Service
+public class TripCubeService {
+
+    public enum Dimension {
+        VEHICLE, DRIVER, CUSTOMER, LANE, ORIGIN, DESTINATION, TRIP_TYPE, STATUS, MONTH
+    }
+
+    // Stored measure columns
+    private static final int DISTANCE = 0;
+    private static final int DURATION = 1;
+    private static final int REVENUE = 2;
+    private static final int COST = 3;
+    private static final int FUEL = 4;
+    private static final int TOLL = 5;
+    private static final int OTHER = 6;
+    private static final int STORED_MEASURES = 7;
+
+    public enum Measure {
+        DISTANCE_KM(true, s -> s[DISTANCE]),
+        DURATION_HOURS(true, s -> s[DURATION]),
+        REVENUE(true, s -> s[TripCubeService.REVENUE]),
+        COST(true, s -> s[TripCubeService.COST]),
+        PROFIT(true, s -> s[TripCubeService.REVENUE] - s[TripCubeService.COST]),
+        FUEL_LITERS(true, s -> s[FUEL]),
+        TOLL_COST(true, s -> s[TOLL]),
+        OTHER_EXPENSES(true, s -> s[OTHER]),
+        KM_PER_LITER(false, s -> ratio(s[DISTANCE], s[FUEL])),
+        COST_PER_KM(false, s -> ratio(s[TripCubeService.COST], s[DISTANCE])),
+        REVENUE_PER_KM(false, s -> ratio(s[TripCubeService.REVENUE], s[DISTANCE])),
+        PROFIT_MARGIN(false, s -> ratio(s[TripCubeService.REVENUE] - s[TripCubeService.COST], s[TripCubeService.REVENUE]) * 100);
+
+        private final boolean additive;
+        private final ToDoubleFunction<double[]> fromSums;
+
+        Measure(boolean additive, ToDoubleFunction<double[]> fromSums) {
+            this.additive = additive;
+            this.fromSums = fromSums;
+        }
+    }
+
+    public static final String SORT_TRIPS = "TRIPS";
+
+    private static final String SELECT_SQL = """
+            SELECT t.id, t.status, t.trip_type, t.origin_city, t.destination_city, t.actual_end_date,
+                   t.vehicle_id, v.registration_number,
+                   t.driver_id, TRIM(CONCAT(d.first_name, ' ', d.last_name)) AS driver_name,
+                   t.customer_id, c.name AS customer_name,
+                   COALESCE(t.actual_distance_km, t.distance_km, 0) AS distance_km,
+                   COALESCE(t.actual_duration_hours, 0) AS duration_hours,
+                   COALESCE(t.revenue_amount, 0) AS revenue,
+                   COALESCE(t.cost_amount, 0) AS cost,
+                   COALESCE(t.fuel_consumed_liters, 0) AS fuel_liters,
+                   COALESCE(t.toll_cost, 0) AS toll_cost,
+                   COALESCE(t.other_expenses, 0) AS other_expenses
+            FROM trip t
+            LEFT JOIN vehicle v ON v.id = t.vehicle_id
+            LEFT JOIN driver d ON d.id = t.driver_id
+            LEFT JOIN customer c ON c.id = t.customer_id
+            WHERE t.is_active = true
+              AND t.status IN ('COMPLETED', 'CLOSED', 'FINALIZED')
+              AND t.actual_end_date IS NOT NULL
+            """;
+
+    // Smallest slice of rows worth handing to another worker
+    private static final int MIN_CHUNK_ROWS = 16_384;
+    private static final int INITIAL_CAPACITY = 1_024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final Timer queryTimer;
+    private final Timer loadTimer;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<Long> replay = ConcurrentHashMap.newKeySet();
+
+    private Columns columns;
+    private volatile boolean rebuilding;
+    private volatile LocalDateTime loadedAt;
+
+    public TripCubeService(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.analytics.cube.fetch-size:2000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Postgres only streams with a fetch size inside a transaction; otherwise the whole table is buffered
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+
+        this.queryTimer = Timer.builder("trailers.analytics.cube.query")
+                .description("Time to answer a trip cube query")
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("trailers.analytics.cube.load")
+                .description("Time to rebuild the trip cube from the database")
+                .register(meterRegistry);
+        meterRegistry.gauge("trailers.analytics.cube.rows", this, TripCubeService::rowCount);
+    }
+
+    // ============================================================
+    // LOADING
+    // ============================================================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+
+    /**
+     * Full reload into fresh columns, swapped in when complete. Trips refreshed while
+     * the reload was reading are re-applied to the new columns.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.cube.rebuild-interval-ms:3600000}",
+               initialDelayString = "${app.analytics.cube.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        rebuilding = true;
+        Columns fresh = new Columns(Math.max(INITIAL_CAPACITY, rowCount()));
+        try {
+            readTransaction.executeWithoutResult(status -> streamingJdbcTemplate.query(SELECT_SQL,
+                    rs -> { fresh.upsert(FACT_MAPPER.mapRow(rs, 0)); }));
+        } catch (Exception e) {
+            rebuilding = false;
+            log.error("❌ Trip cube load failed: {}", e.getMessage());
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            columns = fresh;
+            loadedAt = LocalDateTime.now();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuilding = false;
+
+        List<Long> missed = new ArrayList<>(replay);
+        replay.removeAll(missed);
+        missed.forEach(this::refresh);
+
+        long elapsedNanos = System.nanoTime() - start;
+        loadTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("📊 Trip cube loaded: {} trip(s), {} vehicle(s), {} driver(s), {} customer(s), {} lane(s) in {} ms",
+                fresh.size, fresh.dictionary(Dimension.VEHICLE).size(), fresh.dictionary(Dimension.DRIVER).size(),
+                fresh.dictionary(Dimension.CUSTOMER).size(), fresh.dictionary(Dimension.LANE).size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTripCompleted(TripCompletedEvent event) {
+        try {
+            refresh(event.getTripId());
+        } catch (Exception e) {
+            log.error("❌ Trip cube refresh failed for trip {}: {}", event.getTripId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Re-read one trip and update its row in place (or append it). A trip that no longer
+     * qualifies (cancelled, reopened or deactivated) is removed.
+     */
+    public void refresh(Long tripId) {
+        if (rebuilding) {
+            replay.add(tripId);
+        }
+        List<TripFact> facts = readTransaction.execute(status ->
+                jdbcTemplate.query(SELECT_SQL + " AND t.id = ?", FACT_MAPPER, tripId));
+
+        lock.writeLock().lock();
+        try {
+            if (columns != null) {
+                if (facts == null || facts.isEmpty()) {
+                    columns.remove(tripId);
+                } else {
+                    columns.upsert(facts.get(0));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("📊 Trip cube updated for trip {}", tripId);
+    }
+
+    // ============================================================
+    // QUERIES
+    // ============================================================
+
+    public TripCubeResultDTO query(TripCubeQueryDTO request) {
+        long start = System.nanoTime();
+
+        List<Dimension> groupBy = request.getGroupBy() == null ? List.of()
+                : request.getGroupBy().stream().map(name -> parse(Dimension.class, name, "dimension")).distinct().toList();
+        List<Measure> measures = request.getMeasures() == null || request.getMeasures().isEmpty()
+                ? List.of(Measure.values())
+                : request.getMeasures().stream().map(name -> parse(Measure.class, name, "measure")).distinct().toList();
+        String sortBy = request.getSortBy() != null ? request.getSortBy().trim().toUpperCase()
+                : measures.contains(Measure.REVENUE) ? Measure.REVENUE.name() : SORT_TRIPS;
+        Measure sortMeasure = SORT_TRIPS.equals(sortBy) ? null : parse(Measure.class, sortBy, "measure");
+
+        Map<Dimension, List<String>> filters = new LinkedHashMap<>();
+        if (request.getFilters() != null) {
+            request.getFilters().forEach((name, values) -> {
+                if (values != null && !values.isEmpty()) {
+                    filters.put(parse(Dimension.class, name, "dimension"), values);
+                }
+            });
+        }
+        int fromDay = request.getFrom() != null ? (int) request.getFrom().toEpochDay() : Integer.MIN_VALUE;
+        int toDay = request.getTo() != null ? (int) request.getTo().toEpochDay() : Integer.MAX_VALUE;
+
+        List<TripCubeResultDTO.Group> groups = new ArrayList<>();
+        int cubeRows;
+        int matched;
+        LocalDateTime builtAt;
+
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            if (c == null) {
+                throw new RuntimeException("Trip cube is not loaded yet");
+            }
+            cubeRows = c.size;
+            builtAt = loadedAt;
+
+            // Filters become code lookups; unknown keys simply match nothing
+            int[] filterDims = new int[filters.size()];
+            boolean[][] allowed = new boolean[filters.size()][];
+            int f = 0;
+            for (Map.Entry<Dimension, List<String>> filter : filters.entrySet()) {
+                Dictionary dictionary = c.dictionary(filter.getKey());
+                filterDims[f] = filter.getKey().ordinal();
+                allowed[f] = new boolean[dictionary.size()];
+                for (String key : filter.getValue()) {
+                    Integer code = dictionary.codes.get(key);
+                    if (code != null) {
+                        allowed[f][code] = true;
+                    }
+                }
+                f++;
+            }
+
+            // Group key: dimension codes packed mixed-radix into one long
+            int[] groupDims = new int[groupBy.size()];
+            long[] radix = new long[groupBy.size()];
+            long span = 1;
+            try {
+                for (int i = 0; i < groupBy.size(); i++) {
+                    groupDims[i] = groupBy.get(i).ordinal();
+                    radix[i] = span;
+                    span = Math.multiplyExact(span, Math.max(1, c.dictionary(groupBy.get(i)).size()));
+                }
+            } catch (ArithmeticException e) {
+                throw new RuntimeException("Too many group-by combinations: " + groupBy);
+            }
+
+            Scan scan = new Scan(c, fromDay, toDay, filterDims, allowed, groupDims, radix);
+            int n = c.size;
+            int chunks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, n / MIN_CHUNK_ROWS));
+            Partial total = IntStream.range(0, chunks)
+                    .parallel()
+                    .mapToObj(k -> scan.run((int) ((long) n * k / chunks), (int) ((long) n * (k + 1) / chunks)))
+                    .reduce(Partial::merge)
+                    .orElseGet(Partial::new);
+            matched = total.matched;
+
+            for (Map.Entry<Long, double[]> entry : total.groups.entrySet()) {
+                Map<String, String> keys = new LinkedHashMap<>();
+                Map<String, String> labels = new LinkedHashMap<>();
+                for (int i = 0; i < groupBy.size(); i++) {
+                    Dictionary dictionary = c.dictionary(groupBy.get(i));
+                    int code = (int) ((entry.getKey() / radix[i]) % Math.max(1, dictionary.size()));
+                    keys.put(groupBy.get(i).name(), dictionary.keys.get(code));
+                    labels.put(groupBy.get(i).name(), dictionary.labels.get(code));
+                }
+                groups.add(toGroup(keys, labels, entry.getValue(), measures));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Comparator<TripCubeResultDTO.Group> comparator = sortMeasure == null
+                ? Comparator.comparing(TripCubeResultDTO.Group::getTrips)
+                : Comparator.comparing(g -> sortValue(g, sortMeasure));
+        if (!"asc".equalsIgnoreCase(request.getOrder())) {
+            comparator = comparator.reversed();
+        }
+        groups.sort(comparator);
+        int totalGroups = groups.size();
+        if (request.getLimit() != null && request.getLimit() > 0 && groups.size() > request.getLimit()) {
+            groups = new ArrayList<>(groups.subList(0, request.getLimit()));
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        queryTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.debug("📊 Trip cube query {} over {} row(s): {} matched, {} group(s) in {} µs",
+                groupBy, cubeRows, matched, totalGroups, TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+
+        return TripCubeResultDTO.builder()
+                .groupBy(groupBy.stream().map(Enum::name).toList())
+                .measures(measures.stream().map(Enum::name).toList())
+                .groups(groups)
+                .totalGroups(totalGroups)
+                .cubeRows(cubeRows)
+                .matchedRows(matched)
+                .queryMicros(TimeUnit.NANOSECONDS.toMicros(elapsedNanos))
+                .cubeLoadedAt(builtAt)
+                .build();
+    }
+
+    /**
+     * Row count, dictionary sizes and approximate column memory.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            stats.put("loaded", c != null);
+            stats.put("loadedAt", loadedAt);
+            if (c == null) {
+                return stats;
+            }
+            stats.put("rows", c.size);
+            stats.put("capacity", c.tripIds.length);
+            Map<String, Integer> cardinality = new LinkedHashMap<>();
+            for (Dimension dimension : Dimension.values()) {
+                cardinality.put(dimension.name(), c.dictionary(dimension).size());
+            }
+            stats.put("dimensions", cardinality);
+            // long id + int end day + int per dimension + double per measure
+            long bytesPerRow = 8 + 4 + 4L * Dimension.values().length + 8L * STORED_MEASURES;
+            stats.put("columnBytes", bytesPerRow * c.tripIds.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    private int rowCount() {
+        lock.readLock().lock();
+        try {
+            return columns != null ? columns.size : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static TripCubeResultDTO.Group toGroup(Map<String, String> keys, Map<String, String> labels,
+                                                   double[] acc, List<Measure> measures) {
+        long trips = (long) acc[0];
+        double[] sums = Arrays.copyOfRange(acc, 1, acc.length);
+        Map<String, Double> values = new LinkedHashMap<>();
+        Map<String, Double> perTrip = new LinkedHashMap<>();
+        for (Measure measure : measures) {
+            double value = measure.fromSums.applyAsDouble(sums);
+            values.put(measure.name(), round(value));
+            if (measure.additive) {
+                perTrip.put(measure.name(), round(ratio(value, trips)));
+            }
+        }
+        return TripCubeResultDTO.Group.builder()
+                .keys(keys)
+                .labels(labels)
+                .trips(trips)
+                .values(values)
+                .perTrip(perTrip)
+                .build();
+    }
+
+    private static double sortValue(TripCubeResultDTO.Group group, Measure measure) {
+        Double value = group.getValues().get(measure.name());
+        return value != null ? value : 0.0;
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String name, String what) {
+        try {
+            return Enum.valueOf(type, name.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new RuntimeException("Unknown " + what + ": " + name
+                    + ". Expected one of " + Arrays.toString(type.getEnumConstants()));
+        }
+    }
+
+    private static double ratio(double numerator, double denominator) {
+        return denominator == 0 ? 0.0 : numerator / denominator;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    // ============================================================
+    // STORAGE
+    // ============================================================
+
+    private static final RowMapper<TripFact> FACT_MAPPER = (rs, rowNum) -> {
+        String[] keys = new String[Dimension.values().length];
+        String[] labels = new String[Dimension.values().length];
+
+        long vehicleId = rs.getLong("vehicle_id");
+        boolean hasVehicle = !rs.wasNull();
+        put(keys, labels, Dimension.VEHICLE, hasVehicle ? String.valueOf(vehicleId) : "-",
+                hasVehicle ? orDefault(rs.getString("registration_number"), "Vehicle #" + vehicleId) : "Unassigned");
+
+        long driverId = rs.getLong("driver_id");
+        boolean hasDriver = !rs.wasNull();
+        put(keys, labels, Dimension.DRIVER, hasDriver ? String.valueOf(driverId) : "-",
+                hasDriver ? orDefault(rs.getString("driver_name"), "Driver #" + driverId) : "Unassigned");
+
+        long customerId = rs.getLong("customer_id");
+        boolean hasCustomer = !rs.wasNull();
+        put(keys, labels, Dimension.CUSTOMER, hasCustomer ? String.valueOf(customerId) : "-",
+                hasCustomer ? orDefault(rs.getString("customer_name"), "Customer #" + customerId) : "Unassigned");
+
+        String origin = orDefault(rs.getString("origin_city"), "Unknown");
+        String destination = orDefault(rs.getString("destination_city"), "Unknown");
+        put(keys, labels, Dimension.ORIGIN, origin, origin);
+        put(keys, labels, Dimension.DESTINATION, destination, destination);
+        String lane = origin + " → " + destination;
+        put(keys, labels, Dimension.LANE, lane, lane);
+
+        String tripType = orDefault(rs.getString("trip_type"), "UNSPECIFIED");
+        put(keys, labels, Dimension.TRIP_TYPE, tripType, tripType);
+        String status = rs.getString("status");
+        put(keys, labels, Dimension.STATUS, status, status);
+
+        LocalDate endDate = rs.getTimestamp("actual_end_date").toLocalDateTime().toLocalDate();
+        String month = YearMonth.from(endDate).toString();
+        put(keys, labels, Dimension.MONTH, month, month);
+
+        double[] values = new double[STORED_MEASURES];
+        values[DISTANCE] = rs.getDouble("distance_km");
+        values[DURATION] = rs.getDouble("duration_hours");
+        values[REVENUE] = rs.getDouble("revenue");
+        values[COST] = rs.getDouble("cost");
+        values[FUEL] = rs.getDouble("fuel_liters");
+        values[TOLL] = rs.getDouble("toll_cost");
+        values[OTHER] = rs.getDouble("other_expenses");
+
+        return new TripFact(rs.getLong("id"), (int) endDate.toEpochDay(), keys, labels, values);
+    };
+
+    private static void put(String[] keys, String[] labels, Dimension dimension, String key, String label) {
+        keys[dimension.ordinal()] = key;
+        labels[dimension.ordinal()] = label;
+    }
+
+    private static String orDefault(String value, String fallback) {
+        return value != null && !value.isBlank() ? value.trim() : fallback;
+    }
+
+    private record TripFact(long tripId, int endDay, String[] keys, String[] labels, double[] values) { }
+
+    /**
+     * Key to code mapping for one dimension. Labels follow the latest row, so a renamed
+     * vehicle or customer keeps its code.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+
+        int encode(String key, String label) {
+            Integer code = codes.get(key);
+            if (code == null) {
+                code = keys.size();
+                codes.put(key, code);
+                keys.add(key);
+                labels.add(label);
+            } else if (!labels.get(code).equals(label)) {
+                labels.set(code, label);
+            }
+            return code;
+        }
+
+        int size() {
+            return keys.size();
+        }
+    }
+
+    /**
+     * Column arrays, grown by doubling. Guarded by the service lock once published.
+     */
+    private static final class Columns {
+        private final Dictionary[] dictionaries = new Dictionary[Dimension.values().length];
+        private final Map<Long, Integer> rowByTrip = new HashMap<>();
+        private long[] tripIds;
+        private int[] endDays;
+        private final int[][] codes = new int[Dimension.values().length][];
+        private final double[][] measures = new double[STORED_MEASURES][];
+        private int size;
+
+        Columns(int capacity) {
+            for (int d = 0; d < dictionaries.length; d++) {
+                dictionaries[d] = new Dictionary();
+                codes[d] = new int[capacity];
+            }
+            for (int m = 0; m < STORED_MEASURES; m++) {
+                measures[m] = new double[capacity];
+            }
+            tripIds = new long[capacity];
+            endDays = new int[capacity];
+        }
+
+        Dictionary dictionary(Dimension dimension) {
+            return dictionaries[dimension.ordinal()];
+        }
+
+        void upsert(TripFact fact) {
+            Integer existing = rowByTrip.get(fact.tripId());
+            int row;
+            if (existing != null) {
+                row = existing;
+            } else {
+                if (size == tripIds.length) {
+                    grow(tripIds.length * 2);
+                }
+                row = size++;
+                rowByTrip.put(fact.tripId(), row);
+            }
+
+            tripIds[row] = fact.tripId();
+            endDays[row] = fact.endDay();
+            for (int d = 0; d < dictionaries.length; d++) {
+                codes[d][row] = dictionaries[d].encode(fact.keys()[d], fact.labels()[d]);
+            }
+            for (int m = 0; m < STORED_MEASURES; m++) {
+                measures[m][row] = fact.values()[m];
+            }
+        }
+
+        /**
+         * Drop a trip's row; the last row moves into its place. Dictionary codes are kept.
+         */
+        void remove(long tripId) {
+            Integer row = rowByTrip.remove(tripId);
+            if (row == null) {
+                return;
+            }
+            int last = --size;
+            if (row != last) {
+                tripIds[row] = tripIds[last];
+                endDays[row] = endDays[last];
+                for (int d = 0; d < codes.length; d++) {
+                    codes[d][row] = codes[d][last];
+                }
+                for (int m = 0; m < STORED_MEASURES; m++) {
+                    measures[m][row] = measures[m][last];
+                }
+                rowByTrip.put(tripIds[row], row);
+            }
+        }
+
+        private void grow(int capacity) {
+            tripIds = Arrays.copyOf(tripIds, capacity);
+            endDays = Arrays.copyOf(endDays, capacity);
+            for (int d = 0; d < codes.length; d++) {
+                codes[d] = Arrays.copyOf(codes[d], capacity);
+            }
+            for (int m = 0; m < STORED_MEASURES; m++) {
+                measures[m] = Arrays.copyOf(measures[m], capacity);
+            }
+        }
+    }
+
+    /**
+     * One query's filter and grouping, applied to a slice of rows.
+     */
+    private record Scan(Columns columns, int fromDay, int toDay, int[] filterDims, boolean[][] allowed,
+                        int[] groupDims, long[] radix) {
+
+        Partial run(int from, int to) {
+            Partial partial = new Partial();
+            int[] endDays = columns.endDays;
+            int[][] codes = columns.codes;
+            double[][] measures = columns.measures;
+
+            rows:
+            for (int r = from; r < to; r++) {
+                if (endDays[r] < fromDay || endDays[r] > toDay) {
+                    continue;
+                }
+                for (int f = 0; f < filterDims.length; f++) {
+                    if (!allowed[f][codes[filterDims[f]][r]]) {
+                        continue rows;
+                    }
+                }
+
+                long key = 0;
+                for (int g = 0; g < groupDims.length; g++) {
+                    key += codes[groupDims[g]][r] * radix[g];
+                }
+                double[] acc = partial.groups.computeIfAbsent(key, k -> new double[1 + STORED_MEASURES]);
+                acc[0]++;
+                for (int m = 0; m < STORED_MEASURES; m++) {
+                    acc[1 + m] += measures[m][r];
+                }
+                partial.matched++;
+            }
+            return partial;
+        }
+    }
+
+    /**
+     * Per-slice accumulators: [trips, sum of each stored measure] per group key.
+     */
+    private static final class Partial {
+        private final Map<Long, double[]> groups = new HashMap<>();
+        private int matched;
+
+        Partial merge(Partial other) {
+            other.groups.forEach((key, acc) -> groups.merge(key, acc, (a, b) -> {
+                for (int i = 0; i < a.length; i++) {
+                    a[i] += b[i];
+                }
+                return a;
+            }));
+            matched += other.matched;
+            return this;
+        }
+    }
+}
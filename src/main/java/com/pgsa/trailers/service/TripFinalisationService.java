@@ -46,6 +46,7 @@ public class TripFinalisationService {
     private final PodRepository podRepository;
     private final LoadRepository loadRepository;
     private final TripMetricsService tripMetricsService;
+    private final LoadAggregateService loadAggregateService;
 
     @Transactional
     public void finalizeTrip(Long tripId) {
@@ -171,6 +172,7 @@ public class TripFinalisationService {
             metrics.setFinalized(true);
             metrics.setFinalizedAt(LocalDateTime.now());
 
+            LoadAggregateService.TripContribution beforeFinalize = LoadAggregateService.TripContribution.of(trip);
             trip.setStatus(STATUS_FINALIZED);
             trip.setLastStatusUpdate(LocalDateTime.now());
 
@@ -195,17 +197,8 @@ public class TripFinalisationService {
                         }
                         
                         if (load != null) {
-                            load.setTripsCount(load.getTrips() != null ? load.getTrips().size() : 0);
-                            
-                            boolean allCompleted = true;
-                            if (load.getTrips() != null) {
-                                for (Trip t : load.getTrips()) {
-                                    if (!STATUS_COMPLETED.equals(t.getStatus()) && !STATUS_FINALIZED.equals(t.getStatus())) {
-                                        allCompleted = false;
-                                        break;
-                                    }
-                                }
-                            }
+                            loadAggregateService.tripChanged(load, beforeFinalize, trip);
+                            boolean allCompleted = load.getCompletedTrips() == load.getTripCount();
                             
                             // ✅ FIXED: Use String constant instead of LoadStatus enum
                             if (allCompleted && load.getTripsCount() > 0) {
@@ -4,6 +4,7 @@ import com.pgsa.trailers.dto.CreateTripRequest;
 import com.pgsa.trailers.dto.TripResponse;
 import com.pgsa.trailers.dto.UpdateTripRequest;
 import com.pgsa.trailers.entity.assets.Driver;
+import com.pgsa.trailers.entity.assets.FleetStatusChangedEvent;
 import com.pgsa.trailers.entity.assets.Vehicle;
 import com.pgsa.trailers.entity.ops.Customer;
 import com.pgsa.trailers.entity.ops.CreateTripMapper;
@@ -14,6 +15,7 @@ import com.pgsa.trailers.entity.ops.auto.TripCompletedEvent;
 import com.pgsa.trailers.entity.ops.auto.TripPlannedEvent;
 import com.pgsa.trailers.entity.ops.auto.TripStartedEvent;
 import com.pgsa.trailers.entity.suppliers.TripValidationException;
+import com.pgsa.trailers.entity.system.AuditEvent;
 import com.pgsa.trailers.repository.CustomerRepository;
 import com.pgsa.trailers.repository.DriverRepository;
 import com.pgsa.trailers.repository.LoadRepository;
@@ -62,6 +64,8 @@ public class TripService {
     private final ApplicationEventPublisher eventPublisher;
     private final TripValidator tripValidator;
     private final JdbcTemplate jdbcTemplate;
+    private final AuditEventService auditEventService;
+    private final LoadAggregateService loadAggregateService;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -194,17 +198,15 @@ public class TripService {
             trip.setLoadDescription(load.getDescription());
             trip.setLoadStatus(load.getStatus() != null ? load.getStatus() : LOAD_STATUS_PENDING);
             
-            if (load.getTrips() == null) {
-                load.setTrips(new ArrayList<>());
-            }
+            // Only the first trip is needed for defaults, not the whole collection; looked up
+            // before the new trip is queued on the load so the query's auto-flush can't cascade it
+            Trip firstTrip = tripRepository.findFirstByLoadIdOrderByIdAsc(load.getLoadNumber()).orElse(null);
+            
             load.getTrips().add(trip);
-            load.setTripsCount(load.getTrips().size());
             load.setUpdatedAt(LocalDateTime.now());
             load.setLastStatusUpdate(LocalDateTime.now());
             
-            if (!load.getTrips().isEmpty()) {
-                Trip firstTrip = load.getTrips().get(0);
-                
+            if (firstTrip != null) {
                 if (trip.getVehicle() == null && firstTrip.getVehicle() != null) {
                     log.info("🚗 Pre-populating vehicle from first trip: {}", firstTrip.getVehicle().getId());
                     trip.setVehicle(firstTrip.getVehicle());
@@ -253,16 +255,8 @@ public class TripService {
             newLoad.setOriginLocation(request.getOriginLocation());
             newLoad.setDestinationLocation(request.getDestinationLocation());
             
-            if (request.getFromDepotKm() != null) {
-                newLoad.setTotalFromDepotKm(request.getFromDepotKm());
-            }
-            if (request.getToDepotKm() != null) {
-                newLoad.setTotalToDepotKm(request.getToDepotKm());
-            }
-            
             newLoad.setTrips(new ArrayList<>());
             newLoad.getTrips().add(trip);
-            newLoad.setTripsCount(1);
             
             Load savedLoad = loadRepository.save(newLoad);
             
@@ -373,10 +367,9 @@ public class TripService {
         Trip saved = tripRepository.save(trip);
 
         if (load != null && load.getId() != null) {
-            load.setTripsCount(load.getTrips().size());
+            loadAggregateService.tripAdded(load, saved);
             load.setUpdatedAt(LocalDateTime.now());
             load.setLastStatusUpdate(LocalDateTime.now());
-            load.recalculateDepotTotals();
             loadRepository.save(load);
             log.info("📦 Updated existing load {} with new trip {}", load.getLoadNumber(), saved.getId());
         }
@@ -392,6 +385,9 @@ public class TripService {
         );
 
         tripMetricsService.initializeMetrics(saved.getId());
+        auditEventService.record(AuditEvent.ENTITY_TRIP, saved.getId(), "CREATED",
+                AuditEventService.details("tripNumber", saved.getTripNumber(),
+                        "tripType", saved.getTripType(), "status", saved.getStatus()));
 
         // Use String comparison instead of enum
         if (STATUS_PLANNED.equals(saved.getStatus())) {
@@ -410,6 +406,8 @@ public class TripService {
         
         Trip trip = findTripOrThrow(tripId);
         tripValidator.validateCanStart(trip, actualStartOdometer);
+        Load load = trip.getLoad();
+        LoadAggregateService.TripContribution before = LoadAggregateService.TripContribution.of(trip);
 
         trip.setActualStartOdometer(actualStartOdometer);
         trip.setActualStartDate(LocalDateTime.now());
@@ -417,8 +415,11 @@ public class TripService {
         trip.setLastStatusUpdate(LocalDateTime.now());
         trip.setUpdatedAt(LocalDateTime.now());
         trip.setUpdatedBy(userId);
+        syncLoadAggregates(load, before, trip);
 
         Trip updated = tripRepository.save(trip);
+        auditEventService.record(AuditEvent.ENTITY_TRIP, tripId, "STARTED",
+                AuditEventService.details("startOdometer", actualStartOdometer));
         eventPublisher.publishEvent(new TripStartedEvent(tripId));
         log.info("Trip {} started", tripId);
 
@@ -434,6 +435,8 @@ public class TripService {
         
         Trip trip = findTripOrThrow(tripId);
         tripValidator.validateCanEnd(trip, actualEndOdometer);
+        Load load = trip.getLoad();
+        LoadAggregateService.TripContribution before = LoadAggregateService.TripContribution.of(trip);
 
         BigDecimal startOdo = trip.getActualStartOdometer();
         
@@ -449,8 +452,12 @@ public class TripService {
             long hours = java.time.Duration.between(trip.getActualStartDate(), trip.getActualEndDate()).toHours();
             trip.setActualDurationHours(BigDecimal.valueOf(hours));
         }
+        syncLoadAggregates(load, before, trip);
 
         Trip updated = tripRepository.save(trip);
+        auditEventService.record(AuditEvent.ENTITY_TRIP, tripId, "COMPLETED",
+                AuditEventService.details("endOdometer", actualEndOdometer,
+                        "distanceKm", trip.getActualDistanceKm()));
         eventPublisher.publishEvent(new TripCompletedEvent(tripId));
         log.info("Trip {} completed. Distance: {} km", tripId, trip.getActualDistanceKm());
 
@@ -545,6 +552,8 @@ public class TripService {
         
         Trip trip = findTripOrThrow(tripId);
         tripValidator.validateStatusTransition(trip.getStatus(), newStatus);
+        Load load = trip.getLoad();
+        LoadAggregateService.TripContribution before = LoadAggregateService.TripContribution.of(trip);
         
         String oldStatus = trip.getStatus();
         trip.setStatus(newStatus);
@@ -562,8 +571,11 @@ public class TripService {
                 trip.setActualDurationHours(BigDecimal.valueOf(hours));
             }
         }
+        syncLoadAggregates(load, before, trip);
 
         Trip saved = tripRepository.save(trip);
+        auditEventService.record(AuditEvent.ENTITY_TRIP, tripId, "STATUS_CHANGED",
+                AuditEventService.details("from", oldStatus, "to", newStatus));
 
         if (STATUS_PLANNED.equals(newStatus)) {
             eventPublisher.publishEvent(new TripPlannedEvent(tripId));
@@ -571,6 +583,11 @@ public class TripService {
             eventPublisher.publishEvent(new TripStartedEvent(tripId));
         } else if (STATUS_COMPLETED.equals(newStatus)) {
             eventPublisher.publishEvent(new TripCompletedEvent(tripId));
+        } else {
+            // Cancelled, on hold or reassigned trips still change the fleet board
+            eventPublisher.publishEvent(FleetStatusChangedEvent.of(
+                    saved.getVehicle() != null ? saved.getVehicle().getId() : null,
+                    saved.getDriver() != null ? saved.getDriver().getId() : null));
         }
         
         log.info("Trip {} status changed from {} to {}", tripId, oldStatus, newStatus);
@@ -609,6 +626,8 @@ public class TripService {
         log.debug("Assigning load {} to trip {}", loadId, tripId);
         
         Trip trip = findTripOrThrow(tripId);
+        Load previousLoad = trip.getLoad();
+        LoadAggregateService.TripContribution before = LoadAggregateService.TripContribution.of(trip);
         
         if (loadId != null && !loadId.isEmpty()) {
             Load load = loadRepository.findByLoadNumber(loadId)
@@ -630,6 +649,7 @@ public class TripService {
         
         trip.setUpdatedAt(LocalDateTime.now());
         trip.setUpdatedBy(userId);
+        syncLoadAggregates(previousLoad, before, trip);
         
         Trip updated = tripRepository.save(trip);
         log.info("Load assigned to trip {}: {}", tripId, loadId);
@@ -637,6 +657,28 @@ public class TripService {
         return tripResponseMapper.toResponse(updated);
     }
 
+    /**
+     * Moves the trip's contribution from the load it was on (captured as {@code before})
+     * to the load it is on now, which may be the same load, another one or none.
+     */
+    private void syncLoadAggregates(Load previousLoad, LoadAggregateService.TripContribution before, Trip trip) {
+        Load currentLoad = trip.getLoad();
+        if (previousLoad == null && currentLoad == null) {
+            return;
+        }
+        loadAggregateService.apply(previousLoad, before, currentLoad, trip);
+        if (previousLoad != null) {
+            if (currentLoad != previousLoad) {
+                // The load the trip left reports its remaining trips' totals
+                loadAggregateService.applyTripTotals(previousLoad);
+            }
+            loadRepository.save(previousLoad);
+        }
+        if (currentLoad != null && currentLoad != previousLoad) {
+            loadRepository.save(currentLoad);
+        }
+    }
+
     // ============================================================
     // INCIDENT RULE - FIXED to use String status
     // ============================================================
@@ -663,6 +705,12 @@ public class TripService {
             trip.setMetrics(null);
         }
         
+        if (trip.getLoad() != null) {
+            Load load = trip.getLoad();
+            loadAggregateService.tripRemoved(load, LoadAggregateService.TripContribution.of(trip));
+            loadRepository.save(load);
+        }
+        
         tripRepository.delete(trip);
         log.info("Deleted trip ID: {}", id);
     }
@@ -676,6 +724,8 @@ public class TripService {
         
         Trip trip = findTripOrThrow(tripId);
         tripValidator.validateCanUpdate(trip);
+        Load previousLoad = trip.getLoad();
+        LoadAggregateService.TripContribution before = LoadAggregateService.TripContribution.of(trip);
         
         LocalDateTime now = LocalDateTime.now();
 
@@ -782,12 +832,11 @@ public class TripService {
         trip.updateOriginLocationFromComponents();
         trip.updateDestinationLocationFromComponents();
 
-        if (trip.getLoad() != null) {
-            trip.getLoad().recalculateDepotTotals();
-            loadRepository.save(trip.getLoad());
-        }
+        syncLoadAggregates(previousLoad, before, trip);
 
         Trip saved = tripRepository.save(trip);
+        auditEventService.record(AuditEvent.ENTITY_TRIP, tripId, "UPDATED",
+                AuditEventService.details("status", saved.getStatus()));
         log.info("Updated trip ID: {}", tripId);
 
         return tripResponseMapper.toResponse(saved);
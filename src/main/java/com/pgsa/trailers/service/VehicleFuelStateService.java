@@ -0,0 +1,585 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.dto.VehicleFuelStateDTO;
+import com.pgsa.trailers.entity.assets.Vehicle;
+import com.pgsa.trailers.entity.finance.AccountLedgerChangedEvent;
+import com.pgsa.trailers.entity.ops.auto.TripCompletedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Live per-vehicle fuel estimate.
+ *
+ * Each vehicle is modelled as one combined tank: fuel slips add litres (capped at capacity),
+ * odometer advances from trips, slips and manual updates burn distance / km-per-litre, and
+ * range is what is left times km-per-litre. Every change only marks the vehicle dirty; a
+ * scheduled flush writes the latest state of each dirty vehicle to vehicle_fuel_status
+ * (tank 1) and vehicle.current_fuel_level, so any number of updates in an interval costs
+ * one write per vehicle.
+ *
+ * Slip edits and deletes are applied as the difference to what was previously counted.
+ * Slips within the slip window that already existed when a vehicle was loaded are treated
+ * as reflected in the stored level; slips older than the window are ignored.
+ */
+@Slf4j
+@Service
+public class VehicleFuelStateService {
+
+    public static final String STATUS_NORMAL = "NORMAL";
+    public static final String STATUS_LOW = "LOW";
+    public static final String STATUS_CRITICAL = "CRITICAL";
+    public static final String STATUS_EMPTY = "EMPTY";
+
+    private static final double DEFAULT_CAPACITY = 400.0;
+
+    private static final String STATE_SQL = """
+            SELECT v.id AS vehicle_id,
+                   v.fuel_capacity, v.current_fuel_level, v.current_odometer,
+                   v.fuel_efficiency, v.avg_consumption,
+                   s.current_level AS status_level, s.capacity AS status_capacity,
+                   s.last_refill_date, s.last_refill_odometer
+            FROM vehicle v
+            LEFT JOIN vehicle_fuel_status s ON s.vehicle_id = v.id AND s.tank_number = 1
+            """;
+
+    private static final String SLIP_SQL = """
+            SELECT id, vehicle_id, quantity, transaction_date, odometer_reading
+            FROM fuel_slip
+            """;
+
+    private static final String UPDATE_STATUS_SQL = """
+            UPDATE vehicle_fuel_status SET
+                current_level = ?, capacity = ?, estimated_range = ?, percentage_full = ?, status = ?,
+                last_refill_date = ?, last_refill_odometer = ?,
+                version = COALESCE(version, 0) + 1, updated_at = ?
+            WHERE vehicle_id = ? AND tank_number = 1
+            """;
+
+    private static final String INSERT_STATUS_SQL = """
+            INSERT INTO vehicle_fuel_status
+                (current_level, capacity, estimated_range, percentage_full, status,
+                 last_refill_date, last_refill_odometer, version, updated_at, vehicle_id, tank_number)
+            VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?, 1)
+            """;
+
+    private static final String UPDATE_VEHICLE_SQL =
+            "UPDATE vehicle SET current_fuel_level = ?, last_fuel_update = ? WHERE id = ?";
+
+    private static final RowMapper<SlipRow> SLIP_MAPPER = (rs, rowNum) -> {
+        long vehicleId = rs.getLong("vehicle_id");
+        boolean hasVehicle = !rs.wasNull();
+        BigDecimal odometer = rs.getBigDecimal("odometer_reading");
+        Timestamp date = rs.getTimestamp("transaction_date");
+        return new SlipRow(
+                rs.getLong("id"),
+                hasVehicle ? vehicleId : null,
+                rs.getBigDecimal("quantity") != null ? rs.getBigDecimal("quantity").doubleValue() : 0.0,
+                date != null ? date.toLocalDateTime() : null,
+                odometer != null ? odometer.doubleValue() : null);
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate writeTransaction;
+    private final Counter writes;
+
+    @Value("${app.fleet.fuel.default-km-per-liter:2.5}")
+    private double defaultKmPerLiter;
+
+    @Value("${app.fleet.fuel.slip-window-days:7}")
+    private int slipWindowDays;
+
+    @Value("${app.fleet.fuel.low-percent:25}")
+    private double lowPercent;
+
+    @Value("${app.fleet.fuel.critical-percent:10}")
+    private double criticalPercent;
+
+    private final Map<Long, FuelState> states = new ConcurrentHashMap<>();
+    // Litres each slip currently contributes, so edits and deletes apply as a difference
+    private final Map<Long, AppliedSlip> appliedSlips = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private volatile Boolean statusTableAvailable;
+
+    public VehicleFuelStateService(JdbcTemplate jdbcTemplate,
+                                   EntityManagerFactory entityManagerFactory,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        // The flush runs on the scheduler thread, outside any request transaction
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writes = Counter.builder("trailers.fleet.fuel.writes")
+                .description("Vehicles written by the fuel state flush")
+                .register(meterRegistry);
+        meterRegistry.gauge("trailers.fleet.fuel.pending", dirty, Set::size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<FuelState> loaded = jdbcTemplate.query(STATE_SQL + " WHERE v.is_active = true", this::mapState);
+            loaded.forEach(state -> states.putIfAbsent(state.vehicleId, state));
+            seedSlips(jdbcTemplate.query(SLIP_SQL + " WHERE transaction_date >= ? AND vehicle_id IS NOT NULL",
+                    SLIP_MAPPER, Timestamp.valueOf(slipWindowStart())));
+            log.info("⛽ Fuel state loaded for {} vehicle(s)", loaded.size());
+        } catch (Exception e) {
+            log.error("❌ Fuel state warm-up failed, vehicles will load on first use: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Write the last estimates so a clean shutdown loses nothing
+        flush();
+    }
+
+    // ============================================================
+    // INPUTS
+    // ============================================================
+
+    /**
+     * Fuel slips were created, edited or deleted (published with the account ledger event).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFuelSlipsChanged(AccountLedgerChangedEvent event) {
+        if (!AccountLedgerChangedEvent.SOURCE_FUEL_SLIP.equals(event.getSourceType())) {
+            return;
+        }
+        try {
+            applySlips(event.getSourceIds());
+        } catch (Exception e) {
+            log.error("❌ Fuel state update failed for slips {}: {}", event.getSourceIds(), e.getMessage());
+        }
+    }
+
+    /**
+     * A completed trip moves its vehicle to the trip's end odometer.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTripCompleted(TripCompletedEvent event) {
+        try {
+            jdbcTemplate.query("SELECT vehicle_id, actual_end_odometer FROM trip WHERE id = ? AND vehicle_id IS NOT NULL",
+                    rs -> {
+                        BigDecimal odometer = rs.getBigDecimal("actual_end_odometer");
+                        if (odometer != null) {
+                            applyOdometer(rs.getLong("vehicle_id"), odometer.doubleValue());
+                        }
+                    }, event.getTripId());
+        } catch (Exception e) {
+            log.error("❌ Fuel state update failed for trip {}: {}", event.getTripId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Odometer reading from a manual update; applied once the caller's transaction commits.
+     */
+    public void recordOdometer(Long vehicleId, BigDecimal odometer) {
+        if (vehicleId != null && odometer != null) {
+            afterCommit(() -> applyOdometer(vehicleId, odometer.doubleValue()));
+        }
+    }
+
+    /**
+     * Measured fuel level (dip reading or manual correction) replaces the estimate.
+     */
+    public void recordLevel(Long vehicleId, Double litres) {
+        if (vehicleId != null && litres != null) {
+            afterCommit(() -> update(vehicleId, state -> state.level = clamp(litres, state.capacity)));
+        }
+    }
+
+    /**
+     * Tank filled to capacity.
+     */
+    public void recordFull(Long vehicleId) {
+        if (vehicleId != null) {
+            afterCommit(() -> update(vehicleId, state -> {
+                state.level = state.capacity;
+                state.lastRefillDate = LocalDate.now();
+                state.lastRefillOdometer = state.odometer;
+            }));
+        }
+    }
+
+    /**
+     * The vehicle row was saved with whatever fuel level it carried; write the estimate back on the next flush.
+     */
+    public void rewrite(Long vehicleId) {
+        if (vehicleId != null) {
+            afterCommit(() -> {
+                if (states.containsKey(vehicleId)) {
+                    dirty.add(vehicleId);
+                }
+            });
+        }
+    }
+
+    // ============================================================
+    // READS
+    // ============================================================
+
+    public VehicleFuelStateDTO getState(Long vehicleId) {
+        FuelState state = state(vehicleId);
+        if (state == null) {
+            throw new RuntimeException("Vehicle not found with ID: " + vehicleId);
+        }
+        synchronized (state) {
+            return toDto(state);
+        }
+    }
+
+    /**
+     * Current estimate of every loaded vehicle, lowest percentage first.
+     */
+    public List<VehicleFuelStateDTO> getStates() {
+        List<VehicleFuelStateDTO> result = new ArrayList<>(states.size());
+        for (FuelState state : states.values()) {
+            synchronized (state) {
+                result.add(toDto(state));
+            }
+        }
+        result.sort(Comparator.comparing(VehicleFuelStateDTO::getPercentageFull));
+        return result;
+    }
+
+    // ============================================================
+    // WRITE-BEHIND
+    // ============================================================
+
+    @Scheduled(fixedDelayString = "${app.fleet.fuel.flush-interval-ms:5000}")
+    public void flush() {
+        pruneSlips();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> vehicleIds = new ArrayList<>(dirty);
+        vehicleIds.forEach(dirty::remove);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> statusRows = new ArrayList<>(vehicleIds.size());
+        List<Object[]> vehicleRows = new ArrayList<>(vehicleIds.size());
+        for (Long vehicleId : vehicleIds) {
+            FuelState state = states.get(vehicleId);
+            if (state == null) {
+                continue;
+            }
+            synchronized (state) {
+                statusRows.add(new Object[]{
+                        decimal(state.level), decimal(state.capacity), decimal(state.range()),
+                        decimal(state.percentage()), status(state),
+                        state.lastRefillDate != null ? Date.valueOf(state.lastRefillDate) : null,
+                        state.lastRefillOdometer != null ? decimal(state.lastRefillOdometer) : null,
+                        Timestamp.valueOf(now), vehicleId});
+                vehicleRows.add(new Object[]{state.level, Timestamp.valueOf(state.updatedAt), vehicleId});
+            }
+        }
+
+        try {
+            writeTransaction.executeWithoutResult(status -> write(statusRows, vehicleRows));
+            // vehicle.current_fuel_level was updated behind Hibernate's second-level cache
+            for (Object[] row : vehicleRows) {
+                entityManagerFactory.getCache().evict(Vehicle.class, row[2]);
+            }
+            writes.increment(vehicleRows.size());
+            log.debug("⛽ Flushed fuel state for {} vehicle(s)", vehicleRows.size());
+        } catch (Exception e) {
+            // Keep them dirty; the next flush writes whatever the state is by then
+            dirty.addAll(vehicleIds);
+            log.error("❌ Fuel state flush failed for {} vehicle(s): {}", vehicleIds.size(), e.getMessage());
+        }
+    }
+
+    private void write(List<Object[]> statusRows, List<Object[]> vehicleRows) {
+        if (isStatusTableAvailable()) {
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, statusRows);
+            List<Object[]> inserts = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    inserts.add(statusRows.get(i));
+                }
+            }
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_STATUS_SQL, inserts);
+            }
+        }
+        jdbcTemplate.batchUpdate(UPDATE_VEHICLE_SQL, vehicleRows);
+    }
+
+    // ============================================================
+    // STATE
+    // ============================================================
+
+    private void applySlips(Collection<Long> slipIds) {
+        Map<Long, SlipRow> current = new HashMap<>();
+        jdbcTemplate.query(SLIP_SQL + " WHERE id = ANY (?)", SLIP_MAPPER, (Object) slipIds.toArray(new Long[0]))
+                .forEach(slip -> current.put(slip.id(), slip));
+        LocalDateTime windowStart = slipWindowStart();
+
+        for (Long slipId : slipIds) {
+            SlipRow slip = current.get(slipId);
+            boolean counts = slip != null && slip.vehicleId() != null && slip.date() != null
+                    && !slip.date().isBefore(windowStart);
+            // Load both vehicles outside the map lock below; state() may hit the database
+            AppliedSlip known = appliedSlips.get(slipId);
+            if (known != null) {
+                state(known.vehicleId());
+            }
+            if (counts) {
+                state(slip.vehicleId(), slipIds);
+            }
+            appliedSlips.compute(slipId, (id, previous) -> {
+                if (previous != null) {
+                    updateLoaded(previous.vehicleId(),
+                            state -> state.level = clamp(state.level - previous.litres(), state.capacity));
+                }
+                if (!counts) {
+                    return null;
+                }
+                updateLoaded(slip.vehicleId(), state -> {
+                    if (slip.odometer() != null) {
+                        state.burnTo(slip.odometer());
+                    }
+                    state.level = clamp(state.level + slip.litres(), state.capacity);
+                    if (state.lastRefillDate == null || !slip.date().toLocalDate().isBefore(state.lastRefillDate)) {
+                        state.lastRefillDate = slip.date().toLocalDate();
+                        state.lastRefillOdometer = slip.odometer() != null ? slip.odometer() : state.odometer;
+                    }
+                });
+                return new AppliedSlip(slip.vehicleId(), slip.litres(), slip.date());
+            });
+        }
+    }
+
+    private void applyOdometer(long vehicleId, double odometer) {
+        update(vehicleId, state -> state.burnTo(odometer));
+    }
+
+    private void update(Long vehicleId, Consumer<FuelState> change) {
+        if (state(vehicleId) != null) {
+            updateLoaded(vehicleId, change);
+        }
+    }
+
+    /**
+     * Like {@link #update} but never touches the database; a vehicle that is not loaded is skipped.
+     */
+    private void updateLoaded(Long vehicleId, Consumer<FuelState> change) {
+        FuelState state = states.get(vehicleId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            change.accept(state);
+            state.updatedAt = LocalDateTime.now();
+        }
+        dirty.add(vehicleId);
+    }
+
+    private FuelState state(Long vehicleId) {
+        return state(vehicleId, List.of());
+    }
+
+    private FuelState state(Long vehicleId, Collection<Long> pendingSlipIds) {
+        FuelState state = states.get(vehicleId);
+        if (state != null) {
+            return state;
+        }
+        List<FuelState> loaded = jdbcTemplate.query(STATE_SQL + " WHERE v.id = ?", this::mapState, vehicleId);
+        if (loaded.isEmpty()) {
+            return null;
+        }
+        FuelState existing = states.putIfAbsent(vehicleId, loaded.get(0));
+        if (existing == null) {
+            // Slips that already existed are part of the stored level; the ones being applied are not
+            seedSlips(jdbcTemplate.query(SLIP_SQL + " WHERE vehicle_id = ? AND transaction_date >= ?",
+                            SLIP_MAPPER, vehicleId, Timestamp.valueOf(slipWindowStart())).stream()
+                    .filter(slip -> !pendingSlipIds.contains(slip.id()))
+                    .toList());
+            return loaded.get(0);
+        }
+        return existing;
+    }
+
+    private void seedSlips(List<SlipRow> slips) {
+        slips.forEach(slip -> appliedSlips.putIfAbsent(slip.id(),
+                new AppliedSlip(slip.vehicleId(), slip.litres(), slip.date())));
+    }
+
+    private void pruneSlips() {
+        LocalDateTime windowStart = slipWindowStart();
+        appliedSlips.values().removeIf(slip -> slip.date().isBefore(windowStart));
+    }
+
+    private FuelState mapState(ResultSet rs, int rowNum) throws SQLException {
+        double capacity = positive(rs.getObject("fuel_capacity"), positive(rs.getObject("status_capacity"), DEFAULT_CAPACITY));
+        // The fuel status row is the last persisted estimate; the vehicle column is the manual fallback
+        Number level = (Number) (rs.getObject("status_level") != null ? rs.getObject("status_level") : rs.getObject("current_fuel_level"));
+        BigDecimal odometer = rs.getBigDecimal("current_odometer");
+        Date refillDate = rs.getDate("last_refill_date");
+        BigDecimal refillOdometer = rs.getBigDecimal("last_refill_odometer");
+
+        FuelState state = new FuelState(rs.getLong("vehicle_id"));
+        state.capacity = capacity;
+        state.level = clamp(level != null ? level.doubleValue() : 0.0, capacity);
+        state.odometer = odometer != null ? odometer.doubleValue() : null;
+        state.kmPerLiter = kmPerLiter(rs.getBigDecimal("fuel_efficiency"), rs.getBigDecimal("avg_consumption"));
+        state.lastRefillDate = refillDate != null ? refillDate.toLocalDate() : null;
+        state.lastRefillOdometer = refillOdometer != null ? refillOdometer.doubleValue() : null;
+        state.updatedAt = LocalDateTime.now();
+        return state;
+    }
+
+    /**
+     * fuel_efficiency is km per litre; avg_consumption is litres per 100 km.
+     */
+    private double kmPerLiter(BigDecimal fuelEfficiency, BigDecimal avgConsumption) {
+        if (fuelEfficiency != null && fuelEfficiency.signum() > 0) {
+            return fuelEfficiency.doubleValue();
+        }
+        if (avgConsumption != null && avgConsumption.signum() > 0) {
+            return 100.0 / avgConsumption.doubleValue();
+        }
+        return defaultKmPerLiter;
+    }
+
+    private String status(FuelState state) {
+        double percentage = state.percentage();
+        if (state.level <= 0) {
+            return STATUS_EMPTY;
+        }
+        if (percentage < criticalPercent) {
+            return STATUS_CRITICAL;
+        }
+        return percentage < lowPercent ? STATUS_LOW : STATUS_NORMAL;
+    }
+
+    private VehicleFuelStateDTO toDto(FuelState state) {
+        return VehicleFuelStateDTO.builder()
+                .vehicleId(state.vehicleId)
+                .currentLevel(decimal(state.level))
+                .capacity(decimal(state.capacity))
+                .percentageFull(decimal(state.percentage()))
+                .estimatedRange(decimal(state.range()))
+                .kmPerLiter(decimal(state.kmPerLiter))
+                .odometer(state.odometer != null ? decimal(state.odometer) : null)
+                .status(status(state))
+                .lastRefillDate(state.lastRefillDate)
+                .lastRefillOdometer(state.lastRefillOdometer != null ? decimal(state.lastRefillOdometer) : null)
+                .updatedAt(state.updatedAt)
+                .pendingWrite(dirty.contains(state.vehicleId))
+                .build();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private boolean isStatusTableAvailable() {
+        if (statusTableAvailable == null) {
+            statusTableAvailable = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT to_regclass('vehicle_fuel_status') IS NOT NULL", Boolean.class));
+        }
+        return statusTableAvailable;
+    }
+
+    private LocalDateTime slipWindowStart() {
+        return LocalDateTime.now().minusDays(slipWindowDays);
+    }
+
+    private static double clamp(double litres, double capacity) {
+        return Math.max(0.0, Math.min(capacity, litres));
+    }
+
+    private static double positive(Object value, double fallback) {
+        return value instanceof Number number && number.doubleValue() > 0 ? number.doubleValue() : fallback;
+    }
+
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static final class FuelState {
+        private final long vehicleId;
+        private double capacity;
+        private double level;
+        private Double odometer;
+        private double kmPerLiter;
+        private LocalDate lastRefillDate;
+        private Double lastRefillOdometer;
+        private LocalDateTime updatedAt;
+
+        private FuelState(long vehicleId) {
+            this.vehicleId = vehicleId;
+        }
+
+        /**
+         * Burn the fuel for the distance up to a reading; readings behind the current one are ignored.
+         */
+        private void burnTo(double reading) {
+            if (odometer != null && reading > odometer) {
+                level = clamp(level - (reading - odometer) / kmPerLiter, capacity);
+            }
+            if (odometer == null || reading > odometer) {
+                odometer = reading;
+            }
+        }
+
+        private double percentage() {
+            return capacity > 0 ? level / capacity * 100.0 : 0.0;
+        }
+
+        private double range() {
+            return level * kmPerLiter;
+        }
+    }
+
+    private record SlipRow(long id, Long vehicleId, double litres, LocalDateTime date, Double odometer) { }
+
+    private record AppliedSlip(Long vehicleId, double litres, LocalDateTime date) { }
+}
@@ -3,6 +3,8 @@ package com.pgsa.trailers.service.inventory;
 import com.pgsa.trailers.dto.*;
 import com.pgsa.trailers.entity.inventory.*;
 import com.pgsa.trailers.repository.*;
+import com.pgsa.trailers.service.StockLedgerService;
+import com.pgsa.trailers.service.StockReservationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -11,7 +13,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +31,8 @@ public class VehicleIssueService {
     private final InventoryItemRepository inventoryItemRepository;
     private final InventoryLocationRepository inventoryLocationRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final StockReservationService stockReservationService;
+    private final StockLedgerService stockLedgerService;
 
     private static final String ISSUE_NUMBER_PREFIX = "ISS-";
 
@@ -36,16 +42,12 @@ public class VehicleIssueService {
     public VehicleIssueResponseDTO issueItemsToVehicle(VehicleIssueRequestDTO request, Long userId) {
         log.info("🚗 Issuing items to vehicle: {}", request.getVehicleId());
 
-        // Validate items
+        // Deduct all lines atomically (all-or-nothing) before anything is written
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (VehicleIssueItemRequestDTO itemReq : request.getItems()) {
-            InventoryItem item = inventoryItemRepository.findById(itemReq.getItemId())
-                    .orElseThrow(() -> new RuntimeException("Item not found: " + itemReq.getItemId()));
-
-            if (item.getQuantity() < itemReq.getQuantity().intValue()) {
-                throw new RuntimeException("Insufficient stock for item: " + item.getName() +
-                        ". Available: " + item.getQuantity() + ", Requested: " + itemReq.getQuantity());
-            }
+            quantities.merge(itemReq.getItemId(), itemReq.getQuantity().intValue(), Integer::sum);
         }
+        stockReservationService.reserve(quantities);
 
         // Create Vehicle Issue
         VehicleIssue issue = VehicleIssue.builder()
@@ -63,29 +65,21 @@ public class VehicleIssueService {
         vehicleIssueRepository.save(issue);
 
         // Process items
+        List<VehicleIssueItem> issueItems = new ArrayList<>();
+        List<StockMovement> movements = new ArrayList<>();
         for (VehicleIssueItemRequestDTO itemReq : request.getItems()) {
             // Create issue item
-            VehicleIssueItem issueItem = VehicleIssueItem.builder()
+            issueItems.add(VehicleIssueItem.builder()
                     .issue(issue)
                     .itemId(itemReq.getItemId())
                     .quantityIssued(itemReq.getQuantity())
                     .quantityReturned(BigDecimal.ZERO)
                     .conditionIssued(itemReq.getCondition())
                     .notes(itemReq.getNotes())
-                    .build();
-
-            vehicleIssueItemRepository.save(issueItem);
-
-            // Update inventory (deduct from main stock)
-            InventoryItem item = inventoryItemRepository.findById(itemReq.getItemId())
-                    .orElseThrow(() -> new RuntimeException("Item not found: " + itemReq.getItemId()));
-            
-            int newQuantity = item.getQuantity() - itemReq.getQuantity().intValue();
-            item.setQuantity(newQuantity);
-            inventoryItemRepository.save(item);
+                    .build());
 
             // Create stock movement
-            StockMovement movement = StockMovement.builder()
+            movements.add(StockMovement.builder()
                     .itemId(itemReq.getItemId())
                     .quantity(itemReq.getQuantity().intValue())
                     .movementType("OUT")
@@ -99,11 +93,14 @@ public class VehicleIssueService {
                     .referenceType("VEHICLE_ISSUE")
                     .requiresApproval(false)
                     .approvalStatus("APPROVED")
-                    .build();
-
-            stockMovementRepository.save(movement);
+                    .build());
         }
 
+        // Pooled ids: both lists go out as JDBC batches
+        vehicleIssueItemRepository.saveAll(issueItems);
+        stockMovementRepository.saveAll(movements);
+        stockLedgerService.post(movements);
+
         log.info("✅ Items issued successfully. Issue Number: {}", issue.getIssueNumber());
         return mapToResponseDTO(issue);
     }
@@ -129,14 +126,7 @@ public VehicleIssueResponseDTO swapItem(Long oldIssueId, SwapItemRequestDTO swap
         throw new RuntimeException("Item already returned, cannot swap");
     }
     
-    // 4. Validate new item has sufficient stock
-    InventoryItem newItem = inventoryItemRepository.findById(swapRequest.getNewItemId())
-            .orElseThrow(() -> new RuntimeException("New item not found: " + swapRequest.getNewItemId()));
-    
-    if (newItem.getQuantity() < swapRequest.getNewQuantity()) {
-        throw new RuntimeException("Insufficient stock for new item: " + newItem.getName() +
-                ". Available: " + newItem.getQuantity() + ", Requested: " + swapRequest.getNewQuantity());
-    }
+    // 4. New item stock is reserved atomically by issueItemsToVehicle (step 10)
     
     // 5. Process the old item return
     BigDecimal returnQuantity = swapRequest.getReturnQuantity() != null ? 
@@ -161,9 +151,7 @@ public VehicleIssueResponseDTO swapItem(Long oldIssueId, SwapItemRequestDTO swap
     inventoryItemRepository.save(inventoryItem);
     
     // 7. Return old item to inventory with hold status
-    int currentQuantity = inventoryItem.getQuantity() != null ? inventoryItem.getQuantity() : 0;
-    inventoryItem.setQuantity(currentQuantity + returnQuantity.intValue());
-    inventoryItemRepository.save(inventoryItem);
+    stockReservationService.release(swapRequest.getOldItemId(), returnQuantity.intValue());
     
     // 8. Create stock movement for return
     StockMovement returnMovement = StockMovement.builder()
@@ -179,6 +167,7 @@ public VehicleIssueResponseDTO swapItem(Long oldIssueId, SwapItemRequestDTO swap
             .approvalStatus("APPROVED")
             .build();
     stockMovementRepository.save(returnMovement);
+    stockLedgerService.post(List.of(returnMovement));
     
     // 9. Create new issue for the replacement item
     VehicleIssueRequestDTO newIssueRequest = new VehicleIssueRequestDTO();
@@ -217,6 +206,8 @@ public VehicleIssueResponseDTO swapItem(Long oldIssueId, SwapItemRequestDTO swap
         VehicleIssue issue = vehicleIssueRepository.findById(issueId)
                 .orElseThrow(() -> new RuntimeException("Vehicle issue not found: " + issueId));
 
+        Map<Long, Integer> returnedQuantities = new LinkedHashMap<>();
+        List<StockMovement> returnMovements = new ArrayList<>();
         for (ReturnItemRequestDTO returnReq : returns) {
             VehicleIssueItem issueItem = vehicleIssueItemRepository
                     .findByIssueIdAndItemId(issueId, returnReq.getItemId())
@@ -229,13 +220,8 @@ public VehicleIssueResponseDTO swapItem(Long oldIssueId, SwapItemRequestDTO swap
             issueItem.setUpdatedAt(LocalDateTime.now());
             vehicleIssueItemRepository.save(issueItem);
 
-            // Return to inventory
-            InventoryItem item = inventoryItemRepository.findById(returnReq.getItemId())
-                    .orElseThrow(() -> new RuntimeException("Item not found: " + returnReq.getItemId()));
-            
-            int newQuantity = item.getQuantity() + returnReq.getQuantity().intValue();
-            item.setQuantity(newQuantity);
-            inventoryItemRepository.save(item);
+            // Return to inventory (applied below in one batch)
+            returnedQuantities.merge(returnReq.getItemId(), returnReq.getQuantity().intValue(), Integer::sum);
 
             // Create stock movement
             StockMovement movement = StockMovement.builder()
@@ -253,8 +239,12 @@ public VehicleIssueResponseDTO swapItem(Long oldIssueId, SwapItemRequestDTO swap
                     .build();
 
             stockMovementRepository.save(movement);
+            returnMovements.add(movement);
         }
 
+        stockReservationService.release(returnedQuantities);
+        stockLedgerService.post(returnMovements);
+
         // Update issue status
         updateIssueStatus(issue);
 
@@ -6,16 +6,20 @@ import com.pgsa.trailers.dto.MaintenanceRecordResponse;
 import com.pgsa.trailers.dto.VehicleCertificateDTO;
 import com.pgsa.trailers.dto.VehicleDTO;
 import com.pgsa.trailers.entity.assets.Driver;
+import com.pgsa.trailers.entity.assets.FleetStatusChangedEvent;
 import com.pgsa.trailers.entity.assets.Vehicle;
 import com.pgsa.trailers.entity.assets.VehicleMapper;
+import com.pgsa.trailers.entity.system.AuditEvent;
 import com.pgsa.trailers.entity.vehicle.Certificate;
 import com.pgsa.trailers.entity.vehicle.MaintenanceRecord;
 import com.pgsa.trailers.repository.CertificateRepository;
 import com.pgsa.trailers.repository.DriverRepository;
 import com.pgsa.trailers.repository.MaintenanceRepository;
+import com.pgsa.trailers.repository.NaturalIdRepository;
 import com.pgsa.trailers.repository.VehicleRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -46,6 +50,10 @@ public class VehicleService {
     private final VehicleMapper vehicleMapper;
     private final CertificateRepository certificateRepository;
     private final MaintenanceRepository maintenanceRepository;
+    private final NaturalIdRepository naturalIdRepository;
+    private final AuditEventService auditEventService;
+    private final VehicleFuelStateService vehicleFuelStateService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ====== Query Methods ======
     
@@ -73,7 +81,7 @@ public class VehicleService {
 
     public Vehicle getVehicleByRegistration(String registrationNumber) {
         log.debug("Fetching vehicle by registration: {}", registrationNumber);
-        return vehicleRepository.findByRegistrationNumber(registrationNumber)
+        return naturalIdRepository.findBySimpleNaturalId(Vehicle.class, registrationNumber)
                 .orElseThrow(() -> new RuntimeException("Vehicle not found with registration: " + registrationNumber));
     }
 
@@ -223,6 +231,7 @@ public class VehicleService {
         }
         
         vehicleRepository.save(vehicle);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.vehicle(vehicle.getId()));
         
         return maintenanceRepository.save(record);
     }
@@ -267,12 +276,27 @@ public class VehicleService {
         }
         
         Vehicle saved = vehicleRepository.save(vehicle);
+        vehicleFuelStateService.recordFull(vehicleId);
         log.info("✅ Fuel reset to full for vehicle {}: {} L (version: {})", 
             vehicleId, saved.getCurrentFuelLevel(), saved.getVersion());
         
         return VehicleDTO.fromEntity(saved);
     }
 
+    @Transactional
+    public Vehicle updateFuelLevel(Long vehicleId, Double fuelLevel) {
+        log.info("⛽ Setting measured fuel level for vehicle {}: {} L", vehicleId, fuelLevel);
+
+        Vehicle vehicle = getVehicleById(vehicleId);
+        vehicle.setCurrentFuelLevel(fuelLevel);
+        vehicle.setLastFuelUpdate(LocalDateTime.now());
+
+        Vehicle saved = vehicleRepository.save(vehicle);
+        // A measured level replaces the estimate
+        vehicleFuelStateService.recordLevel(vehicleId, fuelLevel);
+        return saved;
+    }
+
     // ====== Create Methods ======
     
     @Transactional
@@ -305,6 +329,7 @@ public class VehicleService {
         vehicle.calculateNextService();
         
         Vehicle saved = vehicleRepository.save(vehicle);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.vehicle(saved.getId()));
         log.info("✅ Successfully created vehicle with ID: {}", saved.getId());
         return saved;
     }
@@ -328,6 +353,7 @@ public class VehicleService {
         
         vehicle.calculateNextService();
         Vehicle saved = vehicleRepository.save(vehicle);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.vehicle(saved.getId()));
         log.info("✅ Successfully created vehicle from DTO with ID: {}", saved.getId());
         return saved;
     }
@@ -339,6 +365,7 @@ public class VehicleService {
         log.info("Updating vehicle ID: {}", id);
         
         Vehicle vehicle = getVehicleById(id);
+        BigDecimal previousOdometer = vehicle.getCurrentOdometer();
         mapDtoToEntity(dto, vehicle);
         vehicle.calculateNextService();
 
@@ -352,6 +379,14 @@ public class VehicleService {
         try {
             Vehicle saved = vehicleRepository.save(vehicle);
             log.info("✅ Successfully updated vehicle ID: {}", saved.getId());
+            auditEventService.record(AuditEvent.ENTITY_VEHICLE, saved.getId(), "UPDATED",
+                    AuditEventService.details("status", saved.getStatus()));
+            if (saved.getCurrentOdometer() != null && !saved.getCurrentOdometer().equals(previousOdometer)) {
+                vehicleFuelStateService.recordOdometer(id, saved.getCurrentOdometer());
+            }
+            // The saved row carries the form's fuel level, which may be stale; put the estimate back
+            vehicleFuelStateService.rewrite(id);
+            eventPublisher.publishEvent(FleetStatusChangedEvent.vehicle(id));
             return saved;
         } catch (Exception e) {
             log.error("❌ Failed to update vehicle: {}", e.getMessage(), e);
@@ -366,6 +401,7 @@ public class VehicleService {
         log.info("Deleting vehicle ID: {}", id);
         Vehicle vehicle = getVehicleById(id);
         vehicleRepository.delete(vehicle);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.vehicle(id));
         log.info("✅ Successfully deleted vehicle ID: {}", id);
     }
 
@@ -376,6 +412,7 @@ public class VehicleService {
         vehicle.softDelete();
         vehicle.setStatus(STATUS_INACTIVE);
         vehicleRepository.save(vehicle);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.vehicle(id));
         log.info("✅ Successfully soft deleted vehicle ID: {}", id);
     }
 
@@ -389,6 +426,7 @@ public class VehicleService {
             vehicle.setStatus(STATUS_AVAILABLE);
         }
         vehicleRepository.save(vehicle);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.vehicle(id));
         log.info("✅ Successfully restored vehicle ID: {}", id);
     }
 
@@ -405,8 +443,14 @@ public class VehicleService {
             throw new RuntimeException("Driver is not active");
         }
         
+        Long previousDriverId = vehicle.getAssignedDriver() != null ? vehicle.getAssignedDriver().getId() : null;
         vehicle.assignDriver(driver);
         vehicleRepository.save(vehicle);
+        auditEventService.record(AuditEvent.ENTITY_VEHICLE, vehicleId, "DRIVER_ASSIGNED",
+                AuditEventService.details("driverId", driverId));
+        eventPublisher.publishEvent(new FleetStatusChangedEvent(List.of(vehicleId),
+                previousDriverId != null && !previousDriverId.equals(driverId)
+                        ? List.of(driverId, previousDriverId) : List.of(driverId)));
         log.info("✅ Driver {} assigned to vehicle {}", driverId, vehicleId);
     }
 
@@ -414,8 +458,12 @@ public class VehicleService {
     public void unassignDriverFromVehicle(Long vehicleId) {
         log.info("Unassigning driver from vehicle {}", vehicleId);
         Vehicle vehicle = getActiveVehicleById(vehicleId);
+        Long previousDriverId = vehicle.getAssignedDriver() != null ? vehicle.getAssignedDriver().getId() : null;
         vehicle.unassignDriver();
         vehicleRepository.save(vehicle);
+        auditEventService.record(AuditEvent.ENTITY_VEHICLE, vehicleId, "DRIVER_UNASSIGNED", null);
+        eventPublisher.publishEvent(new FleetStatusChangedEvent(List.of(vehicleId),
+                previousDriverId != null ? List.of(previousDriverId) : List.of()));
         log.info("✅ Driver unassigned from vehicle {}", vehicleId);
     }
 
@@ -425,6 +473,8 @@ public class VehicleService {
         Vehicle vehicle = getActiveVehicleById(vehicleId);
         vehicle.updateOdometer(newOdometer);
         vehicleRepository.save(vehicle);
+        vehicleFuelStateService.recordOdometer(vehicleId, newOdometer);
+        eventPublisher.publishEvent(FleetStatusChangedEvent.vehicle(vehicleId));
         log.info("✅ Odometer updated for vehicle {}", vehicleId);
     }
 
@@ -54,15 +54,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 return;
             }
 
-            // Validate token
-            if (!jwtService.isValid(token)) {
-                log.warn("❌ Invalid JWT token for: {} {}", requestMethod, requestPath);
-                handleUnauthorized(response, "Invalid authentication token");
-                return;
-            }
+            // Verify once; expired, malformed or badly signed tokens throw below
+            JwtService.VerifiedClaims claims = jwtService.verify(token);
 
-            // Extract username from token
-            String username = jwtService.extractUsername(token);
+            String username = claims.email();
             if (!StringUtils.hasText(username)) {
                 log.warn("❌ No username in JWT token for: {} {}", requestMethod, requestPath);
                 handleUnauthorized(response, "Invalid token payload");
@@ -82,9 +77,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             log.debug("👤 UserDetails loaded: {}, authorities: {}",
                     userDetails.getUsername(), userDetails.getAuthorities());
 
-            // Extract authorities from token
-            List<String> roles = jwtService.extractAuthorities(token);
-            log.debug("🎯 Authorities from JWT: {}", roles);
+            log.debug("🎯 Authorities from JWT: {}", claims.authorities());
 
             // Create authentication token
             UsernamePasswordAuthenticationToken authentication =
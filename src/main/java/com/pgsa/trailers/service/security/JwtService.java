@@ -1,25 +1,98 @@
 package com.pgsa.trailers.service.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Issues and verifies the HS256 access tokens.
+ *
+ * {@link #verify(String)} is the one verification path: the signature is checked once by a
+ * shared parser (jjwt parsers are immutable and thread-safe) and the claims come back as an
+ * immutable {@link VerifiedClaims}. Verified tokens are cached by their SHA-256 hash until
+ * their own expiry, so repeat requests with the same token skip the base64/JSON parse and
+ * the HMAC entirely. The cache never outlives a token, and a token that fails verification
+ * is never cached.
+ *
+ * Verification time is recorded as trailers.auth.jwt.verify, tagged with the cache outcome.
+ */
 @Service
-@RequiredArgsConstructor
 public class JwtService {
 
+    private static final long EXPIRY = 1000 * 60 * 60 * 8; // 8 hours
+
     private final Key signingKey;
+    private final JwtParser parser;
+    private final Cache<String, VerifiedClaims> verified;
+    private final Timer hitTimer;
+    private final Timer missTimer;
+    private final Timer rejectedTimer;
 
-    private static final long EXPIRY = 1000 * 60 * 60 * 8; // 8 hours
+    /**
+     * Claims of a token whose signature and expiry have been checked.
+     */
+    public record VerifiedClaims(Long userId, String email, List<String> authorities,
+                                 Instant issuedAt, Instant expiresAt) {
+
+        public VerifiedClaims {
+            authorities = authorities != null ? List.copyOf(authorities) : List.of();
+        }
+
+        public boolean isExpired(Instant now) {
+            return !expiresAt.isAfter(now);
+        }
+    }
+
+    public JwtService(Key signingKey,
+                      MeterRegistry meterRegistry,
+                      @Value("${security.jwt.verified-cache.maximum-size:10000}") long cacheSize) {
+        this.signingKey = signingKey;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<String, VerifiedClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedClaims claims, long currentTime) {
+                        return remainingNanos(claims);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedClaims claims, long currentTime, long currentDuration) {
+                        return remainingNanos(claims);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.hitTimer = verifyTimer(meterRegistry, "hit");
+        this.missTimer = verifyTimer(meterRegistry, "miss");
+        this.rejectedTimer = verifyTimer(meterRegistry, "rejected");
+    }
 
     /**
      * Generate a JWT token with userId as subject and email + authorities as claims.
@@ -45,18 +118,47 @@ public class JwtService {
                 .compact();
     }
 
+    /**
+     * Verifies the token once and returns its claims.
+     *
+     * @throws JwtException (ExpiredJwtException, SignatureException, MalformedJwtException, ...)
+     *                      or IllegalArgumentException when the token cannot be trusted
+     */
+    public VerifiedClaims verify(String token) {
+        long started = System.nanoTime();
+        if (token == null || token.isBlank()) {
+            rejectedTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            throw new IllegalArgumentException("JWT token is empty");
+        }
+
+        String key = hash(token);
+        VerifiedClaims cached = verified.getIfPresent(key);
+        if (cached != null && !cached.isExpired(Instant.now())) {
+            hitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return cached;
+        }
+
+        try {
+            VerifiedClaims claims = toVerifiedClaims(parser.parseClaimsJws(token).getBody());
+            verified.put(key, claims);
+            missTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            rejectedTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
 
     public Long extractUserId(String token) {
-        return Long.valueOf(extractClaim(token, Claims::getSubject));
+        return verify(token).userId();
     }
 
     public String extractEmail(String token) {
-        return extractClaim(token, claims -> claims.get("email", String.class));
+        return verify(token).email();
     }
 
-    @SuppressWarnings("unchecked")
     public List<String> extractAuthorities(String token) {
-        return extractClaim(token, claims -> claims.get("authorities", List.class));
+        return verify(token).authorities();
     }
 
     public String extractUsername(String token) {
@@ -65,22 +167,48 @@ public class JwtService {
 
     public boolean isValid(String token) {
         try {
-            Date expiration = extractClaim(token, Claims::getExpiration);
-            return expiration.after(new Date());
+            verify(token);
+            return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = parse(token).getBody();
-        return claimsResolver.apply(claims);
+    private static VerifiedClaims toVerifiedClaims(Claims claims) {
+        Object authorities = claims.get("authorities");
+        List<String> roles = authorities instanceof List<?> list
+                ? list.stream().map(String::valueOf).collect(Collectors.toList())
+                : List.of();
+        if (claims.getExpiration() == null) {
+            throw new MalformedJwtException("JWT has no expiration");
+        }
+        String subject = claims.getSubject();
+        return new VerifiedClaims(
+                subject != null ? Long.valueOf(subject) : null,
+                claims.get("email", String.class),
+                roles,
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration().toInstant());
     }
 
-    private Jws<Claims> parse(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token);
+    private static long remainingNanos(VerifiedClaims claims) {
+        return Math.max(0, Duration.between(Instant.now(), claims.expiresAt()).toNanos());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Timer verifyTimer(MeterRegistry registry, String result) {
+        return Timer.builder("trailers.auth.jwt.verify")
+                .description("JWT verification time per request")
+                .tag("result", result)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package com.pgsa.trailers.service.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs independent blocking calls concurrently on the application task executor. Used by
+ * DashboardSnapshotService for the vehicle and driver KPI queries.
+ *
+ * Behaves like a structured scope: the caller blocks until every task has finished,
+ * the first failure or the deadline cancels the remaining tasks, and results come back
+ * in submission order. With spring.threads.virtual.enabled=true on Java 21+ each task
+ * runs on its own virtual thread; on Java 17 the bounded platform pool is used instead.
+ *
+ * Tasks run without the caller's SecurityContext, so pass in anything they need.
+ * Do not fan out calls to a rate-limited API: GeocodingService lookups go to Nominatim,
+ * which allows one request per second, so RoutingEngine geocodes sequentially.
+ */
+@Slf4j
+@Component
+public class BlockingFanOut {
+
+    private final AsyncTaskExecutor executor;
+    private final Duration defaultTimeout;
+
+    public BlockingFanOut(@Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor,
+                          @Value("${app.execution.fan-out.timeout-ms:30000}") long timeoutMs) {
+        this.executor = executor;
+        this.defaultTimeout = Duration.ofMillis(timeoutMs);
+    }
+
+    /**
+     * Run all tasks concurrently and return their results in submission order.
+     * Fails fast: the first exception cancels the remaining tasks and is rethrown.
+     */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+        return invokeAll(tasks, defaultTimeout);
+    }
+
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks, Duration timeout) {
+        if (tasks == null || tasks.isEmpty()) {
+            return List.of();
+        }
+
+        // Nothing to overlap - avoid the thread hop
+        if (tasks.size() == 1) {
+            try {
+                List<T> single = new ArrayList<>(1);
+                single.add(tasks.get(0).call());
+                return single;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Fan-out task failed: " + e.getMessage(), e);
+            }
+        }
+
+        CompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<T>, Integer> positions = new HashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            positions.put(completionService.submit(tasks.get(i)), i);
+        }
+
+        List<T> results = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            results.add(null);
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (int done = 0; done < tasks.size(); done++) {
+                long remaining = deadline - System.nanoTime();
+                Future<T> completed = completionService.poll(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+                if (completed == null) {
+                    throw new IllegalStateException("Fan-out of " + tasks.size()
+                            + " tasks timed out after " + timeout.toMillis() + " ms");
+                }
+                results.set(positions.get(completed), completed.get());
+            }
+            return results;
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            log.debug("Fan-out task failed, cancelling siblings: {}", cause.getMessage());
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Fan-out task failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Fan-out interrupted", e);
+        } finally {
+            // No-op for completed futures; stops stragglers after a failure or timeout
+            positions.keySet().forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Apply a blocking function to every input concurrently, preserving input order.
+     */
+    public <I, T> List<T> map(Collection<I> inputs, Function<I, T> function) {
+        List<Callable<T>> tasks = new ArrayList<>(inputs.size());
+        for (I input : inputs) {
+            tasks.add(() -> function.apply(input));
+        }
+        return invokeAll(tasks);
+    }
+}
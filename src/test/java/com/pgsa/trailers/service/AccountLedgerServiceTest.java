@@ -0,0 +1,186 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.entity.finance.AccountLedgerChangedEvent;
+import com.pgsa.trailers.support.PostgresTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Period checkpoints against the entries they summarise: each closed period opens where the
+ * previous one closed, and checkpoint-based balances equal a full sum of the source rows,
+ * also after entries inside closed periods are added, changed or removed.
+ */
+class AccountLedgerServiceTest extends PostgresTestSupport {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2026, 1, 1);
+    private static final LocalDate FEB_1 = LocalDate.of(2026, 2, 1);
+    private static final LocalDate MAR_1 = LocalDate.of(2026, 3, 1);
+
+    private AccountLedgerService ledger;
+    private TransactionTemplate transaction;
+    private long accountId;
+    private long fuelSourceId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE account_ledger_entry, account_ledger_balance, account_ledger_checkpoint, " +
+                "fuel_slip, payment, account_transaction, fuel_source, account RESTART IDENTITY CASCADE");
+        ledger = new AccountLedgerService(jdbcTemplate, transactionManager, 500);
+        transaction = new TransactionTemplate(transactionManager);
+
+        accountId = jdbcTemplate.queryForObject(
+                "INSERT INTO account (name, type) VALUES ('Engen Fleet', 'FUEL') RETURNING id", Long.class);
+        fuelSourceId = jdbcTemplate.queryForObject(
+                "INSERT INTO fuel_source (name, source_type, account_id) VALUES ('Engen card', 'CARD', ?) RETURNING id",
+                Long.class, accountId);
+    }
+
+    @Test
+    void closedPeriodsChainAndMatchTheSourceRows() {
+        slip(JAN_1.atTime(8, 0), "4200.00");
+        slip(JAN_1.plusDays(20).atTime(14, 30), "3150.50");
+        payment(JAN_1.plusDays(25), "5000.00");
+        slip(FEB_1.atTime(0, 0), "2899.99");
+        payment(FEB_1.plusDays(27), "6000.00");
+        slip(MAR_1.plusDays(2).atTime(9, 15), "1200.00");
+        ledger.catchUp();
+
+        AccountLedgerService.PeriodTotals january = close(JAN_1, FEB_1.minusDays(1));
+        AccountLedgerService.PeriodTotals february = close(FEB_1, MAR_1.minusDays(1));
+
+        assertThat(january.openingBalance()).isEqualByComparingTo("0");
+        assertThat(january.debits()).isEqualByComparingTo("7350.50");
+        assertThat(january.credits()).isEqualByComparingTo("5000.00");
+        assertThat(february.openingBalance()).isEqualByComparingTo(january.closingBalance());
+        assertThat(february.closingBalance())
+                .isEqualByComparingTo(february.openingBalance().add(february.credits()).subtract(february.debits()));
+        assertContinuity();
+    }
+
+    @Test
+    void changesInsideClosedPeriodsKeepTheChainIntact() {
+        long januarySlip = slip(JAN_1.plusDays(3).atTime(10, 0), "4200.00");
+        long februaryPayment = payment(FEB_1.plusDays(10), "3000.00");
+        slip(FEB_1.plusDays(11).atTime(7, 45), "1800.00");
+        ledger.catchUp();
+        close(JAN_1, FEB_1.minusDays(1));
+        close(FEB_1, MAR_1.minusDays(1));
+
+        // A late slip in January, a corrected January amount and a removed February payment
+        long lateSlip = slip(JAN_1.plusDays(30).atTime(23, 59), "999.99");
+        post(AccountLedgerChangedEvent.SOURCE_FUEL_SLIP, lateSlip);
+        jdbcTemplate.update("UPDATE fuel_slip SET total_amount = 4100.00 WHERE id = ?", januarySlip);
+        post(AccountLedgerChangedEvent.SOURCE_FUEL_SLIP, januarySlip);
+        jdbcTemplate.update("DELETE FROM payment WHERE id = ?", februaryPayment);
+        post(AccountLedgerChangedEvent.SOURCE_PAYMENT, februaryPayment);
+
+        BigDecimal lateAdjustment = jdbcTemplate.queryForObject(
+                "SELECT late_adjustment FROM account_ledger_checkpoint WHERE account_id = ? AND as_of = ?",
+                BigDecimal.class, accountId, Timestamp.valueOf(FEB_1.atStartOfDay()));
+        assertThat(lateAdjustment).isEqualByComparingTo("-899.99");
+        assertContinuity();
+
+        // Re-closing after the adjustments gives the same figures the adjusted checkpoints report
+        AccountLedgerService.PeriodTotals reclosed = close(FEB_1, MAR_1.minusDays(1));
+        assertThat(reclosed.openingBalance()).isEqualByComparingTo(expectedBalanceBefore(FEB_1.atStartOfDay()));
+        assertThat(reclosed.closingBalance()).isEqualByComparingTo(expectedBalanceBefore(MAR_1.atStartOfDay()));
+    }
+
+    @Test
+    void repostingAnUnchangedRowMovesNothing() {
+        long slipId = slip(JAN_1.plusDays(5).atTime(12, 0), "1500.00");
+        ledger.catchUp();
+        close(JAN_1, FEB_1.minusDays(1));
+
+        post(AccountLedgerChangedEvent.SOURCE_FUEL_SLIP, slipId);
+        post(AccountLedgerChangedEvent.SOURCE_FUEL_SLIP, slipId);
+
+        assertThat(ledger.catchUp()).isZero();
+        assertThat(ledger.getCurrentBalance(accountId)).isEqualByComparingTo("-1500.00");
+        assertContinuity();
+    }
+
+    @Test
+    void scopedCatchUpOnlyPostsTheClosedAccountAndPeriod() {
+        long otherAccount = jdbcTemplate.queryForObject(
+                "INSERT INTO account (name, type) VALUES ('Shell Fleet', 'FUEL') RETURNING id", Long.class);
+        long otherSource = jdbcTemplate.queryForObject(
+                "INSERT INTO fuel_source (name, source_type, account_id) VALUES ('Shell card', 'CARD', ?) RETURNING id",
+                Long.class, otherAccount);
+        slip(JAN_1.plusDays(4).atTime(9, 0), "2100.00");
+        payment(JAN_1.plusDays(15), "1000.00");
+        slip(MAR_1.plusDays(1).atTime(9, 0), "750.00");
+        jdbcTemplate.update("""
+                INSERT INTO fuel_slip (slip_number, transaction_date, fuel_source_id, quantity, unit_price, total_amount)
+                VALUES ('SLIP-OTHER', ?, ?, 50, 23.50, 1175.00)
+                """, Timestamp.valueOf(JAN_1.plusDays(6).atTime(11, 0)), otherSource);
+
+        assertThat(ledger.catchUp(accountId, JAN_1, FEB_1.minusDays(1))).isEqualTo(2);
+        AccountLedgerService.PeriodTotals january = close(JAN_1, FEB_1.minusDays(1));
+        assertThat(january.debits()).isEqualByComparingTo("2100.00");
+        assertThat(january.credits()).isEqualByComparingTo("1000.00");
+
+        // The March slip and the other account's slip are left to the full pass
+        assertThat(ledger.catchUp()).isEqualTo(2);
+        assertContinuity();
+    }
+
+    /**
+     * Every checkpoint-based figure equals the plain sum of the source rows.
+     */
+    private void assertContinuity() {
+        for (LocalDate day = JAN_1; !day.isAfter(MAR_1.plusDays(5)); day = day.plusDays(1)) {
+            LocalDateTime at = day.atStartOfDay();
+            assertThat(ledger.getBalanceBefore(accountId, at)).as("balance before %s", day)
+                    .isEqualByComparingTo(expectedBalanceBefore(at));
+        }
+        AccountLedgerService.PeriodTotals january = ledger.getPeriodTotals(accountId,
+                JAN_1.atStartOfDay(), FEB_1.atStartOfDay());
+        AccountLedgerService.PeriodTotals february = ledger.getPeriodTotals(accountId,
+                FEB_1.atStartOfDay(), MAR_1.atStartOfDay());
+        assertThat(february.openingBalance()).isEqualByComparingTo(january.closingBalance());
+        assertThat(ledger.getCurrentBalance(accountId))
+                .isEqualByComparingTo(expectedBalanceBefore(LocalDateTime.of(9999, 1, 1, 0, 0)));
+    }
+
+    private BigDecimal expectedBalanceBefore(LocalDateTime before) {
+        Timestamp at = Timestamp.valueOf(before);
+        return jdbcTemplate.queryForObject("""
+                SELECT COALESCE((SELECT SUM(amount) FROM payment
+                                 WHERE account_id = ? AND payment_date < ? AND status::text <> 'FAILED'), 0)
+                     - COALESCE((SELECT SUM(f.total_amount) FROM fuel_slip f
+                                 JOIN fuel_source s ON s.id = f.fuel_source_id
+                                 WHERE s.account_id = ? AND f.transaction_date < ?), 0)
+                """, BigDecimal.class, accountId, at, accountId, at);
+    }
+
+    private AccountLedgerService.PeriodTotals close(LocalDate start, LocalDate end) {
+        return transaction.execute(status -> ledger.closePeriod(accountId, start, end, "test"));
+    }
+
+    private void post(String sourceType, long sourceId) {
+        ledger.onLedgerSourceChanged(new AccountLedgerChangedEvent(sourceType, sourceId));
+    }
+
+    private long slip(LocalDateTime at, String amount) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO fuel_slip (slip_number, transaction_date, fuel_source_id, quantity, unit_price, total_amount)
+                VALUES ('SLIP-' || nextval(pg_get_serial_sequence('fuel_slip', 'id')), ?, ?, 100, 23.50, ?)
+                RETURNING id
+                """, Long.class, Timestamp.valueOf(at), fuelSourceId, new BigDecimal(amount));
+    }
+
+    private long payment(LocalDate date, String amount) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO payment (payment_date, account_id, amount) VALUES (?, ?, ?) RETURNING id",
+                Long.class, Timestamp.valueOf(date.atStartOfDay()), accountId, new BigDecimal(amount));
+    }
+}
@@ -0,0 +1,213 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.entity.ops.Load;
+import com.pgsa.trailers.entity.ops.Trip;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replays random trip events through the delta path and, after every event, checks each load
+ * against a from-scratch rebuild with the same semantics as RECOMPUTE_SQL.
+ */
+class LoadAggregateServiceTest {
+
+    private static final String[] STATUSES = {"PLANNED", "IN_PROGRESS", "COMPLETED", "FINALIZED", "CANCELLED"};
+    private static final LocalDateTime DAY_ZERO = LocalDateTime.of(2026, 3, 1, 6, 0);
+
+    // The trip table as the BOUNDS_SQL lookup sees it: trip id -> load number
+    private final Map<Long, Trip> trips = new HashMap<>();
+    private final Map<Long, String> tripLoad = new HashMap<>();
+    private final Map<String, Load> loads = new HashMap<>();
+
+    private LoadAggregateService service;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            String loadNumber = invocation.getArgument(2);
+            Long excludedTripId = invocation.getArgument(3);
+            List<Trip> others = tripsOf(loadNumber).stream()
+                    .filter(t -> !t.getId().equals(excludedTripId))
+                    .toList();
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getObject("earliest", LocalDateTime.class)).thenReturn(min(others, Trip::getPlannedStartDate));
+            when(rs.getObject("latest", LocalDateTime.class)).thenReturn(max(others, Trip::getPlannedEndDate));
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any());
+        service = new LoadAggregateService(jdbcTemplate);
+    }
+
+    @Test
+    void deltasMatchARecomputeAfterEveryEvent() {
+        Random random = new Random(20260301);
+        for (long id = 1; id <= 3; id++) {
+            Load load = new Load();
+            load.setId(id);
+            load.setLoadNumber("LD-" + id);
+            loads.put(load.getLoadNumber(), load);
+        }
+        for (long id = 1; id <= 24; id++) {
+            Trip trip = new Trip();
+            trip.setId(id);
+            randomize(trip, random);
+            trips.put(id, trip);
+        }
+        List<String> loadNumbers = new ArrayList<>(loads.keySet());
+
+        for (int step = 0; step < 2_000; step++) {
+            Trip trip = trips.get(1L + random.nextInt(trips.size()));
+            String current = tripLoad.get(trip.getId());
+            String target = loadNumbers.get(random.nextInt(loadNumbers.size()));
+            LoadAggregateService.TripContribution before = LoadAggregateService.TripContribution.of(trip);
+
+            if (current == null) {
+                service.tripAdded(loads.get(target), trip);
+                tripLoad.put(trip.getId(), target);
+            } else {
+                switch (random.nextInt(3)) {
+                    case 0 -> {
+                        service.tripRemoved(loads.get(current), before);
+                        tripLoad.remove(trip.getId());
+                    }
+                    case 1 -> {
+                        service.apply(loads.get(current), before, loads.get(target), trip);
+                        tripLoad.put(trip.getId(), target);
+                    }
+                    default -> {
+                        randomize(trip, random);
+                        service.tripChanged(loads.get(current), before, trip);
+                    }
+                }
+            }
+
+            for (Load load : loads.values()) {
+                assertMatchesRecompute(load, "step " + step);
+            }
+        }
+    }
+
+    @Test
+    void movingTheTripThatHeldTheBoundsReadsThemFromTheRemainingTrips() {
+        Load from = new Load();
+        from.setId(1L);
+        from.setLoadNumber("LD-1");
+        Load to = new Load();
+        to.setId(2L);
+        to.setLoadNumber("LD-2");
+        loads.put("LD-1", from);
+        loads.put("LD-2", to);
+
+        Trip early = trip(1L, "PLANNED", DAY_ZERO, DAY_ZERO.plusDays(9));
+        Trip middle = trip(2L, "IN_PROGRESS", DAY_ZERO.plusDays(2), DAY_ZERO.plusDays(4));
+        for (Trip t : List.of(early, middle)) {
+            service.tripAdded(from, t);
+            tripLoad.put(t.getId(), "LD-1");
+        }
+
+        LoadAggregateService.TripContribution before = LoadAggregateService.TripContribution.of(early);
+        service.apply(from, before, to, early);
+        tripLoad.put(early.getId(), "LD-2");
+
+        assertThat(from.getEarliestTripStart()).isEqualTo(DAY_ZERO.plusDays(2));
+        assertThat(from.getLatestTripEnd()).isEqualTo(DAY_ZERO.plusDays(4));
+        assertThat(from.getTripsCount()).isEqualTo(1);
+        assertThat(to.getEarliestTripStart()).isEqualTo(DAY_ZERO);
+        assertThat(service.deriveStatus(from)).isEqualTo(LoadService.STATUS_IN_TRANSIT);
+        assertMatchesRecompute(from, "from");
+        assertMatchesRecompute(to, "to");
+    }
+
+    private void assertMatchesRecompute(Load load, String when) {
+        List<Trip> onLoad = tripsOf(load.getLoadNumber());
+        String description = load.getLoadNumber() + " at " + when;
+
+        assertThat(load.getTripsCount()).as(description + " trips").isEqualTo(onLoad.size());
+        assertThat(load.getPlannedTripsCount()).as(description + " planned")
+                .isEqualTo(countStatus(onLoad, "PLANNED"));
+        assertThat(load.getInProgressTripsCount()).as(description + " in progress")
+                .isEqualTo(countStatus(onLoad, "IN_PROGRESS"));
+        assertThat(load.getCompletedTripsCount()).as(description + " completed")
+                .isEqualTo(countStatus(onLoad, "COMPLETED") + countStatus(onLoad, "FINALIZED"));
+        assertThat(load.getTotalCargoWeight()).as(description + " weight")
+                .isEqualByComparingTo(sum(onLoad, Trip::getCargoWeight));
+        assertThat(load.getTotalCargoValue()).as(description + " value")
+                .isEqualByComparingTo(sum(onLoad, Trip::getCargoValue));
+        assertThat(load.getTotalFromDepotKm()).as(description + " from depot km")
+                .isEqualByComparingTo(sum(onLoad, Trip::getFromDepotKm));
+        assertThat(load.getTotalToDepotKm()).as(description + " to depot km")
+                .isEqualByComparingTo(sum(onLoad, Trip::getToDepotKm));
+        assertThat(load.getTotalDepotKm()).as(description + " depot km")
+                .isEqualByComparingTo(sum(onLoad, Trip::getFromDepotKm).add(sum(onLoad, Trip::getToDepotKm)));
+        assertThat(load.getEarliestTripStart()).as(description + " earliest start")
+                .isEqualTo(min(onLoad, Trip::getPlannedStartDate));
+        assertThat(load.getLatestTripEnd()).as(description + " latest end")
+                .isEqualTo(max(onLoad, Trip::getPlannedEndDate));
+    }
+
+    private List<Trip> tripsOf(String loadNumber) {
+        return trips.values().stream()
+                .filter(t -> loadNumber.equals(tripLoad.get(t.getId())))
+                .toList();
+    }
+
+    private static void randomize(Trip trip, Random random) {
+        trip.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+        trip.setCargoWeight(random.nextInt(5) == 0 ? null : BigDecimal.valueOf(random.nextInt(3_000_000), 2));
+        trip.setCargoValue(random.nextInt(5) == 0 ? null : BigDecimal.valueOf(random.nextInt(90_000_000), 2));
+        trip.setFromDepotKm(random.nextInt(3) == 0 ? null : BigDecimal.valueOf(random.nextInt(40_000), 2));
+        trip.setToDepotKm(random.nextInt(3) == 0 ? null : BigDecimal.valueOf(random.nextInt(40_000), 2));
+        // A handful of days, so several trips share a bound and ties are exercised
+        LocalDateTime start = random.nextInt(6) == 0 ? null : DAY_ZERO.plusDays(random.nextInt(5));
+        trip.setPlannedStartDate(start);
+        trip.setPlannedEndDate(random.nextInt(6) == 0 ? null : DAY_ZERO.plusDays(3 + random.nextInt(5)));
+    }
+
+    private static Trip trip(Long id, String status, LocalDateTime start, LocalDateTime end) {
+        Trip trip = new Trip();
+        trip.setId(id);
+        trip.setStatus(status);
+        trip.setCargoWeight(new BigDecimal("12000.00"));
+        trip.setCargoValue(new BigDecimal("250000.00"));
+        trip.setPlannedStartDate(start);
+        trip.setPlannedEndDate(end);
+        return trip;
+    }
+
+    private static int countStatus(List<Trip> trips, String status) {
+        return (int) trips.stream().filter(t -> status.equals(t.getStatus())).count();
+    }
+
+    private static BigDecimal sum(List<Trip> trips, Function<Trip, BigDecimal> column) {
+        return trips.stream().map(column).filter(Objects::nonNull).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static LocalDateTime min(List<Trip> trips, Function<Trip, LocalDateTime> column) {
+        return trips.stream().map(column).filter(Objects::nonNull).min(LocalDateTime::compareTo).orElse(null);
+    }
+
+    private static LocalDateTime max(List<Trip> trips, Function<Trip, LocalDateTime> column) {
+        return trips.stream().map(column).filter(Objects::nonNull).max(LocalDateTime::compareTo).orElse(null);
+    }
+}
@@ -0,0 +1,110 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.entity.InsufficientStockException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the conditional UPDATEs against an in-memory H2 database: concurrent and batched
+ * decrements must never take an item below zero.
+ */
+class StockReservationServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transaction;
+    private StockReservationService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:stock-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE inventory_item (id BIGINT PRIMARY KEY, name VARCHAR(100), " +
+                "quantity INT, updated_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO inventory_item (id, name, quantity) VALUES (1, 'Brake pads', 50)");
+        jdbcTemplate.update("INSERT INTO inventory_item (id, name, quantity) VALUES (2, 'Oil filter', 3)");
+        jdbcTemplate.update("INSERT INTO inventory_item (id, name, quantity) VALUES (3, 'Wheel nut', 0)");
+        transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        service = new StockReservationService(jdbcTemplate, new SimpleMeterRegistry(),
+                mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "entityManager", mock(EntityManager.class));
+        ReflectionTestUtils.setField(service, "slowThresholdMs", 50L);
+    }
+
+    @Test
+    void concurrentReservationsStopAtZero() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Callable<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            attempts.add(() -> {
+                try {
+                    transaction.executeWithoutResult(status -> service.reserve(Map.of(1L, 1)));
+                    return true;
+                } catch (InsufficientStockException e) {
+                    return false;
+                }
+            });
+        }
+
+        int succeeded = 0;
+        for (Future<Boolean> attempt : pool.invokeAll(attempts)) {
+            if (attempt.get()) {
+                succeeded++;
+            }
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(succeeded).isEqualTo(50);
+        assertThat(quantity(1L)).isZero();
+    }
+
+    @Test
+    void shortLineRollsBackTheWholeRequest() {
+        assertThatThrownBy(() -> transaction.executeWithoutResult(
+                status -> service.reserve(Map.of(1L, 10, 2L, 4))))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("Oil filter")
+                .hasMessageContaining("Available: 3");
+
+        assertThat(quantity(1L)).isEqualTo(50);
+        assertThat(quantity(2L)).isEqualTo(3);
+    }
+
+    @Test
+    void exactQuantityCanBeReserved() {
+        transaction.executeWithoutResult(status -> service.reserve(Map.of(2L, 3)));
+
+        assertThat(quantity(2L)).isZero();
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status -> service.reserve(Map.of(2L, 1))))
+                .isInstanceOf(InsufficientStockException.class);
+        assertThat(quantity(2L)).isZero();
+    }
+
+    private int quantity(Long itemId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM inventory_item WHERE id = ?", Integer.class, itemId);
+    }
+}
@@ -0,0 +1,265 @@
+package com.pgsa.trailers.service;
+
+import com.pgsa.trailers.dto.PunchRequestDTO;
+import com.pgsa.trailers.entity.assets.Driver;
+import com.pgsa.trailers.entity.attendance.TimesheetEntry;
+import com.pgsa.trailers.repository.TimesheetEntryRepository;
+import com.pgsa.trailers.support.PostgresTestSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Punch state machine through the batching writer: each transition as the caller sees it,
+ * what lands in timesheet_entries / driver / timesheet_punch, and rejection of punches that
+ * do not fit the driver's current state.
+ */
+class TimesheetPunchServiceTest extends PostgresTestSupport {
+
+    private final List<TimesheetPunchService> started = new ArrayList<>();
+    private TimesheetPunchService service;
+    private long driverId;
+
+    @BeforeAll
+    static void addEntityManagedColumns() {
+        // Created by Hibernate from the entities in dev; SchemaDefinitions does not declare them
+        jdbcTemplate.execute("""
+                ALTER TABLE driver
+                    ADD COLUMN IF NOT EXISTS current_status VARCHAR(20),
+                    ADD COLUMN IF NOT EXISTS last_clock_in TIMESTAMP,
+                    ADD COLUMN IF NOT EXISTS last_clock_out TIMESTAMP,
+                    ADD COLUMN IF NOT EXISTS version INT,
+                    ADD COLUMN IF NOT EXISTS is_active BOOLEAN NOT NULL DEFAULT true;
+                CREATE TABLE IF NOT EXISTS timesheet_entries (
+                    id BIGSERIAL PRIMARY KEY,
+                    driver_id BIGINT NOT NULL REFERENCES driver(id),
+                    entry_date DATE NOT NULL,
+                    start_time TIME NOT NULL,
+                    end_time TIME,
+                    break_duration INT,
+                    total_hours NUMERIC(38,2),
+                    activity_type VARCHAR(255) NOT NULL,
+                    status VARCHAR(255),
+                    notes TEXT,
+                    clock_in_time TIMESTAMP,
+                    clock_out_time TIMESTAMP,
+                    break_start_time TIMESTAMP,
+                    break_end_time TIMESTAMP,
+                    punch_status VARCHAR(255),
+                    punch_location VARCHAR(255),
+                    punch_latitude NUMERIC(38,2),
+                    punch_longitude NUMERIC(38,2),
+                    is_active BOOLEAN,
+                    version INT,
+                    created_at TIMESTAMP,
+                    updated_at TIMESTAMP,
+                    created_by BIGINT,
+                    updated_by BIGINT
+                );
+                """);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE timesheet_punch, timesheet_entries, driver RESTART IDENTITY CASCADE");
+        driverId = driver("Sipho");
+        service = startService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(TimesheetPunchService::stop);
+    }
+
+    @Test
+    void fullShiftMovesThroughEveryState() {
+        TimesheetEntry clockIn = punch(TimesheetPunchService.CLOCK_IN, "r-1");
+        assertThat(service.getStatus(driverId)).isEqualTo(Driver.STATUS_CLOCKED_IN);
+        assertThat(entryRow(clockIn.getId())).containsEntry("punch_status", "CLOCKED_IN").containsEntry("is_active", true);
+        assertThat(driverStatus()).isEqualTo(Driver.STATUS_CLOCKED_IN);
+
+        TimesheetEntry breakStart = punch(TimesheetPunchService.BREAK_START, "r-2");
+        assertThat(breakStart.getId()).isEqualTo(clockIn.getId());
+        assertThat(service.getStatus(driverId)).isEqualTo(Driver.STATUS_ON_BREAK);
+        assertThat(entryRow(clockIn.getId())).containsEntry("punch_status", "ON_BREAK");
+        assertThat(driverStatus()).isEqualTo(Driver.STATUS_ON_BREAK);
+
+        punch(TimesheetPunchService.BREAK_END, "r-3");
+        assertThat(service.getStatus(driverId)).isEqualTo(Driver.STATUS_CLOCKED_IN);
+        assertThat(entryRow(clockIn.getId())).containsEntry("punch_status", "CLOCKED_IN");
+        assertThat(entryRow(clockIn.getId()).get("break_end_time")).isNotNull();
+
+        TimesheetEntry clockOut = punch(TimesheetPunchService.CLOCK_OUT, "r-4");
+        assertThat(clockOut.getPunchStatus()).isEqualTo("CLOCKED_OUT");
+        assertThat(service.getStatus(driverId)).isEqualTo(Driver.STATUS_OFF_DUTY);
+        Map<String, Object> closed = entryRow(clockIn.getId());
+        assertThat(closed).containsEntry("punch_status", "CLOCKED_OUT").containsEntry("is_active", false);
+        assertThat(closed.get("clock_out_time")).isNotNull();
+        assertThat(closed.get("total_hours")).isNotNull();
+        assertThat(driverStatus()).isEqualTo(Driver.STATUS_OFF_DUTY);
+        assertThat(punchLog()).isEqualTo(4);
+    }
+
+    @Test
+    void punchesThatDoNotFitTheStateAreRejected() {
+        assertThatThrownBy(() -> punch(TimesheetPunchService.BREAK_START, "r-1")).hasMessage("No active clock-in found");
+        assertThatThrownBy(() -> punch(TimesheetPunchService.CLOCK_OUT, "r-2")).hasMessage("No active clock-in found");
+        assertThatThrownBy(() -> punch(TimesheetPunchService.BREAK_END, "r-3")).hasMessage("No active break found");
+
+        punch(TimesheetPunchService.CLOCK_IN, "r-4");
+        assertThatThrownBy(() -> punch(TimesheetPunchService.BREAK_END, "r-5")).hasMessage("No active break found");
+
+        punch(TimesheetPunchService.BREAK_START, "r-6");
+        assertThatThrownBy(() -> punch(TimesheetPunchService.CLOCK_IN, "r-7")).hasMessage("Driver is already clocked in");
+
+        assertThat(service.getStatus(driverId)).isEqualTo(Driver.STATUS_ON_BREAK);
+        assertThat(entryCount()).isEqualTo(1);
+        assertThat(punchLog()).isEqualTo(2);
+        assertThatThrownBy(() -> punch("LUNCH", "r-8")).hasMessage("Invalid punch type: LUNCH");
+    }
+
+    @Test
+    void clockingOutFromABreakEndsTheBreak() {
+        TimesheetEntry entry = punch(TimesheetPunchService.CLOCK_IN, "r-1");
+        punch(TimesheetPunchService.BREAK_START, "r-2");
+        TimesheetEntry clockOut = punch(TimesheetPunchService.CLOCK_OUT, "r-3");
+
+        assertThat(clockOut.getBreakEndTime()).isNotNull();
+        Map<String, Object> row = entryRow(entry.getId());
+        assertThat(row).containsEntry("punch_status", "CLOCKED_OUT");
+        assertThat(row.get("break_end_time")).isNotNull();
+    }
+
+    @Test
+    void retriesAreAnsweredWithTheOriginalPunch() {
+        TimesheetEntry first = punch(TimesheetPunchService.CLOCK_IN, "r-1");
+        TimesheetEntry keyedRetry = punch(TimesheetPunchService.CLOCK_IN, "r-1");
+        TimesheetEntry unkeyedRepeat = punch(TimesheetPunchService.CLOCK_IN, null);
+
+        assertThat(keyedRetry.getId()).isEqualTo(first.getId());
+        assertThat(unkeyedRepeat.getId()).isEqualTo(first.getId());
+        assertThat(entryCount()).isEqualTo(1);
+        assertThat(punchLog()).isEqualTo(1);
+    }
+
+    @Test
+    void stateIsRecoveredFromTheDatabaseAfterARestart() {
+        TimesheetEntry entry = punch(TimesheetPunchService.CLOCK_IN, "r-1");
+        punch(TimesheetPunchService.BREAK_START, "r-2");
+
+        TimesheetPunchService restarted = startService();
+        assertThat(restarted.getStatus(driverId)).isEqualTo(Driver.STATUS_ON_BREAK);
+
+        TimesheetEntry breakEnd = restarted.punch(request(TimesheetPunchService.BREAK_END, "r-3"));
+        assertThat(breakEnd.getId()).isEqualTo(entry.getId());
+        assertThat(entryRow(entry.getId())).containsEntry("punch_status", "CLOCKED_IN");
+    }
+
+    @Test
+    void entryChangedElsewhereRejectsThePunchAndReloadsTheState() {
+        TimesheetEntry entry = punch(TimesheetPunchService.CLOCK_IN, "r-1");
+        jdbcTemplate.update("UPDATE timesheet_entries SET punch_status = 'CLOCKED_OUT', is_active = false WHERE id = ?",
+                entry.getId());
+
+        assertThatThrownBy(() -> punch(TimesheetPunchService.BREAK_START, "r-2"))
+                .hasMessage("Timesheet changed elsewhere, please retry");
+
+        assertThat(service.getStatus(driverId)).isEqualTo(Driver.STATUS_OFF_DUTY);
+        TimesheetEntry next = punch(TimesheetPunchService.CLOCK_IN, "r-3");
+        assertThat(next.getId()).isNotEqualTo(entry.getId());
+    }
+
+    @Test
+    void concurrentDriversShareBatchesWithoutLosingPunches() throws Exception {
+        List<Long> drivers = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            drivers.add(driver("Driver " + i));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Callable<TimesheetEntry>> punches = new ArrayList<>();
+        for (Long id : drivers) {
+            punches.add(() -> {
+                PunchRequestDTO request = request(TimesheetPunchService.CLOCK_IN, "in-" + id);
+                request.setDriverId(id);
+                return service.punch(request);
+            });
+        }
+        for (Future<TimesheetEntry> punch : pool.invokeAll(punches)) {
+            assertThat(punch.get().getPunchStatus()).isEqualTo("CLOCKED_IN");
+        }
+        pool.shutdown();
+
+        assertThat(entryCount()).isEqualTo(40);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM driver WHERE current_status = 'CLOCKED_IN'", Integer.class)).isEqualTo(40);
+        drivers.forEach(id -> assertThat(service.getStatus(id)).isEqualTo(Driver.STATUS_CLOCKED_IN));
+    }
+
+    private TimesheetPunchService startService() {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(mock(Cache.class));
+        TimesheetPunchService punchService = new TimesheetPunchService(jdbcTemplate,
+                mock(TimesheetEntryRepository.class), entityManagerFactory, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(punchService, "batchSize", 200);
+        ReflectionTestUtils.setField(punchService, "queueCapacity", 1_000);
+        ReflectionTestUtils.setField(punchService, "timeoutMs", 10_000L);
+        ReflectionTestUtils.setField(punchService, "retryWindowSeconds", 120L);
+        ReflectionTestUtils.setField(punchService, "requestTtlMinutes", 60L);
+        punchService.start();
+        started.add(punchService);
+        return punchService;
+    }
+
+    private TimesheetEntry punch(String type, String requestId) {
+        return service.punch(request(type, requestId));
+    }
+
+    private PunchRequestDTO request(String type, String requestId) {
+        PunchRequestDTO request = new PunchRequestDTO();
+        request.setDriverId(driverId);
+        request.setPunchType(type);
+        request.setRequestId(requestId);
+        request.setLocation("Durban depot");
+        return request;
+    }
+
+    private long driver(String firstName) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO driver (first_name, last_name, current_status) VALUES (?, 'Test', 'OFF_DUTY') RETURNING id",
+                Long.class, firstName);
+    }
+
+    private Map<String, Object> entryRow(Long entryId) {
+        return jdbcTemplate.queryForMap("SELECT * FROM timesheet_entries WHERE id = ?", entryId);
+    }
+
+    private String driverStatus() {
+        return jdbcTemplate.queryForObject("SELECT current_status FROM driver WHERE id = ?", String.class, driverId);
+    }
+
+    private int entryCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM timesheet_entries", Integer.class);
+    }
+
+    private int punchLog() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM timesheet_punch", Integer.class);
+    }
+}
@@ -0,0 +1,118 @@
+package com.pgsa.trailers.service.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTest {
+
+    private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    private SimpleMeterRegistry registry;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        jwtService = new JwtService(key, registry, 100);
+    }
+
+    @Test
+    void repeatVerificationIsServedFromTheCache() {
+        String token = token(key, Instant.now().plus(Duration.ofHours(1)));
+
+        JwtService.VerifiedClaims first = jwtService.verify(token);
+        JwtService.VerifiedClaims second = jwtService.verify(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.userId()).isEqualTo(42L);
+        assertThat(second.authorities()).containsExactly("ROLE_MANAGER");
+        assertThat(count("miss")).isEqualTo(1);
+        assertThat(count("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void cachedTokenStopsVerifyingAtItsExpiry() throws InterruptedException {
+        // exp has second precision; leave at least one full second before it
+        Instant exp = Instant.now().plusSeconds(2);
+        String token = token(key, exp);
+
+        JwtService.VerifiedClaims claims = jwtService.verify(token);
+        assertThat(jwtService.verify(token)).isSameAs(claims);
+
+        Thread.sleep(Math.max(0, Duration.between(Instant.now(), claims.expiresAt()).toMillis()) + 100);
+
+        assertThatThrownBy(() -> jwtService.verify(token)).isInstanceOf(ExpiredJwtException.class);
+        assertThat(jwtService.isValid(token)).isFalse();
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(count("rejected")).isEqualTo(2);
+    }
+
+    @Test
+    void rejectedTokensAreNotCached() {
+        Key otherKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        String forged = token(otherKey, Instant.now().plus(Duration.ofHours(1)));
+
+        assertThatThrownBy(() -> jwtService.verify(forged)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> jwtService.verify(forged)).isInstanceOf(JwtException.class);
+
+        assertThat(count("rejected")).isEqualTo(2);
+        assertThat(count("hit")).isZero();
+        assertThat(count("miss")).isZero();
+    }
+
+    @Test
+    void tamperedPayloadIsRejectedEvenAfterTheOriginalWasCached() {
+        String token = token(key, Instant.now().plus(Duration.ofHours(1)));
+        jwtService.verify(token);
+
+        // Same signature, subject changed to another user
+        String[] parts = token.split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                .replace("\"sub\":\"42\"", "\"sub\":\"1\"");
+        String tampered = parts[0] + "."
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+                + "." + parts[2];
+
+        assertThat(tampered).isNotEqualTo(token);
+        assertThat(jwtService.isValid(tampered)).isFalse();
+        assertThat(jwtService.isValid(token)).isTrue();
+        assertThat(count("rejected")).isEqualTo(1);
+    }
+
+    @Test
+    void blankTokenIsRejected() {
+        assertThatThrownBy(() -> jwtService.verify(" ")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(count("rejected")).isEqualTo(1);
+    }
+
+    private static String token(Key signingKey, Instant expiresAt) {
+        return Jwts.builder()
+                .setClaims(Map.of("authorities", List.of("ROLE_MANAGER"), "email", "manager@pgsa.co.za"))
+                .setSubject("42")
+                .setIssuedAt(new Date())
+                .setExpiration(Date.from(expiresAt))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private long count(String result) {
+        return registry.get("trailers.auth.jwt.verify").tag("result", result).timer().count();
+    }
+}
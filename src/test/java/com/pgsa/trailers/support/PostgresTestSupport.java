@@ -0,0 +1,50 @@
+package com.pgsa.trailers.support;
+
+import com.pgsa.trailers.config.SchemaDefinitions;
+import org.junit.jupiter.api.BeforeAll;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base for tests that need PostgreSQL itself (LATERAL joins, ON CONFLICT, advisory locks,
+ * sequences). Starts a throwaway container per test class and applies the application's
+ * own schema units, the way SchemaBootstrap does on a fresh database. Skipped when Docker
+ * is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresTestSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresTestSupport.class);
+
+    @Container
+    protected static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    protected static DriverManagerDataSource dataSource;
+    protected static JdbcTemplate jdbcTemplate;
+    protected static DataSourceTransactionManager transactionManager;
+
+    @BeforeAll
+    static void applySchema() {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+
+        for (SchemaDefinitions.Unit unit : SchemaDefinitions.load(false, false)) {
+            try {
+                jdbcTemplate.execute(unit.sql());
+            } catch (RuntimeException e) {
+                // Same rule as SchemaBootstrap: only the required phases must apply
+                if (unit.phase().isRequired()) {
+                    throw e;
+                }
+                log.warn("Could not apply {}: {}", unit.name(), e.getMessage());
+            }
+        }
+    }
+}